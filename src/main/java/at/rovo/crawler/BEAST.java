@@ -1,16 +1,40 @@
 package at.rovo.crawler;
 
-import at.rovo.common.Pair;
+import at.rovo.crawler.bean.BEASTStatistics;
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.interfaces.BEASTBatchPassedListener;
 import at.rovo.crawler.interfaces.BEASTBudgetPassedListener;
-import at.rovo.crawler.util.IRLbotUtils;
+import at.rovo.crawler.interfaces.BEASTMXBean;
+import at.rovo.crawler.util.CompactUrlQueue;
+import at.rovo.crawler.util.CountMinSketch;
+import at.rovo.drum.util.NamedThreadFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,7 +43,7 @@ import org.slf4j.LoggerFactory;
  * Lee, Leonard, Wang and Loguinov in their paper <em>IRLbot: Scaling to 6 Billion Pages and Beyond</em>.
  * <p>
  * BEAST administers a {@link List} of {@link Queue}s which contain the URLs and their actual budget, which was
- * calculated by {@link STAR} beforehand. New URLs, which are provided via {@link #checkBudgetOfURL(String, int)}, get
+ * calculated by {@link STAR} beforehand. New URLs, which are provided via {@link #checkBudgetOfURL(CrawlUrl, int)}, get
  * arranged into the first queue which has still room according to the number of URLs of the same pay level domain
  * within the queue and the provided budget-value that indicates the capacity of pay level dependent URLs in a queue.
  * <p>
@@ -27,53 +51,181 @@ import org.slf4j.LoggerFactory;
  * stored in a left-over queue which will be split up into n new queues, depending on the current number of queues,
  * which are added to the end of the list of queues, after all queues in the list of queues have been read. The data
  * contained within the left-over queue is spread across the newly added queues.
+ * <p>
+ * The left-over queue keeps its entries grouped by pay level domain. Redistribution therefore moves whole runs of a
+ * pay level domain in bulk and is spread over the drain cycles of the old queues, so that the reader has not to wait
+ * for the whole left-over queue to be split at once.
+ * <p>
+ * The queues keep their URLs in the shared {@link at.rovo.crawler.util.CompactUrlStore} and only hold handles to them.
+ * Redistributed URLs are moved between queues without being decoded.
+ * <p>
+ * If a checkpoint file is provided on construction, the state of all queues, the left-over queue, the per-queue budgets
+ * and the position of the reader are restored from that file and written back to it periodically and on {@link
+ * #dispose()}, so that a restarted crawler resumes budget enforcement where it stopped.
+ * <p>
+ * The number of queues, their sizes, the size of the left-over queue, the admission and drain rates and the pay level
+ * domains deferred most often are tracked by counters which can be read via {@link #getStatistics()} or JMX without
+ * acquiring the lock on the queues.
  *
  * @author Roman Vottner
  */
 @SuppressWarnings("unused")
-public final class BEAST
+public final class BEAST implements BEASTMXBean
 {
     /** The logger of this class **/
     private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
     /** The {@link List} of expandable queues **/
-    private List<Queue<Pair<String, Integer>>> queues = null;
-    /** The left-over budgets for each pay level domain per queue **/
-    private Map<Queue<Pair<String, Integer>>, Map<String, Integer>> pldBudgets = null;
+    private List<CompactUrlQueue> queues = null;
+    /**
+     * The number of already assigned URLs for each pay level domain per queue. The n-th entry belongs to the n-th
+     * queue within {@link #queues}
+     **/
+    private List<Map<String, Integer>> pldBudgets = null;
     /** The queue currently read from. Note that new entries are stored within the other n-1 queues **/
-    private Queue<Pair<String, Integer>> currentQueue = null;
-    /** This queue will take all URLs that did not fit into any other queue **/
-    private Queue<Pair<String, Integer>> leftOverQueue = null;
+    private CompactUrlQueue currentQueue = null;
+    /**
+     * This queue will take all URLs that did not fit into any other queue. Entries are grouped by their pay level
+     * domain in order of the first arrival of the respective domain
+     **/
+    private Map<String, CompactUrlQueue> leftOverQueue = null;
+    /** The total number of URLs contained in the left-over queue **/
+    private volatile int leftOverSize = 0;
+    /** The pay level domains of the left-over queue which still await their redistribution to the new queues **/
+    private Queue<String> pldsToRedistribute = null;
+    /** The index of the first queue left-over entries are redistributed to **/
+    private int redistributionStart = 0;
     /** Number of the current queue in the list of queues **/
-    private int currentQueueNumber = 0;
+    private volatile int currentQueueNumber = 0;
     /** Indicates if the work should be stooped **/
     private volatile boolean stopRequested = false;
     /** Indicates when to start off work **/
     private boolean startOff = false;
     /** Classes that need to be informed of URLs passing the budget check **/
     private List<BEASTBudgetPassedListener> listeners = null;
+    /** Classes that need to be informed of all URLs of a drained queue at once **/
+    private List<BEASTBatchPassedListener> batchListeners = null;
     /** The object to use for the synchronization lock **/
     private final Object syncObj = new Object();
+    /** Identifies a BEAST checkpoint file **/
+    private final static int CHECKPOINT_MAGIC = 0x42454153;
+    /** The version of the checkpoint format written by this class **/
+    private final static byte CHECKPOINT_VERSION = 1;
+    /** The file the state is restored from and written to periodically and on disposal. May be null **/
+    private Path checkpointFile = null;
+    /** The default time in milliseconds between two checkpoints **/
+    public final static long DEFAULT_CHECKPOINT_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+    /** Writes checkpoints periodically. Null if no checkpoints are written periodically **/
+    private ScheduledExecutorService checkpointWriter = null;
+    /** The object to use for the synchronization of checkpoint writes. Acquired before {@link #syncObj} **/
+    private final Object checkpointObj = new Object();
+    /** Indicates that queued URLs were restored from a checkpoint and need to be read once listeners are present **/
+    private boolean restored = false;
+    /**
+     * The number of URLs per queue which can be read without the lock on the queues. It is replaced by a new array
+     * whenever the number of queues changes
+     **/
+    private volatile AtomicIntegerArray queueSizes = null;
+    /** The total number of URLs added to BEAST **/
+    private final AtomicLong numAdmitted = new AtomicLong();
+    /** The total number of URLs passed on from drained queues **/
+    private final AtomicLong numDrained = new AtomicLong();
+    /** Estimates the number of URLs deferred to the left-over queue per pay level domain **/
+    private final CountMinSketch deferredPLDs = new CountMinSketch(1 << 12);
+    /**
+     * The pay level domains deferred most often with their estimated number of deferred URLs. Holds at most {@link
+     * #NUM_DEFERRED_CANDIDATES} entries and is only modified while holding the lock on the queues
+     **/
+    private final Map<String, Long> deferredCandidates = new ConcurrentHashMap<>();
+    /** The number of pay level domains returned as top deferred pay level domains **/
+    private final static int TOP_DEFERRED_PLDS = 10;
+    /** The number of pay level domains kept as candidates for the top deferred pay level domains **/
+    private final static int NUM_DEFERRED_CANDIDATES = 4 * TOP_DEFERRED_PLDS;
+    /** The minimum time in nanoseconds between two samples of the admission and drain rates **/
+    private final static long SAMPLE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    /** The object to use for the synchronization of rate samples. Independent of {@link #syncObj} **/
+    private final Object sampleObj = new Object();
+    /** The time of the last rate sample in nanoseconds **/
+    private long lastSampleTime = System.nanoTime();
+    /** The number of admitted URLs at the last rate sample **/
+    private long lastNumAdmitted = 0;
+    /** The number of drained URLs at the last rate sample **/
+    private long lastNumDrained = 0;
+    /** The number of URLs added per second between the last two samples **/
+    private volatile double admissionsPerSecond = 0;
+    /** The number of URLs drained per second between the last two samples **/
+    private volatile double drainsPerSecond = 0;
 
     /**
      * Instantiates a new BEAST object
      */
     public BEAST()
     {
+        this(null);
+    }
+
+    /**
+     * Instantiates a new BEAST object which restores its state from the given checkpoint file, if it exists, and writes
+     * its state back to this file every {@value #DEFAULT_CHECKPOINT_INTERVAL} milliseconds and on {@link #dispose()}.
+     *
+     * @param checkpointFile
+     *         The file to restore the state from and to store the state to. If null no checkpoint will be used
+     */
+    public BEAST(Path checkpointFile)
+    {
+        this(checkpointFile, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Instantiates a new BEAST object which restores its state from the given checkpoint file, if it exists, and writes
+     * its state back to this file periodically and on {@link #dispose()}.
+     *
+     * @param checkpointFile
+     *         The file to restore the state from and to store the state to. If null no checkpoint will be used
+     * @param checkpointInterval
+     *         The time in milliseconds between two checkpoints. If not positive the state is only written on disposal
+     */
+    public BEAST(Path checkpointFile, long checkpointInterval)
+    {
+        this.checkpointFile = checkpointFile;
         this.queues = new ArrayList<>();
-        this.currentQueue = new LinkedList<>();
-        this.leftOverQueue = new LinkedList<>();
-        this.pldBudgets = new HashMap<>();
+        this.currentQueue = new CompactUrlQueue();
+        this.leftOverQueue = new LinkedHashMap<>();
+        this.pldsToRedistribute = new ArrayDeque<>();
+        this.pldBudgets = new ArrayList<>();
 
         // Adding starting queues to the list of queues
         this.queues.add(this.currentQueue);
-        Queue<Pair<String, Integer>> queue = new LinkedList<>();
+        CompactUrlQueue queue = new CompactUrlQueue();
         this.queues.add(queue);
-        // Adding queues and the mapping of PLD with their left-over budget for each queue to the budget map
-        this.pldBudgets.put(this.currentQueue, new HashMap<>());
-        this.pldBudgets.put(queue, new HashMap<>());
+        // Adding the mapping of PLD with their assigned budget for each queue to the budget list
+        this.pldBudgets.add(new HashMap<>());
+        this.pldBudgets.add(new HashMap<>());
+        this.publishQueueSizes();
 
         this.listeners = new CopyOnWriteArrayList<>();
+        this.batchListeners = new CopyOnWriteArrayList<>();
+
+        if (this.checkpointFile != null && Files.exists(this.checkpointFile))
+        {
+            try
+            {
+                this.restore(this.checkpointFile);
+            }
+            catch (IOException ioEx)
+            {
+                LOG.error("Could not restore BEAST state from " + this.checkpointFile + "! Starting with empty queues",
+                          ioEx);
+            }
+        }
+        if (this.checkpointFile != null && checkpointInterval > 0)
+        {
+            NamedThreadFactory factory = new NamedThreadFactory();
+            factory.setName("beastCheckpoint");
+            this.checkpointWriter = Executors.newSingleThreadScheduledExecutor(factory);
+            this.checkpointWriter.scheduleWithFixedDelay(this::writePeriodicCheckpoint, checkpointInterval,
+                                                         checkpointInterval, TimeUnit.MILLISECONDS);
+        }
 
         Thread worker = new Thread(new BEASTQueueReader());
         worker.setName("BEAST Queue Reader");
@@ -93,6 +245,7 @@ public final class BEAST
         {
             this.listeners.add(listener);
         }
+        this.startOff = this.startOff || this.restored;
     }
 
     /**
@@ -110,6 +263,34 @@ public final class BEAST
         }
     }
 
+    /**
+     * Adds a new listener to BEAST, which implementing class needs to be informed of all URLs of a drained queue at
+     * once. If the listener is already registered with BEAST, the invocation will be ignored.
+     *
+     * @param listener
+     *         The listener which need to be informed of passing URLs
+     */
+    public void addBEASTBatchPassedListener(BEASTBatchPassedListener listener)
+    {
+        if (!this.batchListeners.contains(listener))
+        {
+            this.batchListeners.add(listener);
+        }
+        this.startOff = this.startOff || this.restored;
+    }
+
+    /**
+     * Removes a currently registered instance that implements the {@link BEASTBatchPassedListener}. If the listener was
+     * not registered before the invocation will be ignored.
+     *
+     * @param listener
+     *         The listener-instance which needs to be removed of the set of registered listeners.
+     */
+    public void removeBEASTBatchPassedListener(BEASTBatchPassedListener listener)
+    {
+        this.batchListeners.remove(listener);
+    }
+
     /**
      * Arranges URLs into specific queues based on the provided budget and the number of URLs from the same pay level
      * domain within the queues.
@@ -118,23 +299,26 @@ public final class BEAST
      * depleted.
      * <p>
      * If all of the queues are already depleted with URLs of the same pay level domain, the URL itself is added to a
-     * further queue, the fail-over queue, at the end of the list.
+     * further queue, the fail-over queue, at the end of the list. As long as the fail-over queue still holds URLs of
+     * the pay level domain, further URLs of it are appended there as well, so that they do not overtake the URLs
+     * deferred before them.
      *
      * @param url
      *         The URL to check its budget for
      * @param budget
      *         The current budget for this URL
      */
-    public void checkBudgetOfURL(String url, int budget)
+    public void checkBudgetOfURL(CrawlUrl url, int budget)
     {
-        String PLD = IRLbotUtils.getPLDofURL(url);
+        String PLD = url.getPLD();
         // for a given domain x with budget Bx, the first Bx URLs are sent into Q2, the next into Q3 and so on
         // this means if there are 4 queues and the budget of a URL is f.e. 10 - every queue has a limit of 10 URLs
         boolean found = false;
 
         synchronized (this.syncObj)
         {
-            for (int i = 0; i < this.queues.size(); i++)
+            // a PLD with left-over URLs has exhausted its budget in the queues it was admitted to last
+            for (int i = 0; i < this.queues.size() && !this.leftOverQueue.containsKey(PLD); i++)
             {
                 // this will add the recently emptied queue to the back of the list while adding values
                 int j = i + this.currentQueueNumber + 1;
@@ -145,31 +329,15 @@ public final class BEAST
                 // check if the selected queue is not the current one
                 if (j != this.currentQueueNumber)
                 {
-                    Integer queueBudget = 0;
-                    Map<String, Integer> pldDataInQueue = this.pldBudgets.get(this.queues.get(j));
-                    if (pldDataInQueue != null)
-                    {
-                        queueBudget = pldDataInQueue.get(PLD);
-                    }
-                    if (queueBudget == null)
-                    {
-                        queueBudget = 0;
-                    }
+                    Map<String, Integer> pldDataInQueue = this.pldBudgets.get(j);
+                    int queueBudget = pldDataInQueue.getOrDefault(PLD, 0);
                     LOG.debug("current queue id: {} | j: {} | budget: {} | queueBudget: {}",
                               this.currentQueueNumber, j, budget, queueBudget);
                     if (queueBudget < budget)
                     {
-                        this.queues.get(j).add(new Pair<>(url, budget));
-                        if (this.pldBudgets.get(this.queues.get(j)) == null)
-                        {
-                            Map<String, Integer> data = new HashMap<>();
-                            data.put(PLD, queueBudget++);
-                            this.pldBudgets.put(this.queues.get(j), data);
-                        }
-                        else
-                        {
-                            this.pldBudgets.get(this.queues.get(j)).put(PLD, queueBudget++);
-                        }
+                        this.queues.get(j).add(url, budget);
+                        this.queueSizes.incrementAndGet(j);
+                        pldDataInQueue.put(PLD, ++queueBudget);
                         found = true;
                         LOG.debug("Adding {} to queue {} which had available {} slot(s)",
                                   url, j, (budget - queueBudget));
@@ -180,10 +348,13 @@ public final class BEAST
             // ... if all 40 places are used the remaining URLs of this PLD are sent to the leftOverQueue
             if (!found)
             {
-                this.leftOverQueue.add(new Pair<>(url, budget));
+                this.leftOverQueue.computeIfAbsent(PLD, key -> new CompactUrlQueue()).add(url, budget);
+                this.leftOverSize++;
+                this.countDeferredPLD(url);
                 LOG.debug("No queue found for url {} - using fail-over queue", url);
             }
         }
+        this.numAdmitted.incrementAndGet();
 
         this.startOff = true;
     }
@@ -191,55 +362,80 @@ public final class BEAST
     /**
      * Reads the current queue and informs listeners of URLs that passed the budget check.
      * <p>
+     * The content of the current queue is moved out while holding the lock without decoding the URLs. The URLs are
+     * decoded and passed on to the listeners after the lock got released. Listeners registered via {@link
+     * #addBEASTBatchPassedListener(BEASTBatchPassedListener)} receive the content of the drained queue as one batch.
+     * <p>
      * This method is invoked repeatedly by a worker thread.
      */
     private void readCurrentQueue()
     {
+        CompactUrlQueue drained = null;
         synchronized (this.syncObj)
         {
-            for (Pair<String, Integer> data : this.currentQueue)
+            if (!this.currentQueue.isEmpty())
             {
-                for (BEASTBudgetPassedListener listener : this.listeners)
-                {
-                    listener.handleBudgetPassed(data.getFirst());
-                }
+                drained = this.currentQueue;
+                this.queues.set(this.currentQueueNumber, new CompactUrlQueue());
             }
-            this.currentQueue.clear();
-            Map<String, Integer> dataMap = this.pldBudgets.get(this.currentQueue);
-            if (dataMap != null)
+            this.queueSizes.set(this.currentQueueNumber, 0);
+            this.pldBudgets.get(this.currentQueueNumber).clear();
+
+            readNextQueue();
+            redistributeLeftOvers();
+        }
+        if (drained == null)
+        {
+            return;
+        }
+
+        this.numDrained.addAndGet(drained.size());
+        List<CrawlUrl> batch = this.batchListeners.isEmpty() ? null : new ArrayList<>(drained.size());
+        while (!drained.isEmpty())
+        {
+            CrawlUrl url = drained.poll();
+            for (BEASTBudgetPassedListener listener : this.listeners)
             {
-                dataMap.clear();
+                listener.handleBudgetPassed(url);
             }
-            else
+            if (batch != null)
             {
-                this.pldBudgets.put(this.currentQueue, new HashMap<>());
+                batch.add(url);
             }
+        }
 
-            readNextQueue();
+        if (batch != null)
+        {
+            List<CrawlUrl> urls = Collections.unmodifiableList(batch);
+            for (BEASTBatchPassedListener listener : this.batchListeners)
+            {
+                listener.handleBatchPassed(urls);
+            }
         }
     }
 
     /**
      * Sets the next queue in line to read from. If it reaches the end of the list it sets the pointer to the start of
-     * the list. Moreover if the last element of the list was reached, it invokes splitting the left-over queue.
+     * the list. Moreover if the last element of the list was reached while the left-over queue contains entries, it
+     * doubles the number of queues and invokes splitting the left-over queue.
      */
     private void readNextQueue()
     {
         int currentSize = this.queues.size();
         int activeQueueNumber = this.currentQueueNumber;
 
-        // check if we already hit the last queue
-        if (activeQueueNumber == currentSize)
+        // check if we already hit the last queue and have URLs left which did not fit into any queue
+        if (activeQueueNumber == currentSize - 1 && !this.leftOverQueue.isEmpty())
         {
             // double the size of queues
             for (int i = 0; i < currentSize; i++)
             {
-                Queue<Pair<String, Integer>> queue = new LinkedList<>();
-                this.queues.add(queue);
-                this.pldBudgets.put(queue, new HashMap<>());
+                this.queues.add(new CompactUrlQueue());
+                this.pldBudgets.add(new HashMap<>());
             }
+            this.publishQueueSizes();
             //
-            this.splitLeftOverQueue();
+            this.splitLeftOverQueue(currentSize);
         }
 
         // set the next queue in the line to read from
@@ -258,65 +454,599 @@ public final class BEAST
      * Splits the left-over queue into n separate new queues which are added to the list of queues. n represents the
      * current size of queues in the list of queues excluding the left-over queue.
      * <p>
+     * This method only schedules the pay level domains currently contained in the left-over queue for redistribution.
+     * The actual move of the entries to the newly created queues is done by {@link #redistributeLeftOvers()} on each
+     * of the following drain cycles, before the reader reaches the first of the new queues.
+     *
+     * @param firstNewQueue
+     *         The index of the first newly created queue
+     */
+    private void splitLeftOverQueue(int firstNewQueue)
+    {
+        LOG.debug("Splitting left-over queue containing {} URLs of {} PLDs", this.leftOverSize,
+                  this.leftOverQueue.size());
+        // PLDs still pending from a previous split are now redistributed to the new range of queues as well
+        this.pldsToRedistribute.clear();
+        this.pldsToRedistribute.addAll(this.leftOverQueue.keySet());
+        this.redistributionStart = firstNewQueue;
+    }
+
+    /**
+     * Moves a share of the pay level domains scheduled by {@link #splitLeftOverQueue(int)} from the left-over queue to
+     * the newly created queues. The share is chosen so that all scheduled pay level domains are redistributed once the
+     * reader reaches the first of the new queues.
+     * <p>
      * Data contained inside the left-over queue is distributed according the budget values of the URLs among the newly
-     * created queues.
+     * created queues. URLs of a pay level domain which do not fit into any of the new queues remain in the left-over
+     * queue.
      */
-    private void splitLeftOverQueue()
+    private void redistributeLeftOvers()
     {
-        LOG.debug("Splitting left-over queue");
-        Queue<Pair<String, Integer>> tmpLeftOverQueue = new LinkedList<>();
-        for (Pair<String, Integer> data : this.leftOverQueue)
+        if (this.pldsToRedistribute.isEmpty())
         {
-            String PLD = IRLbotUtils.getPLDofURL(data.getFirst());
-            int budget = data.getLast();
-            boolean found = false;
+            return;
+        }
+
+        int remainingCycles = this.redistributionStart - this.currentQueueNumber;
+        int numPLDs = this.pldsToRedistribute.size();
+        if (remainingCycles > 1)
+        {
+            numPLDs = (numPLDs + remainingCycles - 1) / remainingCycles;
+        }
+
+        for (int n = 0; n < numPLDs && !this.pldsToRedistribute.isEmpty(); n++)
+        {
+            String PLD = this.pldsToRedistribute.poll();
+            CompactUrlQueue run = this.leftOverQueue.get(PLD);
+            if (run == null)
+            {
+                continue;
+            }
+            int numURLs = run.size();
             // only split the left-over queue between the newly created queues
-            for (int i = this.queues.size() / 2; i < this.queues.size(); i++)
+            for (int i = this.redistributionStart; i < this.queues.size() && !run.isEmpty(); i++)
             {
-                Integer queueBudget = 0;
-                Map<String, Integer> pldDataInQueue = this.pldBudgets.get(this.queues.get(i));
-                if (pldDataInQueue != null)
+                Map<String, Integer> pldDataInQueue = this.pldBudgets.get(i);
+                CompactUrlQueue queue = this.queues.get(i);
+                int queueBudget = pldDataInQueue.getOrDefault(PLD, 0);
+                int moved = 0;
+                while (!run.isEmpty() && queueBudget + moved < run.peekValue())
                 {
-                    queueBudget = pldDataInQueue.get(PLD);
+                    run.transferTo(queue);
+                    moved++;
                 }
-                if (queueBudget == null)
+                if (moved > 0)
                 {
-                    queueBudget = 0;
+                    pldDataInQueue.put(PLD, queueBudget + moved);
+                    this.queueSizes.addAndGet(i, moved);
                 }
-                if (queueBudget < budget)
+            }
+            numURLs -= run.size();
+            this.leftOverSize -= numURLs;
+            if (run.isEmpty())
+            {
+                this.leftOverQueue.remove(PLD);
+            }
+            LOG.debug("Redistributed {} URLs of PLD {} - {} URLs remain in the fail-over queue", numURLs, PLD,
+                      run.size());
+        }
+    }
+
+    /**
+     * Writes the current state of BEAST to the checkpoint file specified on construction. If no checkpoint file was
+     * specified this method has no effect.
+     * <p>
+     * The state is streamed to disk while holding the lock on the queues, as the queues only hold handles to URLs which
+     * become invalid once the URLs got drained. It is written to a temporary file first which replaces the previous
+     * checkpoint once it was written completely.
+     *
+     * @throws IOException
+     *         If the checkpoint could not be written
+     */
+    public void checkpoint() throws IOException
+    {
+        if (this.checkpointFile == null)
+        {
+            return;
+        }
+        // concurrent checkpoints are written one after the other, so an older state never replaces a newer one
+        synchronized (this.checkpointObj)
+        {
+            Path tmpFile = this.checkpointFile.resolveSibling(this.checkpointFile.getFileName() + ".tmp");
+            if (this.checkpointFile.getParent() != null)
+            {
+                Files.createDirectories(this.checkpointFile.getParent());
+            }
+            int numQueues;
+            int leftOverSize;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmpFile))))
+            {
+                synchronized (this.syncObj)
                 {
-                    this.queues.get(i).add(data);
-                    if (this.pldBudgets.get(this.queues.get(i)) == null)
-                    {
-                        Map<String, Integer> dataMap = new HashMap<>();
-                        dataMap.put(PLD, queueBudget++);
-                        this.pldBudgets.put(this.queues.get(i), dataMap);
-                    }
-                    else
-                    {
-                        this.pldBudgets.get(this.queues.get(i)).put(PLD, queueBudget++);
-                    }
-                    found = true;
-                    LOG.debug("Adding {} to queue {} which had available {} slots", data.getFirst(), i, queueBudget);
-                    break;
+                    this.writeState(out);
+                    numQueues = this.queues.size();
+                    leftOverSize = this.leftOverSize;
                 }
             }
+            Files.move(tmpFile, this.checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            LOG.debug("Wrote BEAST checkpoint with {} queues and {} left-over URLs to {}", numQueues, leftOverSize,
+                      this.checkpointFile);
+        }
+    }
 
-            if (!found)
+    /**
+     * Writes a checkpoint on behalf of {@link #checkpointWriter}. Failures are logged, so that the next checkpoint is
+     * still attempted.
+     */
+    private void writePeriodicCheckpoint()
+    {
+        try
+        {
+            this.checkpoint();
+        }
+        catch (IOException ioEx)
+        {
+            LOG.error("Could not write BEAST checkpoint to " + this.checkpointFile, ioEx);
+        }
+    }
+
+    /**
+     * Streams the current state to the provided output. The format is:
+     * <ul>
+     * <li>4 bytes int - magic number, 1 byte - format version</li>
+     * <li>4 bytes int - current queue number, 4 bytes int - index of the first queue to redistribute to</li>
+     * <li>4 bytes int - number of queues, followed by each queue: its URL entries and its PLD budgets</li>
+     * <li>4 bytes int - number of left-over PLDs, followed by each PLD and its URL entries</li>
+     * <li>4 bytes int - number of PLDs awaiting redistribution, followed by the PLDs</li>
+     * </ul>
+     * A URL entry consists of the 4 bytes int length and the bytes of the serialized {@link CrawlUrl} followed by its 4
+     * bytes int budget, a PLD budget of the PLD and its 4 bytes int count. Strings are written as 4 bytes int length
+     * followed by their UTF-8 bytes.
+     *
+     * @param out
+     *         The stream to write the state to
+     *
+     * @throws IOException
+     *         If the state could not be written
+     */
+    private void writeState(DataOutputStream out) throws IOException
+    {
+        out.writeInt(CHECKPOINT_MAGIC);
+        out.writeByte(CHECKPOINT_VERSION);
+        out.writeInt(this.currentQueueNumber);
+        out.writeInt(this.redistributionStart);
+        out.writeInt(this.queues.size());
+        for (int i = 0; i < this.queues.size(); i++)
+        {
+            writeEntries(out, this.queues.get(i));
+            Map<String, Integer> budgets = this.pldBudgets.get(i);
+            out.writeInt(budgets.size());
+            for (Map.Entry<String, Integer> budget : budgets.entrySet())
             {
-                tmpLeftOverQueue.add(data);
-                LOG.debug("No queue found for url {} - using fail-over queue", data.getFirst());
+                writeString(out, budget.getKey());
+                out.writeInt(budget.getValue());
             }
         }
-        this.leftOverQueue = tmpLeftOverQueue;
+        out.writeInt(this.leftOverQueue.size());
+        for (Map.Entry<String, CompactUrlQueue> run : this.leftOverQueue.entrySet())
+        {
+            writeString(out, run.getKey());
+            writeEntries(out, run.getValue());
+        }
+        out.writeInt(this.pldsToRedistribute.size());
+        for (String pld : this.pldsToRedistribute)
+        {
+            writeString(out, pld);
+        }
+    }
+
+    private static void writeEntries(DataOutputStream out, CompactUrlQueue queue) throws IOException
+    {
+        out.writeInt(queue.size());
+        for (int i = 0; i < queue.size(); i++)
+        {
+            byte[] bytes = queue.get(i).toBytes();
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeInt(queue.getValue(i));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Replaces the current state with the state contained in the given checkpoint file. If the file cannot be restored
+     * completely, BEAST is reset to its initial state.
+     *
+     * @param file
+     *         The checkpoint file written by {@link #checkpoint()}
+     *
+     * @throws IOException
+     *         If the file could not be read or is no valid BEAST checkpoint
+     */
+    private void restore(Path file) throws IOException
+    {
+        try (CheckpointReader in = new CheckpointReader(file))
+        {
+            this.readState(in);
+        }
+        catch (IOException ioEx)
+        {
+            this.clear();
+            throw ioEx;
+        }
+        catch (RuntimeException rtEx)
+        {
+            // f.e. a corrupt URL entry
+            this.clear();
+            throw new IOException("Invalid BEAST checkpoint", rtEx);
+        }
+        this.restored = true;
+        LOG.info("Restored BEAST state with {} queues and {} left-over URLs from {}", this.queues.size(),
+                 this.leftOverSize, file);
     }
 
     /**
-     * Indicates the BEAST algorithm to terminate execution
+     * Reads the state written by {@link #writeState(DataOutputStream)} from the provided input.
+     *
+     * @param in
+     *         The reader of the checkpoint file to read the state from
+     *
+     * @throws IOException
+     *         If the state could not be read or is invalid
+     */
+    private void readState(CheckpointReader in) throws IOException
+    {
+        if (in.readInt() != CHECKPOINT_MAGIC || in.readByte() != CHECKPOINT_VERSION)
+        {
+            throw new IOException("Unsupported BEAST checkpoint format");
+        }
+        int currentQueueNumber = in.readInt();
+        int redistributionStart = in.readInt();
+        int numQueues = in.readLength();
+        if (numQueues < 2 || currentQueueNumber < 0 || currentQueueNumber >= numQueues || redistributionStart < 0 ||
+            redistributionStart > numQueues)
+        {
+            throw new IOException("Invalid BEAST checkpoint: " + numQueues + " queues, current queue " +
+                                  currentQueueNumber + ", redistribution start " + redistributionStart);
+        }
+
+        this.releaseQueues();
+        for (int i = 0; i < numQueues; i++)
+        {
+            CompactUrlQueue queue = new CompactUrlQueue();
+            this.queues.add(queue);
+            readEntries(in, queue);
+            Map<String, Integer> budgets = new HashMap<>();
+            int numBudgets = in.readLength();
+            for (int j = 0; j < numBudgets; j++)
+            {
+                budgets.put(readString(in), in.readInt());
+            }
+            this.pldBudgets.add(budgets);
+        }
+
+        this.leftOverSize = 0;
+        int numPLDs = in.readLength();
+        for (int i = 0; i < numPLDs; i++)
+        {
+            CompactUrlQueue run = new CompactUrlQueue();
+            this.leftOverQueue.put(readString(in), run);
+            this.leftOverSize += readEntries(in, run);
+        }
+
+        this.pldsToRedistribute.clear();
+        int numPending = in.readLength();
+        for (int i = 0; i < numPending; i++)
+        {
+            this.pldsToRedistribute.add(readString(in));
+        }
+        if (in.getRemaining() != 0)
+        {
+            throw new IOException("Invalid BEAST checkpoint: unexpected data after the state");
+        }
+
+        this.currentQueueNumber = currentQueueNumber;
+        this.currentQueue = this.queues.get(currentQueueNumber);
+        this.redistributionStart = redistributionStart;
+        this.publishQueueSizes();
+    }
+
+    private static int readEntries(CheckpointReader in, CompactUrlQueue queue) throws IOException
+    {
+        int size = in.readLength();
+        for (int i = 0; i < size; i++)
+        {
+            byte[] bytes = new byte[in.readLength()];
+            in.readFully(bytes);
+            queue.add(CrawlUrl.fromBytes(bytes), in.readInt());
+        }
+        return size;
+    }
+
+    private static String readString(CheckpointReader in) throws IOException
+    {
+        byte[] bytes = new byte[in.readLength()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Resets BEAST to its initial state of two empty queues and an empty left-over queue.
+     */
+    private void clear()
+    {
+        this.releaseQueues();
+        this.leftOverSize = 0;
+        this.pldsToRedistribute.clear();
+        this.redistributionStart = 0;
+        this.currentQueueNumber = 0;
+        for (int i = 0; i < 2; i++)
+        {
+            this.queues.add(new CompactUrlQueue());
+            this.pldBudgets.add(new HashMap<>());
+        }
+        this.currentQueue = this.queues.get(0);
+        this.publishQueueSizes();
+    }
+
+    /**
+     * Removes all queues and left-over URLs and releases the URLs contained in them from the URL store.
+     */
+    private void releaseQueues()
+    {
+        this.queues.forEach(CompactUrlQueue::clear);
+        this.queues.clear();
+        this.pldBudgets.clear();
+        this.leftOverQueue.values().forEach(CompactUrlQueue::clear);
+        this.leftOverQueue.clear();
+    }
+
+    /**
+     * Replaces the queue size counters with counters matching the current list of queues. Needs to be invoked while
+     * holding the lock on the queues whenever the number of queues changes.
+     */
+    private void publishQueueSizes()
+    {
+        AtomicIntegerArray sizes = new AtomicIntegerArray(this.queues.size());
+        for (int i = 0; i < this.queues.size(); i++)
+        {
+            sizes.set(i, this.queues.get(i).size());
+        }
+        this.queueSizes = sizes;
+    }
+
+    /**
+     * Returns a snapshot of the current queue statistics. The statistics are read from counters without acquiring the
+     * lock on the queues.
+     *
+     * @return The current statistics of BEAST
+     */
+    public BEASTStatistics getStatistics()
+    {
+        this.sampleRates();
+        return new BEASTStatistics(this.currentQueueNumber, this.getQueueSizes(), this.leftOverSize,
+                                   this.admissionsPerSecond, this.drainsPerSecond, this.getTopDeferredPLDs());
+    }
+
+    @Override
+    public int getNumberOfQueues()
+    {
+        return this.queueSizes.length();
+    }
+
+    @Override
+    public int getCurrentQueue()
+    {
+        return this.currentQueueNumber;
+    }
+
+    @Override
+    public int[] getQueueSizes()
+    {
+        AtomicIntegerArray sizes = this.queueSizes;
+        int[] result = new int[sizes.length()];
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = sizes.get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public int getLeftOverSize()
+    {
+        return this.leftOverSize;
+    }
+
+    @Override
+    public double getAdmissionsPerSecond()
+    {
+        this.sampleRates();
+        return this.admissionsPerSecond;
+    }
+
+    @Override
+    public double getDrainsPerSecond()
+    {
+        this.sampleRates();
+        return this.drainsPerSecond;
+    }
+
+    /**
+     * Counts a URL deferred to the left-over queue for its pay level domain. Needs to be invoked while holding the lock
+     * on the queues.
+     * <p>
+     * The number of deferred URLs is estimated by {@link #deferredPLDs} for all pay level domains, while only the
+     * pay level domains deferred most often are kept by name.
+     *
+     * @param url
+     *         The deferred URL
+     */
+    private void countDeferredPLD(CrawlUrl url)
+    {
+        String PLD = url.getPLD();
+        long count = this.deferredPLDs.add(url.getPLDHash());
+        if (this.deferredCandidates.containsKey(PLD) || this.deferredCandidates.size() < NUM_DEFERRED_CANDIDATES)
+        {
+            this.deferredCandidates.put(PLD, count);
+            return;
+        }
+        // the candidate deferred least often makes room for a pay level domain deferred more often
+        Map.Entry<String, Long> min = null;
+        for (Map.Entry<String, Long> candidate : this.deferredCandidates.entrySet())
+        {
+            if (min == null || candidate.getValue() < min.getValue())
+            {
+                min = candidate;
+            }
+        }
+        if (min != null && min.getValue() < count)
+        {
+            this.deferredCandidates.remove(min.getKey());
+            this.deferredCandidates.put(PLD, count);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getTopDeferredPLDs()
+    {
+        List<Map.Entry<String, Long>> candidates = new ArrayList<>(this.deferredCandidates.entrySet());
+        candidates.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> pld : candidates.subList(0, Math.min(TOP_DEFERRED_PLDS, candidates.size())))
+        {
+            result.put(pld.getKey(), pld.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Updates the admission and drain rates if at least {@link #SAMPLE_INTERVAL} nanoseconds passed since the last
+     * sample. Frequent readers therefore see the rates of the last full interval.
+     */
+    private void sampleRates()
+    {
+        synchronized (this.sampleObj)
+        {
+            long now = System.nanoTime();
+            long elapsed = now - this.lastSampleTime;
+            if (elapsed < SAMPLE_INTERVAL)
+            {
+                return;
+            }
+            long admitted = this.numAdmitted.get();
+            long drained = this.numDrained.get();
+            double seconds = elapsed / (double) TimeUnit.SECONDS.toNanos(1);
+            this.admissionsPerSecond = (admitted - this.lastNumAdmitted) / seconds;
+            this.drainsPerSecond = (drained - this.lastNumDrained) / seconds;
+            this.lastNumAdmitted = admitted;
+            this.lastNumDrained = drained;
+            this.lastSampleTime = now;
+        }
+    }
+
+    /**
+     * Indicates the BEAST algorithm to terminate execution. If a checkpoint file was specified on construction, the
+     * current state is written to this file.
      */
     public void dispose()
     {
         this.stopRequested = true;
+        if (this.checkpointWriter != null)
+        {
+            this.checkpointWriter.shutdown();
+        }
+        try
+        {
+            this.checkpoint();
+        }
+        catch (IOException ioEx)
+        {
+            LOG.error("Could not write BEAST checkpoint to " + this.checkpointFile, ioEx);
+        }
+    }
+
+    /**
+     * Reads the values of a checkpoint file and keeps track of the number of bytes of the file which were not read yet.
+     */
+    private final static class CheckpointReader implements Closeable
+    {
+        /** The stream of the checkpoint file **/
+        private final DataInputStream in;
+        /** The number of bytes of the checkpoint file which were not read yet **/
+        private long remaining;
+
+        private CheckpointReader(Path file) throws IOException
+        {
+            this.remaining = Files.size(file);
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        }
+
+        private byte readByte() throws IOException
+        {
+            this.consume(1);
+            return this.in.readByte();
+        }
+
+        private int readInt() throws IOException
+        {
+            this.consume(4);
+            return this.in.readInt();
+        }
+
+        private void readFully(byte[] bytes) throws IOException
+        {
+            this.consume(bytes.length);
+            this.in.readFully(bytes);
+        }
+
+        /**
+         * Reads a length or a number of entries of the checkpoint, which can neither be negative nor exceed the number
+         * of bytes remaining in the checkpoint file. Corrupt lengths therefore fail before anything is allocated for
+         * them.
+         *
+         * @return The valid length
+         *
+         * @throws IOException
+         *         If the length is invalid
+         */
+        private int readLength() throws IOException
+        {
+            int length = this.readInt();
+            if (length < 0 || length > this.remaining)
+            {
+                throw new IOException("Invalid length in BEAST checkpoint: " + length);
+            }
+            return length;
+        }
+
+        private long getRemaining()
+        {
+            return this.remaining;
+        }
+
+        private void consume(int numBytes) throws EOFException
+        {
+            if (numBytes > this.remaining)
+            {
+                throw new EOFException("Truncated BEAST checkpoint");
+            }
+            this.remaining -= numBytes;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            this.in.close();
+        }
     }
 
     /**
@@ -1,9 +1,11 @@
 package at.rovo.crawler;
 
 import at.rovo.common.UrlReader;
+import at.rovo.crawler.bean.CrawlUrl;
 import at.rovo.crawler.bean.CrawledPage;
+import at.rovo.crawler.interfaces.KeyHasher;
 import at.rovo.crawler.util.IRLbotUtils;
-import at.rovo.drum.util.DrumUtils;
+import at.rovo.crawler.util.UrlCanonicalizer;
 import java.lang.invoke.MethodHandles;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -32,6 +34,10 @@ public final class CrawlingThread implements Callable<CrawledPage>
     private String url = null;
     /** A reference to the STAR structure to update the PLD-PLD link graph **/
     private STAR pldIndegree = null;
+    /** Resolves the found links and transforms them into their canonical form **/
+    private final UrlCanonicalizer canonicalizer;
+    /** Drops found links which should not be passed on to the DRUM stages **/
+    private final UrlFilterChain filterChain;
 
     /**
      * Instantiates a new {@link Callable} object which later uses the provided URL to read a web page and extracts all
@@ -44,9 +50,48 @@ public final class CrawlingThread implements Callable<CrawledPage>
      *         found URLs
      */
     public CrawlingThread(String url, STAR pldIndegree)
+    {
+        this(url, pldIndegree, UrlCanonicalizer.getDefault());
+    }
+
+    /**
+     * Instantiates a new {@link Callable} object which later uses the provided URL to read a web page and extracts all
+     * its links
+     *
+     * @param url
+     *         The absolute URL of a web resource
+     * @param pldIndegree
+     *         The spam tracking and avoidance through reputation algorithm, which needs to be batch updated with all
+     *         found URLs
+     * @param canonicalizer
+     *         Resolves the found links against the URL of the page and transforms them into their canonical form
+     */
+    public CrawlingThread(String url, STAR pldIndegree, UrlCanonicalizer canonicalizer)
+    {
+        this(url, pldIndegree, canonicalizer, new UrlFilterChain());
+    }
+
+    /**
+     * Instantiates a new {@link Callable} object which later uses the provided URL to read a web page and extracts all
+     * its links
+     *
+     * @param url
+     *         The absolute URL of a web resource
+     * @param pldIndegree
+     *         The spam tracking and avoidance through reputation algorithm, which needs to be batch updated with all
+     *         found URLs
+     * @param canonicalizer
+     *         Resolves the found links against the URL of the page and transforms them into their canonical form
+     * @param filterChain
+     *         Drops found links before they are reported, so that they neither reach the DRUM stages nor count as
+     *         PLD-PLD links
+     */
+    public CrawlingThread(String url, STAR pldIndegree, UrlCanonicalizer canonicalizer, UrlFilterChain filterChain)
     {
         this.url = url;
         this.pldIndegree = pldIndegree;
+        this.canonicalizer = canonicalizer;
+        this.filterChain = filterChain;
     }
 
     /**
@@ -58,7 +103,7 @@ public final class CrawlingThread implements Callable<CrawledPage>
     @Override
     public CrawledPage call() throws Exception
     {
-        Set<String> foundURLs = new LinkedHashSet<>();
+        Set<CrawlUrl> foundURLs = new LinkedHashSet<>();
         Set<String> uniquePLDs = new LinkedHashSet<>();
 
         // read the web page
@@ -73,6 +118,8 @@ public final class CrawlingThread implements Callable<CrawledPage>
         // due to redirects the real URL may be hidden behind an origin URL
         // the real URL may only be learned after following the redirect directives
         this.url = reader.getRealURL();
+        // pages with the same content reveal URLs which are aliases of each other
+        long contentHash = KeyHasher.getDefault().hash(webPage);
 
         String originPLD = IRLbotUtils.getPLDofURL(this.url);
         if (originPLD == null)
@@ -83,7 +130,7 @@ public final class CrawlingThread implements Callable<CrawledPage>
         if (LOG.isDebugEnabled())
         {
             LOG.debug("{} Crawling: {} - PLD: {} ({})", Thread.currentThread().getName(), this.url, originPLD,
-                      DrumUtils.hash(originPLD));
+                      KeyHasher.getDefault().hash(originPLD));
         }
 
         // find all links inside the page
@@ -93,6 +140,9 @@ public final class CrawlingThread implements Callable<CrawledPage>
         // remove comments
         webPage = webPage.replaceAll("<!--(.*?)-->", "");
 
+        // links to the page itself, like anchors, are not reported
+        String pageURL = this.canonicalizer.canonicalize(this.url);
+
         Matcher matcher = pattern.matcher(webPage);
         while (matcher.find())
         {
@@ -103,18 +153,23 @@ public final class CrawlingThread implements Callable<CrawledPage>
             {
                 // some URLs are not in a valid format as they use local
                 // referencing like f.e. '../home.html' or '#start'. So we need
-                // to transform those links to valid URLs
-                validURL = IRLbotUtils.checkAndTransformURL(_url, this.url);
-                if (validURL != null)
+                // to transform those links to valid URLs. The same page is
+                // often linked in different spellings which are all
+                // transformed into one canonical URL
+                validURL = this.canonicalizer.resolve(this.url, _url);
+                if (validURL != null && !validURL.equals(pageURL))
                 {
+                    // the URL is parsed once here and passed through all further
+                    // stages of the crawler.
                     // the pay level domain (PLD) is the actual domain name
                     // without any prefixes like www or something similar. E.g:
                     // http://www.example.org --> example.org
                     // https://server1.subdomain.example.org --> example.org
-                    String PLD = IRLbotUtils.getPLDofURL(validURL);
-                    if (PLD != null)
+                    CrawlUrl crawlUrl = CrawlUrl.of(validURL);
+                    String PLD = crawlUrl.getPLD();
+                    if (PLD != null && this.filterChain.accept(crawlUrl))
                     {
-                        foundURLs.add(validURL);
+                        foundURLs.add(crawlUrl);
                         // aggregate PLD-PLD link information and send it to a
                         // DRUM structure
                         uniquePLDs.add(PLD);
@@ -138,6 +193,6 @@ public final class CrawlingThread implements Callable<CrawledPage>
         this.pldIndegree.update(originPLD, uniquePLDs);
 
         // return all of the unique URLs found on this page
-        return new CrawledPage(baseURL, foundURLs);
+        return new CrawledPage(baseURL, foundURLs, contentHash);
     }
 }
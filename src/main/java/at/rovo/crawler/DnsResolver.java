@@ -0,0 +1,383 @@
+package at.rovo.crawler;
+
+import at.rovo.crawler.bean.ResolvedHost;
+import at.rovo.crawler.interfaces.DnsResolverMXBean;
+import at.rovo.crawler.interfaces.HostResolver;
+import at.rovo.crawler.util.SystemHostResolver;
+import at.rovo.drum.util.NamedThreadFactory;
+import java.lang.invoke.MethodHandles;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the names of hosts asynchronously ahead of fetching their pages and caches the results.
+ * <p>
+ * Lookups are executed by a {@link HostResolver} on a pool of threads of their own, so neither the crawler nor the
+ * <em>robots.txt</em> stages block on DNS. Concurrent resolutions of the same host share one lookup.
+ * <p>
+ * The results are kept in a bounded least-recently-used cache for the time to live reported by the resolver, clamped
+ * to the configured minimum and maximum TTL. Results without TTL, like the ones of the name service of the JVM, are
+ * kept for the maximum TTL. Hosts which do not exist are cached as negative results for at most the negative TTL, and
+ * failed lookups for the minimum TTL, so that they are retried soon.
+ *
+ * @author Roman Vottner
+ */
+public final class DnsResolver implements DnsResolverMXBean
+{
+    /** The logger of this class **/
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    /** The default number of hosts to keep the resolution in memory for **/
+    public final static int DEFAULT_CAPACITY = 100_000;
+    /** The default minimum time a result is cached **/
+    public final static long DEFAULT_MIN_TTL = TimeUnit.MINUTES.toMillis(1);
+    /** The default maximum time a result is cached **/
+    public final static long DEFAULT_MAX_TTL = TimeUnit.HOURS.toMillis(1);
+    /** The default maximum time a negative result is cached **/
+    public final static long DEFAULT_NEGATIVE_TTL = TimeUnit.MINUTES.toMillis(10);
+
+    /** The strategy performing the lookups **/
+    private final HostResolver resolver;
+    /** The threads executing the lookups **/
+    private final ExecutorService executor;
+    /** The maximum number of hosts to keep the resolution in memory for **/
+    private final int capacity;
+    /** The minimum time in milliseconds a result is cached **/
+    private final long minTtl;
+    /** The maximum time in milliseconds a result is cached **/
+    private final long maxTtl;
+    /** The maximum time in milliseconds a negative result is cached **/
+    private final long negativeTtl;
+    /** The cached results in access order **/
+    private final Map<String, Entry> entries;
+    /** The lookups currently running per host **/
+    private final Map<String, CompletableFuture<ResolvedHost>> inFlight = new ConcurrentHashMap<>();
+
+    /** The number of resolutions answered with a cached address **/
+    private final LongAdder hits = new LongAdder();
+    /** The number of resolutions answered with a cached negative result **/
+    private final LongAdder negativeHits = new LongAdder();
+    /** The number of lookups issued to the resolver **/
+    private final LongAdder misses = new LongAdder();
+    /** The number of resolutions which joined a running lookup **/
+    private final LongAdder coalesced = new LongAdder();
+    /** The number of failed lookups **/
+    private final LongAdder failures = new LongAdder();
+    /** The number of entries removed due to the capacity limit **/
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new instance which resolves hosts via the name service of the JVM on the given number of threads and
+     * uses the default cache settings.
+     *
+     * @param numThreads
+     *         The number of threads executing lookups
+     */
+    public DnsResolver(int numThreads)
+    {
+        this(new SystemHostResolver(), numThreads, DEFAULT_CAPACITY, DEFAULT_MIN_TTL, DEFAULT_MAX_TTL,
+             DEFAULT_NEGATIVE_TTL);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param resolver
+     *         The strategy performing the lookups
+     * @param numThreads
+     *         The number of threads executing lookups
+     * @param capacity
+     *         The maximum number of hosts to keep the resolution in memory for
+     * @param minTtl
+     *         The minimum time in milliseconds a result is cached
+     * @param maxTtl
+     *         The maximum time in milliseconds a result is cached
+     * @param negativeTtl
+     *         The maximum time in milliseconds a negative result is cached
+     */
+    public DnsResolver(HostResolver resolver, int numThreads, int capacity, long minTtl, long maxTtl, long negativeTtl)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (minTtl < 0 || maxTtl < minTtl || negativeTtl < minTtl)
+        {
+            throw new IllegalArgumentException("Invalid TTLs - min: " + minTtl + ", max: " + maxTtl + ", negative: " +
+                                               negativeTtl);
+        }
+        this.resolver = resolver;
+        NamedThreadFactory factory = new NamedThreadFactory();
+        factory.setName("dnsResolver");
+        this.executor = Executors.newFixedThreadPool(numThreads, factory);
+        this.capacity = capacity;
+        this.minTtl = minTtl;
+        this.maxTtl = maxTtl;
+        this.negativeTtl = negativeTtl;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                if (size() > DnsResolver.this.capacity)
+                {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Resolves the given host. The returned future is already completed if a valid result is cached for the host.
+     * Otherwise it is completed by one of the lookup threads.
+     *
+     * @param hostName
+     *         The name of the host without scheme and port, f.e. <em>www.tuwien.ac.at</em>
+     *
+     * @return The future result of the resolution, which is {@link ResolvedHost#isResolved() unresolved} if the host
+     * does not exist and {@link ResolvedHost#isFailed() failed} if the lookup failed
+     */
+    public CompletableFuture<ResolvedHost> resolve(String hostName)
+    {
+        if (isAddressLiteral(hostName))
+        {
+            this.hits.increment();
+            return CompletableFuture.completedFuture(new ResolvedHost(hostName, hostName, ResolvedHost.UNKNOWN_TTL));
+        }
+        ResolvedHost cached = this.getCached(hostName);
+        if (cached != null)
+        {
+            if (cached.isResolved())
+            {
+                this.hits.increment();
+            }
+            else
+            {
+                this.negativeHits.increment();
+            }
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<ResolvedHost> future = new CompletableFuture<>();
+        CompletableFuture<ResolvedHost> running = this.inFlight.putIfAbsent(hostName, future);
+        if (running != null)
+        {
+            this.coalesced.increment();
+            return running;
+        }
+        this.misses.increment();
+        try
+        {
+            this.executor.execute(() ->
+            {
+                ResolvedHost result = this.lookup(hostName);
+                // the result is cached before the lookup is removed, so later resolutions always find either of both
+                this.inFlight.remove(hostName, future);
+                future.complete(result);
+            });
+        }
+        catch (RejectedExecutionException reEx)
+        {
+            this.inFlight.remove(hostName, future);
+            future.completeExceptionally(reEx);
+        }
+        return future;
+    }
+
+    /**
+     * Returns the minimum time results are cached for, which is also the time a failed lookup is cached for.
+     *
+     * @return The minimum TTL in milliseconds
+     */
+    public long getMinTtl()
+    {
+        return this.minTtl;
+    }
+
+    /**
+     * Returns the cached result of the given host if it did not expire yet.
+     *
+     * @param hostName
+     *         The name of the host
+     *
+     * @return The cached result or null if no valid result is cached for the host
+     */
+    public ResolvedHost getCached(String hostName)
+    {
+        long currentTime = System.currentTimeMillis();
+        synchronized (this.entries)
+        {
+            Entry entry = this.entries.get(hostName);
+            if (entry == null)
+            {
+                return null;
+            }
+            if (currentTime >= entry.expiresAt)
+            {
+                this.entries.remove(hostName);
+                return null;
+            }
+            return entry.host;
+        }
+    }
+
+    /**
+     * Performs the lookup of a host and caches the result.
+     */
+    private ResolvedHost lookup(String hostName)
+    {
+        ResolvedHost result;
+        long ttl;
+        try
+        {
+            result = this.resolver.resolve(hostName);
+            if (result.isResolved())
+            {
+                ttl = result.getTtl() == ResolvedHost.UNKNOWN_TTL ? this.maxTtl : clamp(result.getTtl(), this.minTtl,
+                                                                                        this.maxTtl);
+            }
+            else
+            {
+                ttl = result.getTtl() == ResolvedHost.UNKNOWN_TTL ? this.negativeTtl : clamp(result.getTtl(),
+                                                                                             this.minTtl,
+                                                                                             this.negativeTtl);
+            }
+        }
+        catch (Exception ex)
+        {
+            LOG.debug("Could not resolve {}: {}", hostName, ex.getMessage());
+            this.failures.increment();
+            result = ResolvedHost.failed(hostName);
+            ttl = this.minTtl;
+        }
+        if (ttl > 0)
+        {
+            Entry entry = new Entry(result, System.currentTimeMillis() + ttl);
+            synchronized (this.entries)
+            {
+                this.entries.put(hostName, entry);
+            }
+        }
+        return result;
+    }
+
+    private static long clamp(long value, long min, long max)
+    {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Checks if the host is given as IPv4 or IPv6 address, which does not need to be resolved.
+     */
+    private static boolean isAddressLiteral(String hostName)
+    {
+        if (hostName.startsWith("[") || hostName.indexOf(':') >= 0)
+        {
+            return true;
+        }
+        for (int i = 0; i < hostName.length(); i++)
+        {
+            char c = hostName.charAt(i);
+            if (c != '.' && (c < '0' || c > '9'))
+            {
+                return false;
+            }
+        }
+        return !hostName.isEmpty();
+    }
+
+    /**
+     * Stops the lookup threads. Running lookups are interrupted.
+     */
+    public void shutdown()
+    {
+        this.executor.shutdownNow();
+    }
+
+    @Override
+    public int getCapacity()
+    {
+        return this.capacity;
+    }
+
+    @Override
+    public int getSize()
+    {
+        synchronized (this.entries)
+        {
+            return this.entries.size();
+        }
+    }
+
+    @Override
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    @Override
+    public long getNegativeHits()
+    {
+        return this.negativeHits.sum();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    @Override
+    public long getCoalesced()
+    {
+        return this.coalesced.sum();
+    }
+
+    @Override
+    public long getFailures()
+    {
+        return this.failures.sum();
+    }
+
+    @Override
+    public long getEvictions()
+    {
+        return this.evictions.sum();
+    }
+
+    @Override
+    public double getHitRate()
+    {
+        long hits = this.hits.sum() + this.negativeHits.sum();
+        long total = hits + this.misses.sum() + this.coalesced.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * A cached result and the time it expires at.
+     */
+    private final static class Entry
+    {
+        private final ResolvedHost host;
+        private final long expiresAt;
+
+        private Entry(ResolvedHost host, long expiresAt)
+        {
+            this.host = host;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,32 +1,46 @@
 package at.rovo.crawler;
 
-import at.rovo.common.UrlReader;
+import at.rovo.crawler.bean.BEASTStatistics;
+import at.rovo.crawler.bean.CrawlUrl;
 import at.rovo.crawler.bean.CrawledPage;
 import at.rovo.crawler.bean.HostData;
-import at.rovo.crawler.interfaces.BEASTBudgetPassedListener;
+import at.rovo.crawler.bean.ResolvedHost;
+import at.rovo.crawler.bean.RobotsRules;
+import at.rovo.crawler.interfaces.BEASTBatchPassedListener;
 import at.rovo.crawler.interfaces.CheckSpamUrlListener;
+import at.rovo.crawler.interfaces.HostResolver;
 import at.rovo.crawler.interfaces.IRLbotListener;
+import at.rovo.crawler.interfaces.KeyHasher;
 import at.rovo.crawler.interfaces.RobotsCachePassedListener;
 import at.rovo.crawler.interfaces.RobotsRequestedListener;
+import at.rovo.crawler.interfaces.RobotsTxtDownloadedListener;
+import at.rovo.crawler.interfaces.RobotsTxtExpiredListener;
+import at.rovo.crawler.interfaces.RobotsTxtRefreshedListener;
 import at.rovo.crawler.interfaces.UniqueUrlListener;
+import at.rovo.crawler.interfaces.UnreachableHostListener;
 import at.rovo.crawler.util.DelayedCrawlUrl;
-import at.rovo.crawler.util.IRLbotUtils;
+import at.rovo.crawler.util.DnsHostResolver;
+import at.rovo.crawler.util.SystemHostResolver;
+import at.rovo.crawler.util.UrlCanonicalizer;
 import at.rovo.drum.DrumException;
 import at.rovo.drum.DrumListener;
 import at.rovo.drum.event.DrumEvent;
-import at.rovo.drum.util.DrumUtils;
 import at.rovo.drum.util.NamedThreadFactory;
-import de.jkeylockmanager.manager.KeyLockManager;
-import de.jkeylockmanager.manager.KeyLockManagers;
 import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.DelayQueue;
@@ -37,6 +51,9 @@ import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,17 +72,33 @@ import org.slf4j.LoggerFactory;
  *
  * @author Roman Vottner
  */
-public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener, BEASTBudgetPassedListener,
-        RobotsCachePassedListener, RobotsRequestedListener, DrumListener
+public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener, BEASTBatchPassedListener,
+        RobotsCachePassedListener, RobotsRequestedListener, RobotsTxtDownloadedListener, RobotsTxtExpiredListener,
+        RobotsTxtRefreshedListener, UnreachableHostListener, DrumListener
 {
     /** The logger of this class **/
     private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     public final static String CRAWLER_NAME = "JIRLbot/1.0";
+    /** The default number of threads checking URLs against the robots.txt rules of their hosts **/
+    public final static int DEFAULT_NUM_ROBOTS_CHECK_THREADS = 2;
+    /** The default number of threads resolving the names of hosts **/
+    public final static int DEFAULT_NUM_DNS_THREADS = 16;
+    /**
+     * The system property containing the DNS server, given as <em>host[:port]</em>, the names of hosts are resolved
+     * with. If the property is not set, hosts are resolved via the name service of the JVM
+     **/
+    public final static String DNS_SERVER_PROPERTY = "irlbot.dnsServer";
+    /** The maximum number of batches a robots check thread takes from the queue at once **/
+    private final static int MAX_ROBOTS_CHECK_BATCHES = 64;
+    /** The number of consecutive failures to fetch the robots.txt of a host after which the host is considered dead **/
+    private final static int MAX_ROBOTS_FAILURES = 5;
+    /** The number of times the lookup of a host is retried after it failed before its URLs are dropped **/
+    private final static int MAX_DNS_RETRIES = 5;
 
     /** Contains the addresses of pages that need to be crawled **/
     private BlockingQueue<DelayedCrawlUrl> toCrawl = null;
-    /** Contains the timestamps of the last crawl of a PLD **/
-    private Map<String, AtomicLong> pldLastCrawled = new ConcurrentHashMap<>();
+    /** Enforces the crawl delays of pay level domains and the delay between fetches from the same IP address **/
+    private final PolitenessGate politenessGate = new PolitenessGate();
     /** The mapping of URLs and the parsed links in that source **/
     private Map<String, Future<CrawledPage>> waitingList = null;
     /** Specifies if the crawling should stop **/
@@ -74,9 +107,15 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
     // not for mutual exclusion locking
     /** Specifies the number of worker threads used for crawling pages **/
     private int numCrawlThreads = 0;
-    /** A reader needed to fetch robots.txt files from the web **/
-    private UrlReader reader = null;
-
+    /** Resolves the links found on crawled pages and transforms them into their canonical form **/
+    private volatile UrlCanonicalizer urlCanonicalizer = UrlCanonicalizer.getDefault();
+    /** Drops the links found on crawled pages which should never be crawled before they reach the DRUM stages **/
+    private final UrlFilterChain urlFilterChain = UrlFilterChain.createDefault();
+    /** Drops or samples the found links which probably belong to a spider trap before they are checked by URLseen **/
+    private final SpiderTrapDetector spiderTrapDetector = new SpiderTrapDetector();
+
+    /** Maps aliases of a URL onto one spelling before the URL is checked by {@link #urlSeen} **/
+    private final UrlDeAliaser urlDeAliaser = new UrlDeAliaser();
     /** DRUM object representing the list of already crawled URLs **/
     private URLseen urlSeen = null;
     /**
@@ -93,31 +132,47 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
      * hosts robots.txt file. If no robots.txt file could be found for a host it requests a download for it
      **/
     private RobotsCache robotsCache = null;
+    /** The parsed robots.txt rules of recently checked hosts used by the {@link #robotsCache} dispatcher **/
+    private RobotsRuleCache robotsRuleCache = null;
     /**
      * DRUM object that keeps track of the hosts that requested a robots.txt file
      **/
     private RobotsRequested robotsRequested = null;
-
-    private BlockingQueue<String> robotsCheckQueue = null;
+    /** Fetches the robots.txt files of hosts whose cached rules expired again **/
+    private RobotsTxtRefresher robotsTxtRefresher = null;
+    /** The URLs of hosts which are backed off as their robots.txt could not be fetched **/
+    private final ParkedUrls parkedUrls = new ParkedUrls();
+    /** The URLs of hosts whose DNS lookup failed and which wait for the lookup to be retried **/
+    private final ParkedUrls unresolvedUrls = new ParkedUrls();
+    /** The hosts with URLs in {@link #unresolvedUrls} mapped to their crawl delay in seconds **/
+    private final Map<String, Long> unresolvedHosts = new ConcurrentHashMap<>();
+
+    /** Contains batches of URLs which passed BEAST and need to be checked against their hosts robots.txt **/
+    private BlockingQueue<List<CrawlUrl>> robotsCheckQueue = null;
     private BlockingQueue<String> robotsRequestQueue = null;
-    private BlockingQueue<String> robotsDownloadQueue = null;
+    /**
+     * The hosts whose robots.txt was requested but is not downloaded yet. Further requests for these hosts are not
+     * passed on to {@link #robotsRequested}
+     **/
+    private final Set<String> requestedHosts = ConcurrentHashMap.newKeySet();
 
-    private Thread robotsCheckQueueEmptier = null;
+    private ExecutorService robotsCheckExecutor = null;
     private Thread robotsRequestedQueueEmptier = null;
+    private Thread robotsTxtRefresherThread = null;
 
-    private ExecutorService downloadExecutor = null;
+    /** Downloads the robots.txt files of requested hosts **/
+    private RobotsTxtDownloader robotsTxtDownloader = null;
+    /** Resolves the hosts of URLs before they enter the frontier and caches their addresses **/
+    private DnsResolver dnsResolver = null;
 
     private final Object lock = new Object();
 
     private Set<IRLbotListener> listeners = new CopyOnWriteArraySet<>();
+    /** The names of the management beans registered at the platform MBean server **/
+    private List<ObjectName> mBeanNames = new ArrayList<>();
 
     private AtomicLong numPagesCrawledTotal = new AtomicLong();
     private AtomicLong numPagesCrawledSuccess = new AtomicLong();
-    /**
-     * As re-queuing URLs is PLD specific a custom locking is needed so that the check can be entered by other PLDs but
-     * still avoid running into race-conditions.
-     **/
-    private final KeyLockManager lockManager = KeyLockManagers.newLock();
 
 
     /**
@@ -131,7 +186,7 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
      */
     public IRLbot(int numThreads)
     {
-        this.init(numThreads, 10, 128, 16, 16, 16, 1024, 64, 256, 32);
+        this.init(numThreads, 10, 128, 16, 16, 16, 1024, 64, 256, 32, DEFAULT_NUM_ROBOTS_CHECK_THREADS);
     }
 
     /**
@@ -145,7 +200,7 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
      */
     public IRLbot(String[] seedPages)
     {
-        this.init(5, 10, 256, 16, 16, 16, 1024, 64, 256, 64);
+        this.init(5, 10, 256, 16, 16, 16, 1024, 64, 256, 64, DEFAULT_NUM_ROBOTS_CHECK_THREADS);
 
         this.addURL(Arrays.asList(seedPages));
     }
@@ -163,7 +218,7 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
      */
     public IRLbot(String[] seedPages, int numThreads)
     {
-        this.init(numThreads, 10, 256, 16, 16, 16, 1024, 64, 256, 64);
+        this.init(numThreads, 10, 256, 16, 16, 16, 1024, 64, 256, 64, DEFAULT_NUM_ROBOTS_CHECK_THREADS);
 
         this.addURL(Arrays.asList(seedPages));
     }
@@ -193,7 +248,7 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
                   int numSTARbuckets, int numRobotsCacheBuckets, int numRobotsRequestedBuckets)
     {
         this.init(numCrawlThreads, numRobotsDownloadThreads, numURLseenBuckets, numSTARbuckets, numRobotsCacheBuckets,
-                  numRobotsRequestedBuckets, 1024, 64, 256, 64);
+                  numRobotsRequestedBuckets, 1024, 64, 256, 64, DEFAULT_NUM_ROBOTS_CHECK_THREADS);
 
         this.addURL(Arrays.asList(seedPages));
     }
@@ -230,9 +285,50 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
     public IRLbot(String[] seedPages, int numCrawlThreads, int numRobotsDownloadThreads, int numURLseenBuckets,
                   int numSTARbuckets, int numRobotsCacheBuckets, int numRobotsRequestedBuckets, int URLseenBytes,
                   int STARbytes, int RobotsCacheBytes, int RobotsRequestedBytes)
+    {
+        this(seedPages, numCrawlThreads, numRobotsDownloadThreads, numURLseenBuckets, numSTARbuckets,
+             numRobotsCacheBuckets, numRobotsRequestedBuckets, URLseenBytes, STARbytes, RobotsCacheBytes,
+             RobotsRequestedBytes, DEFAULT_NUM_ROBOTS_CHECK_THREADS);
+    }
+
+    /**
+     * Instantiates a new object of a web crawler as presented by Lee, Leonard, Wang and Loguinov in their paper
+     * 'IRLbot: Scaling to 6 Billion Pages and Beyond'.
+     * <p>
+     * A web crawler
+     *
+     * @param seedPages
+     *         The initial seed pages to start the crawl from
+     * @param numCrawlThreads
+     *         The number of concurrent threads to use for the crawling process
+     * @param numRobotsDownloadThreads
+     *         The number of robot.txt download threads
+     * @param numURLseenBuckets
+     *         The number of buckets used for the already seen URLs
+     * @param numSTARbuckets
+     *         The number of threads used for STAR
+     * @param numRobotsCacheBuckets
+     *         The number of buckets used for the robots.txt cache
+     * @param numRobotsRequestedBuckets
+     *         The number of buckets used for the robots.txt requests
+     * @param URLseenBytes
+     *         The bytesize on which a merge of the seen URLs with the backing data store is invoked
+     * @param STARbytes
+     *         The bytesize on which a merge of the STAR data with the backing data store is invoked
+     * @param RobotsCacheBytes
+     *         The bytesize on which a merge of the RobotsCache with the backing data store is invoked
+     * @param RobotsRequestedBytes
+     *         The bytesize on which a merge of the RobotsRequested with the backing data store is invoked
+     * @param numRobotsCheckThreads
+     *         The number of threads checking URLs which passed BEAST against the robots.txt rules of their hosts
+     */
+    public IRLbot(String[] seedPages, int numCrawlThreads, int numRobotsDownloadThreads, int numURLseenBuckets,
+                  int numSTARbuckets, int numRobotsCacheBuckets, int numRobotsRequestedBuckets, int URLseenBytes,
+                  int STARbytes, int RobotsCacheBytes, int RobotsRequestedBytes, int numRobotsCheckThreads)
     {
         this.init(numCrawlThreads, numRobotsDownloadThreads, numURLseenBuckets, numSTARbuckets, numRobotsCacheBuckets,
-                  numRobotsRequestedBuckets, URLseenBytes, STARbytes, RobotsCacheBytes, RobotsRequestedBytes);
+                  numRobotsRequestedBuckets, URLseenBytes, STARbytes, RobotsCacheBytes, RobotsRequestedBytes,
+                  numRobotsCheckThreads);
 
         this.addURL(Arrays.asList(seedPages));
     }
@@ -260,14 +356,15 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
      *         The bytesize on which a merge of the RobotsCache with the backing data store is invoked
      * @param RobotsRequestedBytes
      *         The bytesize on which a merge of the RobotsRequested with the backing data store is invoked
+     * @param numRobotsCheckThreads
+     *         The number of threads checking URLs which passed BEAST against the robots.txt rules of their hosts
      */
     private void init(int numCrawlThreads, int numRobotsDownloadThreads, int numURLseenBuckets, int numSTARbuckets,
                       int numRobotsCacheBuckets, int numRobotsRequestedBuckets, int URLseenBytes, int STARbytes,
-                      int RobotsCacheBytes, int RobotsRequestedBytes)
+                      int RobotsCacheBytes, int RobotsRequestedBytes, int numRobotsCheckThreads)
     {
         this.toCrawl = new DelayQueue<>();
         this.numCrawlThreads = numCrawlThreads;
-        this.reader = new UrlReader();
 
         this.waitingList = new ConcurrentHashMap<>();
 
@@ -295,12 +392,17 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
             System.exit(1);
         }
         this.pldIndegree.addCheckSpamUrlListener(this);
-        this.beast = new BEAST();
-        this.beast.addBEASTBudgetPassedListener(this);
+        this.beast = new BEAST(Paths.get(System.getProperty("user.dir"), "cache", "beast", "checkpoint.bin"));
+        this.beast.addBEASTBatchPassedListener(this);
+        this.registerMBean(this.beast, "BEAST");
 
         // initialize the RobotsCache part
-        RobotsCacheDispatcher robotsCacheDispatcher = new RobotsCacheDispatcher();
+        this.robotsRuleCache = new RobotsRuleCache();
+        this.registerMBean(this.robotsRuleCache, "RobotsRuleCache");
+        RobotsCacheDispatcher robotsCacheDispatcher = new RobotsCacheDispatcher(this.robotsRuleCache);
         robotsCacheDispatcher.addRobotsCachePassedListener(this);
+        robotsCacheDispatcher.addRobotsTxtExpiredListener(this);
+        robotsCacheDispatcher.addUnreachableHostListener(this);
         try
         {
             this.robotsCache = new RobotsCache(robotsCacheDispatcher, numRobotsCacheBuckets, RobotsCacheBytes, this);
@@ -310,6 +412,7 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
             LOG.error("Could not initialize cache for checks against robots.txt files", dEx);
             System.exit(1);
         }
+        this.registerMBean(this.robotsCache, "RobotsCache");
 
         // initialize the RobotsRequested part
         RobotsRequestedDispatcher robotsRequestedDispatcher = new RobotsRequestedDispatcher();
@@ -328,23 +431,108 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
 
         this.robotsCheckQueue = new LinkedBlockingQueue<>();
         this.robotsRequestQueue = new LinkedBlockingQueue<>();
-        this.robotsDownloadQueue = new LinkedBlockingQueue<>();
 
-        this.robotsCheckQueueEmptier = new Thread(new RobotsCheckQueueEmptier());
-        this.robotsCheckQueueEmptier.setName("Robots Check Queue Emptier");
-        this.robotsCheckQueueEmptier.start();
+        NamedThreadFactory checkFactory = new NamedThreadFactory();
+        checkFactory.setName("Robots Check Queue Emptier");
+        this.robotsCheckExecutor = Executors.newFixedThreadPool(numRobotsCheckThreads, checkFactory);
+        for (int i = 0; i < numRobotsCheckThreads; i++)
+        {
+            this.robotsCheckExecutor.submit(new RobotsCheckQueueEmptier());
+        }
 
         this.robotsRequestedQueueEmptier = new Thread(new RobotsRequestedQueueEmptier());
         this.robotsRequestedQueueEmptier.setName("Robots Request Queue Emptier");
         this.robotsRequestedQueueEmptier.start();
 
-        NamedThreadFactory factory = new NamedThreadFactory();
-        factory.setName("robotsTxtDownloader");
-        this.downloadExecutor = Executors.newFixedThreadPool(numRobotsDownloadThreads, factory);
-        for (int i = 0; i < numRobotsDownloadThreads; i++)
+        this.robotsTxtDownloader = new RobotsTxtDownloader(numRobotsDownloadThreads);
+        this.robotsTxtDownloader.addRobotsTxtDownloadedListener(this);
+
+        this.robotsTxtRefresher = new RobotsTxtRefresher(this.robotsTxtDownloader);
+        this.robotsTxtRefresher.addRobotsTxtRefreshedListener(this);
+        this.robotsTxtRefresherThread = new Thread(this.robotsTxtRefresher);
+        this.robotsTxtRefresherThread.setName("Robots.txt Refresher");
+        // refreshes must not compete with the crawling of pages
+        this.robotsTxtRefresherThread.setPriority(Thread.MIN_PRIORITY);
+        this.robotsTxtRefresherThread.start();
+
+        this.dnsResolver = new DnsResolver(createHostResolver(), DEFAULT_NUM_DNS_THREADS, DnsResolver.DEFAULT_CAPACITY,
+                                           DnsResolver.DEFAULT_MIN_TTL, DnsResolver.DEFAULT_MAX_TTL,
+                                           DnsResolver.DEFAULT_NEGATIVE_TTL);
+        this.registerMBean(this.dnsResolver, "DnsResolver");
+        this.registerMBean(this.politenessGate, "PolitenessGate");
+        this.registerMBean(this.urlFilterChain, "UrlFilterChain");
+        this.registerMBean(this.spiderTrapDetector, "SpiderTrapDetector");
+    }
+
+    /**
+     * Creates the strategy resolving the names of hosts. If the system property {@value #DNS_SERVER_PROPERTY} is set,
+     * the given DNS server is queried directly, which reports the TTLs of the addresses; otherwise the name service of
+     * the JVM is used.
+     *
+     * @return The strategy resolving the names of hosts
+     */
+    private static HostResolver createHostResolver()
+    {
+        String dnsServer = System.getProperty(DNS_SERVER_PROPERTY);
+        if (dnsServer == null || dnsServer.isBlank())
+        {
+            return new SystemHostResolver();
+        }
+        int colon = dnsServer.lastIndexOf(':');
+        // IPv6 addresses without port contain colons as well
+        if (colon > 0 && dnsServer.indexOf(':') == colon)
         {
-            this.downloadExecutor.submit(new DownloadRobotsTxtExecutor());
+            return new DnsHostResolver(new InetSocketAddress(dnsServer.substring(0, colon),
+                                                             Integer.parseInt(dnsServer.substring(colon + 1))));
         }
+        return new DnsHostResolver(new InetSocketAddress(dnsServer, DnsHostResolver.DNS_PORT));
+    }
+
+    /**
+     * Registers the statistics of a crawler component at the platform MBean server. A failing registration is logged
+     * but does not prevent the crawler from working.
+     *
+     * @param mBean
+     *         The management bean of the component
+     * @param type
+     *         The name of the component
+     */
+    private void registerMBean(Object mBean, String type)
+    {
+        try
+        {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("at.rovo.crawler:type=" + type);
+            if (!mBeanServer.isRegistered(name))
+            {
+                mBeanServer.registerMBean(mBean, name);
+                this.mBeanNames.add(name);
+            }
+        }
+        catch (JMException jmEx)
+        {
+            LOG.warn("Could not register " + type + " statistics with JMX", jmEx);
+        }
+    }
+
+    /**
+     * Removes all management beans registered by this instance from the platform MBean server.
+     */
+    private void unregisterMBeans()
+    {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : this.mBeanNames)
+        {
+            try
+            {
+                mBeanServer.unregisterMBean(name);
+            }
+            catch (JMException jmEx)
+            {
+                LOG.warn("Could not unregister " + name + " from JMX", jmEx);
+            }
+        }
+        this.mBeanNames.clear();
     }
 
     /**
@@ -369,6 +557,30 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
         urls.forEach(url -> this.toCrawl.add(new DelayedCrawlUrl(url, 0, TimeUnit.SECONDS)));
     }
 
+    /**
+     * Sets the normalization policy applied to the links found on crawled pages. By default the {@link
+     * UrlCanonicalizer#DEFAULT_NORMALIZATIONS} are applied.
+     *
+     * @param urlCanonicalizer
+     *         Resolves the found links and transforms them into their canonical form
+     */
+    public void setUrlCanonicalizer(UrlCanonicalizer urlCanonicalizer)
+    {
+        this.urlCanonicalizer = urlCanonicalizer;
+    }
+
+    /**
+     * Returns the chain of filters the links found on crawled pages have to pass before they are checked by {@link
+     * URLseen}. Its filters can be replaced via {@link UrlFilterChain#setFilters(java.util.List)} while the crawler is
+     * running.
+     *
+     * @return The filter chain applied to found links
+     */
+    public UrlFilterChain getUrlFilterChain()
+    {
+        return this.urlFilterChain;
+    }
+
     /**
      * Adds a new IRLbotListener element to the instance.
      *
@@ -406,6 +618,11 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
         this.listeners.forEach(listener -> listener.numberOfURLsToCrawlChanged(newSize));
     }
 
+    private void informOnRobotsTxtDownloadQueueChange(long newSize)
+    {
+        this.listeners.forEach(listener -> listener.sizeOfRobotTxtDownloadQueue(newSize));
+    }
+
     public int getNumberOfURLseenBuckets()
     {
         return this.urlSeen.getNumberOfBuckets();
@@ -426,6 +643,11 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
         return this.robotsRequested.getNumberOfBuckets();
     }
 
+    public BEASTStatistics getBEASTStatistics()
+    {
+        return this.beast.getStatistics();
+    }
+
     /**
      * Starts the actual crawl of all the URLs contained in the {@link List} of pages to crawl.
      * <p>
@@ -473,27 +695,15 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
                 {
                     continue;
                 }
-                String url = delayedUrl.getUrl();
-                String pld = IRLbotUtils.getPLDofURL(url);
+                CrawlUrl crawlUrl = delayedUrl.getCrawlUrl();
+                String url = crawlUrl.getUrl();
 
-                if (!this.pldLastCrawled.containsKey(pld))
-                {
-                    this.pldLastCrawled.put(pld, new AtomicLong(System.currentTimeMillis()));
-                }
-                // check if we actually crawled the domain recently (within the delay time-frame)
-                if (delayedUrl.getPldDelay() > 0)
+                // In case the URL needed to be re-queued skip the rest of the crawl
+                if (this.checkAndRequeue(crawlUrl, delayedUrl))
                 {
-                    // In case the URL needed to be re-queued skip the rest of the crawl
-                    if (lockManager.executeLocked(pld, () -> checkAndRequeue(pld, delayedUrl)))
-                    {
-                        continue;
-                    }
-                }
-                else
-                {
-                    // update the timestamp of the last crawl of the PLD
-                    this.pldLastCrawled.get(pld).set(System.currentTimeMillis());
+                    continue;
                 }
+                delayedUrl.release();
 
                 String pageToCrawl = this.formatURL(url);
                 this.informOnToCrawlChange(this.toCrawl.size());
@@ -505,7 +715,8 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
 
                 LOG.info("crawling page: {}", pageToCrawl);
                 // FIXME: change Future<T> with CompleteFuture<T> in order to execute a lambda expression on completion
-                CrawlingThread crawler = new CrawlingThread(pageToCrawl, this.pldIndegree);
+                CrawlingThread crawler = new CrawlingThread(pageToCrawl, this.pldIndegree, this.urlCanonicalizer,
+                                                            this.urlFilterChain);
                 this.numPagesCrawledTotal.incrementAndGet();
                 this.waitingList.put(pageToCrawl, executor.submit(crawler));
             }
@@ -534,71 +745,36 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
     }
 
     /**
-     * Checks if enough time has passed between two URL invocations and re-queues the URL if not enough time has passed
-     * according the delay specified in the <em>delayedUrl</em> parameter.
+     * Checks if enough time has passed since the last crawl of the PLD and of the IP address of the URL and re-queues
+     * the URL if not. The delay of the PLD is specified in the <em>delayedUrl</em> parameter, while the delay between
+     * two fetches from the same IP address is enforced by the {@link #politenessGate}.
      *
-     * @param pld
-     *         The pay level domain of the URL to check
+     * @param crawlUrl
+     *         The URL to check
      * @param delayedUrl
      *         The {@link DelayedCrawlUrl} object containing the URL to crawl as well as the time delay between two
      *         invocations for the same domain
      *
      * @return true if the URL needed to be re-queued; false otherwise
      */
-    private boolean checkAndRequeue(String pld, DelayedCrawlUrl delayedUrl)
+    private boolean checkAndRequeue(CrawlUrl crawlUrl, DelayedCrawlUrl delayedUrl)
     {
         long currentTime = System.currentTimeMillis();
-        //        if (LOG.isTraceEnabled())
-        {
-            LOG.debug(
-                    "PLD {} for URL {} has a delay of {} seconds specified - last crawled: {} - current time: {} - diff: {}",
-                    pld, delayedUrl.getUrl(), delayedUrl.getPldDelay(), this.pldLastCrawled.get(pld).get(), currentTime,
-                    currentTime - this.pldLastCrawled.get(pld).get());
-        }
-        if (needsReQueueing(pld, delayedUrl, currentTime))
+        long pldDelay = TimeUnit.MILLISECONDS.convert(delayedUrl.getPldDelay(), delayedUrl.getTimeUnit());
+        long wait =
+                this.politenessGate.tryAcquire(crawlUrl.getPLDHash(), delayedUrl.getIPAddress(), pldDelay, currentTime);
+        if (wait > 0)
         {
-            //            if (LOG.isTraceEnabled())
-            {
-                LOG.debug("{} - Re-Queue {} - lastCrawl: {} delay: {} seconds currentTime: {}",
-                          Thread.currentThread().getName(), delayedUrl.getUrl(), this.pldLastCrawled.get(pld).get(),
-                          delayedUrl.getPldDelay(), currentTime);
-            }
-            // since we last crawled the PLD less then time-frame seconds ago, add the URL back to the queue
-            this.toCrawl
-                    .add(new DelayedCrawlUrl(delayedUrl.getUrl(), delayedUrl.getPldDelay(), delayedUrl.getTimeUnit()));
+            LOG.debug("{} - Re-Queue {} for {} ms - PLD {} last crawled: {} delay: {} seconds IP: {}",
+                      Thread.currentThread().getName(), delayedUrl, wait, crawlUrl.getPLD(),
+                      this.politenessGate.getLastCrawled(crawlUrl.getPLDHash()), delayedUrl.getPldDelay(),
+                      delayedUrl.getIPAddress());
+            // since we crawled the PLD or its IP address too recently, add the URL back to the queue until both may
+            // be crawled again
+            this.toCrawl.add(delayedUrl.requeue(wait));
             return true;
         }
-        else
-        {
-            //            if (LOG.isTraceEnabled())
-            {
-                LOG.debug("PLD {} for URL {} was last crawled {} seconds ago", pld, delayedUrl.getUrl(),
-                          currentTime - this.pldLastCrawled.get(pld).get());
-            }
-            // update the timestamp of the last crawl of the PLD
-            this.pldLastCrawled.get(pld).set(System.currentTimeMillis());
-            return false;
-        }
-    }
-
-    /**
-     * Checks if a URL needs to be re-queued. A URL needs to be re-queued if not enough time between two invocations of
-     * pages from the same domain has passed. The time span between two valid invocations is taken from the provided
-     * {@link DelayedCrawlUrl} object.
-     *
-     * @param pld
-     *         The pay level domain of the URL to check
-     * @param delayedUrl
-     *         The {@link DelayedCrawlUrl} object check if it needs to be re-queued
-     * @param currentTime
-     *         The current timestamp
-     *
-     * @return true if provided URL needs re-queueing; false otherwise
-     */
-    private boolean needsReQueueing(String pld, DelayedCrawlUrl delayedUrl, long currentTime)
-    {
-        return this.pldLastCrawled.get(pld).get() +
-               TimeUnit.MILLISECONDS.convert(delayedUrl.getPldDelay(), delayedUrl.getTimeUnit()) > currentTime;
+        return false;
     }
 
     /**
@@ -652,10 +828,15 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
 
                     LOG.info("{} - {} - found: {} URLs", Thread.currentThread().getName(), page.getURL(),
                              page.getContainedURLs().size());
-                    for (String url : page.getContainedURLs())
+                    this.urlDeAliaser.learn(page.getURL(), page.getContentHash());
+                    for (CrawlUrl url : page.getContainedURLs())
                     {
                         LOG.debug("{} - {} - found: {}", Thread.currentThread().getName(), page.getURL(), url);
-                        this.urlSeen.checkURL(null, url);
+                        CrawlUrl uniqueUrl = this.urlDeAliaser.deAlias(url);
+                        if (this.spiderTrapDetector.accept(uniqueUrl))
+                        {
+                            this.urlSeen.checkURL(null, uniqueUrl);
+                        }
                     }
                     // removing items from a list we are iterating through
                     // is not possible so save it until we finished the iteration
@@ -688,8 +869,10 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
     {
         this.stopRequested = true;
 
-        this.robotsCheckQueueEmptier.interrupt();
+        this.robotsCheckExecutor.shutdownNow();
         this.robotsRequestedQueueEmptier.interrupt();
+        this.robotsTxtRefresher.stop();
+        this.robotsTxtRefresherThread.interrupt();
 
         try
         {
@@ -704,24 +887,16 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
             LOG.error("Error while disposing IRLbot components", dEx);
         }
 
-        // This will make the executor accept no new threads and finish all existing threads in the queue
-        this.downloadExecutor.shutdown();
+        this.unregisterMBeans();
 
-        // Wait until all threads are finish
-        try
-        {
-            this.downloadExecutor.awaitTermination(1, TimeUnit.MINUTES);
-        }
-        catch (InterruptedException e)
-        {
-            e.printStackTrace();
-        }
+        this.robotsTxtDownloader.shutdown();
+        this.dnsResolver.shutdown();
 
         LOG.info("Finished crawling, all threads shutdown");
     }
 
     @Override
-    public void handleUniqueURL(String url)
+    public void handleUniqueURL(CrawlUrl url)
     {
         // Unique URLs arriving from URLseen perform a check against PLDindegree
         LOG.debug("sending to STAR budget check: {}", url);
@@ -729,7 +904,7 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
     }
 
     @Override
-    public void handleSpamCheck(String url, int budget)
+    public void handleSpamCheck(CrawlUrl url, int budget)
     {
         // Unique URLs and their budget arriving form STAR which need to be forwarded to BEAST
         LOG.debug("sending to BEAST - url: {} | budget: {}", url, budget);
@@ -737,66 +912,270 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
     }
 
     @Override
-    public void handleBudgetPassed(String url)
+    public void handleBatchPassed(List<CrawlUrl> urls)
     {
-        LOG.debug("sending URL to RobotsCache: {}", url);
-        this.robotsCheckQueue.add(url);
+        LOG.debug("sending {} URLs to RobotsCache", urls.size());
+        this.robotsCheckQueue.add(urls);
     }
 
     @Override
-    public void handleUnableToCheck(String url)
+    public void handleUnableToCheck(CrawlUrl url)
     {
         LOG.debug("no robots.txt available yet for {}", url);
         // no robots.txt available for this URL yet - request one by adding the PLD to RobotsRequest.checkUpdate(url).
-        String hostName = IRLbotUtils.getHostname(url);
-        this.robotsRequestQueue.add(hostName);
+        String hostName = url.getHostname();
+        // only the first request of a host reaches RobotsRequested until its robots.txt file was downloaded
+        if (this.requestedHosts.add(hostName))
+        {
+            this.robotsRequestQueue.add(hostName);
+        }
         // Add the URL to the back of the robotsCheckQueue again
-        this.robotsCheckQueue.add(url);
+        this.robotsCheckQueue.add(Collections.singletonList(url));
     }
 
     @Override
     public void handleRobotsTxtDownloadRequests(String hostName)
     {
         LOG.debug("requesting robots.txt download for host: {}", hostName);
-        this.robotsDownloadQueue.add(hostName);
-        for (IRLbotListener listener : this.listeners)
+        // hosts which cannot be resolved do not occupy a download thread but are backed off right away
+        this.dnsResolver.resolve(toDnsName(hostName)).whenComplete((host, error) ->
         {
-            listener.sizeOfRobotTxtDownloadQueue(this.robotsDownloadQueue.size());
-        }
+            if (host != null && host.isResolved())
+            {
+                this.robotsTxtDownloader.download(hostName);
+                this.informOnRobotsTxtDownloadQueueChange(this.robotsTxtDownloader.getQueueSize());
+            }
+            else
+            {
+                LOG.debug("could not resolve host {} - backing it off", hostName);
+                long currentTime = System.currentTimeMillis();
+                this.storeHostData(
+                        new HostData(hostName, null, (RobotsRules) null, currentTime, null, null).fail(currentTime));
+                this.requestedHosts.remove(hostName);
+            }
+        });
     }
 
     @Override
-    public void handleURLsPassed(String url, HostData hostData)
+    public void handleRobotsTxtDownloaded(HostData hostData)
+    {
+        this.storeHostData(hostData);
+        this.requestedHosts.remove(hostData.getHostName());
+        // the host is still counted as in progress until all listeners were informed
+        this.informOnRobotsTxtDownloadQueueChange(this.robotsTxtDownloader.getQueueSize() - 1);
+    }
+
+    @Override
+    public void handleURLsPassed(CrawlUrl url, HostData hostData)
     {
         LOG.debug("adding {} to the list of URLs to crawl! Delay for PLD {} is {}", url, hostData.getHostName(),
                   hostData.getCrawlDelay());
-        this.toCrawl.add(new DelayedCrawlUrl(url, hostData.getCrawlDelay(), TimeUnit.SECONDS));
-        this.informOnToCrawlChange(this.toCrawl.size());
+        // only URLs of resolvable hosts enter the frontier and they carry the address of their host along
+        this.dnsResolver.resolve(url.getHost()).whenComplete((host, error) ->
+        {
+            if (host != null && host.isResolved())
+            {
+                this.toCrawl.add(
+                        new DelayedCrawlUrl(url, host.getIPAddress(), hostData.getCrawlDelay(), TimeUnit.SECONDS));
+                this.informOnToCrawlChange(this.toCrawl.size());
+            }
+            else if (host != null && !host.isFailed())
+            {
+                // the URL already passed URLseen, so it is only dropped if the host really does not exist
+                LOG.debug("dropping {} as its host does not exist", url);
+            }
+            else
+            {
+                this.parkUnresolved(url, hostData.getCrawlDelay());
+            }
+        });
     }
 
     /**
-     * This runnable class takes the first available URL from the <em>robotsCheckQueue</em> and issues a new check
-     * request to the <em>robotsCache</em>. This check will determine if there is already a robots.txt for the given
-     * hostname available. If not, the request will later be issued to the <em>robotsRequestQueue</em> which will try to
-     * download the robots.txt from the given URL.
+     * Parks a URL whose host could not be looked up and schedules a retry of the lookup, unless one is already
+     * pending for this host.
+     *
+     * @param url
+     *         The URL whose host could not be looked up
+     * @param crawlDelay
+     *         The crawl delay of the host in seconds
+     */
+    private void parkUnresolved(CrawlUrl url, long crawlDelay)
+    {
+        String hostName = url.getHost();
+        // the URL is parked before the retry is registered so a concurrent retry cannot miss it
+        this.unresolvedUrls.park(KeyHasher.getDefault().hash(hostName), Collections.singletonList(url));
+        if (this.unresolvedHosts.putIfAbsent(hostName, crawlDelay) == null)
+        {
+            LOG.debug("lookup of host {} failed - parking its URLs", hostName);
+            this.scheduleDnsRetry(hostName, 1);
+        }
+    }
+
+    private void scheduleDnsRetry(String hostName, int attempt)
+    {
+        // the failure is cached for the minimum TTL, so retrying earlier would only hit the cache
+        long delay = this.dnsResolver.getMinTtl() << (attempt - 1);
+        CompletableFuture.runAsync(() -> this.retryLookup(hostName, attempt),
+                                   CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+    }
+
+    private void retryLookup(String hostName, int attempt)
+    {
+        if (this.stopRequested)
+        {
+            return;
+        }
+        long hostHash = KeyHasher.getDefault().hash(hostName);
+        this.dnsResolver.resolve(hostName).whenComplete((host, error) ->
+        {
+            if (host != null && host.isResolved())
+            {
+                // the host is removed first so URLs parked from now on trigger a new lookup instead of being left over
+                Long crawlDelay = this.unresolvedHosts.remove(hostName);
+                List<CrawlUrl> released = this.unresolvedUrls.release(hostHash);
+                LOG.debug("lookup of host {} succeeded - releasing {} parked URLs", hostName, released.size());
+                for (CrawlUrl url : released)
+                {
+                    this.toCrawl.add(new DelayedCrawlUrl(url, host.getIPAddress(), crawlDelay == null ? 0 : crawlDelay,
+                                                         TimeUnit.SECONDS));
+                }
+                this.informOnToCrawlChange(this.toCrawl.size());
+            }
+            else if ((host == null || host.isFailed()) && attempt < MAX_DNS_RETRIES && !this.stopRequested)
+            {
+                this.scheduleDnsRetry(hostName, attempt + 1);
+            }
+            else
+            {
+                this.unresolvedHosts.remove(hostName);
+                int dropped = this.unresolvedUrls.drop(hostHash, Collections.emptyList());
+                LOG.debug("dropped {} URLs of host {} which could not be resolved", dropped, hostName);
+            }
+        });
+    }
+
+    @Override
+    public void handleRobotsTxtExpired(HostData hostData)
+    {
+        this.robotsTxtRefresher.refresh(hostData);
+    }
+
+    @Override
+    public void handleRobotsTxtRefreshed(HostData hostData)
+    {
+        LOG.debug("storing refreshed robots.txt rules of host {}", hostData.getHostName());
+        this.storeHostData(hostData);
+    }
+
+    @Override
+    public void handleUnreachableHost(List<CrawlUrl> urls, HostData hostData)
+    {
+        long hostHash = KeyHasher.getDefault().hash(hostData.getHostName());
+        if (hostData.getFailures() >= MAX_ROBOTS_FAILURES)
+        {
+            int dropped = this.parkedUrls.drop(hostHash, urls);
+            LOG.debug("dropped {} URLs of dead host {}", dropped, hostData.getHostName());
+        }
+        else
+        {
+            // parked URLs neither occupy crawl threads nor circle through the robots check queue until the host is
+            // reachable again
+            this.parkedUrls.park(hostHash, urls);
+        }
+    }
+
+    /**
+     * Stores the fetched robots.txt rules of a host and releases the URLs parked for the host once it is reachable
+     * again.
+     *
+     * @param hostData
+     *         The host data containing the fetched rules
+     */
+    private void storeHostData(HostData hostData)
+    {
+        ResolvedHost host = this.dnsResolver.getCached(toDnsName(hostData.getHostName()));
+        if (host != null && host.isResolved() && !host.getIPAddress().equals(hostData.getIPAddress()))
+        {
+            hostData = hostData.withIPAddress(host.getIPAddress());
+        }
+        long hostHash = KeyHasher.getDefault().hash(hostData.getHostName());
+        this.robotsCache.update(hostHash, hostData);
+        if (!hostData.isUnreachable())
+        {
+            List<CrawlUrl> released = this.parkedUrls.release(hostHash);
+            if (!released.isEmpty())
+            {
+                LOG.debug("host {} is reachable again - releasing {} parked URLs", hostData.getHostName(),
+                          released.size());
+                this.robotsCheckQueue.add(released);
+            }
+        }
+    }
+
+    /**
+     * Returns the name to resolve for a host as passed through the robots.txt stages, which is prefixed with its
+     * scheme, f.e. <em>http://example.com</em>.
+     *
+     * @param hostName
+     *         The host including its scheme
+     *
+     * @return The host without scheme and port
+     */
+    private static String toDnsName(String hostName)
+    {
+        int start = hostName.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        // the port follows the closing bracket of IPv6 addresses
+        int end = hostName.indexOf(':', hostName.startsWith("[", start) ? hostName.indexOf(']', start) : start);
+        return hostName.substring(start, end < 0 ? hostName.length() : end);
+    }
+
+    /**
+     * This runnable class takes all available batches of URLs from the <em>robotsCheckQueue</em>, groups the contained
+     * URLs by their host and issues a single check request to the <em>robotsCache</em> per host. This check will
+     * determine if there is already a robots.txt for the given hostname available. If not, the request will later be
+     * issued to the <em>robotsRequestQueue</em> which will try to download the robots.txt from the given URL.
+     * <p>
+     * Several instances of this class take batches from the queue concurrently.
      */
     private class RobotsCheckQueueEmptier implements Runnable
     {
         @Override
         public void run()
         {
+            List<List<CrawlUrl>> batches = new ArrayList<>();
+            Map<Long, List<CrawlUrl>> urlsPerHost = new LinkedHashMap<>();
             while (!stopRequested)
             {
                 try
                 {
-                    String url = robotsCheckQueue.take();
-                    LOG.debug("Taking {} from the queue to check in robotsCache", url);
-                    robotsCache.check(url);
+                    // block until a batch is available and take any further batches which are already waiting
+                    batches.add(robotsCheckQueue.take());
+                    robotsCheckQueue.drainTo(batches, MAX_ROBOTS_CHECK_BATCHES - 1);
+                    for (List<CrawlUrl> batch : batches)
+                    {
+                        for (CrawlUrl url : batch)
+                        {
+                            urlsPerHost.computeIfAbsent(url.getHostnameHash(), key -> new ArrayList<>()).add(url);
+                        }
+                    }
+                    LOG.debug("Taking {} batches of URLs of {} hosts from the queue to check in robotsCache",
+                              batches.size(), urlsPerHost.size());
+                    for (List<CrawlUrl> urls : urlsPerHost.values())
+                    {
+                        robotsCache.check(urls);
+                    }
                 }
                 catch (InterruptedException e)
                 {
                     LOG.warn("robotsCacheQueue was interrupted while waiting for the next available URL to check");
                 }
+                finally
+                {
+                    batches.clear();
+                    urlsPerHost.clear();
+                }
             }
         }
     }
@@ -833,61 +1212,6 @@ public class IRLbot implements Runnable, UniqueUrlListener, CheckSpamUrlListener
         }
     }
 
-    /**
-     * This runnable class executes the actual downloading of the robots.txt for a URL which was taken from the
-     * <em>robotsDownloadQueue</em>. The <em>robotsCache</em> will be updated with the downloaded robots.txt file so
-     * later look-ups wont need to request or even download the robots.txt file again.
-     */
-    private class DownloadRobotsTxtExecutor implements Runnable
-    {
-        @Override
-        public void run()
-        {
-            while (!stopRequested)
-            {
-                String hostName;
-                try
-                {
-                    // take the first available host name from the queue and
-                    // start the download process of the robots.txt file.
-                    hostName = robotsDownloadQueue.take();
-                    for (IRLbotListener listener : listeners)
-                    {
-                        listener.sizeOfRobotTxtDownloadQueue(robotsDownloadQueue.size());
-                    }
-                    if (hostName != null)
-                    {
-                        String robotsFile = reader.readPage(hostName + "/robots.txt");
-                        if (robotsFile != null && !"".equals(robotsFile))
-                        {
-                            HostData hostData;
-                            // avoid HTML pages which just return "no robots.txt"
-                            if (robotsFile.toLowerCase().contains("user-agent:"))
-                            {
-                                hostData = new HostData(hostName, null, robotsFile);
-                            }
-                            else
-                            {
-                                hostData = new HostData(hostName, null, null);
-                            }
-                            robotsCache.update(DrumUtils.hash(hostName), hostData);
-                            LOG.debug("Received robots.txt for host: {}; content: '{}'", hostName, robotsFile);
-                        }
-                        else
-                        {
-                            LOG.warn("Could not download robots.txt file for host: {}", hostName);
-                            robotsCache.update(DrumUtils.hash(hostName), new HostData(hostName, null, null));
-                        }
-                    }
-                }
-                catch (Exception e)
-                {
-                    LOG.error("Error while downloading robots.txt", e);
-                }
-            }
-        }
-    }
-
     @Override
     public void update(DrumEvent<? extends DrumEvent<?>> event)
     {
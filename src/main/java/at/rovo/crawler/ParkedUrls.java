@@ -0,0 +1,191 @@
+package at.rovo.crawler;
+
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.util.CompactUrlQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds back the URLs of hosts which are currently backed off as their <em>robots.txt</em> file could not be fetched.
+ * <p>
+ * The URLs are kept per host until the host is reachable again and are then {@link #release(long) released} at once.
+ * Neither the number of URLs kept per host nor the number of hosts is unbounded: URLs exceeding either limit are
+ * dropped, as well as all URLs of a host which is considered dead. Parked URLs are kept in the shared {@link
+ * at.rovo.crawler.util.CompactUrlStore} as hosts might stay backed off for a long time.
+ *
+ * @author Roman Vottner
+ */
+public final class ParkedUrls
+{
+    /** The default maximum number of URLs kept per host **/
+    public final static int DEFAULT_MAX_URLS_PER_HOST = 1000;
+    /** The default maximum number of hosts URLs are kept for **/
+    public final static int DEFAULT_MAX_HOSTS = 10_000;
+
+    /** The maximum number of URLs kept per host **/
+    private final int maxUrlsPerHost;
+    /** The maximum number of hosts URLs are kept for **/
+    private final int maxHosts;
+    /** The parked URLs per hash value of their hostname **/
+    private final Map<Long, CompactUrlQueue> urls = new ConcurrentHashMap<>();
+    /** The number of currently parked URLs **/
+    private final AtomicInteger numParked = new AtomicInteger();
+    /** The number of dropped URLs **/
+    private final LongAdder numDropped = new LongAdder();
+
+    /**
+     * Creates a new instance which keeps up to {@link #DEFAULT_MAX_URLS_PER_HOST} URLs for up to {@link
+     * #DEFAULT_MAX_HOSTS} hosts.
+     */
+    public ParkedUrls()
+    {
+        this(DEFAULT_MAX_URLS_PER_HOST, DEFAULT_MAX_HOSTS);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxUrlsPerHost
+     *         The maximum number of URLs kept per host
+     * @param maxHosts
+     *         The maximum number of hosts URLs are kept for
+     */
+    public ParkedUrls(int maxUrlsPerHost, int maxHosts)
+    {
+        this.maxUrlsPerHost = maxUrlsPerHost;
+        this.maxHosts = maxHosts;
+    }
+
+    /**
+     * Keeps the given URLs of a host until the host is released.
+     *
+     * @param hostHash
+     *         The hash value of the hostname of the URLs
+     * @param hostUrls
+     *         The URLs to keep
+     *
+     * @return The number of URLs kept, the remaining URLs were dropped
+     */
+    public int park(long hostHash, Collection<CrawlUrl> hostUrls)
+    {
+        int[] parked = {0};
+        this.urls.compute(hostHash, (key, parkedUrls) ->
+        {
+            if (parkedUrls == null)
+            {
+                // the number of hosts is only checked approximately as other hosts might be added concurrently
+                if (this.urls.size() >= this.maxHosts)
+                {
+                    return null;
+                }
+                parkedUrls = new CompactUrlQueue();
+            }
+            for (CrawlUrl url : hostUrls)
+            {
+                if (parkedUrls.size() >= this.maxUrlsPerHost)
+                {
+                    break;
+                }
+                parkedUrls.add(url);
+                parked[0]++;
+            }
+            this.numParked.addAndGet(parked[0]);
+            return parkedUrls;
+        });
+        this.numDropped.add(hostUrls.size() - parked[0]);
+        return parked[0];
+    }
+
+    /**
+     * Removes and returns all URLs kept for a host.
+     *
+     * @param hostHash
+     *         The hash value of the hostname
+     *
+     * @return The URLs kept for the host, an empty list if there were none
+     */
+    public List<CrawlUrl> release(long hostHash)
+    {
+        CompactUrlQueue parkedUrls = this.remove(hostHash);
+        return parkedUrls == null ? Collections.emptyList() : parkedUrls.drain();
+    }
+
+    /**
+     * Drops the given URLs of a host as well as all URLs kept for it.
+     *
+     * @param hostHash
+     *         The hash value of the hostname
+     * @param hostUrls
+     *         Further URLs of the host which should not be kept
+     *
+     * @return The number of dropped URLs
+     */
+    public int drop(long hostHash, Collection<CrawlUrl> hostUrls)
+    {
+        int dropped = hostUrls.size();
+        CompactUrlQueue parkedUrls = this.remove(hostHash);
+        if (parkedUrls != null)
+        {
+            dropped += parkedUrls.size();
+            parkedUrls.clear();
+        }
+        this.numDropped.add(dropped);
+        return dropped;
+    }
+
+    /**
+     * Removes the queue of URLs kept for a host.
+     *
+     * @param hostHash
+     *         The hash value of the hostname
+     *
+     * @return The removed queue or null if no URLs were kept for the host
+     */
+    private CompactUrlQueue remove(long hostHash)
+    {
+        List<CompactUrlQueue> removed = new ArrayList<>(1);
+        this.urls.computeIfPresent(hostHash, (key, parkedUrls) ->
+        {
+            this.numParked.addAndGet(-parkedUrls.size());
+            removed.add(parkedUrls);
+            return null;
+        });
+        return removed.isEmpty() ? null : removed.get(0);
+    }
+
+    /**
+     * Returns the number of currently parked URLs.
+     *
+     * @return The number of parked URLs
+     */
+    public int getNumParked()
+    {
+        return this.numParked.get();
+    }
+
+    /**
+     * Returns the number of hosts URLs are currently parked for.
+     *
+     * @return The number of hosts
+     */
+    public int getNumHosts()
+    {
+        return this.urls.size();
+    }
+
+    /**
+     * Returns the number of URLs dropped so far.
+     *
+     * @return The number of dropped URLs
+     */
+    public long getNumDropped()
+    {
+        return this.numDropped.sum();
+    }
+}
@@ -0,0 +1,182 @@
+package at.rovo.crawler;
+
+import at.rovo.crawler.interfaces.KeyHasher;
+import at.rovo.crawler.interfaces.PolitenessGateMXBean;
+import at.rovo.crawler.util.TimestampMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a URL may be fetched with regards to the crawl delay of its pay level domain and the delay between
+ * two fetches from the same IP address.
+ * <p>
+ * Shared hosting servers serve thousands of pay level domains from a single IP address. Limiting the rate per pay level
+ * domain only would hit such servers with parallel requests, so every fetch has to pass both limits.
+ * <p>
+ * Both limits are enforced without any lock: the time of the last fetch of a pay level domain is claimed via
+ * compare-and-set first. If the IP address was fetched too recently afterwards, the claim is taken back unless another
+ * thread moved the time on in the meantime. A fetch which is granted therefore always updates both times, while
+ * fetches of unrelated domains and addresses never wait for each other.
+ * <p>
+ * The times are kept in {@link TimestampMap}s keyed by the hash values of the pay level domains and IP addresses. As
+ * a time older than the largest delay does not defer any fetch, the maps drop such entries whenever they grow, so only
+ * recently crawled domains and addresses occupy memory.
+ *
+ * @author Roman Vottner
+ */
+public final class PolitenessGate implements PolitenessGateMXBean
+{
+    /** The default minimum time between two fetches from the same IP address **/
+    public final static long DEFAULT_IP_DELAY = TimeUnit.SECONDS.toMillis(1);
+    /** The initial number of slots of the maps containing the times of the last fetches **/
+    private final static int INITIAL_CAPACITY = 1 << 12;
+
+    /** The minimum time in milliseconds between two fetches from the same IP address **/
+    private final long ipDelay;
+    /** The time of the last fetch per hash value of a pay level domain **/
+    private final TimestampMap pldLastCrawled;
+    /** The time of the last fetch per hash value of an IP address **/
+    private final TimestampMap ipLastCrawled;
+
+    /** The number of granted fetches **/
+    private final LongAdder granted = new LongAdder();
+    /** The number of fetches deferred by the crawl delay of their pay level domain **/
+    private final LongAdder pldDeferrals = new LongAdder();
+    /** The number of fetches deferred by the delay of their IP address **/
+    private final LongAdder ipDeferrals = new LongAdder();
+
+    /**
+     * Creates a new instance which uses the {@link #DEFAULT_IP_DELAY}.
+     */
+    public PolitenessGate()
+    {
+        this(DEFAULT_IP_DELAY);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param ipDelay
+     *         The minimum time in milliseconds between two fetches from the same IP address
+     */
+    public PolitenessGate(long ipDelay)
+    {
+        if (ipDelay < 0)
+        {
+            throw new IllegalArgumentException("IP delay must not be negative: " + ipDelay);
+        }
+        this.ipDelay = ipDelay;
+        this.pldLastCrawled = new TimestampMap(INITIAL_CAPACITY, 0);
+        this.ipLastCrawled = new TimestampMap(INITIAL_CAPACITY, ipDelay);
+    }
+
+    /**
+     * Tries to start a fetch from the given pay level domain and IP address. If neither was fetched too recently, the
+     * current time is recorded as the time of their last fetch.
+     *
+     * @param pldHash
+     *         The hash value of the pay level domain of the URL to fetch
+     * @param ipAddress
+     *         The IP address of the host of the URL, may be null if the host was not resolved
+     * @param pldDelay
+     *         The crawl delay of the pay level domain in milliseconds
+     * @param currentTime
+     *         The current time in milliseconds since the epoch, which has to be positive
+     *
+     * @return 0 if the fetch may start, otherwise the time in milliseconds to wait until the fetch should be tried
+     * again
+     */
+    public long tryAcquire(long pldHash, String ipAddress, long pldDelay, long currentTime)
+    {
+        // times older than the largest crawl delay do not need to be kept
+        this.pldLastCrawled.ensureMaxAge(pldDelay);
+        long pldLast;
+        do
+        {
+            pldLast = this.pldLastCrawled.get(pldHash);
+            long wait = pldLast == 0 ? 0 : pldLast + pldDelay - currentTime;
+            if (wait > 0)
+            {
+                this.pldDeferrals.increment();
+                return wait;
+            }
+        }
+        while (!this.pldLastCrawled.compareAndSet(pldHash, pldLast, currentTime));
+
+        if (ipAddress != null)
+        {
+            long ipHash = KeyHasher.getDefault().hash(ipAddress);
+            long ipLast;
+            do
+            {
+                ipLast = this.ipLastCrawled.get(ipHash);
+                long wait = ipLast == 0 ? 0 : ipLast + this.ipDelay - currentTime;
+                if (wait > 0)
+                {
+                    // give the domain back to other fetches unless one of them already claimed it after us
+                    this.pldLastCrawled.compareAndSet(pldHash, currentTime, pldLast);
+                    this.ipDeferrals.increment();
+                    return wait;
+                }
+            }
+            while (!this.ipLastCrawled.compareAndSet(ipHash, ipLast, currentTime));
+        }
+        this.granted.increment();
+        return 0;
+    }
+
+    /**
+     * Returns the time the given pay level domain was last fetched at.
+     *
+     * @param pldHash
+     *         The hash value of the pay level domain
+     *
+     * @return The time of the last fetch in milliseconds since the epoch or 0 if the domain was not fetched recently
+     */
+    public long getLastCrawled(long pldHash)
+    {
+        return this.pldLastCrawled.get(pldHash);
+    }
+
+    @Override
+    public long getIPDelay()
+    {
+        return this.ipDelay;
+    }
+
+    @Override
+    public int getNumPLDs()
+    {
+        return this.pldLastCrawled.size();
+    }
+
+    @Override
+    public int getNumIPs()
+    {
+        return this.ipLastCrawled.size();
+    }
+
+    @Override
+    public long getEvictions()
+    {
+        return this.pldLastCrawled.getEvictions() + this.ipLastCrawled.getEvictions();
+    }
+
+    @Override
+    public long getGranted()
+    {
+        return this.granted.sum();
+    }
+
+    @Override
+    public long getPLDDeferrals()
+    {
+        return this.pldDeferrals.sum();
+    }
+
+    @Override
+    public long getIPDeferrals()
+    {
+        return this.ipDeferrals.sum();
+    }
+}
@@ -5,38 +5,72 @@ import at.rovo.drum.Drum;
 import at.rovo.drum.DrumBuilder;
 import at.rovo.drum.DrumException;
 import at.rovo.drum.DrumListener;
+import at.rovo.drum.NullDispatcher;
 import at.rovo.drum.berkeley.BerkeleyDBStoreMerger;
-import at.rovo.drum.util.DrumUtils;
+import at.rovo.crawler.bean.CrawlUrl;
 import at.rovo.crawler.bean.HostData;
-import at.rovo.crawler.util.IRLbotUtils;
+import at.rovo.crawler.interfaces.RobotsCacheMXBean;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * For caching robots.txt, we have another <em>DRUM</em> structure called RobotsCache, which supports asynchronous check
  * and update operations
+ * <p>
+ * As most URLs belong to a small set of hosts, the host data of recently checked or updated hosts is kept in a bounded
+ * in-memory cache in front of the <em>DRUM</em> structure. Checks for these hosts are answered synchronously by
+ * invoking the dispatcher directly, only checks for other hosts are forwarded to <em>DRUM</em>.
+ * <p>
+ * URLs of the same host can be checked together via {@link #check(List)}. Only a single check per host is forwarded
+ * to <em>DRUM</em> at a time, further URLs of that host wait for the answer of the check in flight and are handed to
+ * the dispatcher together with the checked URL.
  *
  * @author Roman Vottner
  */
-public final class RobotsCache
+public final class RobotsCache implements RobotsCacheMXBean
 {
     /** The logger of this class **/
     private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    /** The default number of hosts whose host data is kept in memory **/
+    public final static int DEFAULT_HOT_HOST_CAPACITY = 1024;
 
     private int numBuckets = 0;
-    private Drum<HostData, String> drum = null;
+    private Drum<HostData, CrawlUrl> drum = null;
+    /** The parsed robots.txt rules used by the dispatcher which need to be invalidated on updates. May be null **/
+    private RobotsRuleCache ruleCache = null;
+    /** The dispatcher which is informed of the check results **/
+    private Dispatcher<HostData, CrawlUrl> dispatcher = null;
+    /** The host data of recently checked or updated hosts in access order **/
+    private Map<Long, HostData> hotHosts = null;
+    /** The maximum number of hosts whose host data is kept in memory **/
+    private int hotHostCapacity = 0;
+    /** The number of checks answered by the in-memory host data **/
+    private final LongAdder hotHostHits = new LongAdder();
+    /** The number of checks forwarded to DRUM **/
+    private final LongAdder hotHostMisses = new LongAdder();
+    /** The URLs of hosts waiting for the answer of a check already forwarded to DRUM **/
+    private final ConcurrentMap<Long, List<CrawlUrl>> pendingChecks = new ConcurrentHashMap<>();
 
-    public RobotsCache(String name, Dispatcher<HostData, String> dispatcher, int numBuckets,
+    public RobotsCache(String name, Dispatcher<HostData, CrawlUrl> dispatcher, int numBuckets,
                        int bucketByteSize) throws DrumException
     {
         this.numBuckets = numBuckets;
+        this.initHotHosts(dispatcher, DEFAULT_HOT_HOST_CAPACITY);
         try
         {
-            this.drum = new DrumBuilder<>(name, HostData.class, String.class)
+            this.drum = new DrumBuilder<>(name, HostData.class, CrawlUrl.class)
                     .numBucket(numBuckets)
                     .bufferSize(bucketByteSize)
-                    .dispatcher(dispatcher)
+                    .dispatcher(new HotHostDispatcher())
                     .datastore(BerkeleyDBStoreMerger.class)
                     .build();
         }
@@ -46,16 +80,23 @@ public final class RobotsCache
         }
     }
 
-    public RobotsCache(Dispatcher<HostData, String> dispatcher, int numBuckets, int bucketByteSize,
+    public RobotsCache(Dispatcher<HostData, CrawlUrl> dispatcher, int numBuckets, int bucketByteSize,
                        DrumListener listener) throws DrumException
+    {
+        this(dispatcher, numBuckets, bucketByteSize, listener, DEFAULT_HOT_HOST_CAPACITY);
+    }
+
+    public RobotsCache(Dispatcher<HostData, CrawlUrl> dispatcher, int numBuckets, int bucketByteSize,
+                       DrumListener listener, int hotHostCapacity) throws DrumException
     {
         this.numBuckets = numBuckets;
+        this.initHotHosts(dispatcher, hotHostCapacity);
         try
         {
-            this.drum = new DrumBuilder<>("robotsCache", HostData.class, String.class)
+            this.drum = new DrumBuilder<>("robotsCache", HostData.class, CrawlUrl.class)
                     .numBucket(numBuckets)
                     .bufferSize(bucketByteSize)
-                    .dispatcher(dispatcher)
+                    .dispatcher(new HotHostDispatcher())
                     .listener(listener)
                     .datastore(BerkeleyDBStoreMerger.class)
                     .build();
@@ -66,16 +107,115 @@ public final class RobotsCache
         }
     }
 
-    public void check(String url)
+    private void initHotHosts(Dispatcher<HostData, CrawlUrl> dispatcher, int hotHostCapacity)
+    {
+        this.dispatcher = dispatcher;
+        if (dispatcher instanceof RobotsCacheDispatcher)
+        {
+            this.ruleCache = ((RobotsCacheDispatcher) dispatcher).getRuleCache();
+        }
+        this.hotHostCapacity = hotHostCapacity;
+        this.hotHosts = new LinkedHashMap<Long, HostData>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, HostData> eldest)
+            {
+                return size() > hotHostCapacity;
+            }
+        };
+    }
+
+    public void check(CrawlUrl url)
     {
-        LOG.debug("Checking URL {} for robots.txt compliance on host: {}", url, IRLbotUtils.getHostname(url));
-        this.drum.check(DrumUtils.hash(IRLbotUtils.getHostname(url)), url);
+        this.check(Collections.singletonList(url));
+    }
+
+    /**
+     * Checks URLs which all belong to the same host for <em>robots.txt</em> compliance.
+     *
+     * @param urls
+     *         The URLs of a single host to check
+     */
+    public void check(List<CrawlUrl> urls)
+    {
+        if (urls.isEmpty())
+        {
+            return;
+        }
+        CrawlUrl url = urls.get(0);
+        LOG.debug("Checking {} URLs for robots.txt compliance on host: {}", urls.size(), url.getHostname());
+        long key = url.getHostnameHash();
+        HostData hostData;
+        synchronized (this.hotHosts)
+        {
+            hostData = this.hotHosts.get(key);
+        }
+        if (hostData != null)
+        {
+            this.hotHostHits.add(urls.size());
+            this.dispatchDuplicateKeyCheck(key, hostData, urls);
+            return;
+        }
+        this.hotHostMisses.add(urls.size());
+        boolean[] forward = {false};
+        this.pendingChecks.compute(key, (hostHash, pending) ->
+        {
+            if (pending == null)
+            {
+                forward[0] = true;
+                return new ArrayList<>(urls);
+            }
+            pending.addAll(urls);
+            return pending;
+        });
+        if (forward[0])
+        {
+            this.drum.check(key, url);
+        }
+    }
+
+    private void dispatchDuplicateKeyCheck(Long key, HostData hostData, List<CrawlUrl> urls)
+    {
+        if (this.dispatcher instanceof RobotsCacheDispatcher)
+        {
+            ((RobotsCacheDispatcher) this.dispatcher).duplicateKeyCheck(key, hostData, urls);
+        }
+        else
+        {
+            urls.forEach(url -> this.dispatcher.duplicateKeyCheck(key, hostData, url));
+        }
+    }
+
+    /**
+     * Removes the URLs waiting for the answer of the check forwarded to <em>DRUM</em> for the given host.
+     *
+     * @param key
+     *         The hash value of the hostname
+     * @param url
+     *         The URL the check was forwarded for
+     *
+     * @return The waiting URLs including the checked one
+     */
+    private List<CrawlUrl> takePendingChecks(Long key, CrawlUrl url)
+    {
+        List<CrawlUrl> urls = this.pendingChecks.remove(key);
+        return urls != null ? urls : Collections.singletonList(url);
     }
 
     public void update(Long key, HostData hostData)
     {
         LOG.debug("Receiving update on requested robots.txt for host {}", hostData.getHostName());
         this.drum.update(key, hostData);
+        synchronized (this.hotHosts)
+        {
+            this.hotHosts.put(key, hostData);
+        }
+        if (this.ruleCache != null)
+        {
+            this.ruleCache.invalidate(key);
+        }
     }
 
     public void dispose() throws DrumException
@@ -83,8 +223,95 @@ public final class RobotsCache
         this.drum.dispose();
     }
 
+    @Override
     public int getNumberOfBuckets()
     {
         return this.numBuckets;
     }
+
+    @Override
+    public int getHotHostCapacity()
+    {
+        return this.hotHostCapacity;
+    }
+
+    @Override
+    public int getHotHostCount()
+    {
+        synchronized (this.hotHosts)
+        {
+            return this.hotHosts.size();
+        }
+    }
+
+    @Override
+    public long getHotHostHits()
+    {
+        return this.hotHostHits.sum();
+    }
+
+    @Override
+    public long getHotHostMisses()
+    {
+        return this.hotHostMisses.sum();
+    }
+
+    @Override
+    public double getHotHostHitRate()
+    {
+        long hits = this.hotHostHits.sum();
+        long total = hits + this.hotHostMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public int getPendingChecks()
+    {
+        return this.pendingChecks.size();
+    }
+
+    /**
+     * Keeps the host data returned by <em>DRUM</em> for a checked host in memory before the result is passed on to the
+     * dispatcher provided on construction. Host data stored in memory by a concurrent {@link #update(Long, HostData)}
+     * is newer than the returned data and therefore not replaced.
+     */
+    private class HotHostDispatcher extends NullDispatcher<HostData, CrawlUrl>
+    {
+        @Override
+        public void uniqueKeyCheck(Long key, CrawlUrl url)
+        {
+            for (CrawlUrl pending : takePendingChecks(key, url))
+            {
+                dispatcher.uniqueKeyCheck(key, pending);
+            }
+        }
+
+        @Override
+        public void duplicateKeyCheck(Long key, HostData hostData, CrawlUrl url)
+        {
+            synchronized (hotHosts)
+            {
+                hotHosts.putIfAbsent(key, hostData);
+            }
+            dispatchDuplicateKeyCheck(key, hostData, takePendingChecks(key, url));
+        }
+
+        @Override
+        public void uniqueKeyUpdate(Long key, HostData hostData, CrawlUrl url)
+        {
+            dispatcher.uniqueKeyUpdate(key, hostData, url);
+        }
+
+        @Override
+        public void duplicateKeyUpdate(Long key, HostData hostData, CrawlUrl url)
+        {
+            dispatcher.duplicateKeyUpdate(key, hostData, url);
+        }
+
+        @Override
+        public void update(Long key, HostData hostData, CrawlUrl url)
+        {
+            dispatcher.update(key, hostData, url);
+        }
+    }
 }
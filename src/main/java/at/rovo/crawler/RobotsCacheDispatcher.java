@@ -1,10 +1,15 @@
 package at.rovo.crawler;
 
 import at.rovo.drum.NullDispatcher;
+import at.rovo.crawler.bean.CrawlUrl;
 import at.rovo.crawler.bean.HostData;
-import at.rovo.crawler.bean.RobotsTxt;
+import at.rovo.crawler.bean.RobotsRules;
 import at.rovo.crawler.interfaces.RobotsCachePassedListener;
+import at.rovo.crawler.interfaces.RobotsTxtExpiredListener;
+import at.rovo.crawler.interfaces.UnreachableHostListener;
 import java.lang.invoke.MethodHandles;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import org.slf4j.Logger;
@@ -15,9 +20,13 @@ import org.slf4j.LoggerFactory;
  * the check if a <em>robots.txt</em> for the requested domain is available or not.
  * <p>
  * In case of an available <em>robots.txt</em> the file is parsed and a decision is made based on the entries in the
- * <em>robots.txt</em> if the URL to check is allowed to proceed or not.
+ * <em>robots.txt</em> if the URL to check is allowed to proceed or not. The compiled rules are kept in a {@link
+ * RobotsRuleCache} so that the rules are not decoded again for every URL of the same host. URLs are still checked
+ * against expired rules, though registered {@link RobotsTxtExpiredListener}s are informed so that the rules get
+ * refreshed. URLs of hosts which could not be reached are not checked at all but handed to the registered {@link
+ * UnreachableHostListener}s.
  */
-public final class RobotsCacheDispatcher extends NullDispatcher<HostData, String>
+public final class RobotsCacheDispatcher extends NullDispatcher<HostData, CrawlUrl>
 {
     /** The logger of this class **/
     private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
@@ -25,15 +34,44 @@ public final class RobotsCacheDispatcher extends NullDispatcher<HostData, String
      * This list will hold all objects that requested to be informed if a certain robots.txt is available or not
      **/
     private Set<RobotsCachePassedListener> listeners = null;
+    /** The objects to inform about expired robots.txt rules **/
+    private final Set<RobotsTxtExpiredListener> expiredListeners = new CopyOnWriteArraySet<>();
+    /** The objects to inform about URLs of unreachable hosts **/
+    private final Set<UnreachableHostListener> unreachableListeners = new CopyOnWriteArraySet<>();
+    /** The compiled robots.txt rules of recently checked hosts **/
+    private final RobotsRuleCache ruleCache;
 
     /**
      * Creates a new instance which handles callbacks from the {@link RobotsCache} instance.
      */
     public RobotsCacheDispatcher()
+    {
+        this(new RobotsRuleCache());
+    }
+
+    /**
+     * Creates a new instance which handles callbacks from the {@link RobotsCache} instance and keeps compiled
+     * <em>robots.txt</em> rules in the provided cache.
+     *
+     * @param ruleCache
+     *         The cache to keep compiled robots.txt rules in
+     */
+    public RobotsCacheDispatcher(RobotsRuleCache ruleCache)
     {
         // all write operations make a fresh copy of the entire underlying array
         // iteration require no locking and is very fast
         this.listeners = new CopyOnWriteArraySet<>();
+        this.ruleCache = ruleCache;
+    }
+
+    /**
+     * Returns the cache of compiled <em>robots.txt</em> rules used by this instance.
+     *
+     * @return The cache of compiled robots.txt rules
+     */
+    public RobotsRuleCache getRuleCache()
+    {
+        return this.ruleCache;
     }
 
     /**
@@ -60,6 +98,50 @@ public final class RobotsCacheDispatcher extends NullDispatcher<HostData, String
         this.listeners.remove(listener);
     }
 
+    /**
+     * Adds an object which gets informed if a URL was checked against expired <em>robots.txt</em> rules.
+     *
+     * @param listener
+     *         The object to notify about expired rules
+     */
+    public void addRobotsTxtExpiredListener(RobotsTxtExpiredListener listener)
+    {
+        this.expiredListeners.add(listener);
+    }
+
+    /**
+     * Removes an object from the set of objects which get informed about expired <em>robots.txt</em> rules.
+     *
+     * @param listener
+     *         The instance to remove from the set of notified objects
+     */
+    public void removeRobotsTxtExpiredListener(RobotsTxtExpiredListener listener)
+    {
+        this.expiredListeners.remove(listener);
+    }
+
+    /**
+     * Adds an object which gets informed about URLs of hosts which could not be reached.
+     *
+     * @param listener
+     *         The object to notify about URLs of unreachable hosts
+     */
+    public void addUnreachableHostListener(UnreachableHostListener listener)
+    {
+        this.unreachableListeners.add(listener);
+    }
+
+    /**
+     * Removes an object from the set of objects which get informed about URLs of unreachable hosts.
+     *
+     * @param listener
+     *         The instance to remove from the set of notified objects
+     */
+    public void removeUnreachableHostListener(UnreachableHostListener listener)
+    {
+        this.unreachableListeners.remove(listener);
+    }
+
     /**
      * URLs which have already a robots.txt stored for their pay level domain are returning a duplicate key. Check the
      * returned host data if the URL is allowed to be crawled. If the URL passed the check against the
@@ -67,10 +149,10 @@ public final class RobotsCacheDispatcher extends NullDispatcher<HostData, String
      * drop out and therefore not get crawled.
      * <p>
      * <b>Note:</b> This method is invoked as a result of a previous check operation in {@link
-     * RobotsCache#check(String)} and should therefore not be called by users.
+     * RobotsCache#check(CrawlUrl)} and should therefore not be called by users.
      *
      * @param key
-     *         The hash value of the URL which was checked for an available robots.txt file
+     *         The hash value of the hostname which was checked for an available robots.txt file
      * @param hostData
      *         Some related host information like the hostname, the IP address or the available <em>robots.txt</em>
      *         file
@@ -78,13 +160,56 @@ public final class RobotsCacheDispatcher extends NullDispatcher<HostData, String
      *         The URL which passed the check
      */
     @Override
-    public void duplicateKeyCheck(Long key, HostData hostData, String url)
+    public void duplicateKeyCheck(Long key, HostData hostData, CrawlUrl url)
     {
-        LOG.debug("Checking compliance with robots.txt rules: {}", url);
-        if (this.isAllowedToPass(url, hostData))
+        this.duplicateKeyCheck(key, hostData, Collections.singletonList(url));
+    }
+
+    /**
+     * Checks URLs of the same host against the host's <em>robots.txt</em> rules. The rules are looked up only once
+     * for all URLs. Registered listening objects are informed about each URL which passed the check.
+     * <p>
+     * <b>Note:</b> This method is invoked as a result of a previous check operation in {@link
+     * RobotsCache#check(List)} and should therefore not be called by users.
+     *
+     * @param key
+     *         The hash value of the hostname which was checked for an available robots.txt file
+     * @param hostData
+     *         Some related host information like the hostname, the IP address or the available <em>robots.txt</em>
+     *         file
+     * @param urls
+     *         The URLs of the host to check
+     */
+    public void duplicateKeyCheck(Long key, HostData hostData, List<CrawlUrl> urls)
+    {
+        LOG.debug("Checking compliance of {} URLs with robots.txt rules of host: {}", urls.size(), hostData);
+        RobotsRules robotsRules = null;
+        if (hostData != null)
         {
-            LOG.debug("URL passed tests!");
-            this.listeners.forEach(listener -> listener.handleURLsPassed(url, hostData));
+            if (hostData.isExpired(System.currentTimeMillis()))
+            {
+                LOG.debug("robots.txt rules of host {} expired", hostData.getHostName());
+                this.expiredListeners.forEach(listener -> listener.handleRobotsTxtExpired(hostData));
+            }
+            if (hostData.isUnreachable())
+            {
+                LOG.debug("Host {} is unreachable - holding back {} URLs", hostData.getHostName(), urls.size());
+                this.unreachableListeners.forEach(listener -> listener.handleUnreachableHost(urls, hostData));
+                return;
+            }
+            robotsRules = this.ruleCache.get(key, hostData);
+            if (robotsRules != null)
+            {
+                hostData.setCrawlDelay(robotsRules.getCrawlDelay());
+            }
+        }
+        for (CrawlUrl url : urls)
+        {
+            if (robotsRules == null || robotsRules.isAllowed(url))
+            {
+                LOG.debug("URL {} passed tests!", url);
+                this.listeners.forEach(listener -> listener.handleURLsPassed(url, hostData));
+            }
         }
     }
 
@@ -93,7 +218,7 @@ public final class RobotsCacheDispatcher extends NullDispatcher<HostData, String
      * <em>robots.txt</em> file could be found which might further result in a later download of it.
      * <p>
      * <b>Note:</b> This method is invoked as a result of a previous check operation in {@link
-     * RobotsCache#check(String)} and should therefore not be called by users.
+     * RobotsCache#check(CrawlUrl)} and should therefore not be called by users.
      *
      * @param key
      *         The hash value of the URL which was checked for an available robots.txt file
@@ -101,39 +226,9 @@ public final class RobotsCacheDispatcher extends NullDispatcher<HostData, String
      *         The URL which failed the check for an available <em>robots.txt</em> file
      */
     @Override
-    public void uniqueKeyCheck(Long key, String url)
+    public void uniqueKeyCheck(Long key, CrawlUrl url)
     {
         LOG.debug("No robots.txt found for {} inside DRUM!", url);
         this.listeners.forEach(listener -> listener.handleUnableToCheck(url));
     }
-
-    /**
-     * Checks if a URL is allowed to be crawled based on the hosts robots.txt defined rules.
-     *
-     * @param url
-     *         The URL to be checked against the rules of the hosts robots.txt file
-     * @param hostData
-     *         The host data object which contains the robots.txt rules as String
-     *
-     * @return Returns true if the URL has passed the robots.txt rules test, false if a rule in the robots.txt file
-     * prevents crawling
-     */
-    private boolean isAllowedToPass(String url, HostData hostData)
-    {
-        if (hostData == null || hostData.getRobotsTxt() == null || hostData.getRobotsTxt().equals(""))
-        {
-            return true;
-        }
-
-        RobotsTxt robotsTxt = new RobotsTxt(hostData.getRobotsTxt());
-        long crawlDelay = 0;
-        // check if a crawl delay is specified
-        if (robotsTxt.getRecords().containsKey(IRLbot.CRAWLER_NAME)) {
-            crawlDelay = robotsTxt.getRecords().get(IRLbot.CRAWLER_NAME).getCrawlDelay();
-        } else if (robotsTxt.getRecords().containsKey("*")) {
-            crawlDelay = robotsTxt.getRecords().get("*").getCrawlDelay();
-        }
-        hostData.setCrawlDelay(crawlDelay);
-        return robotsTxt.checkRobotRules(IRLbot.CRAWLER_NAME, url);
-    }
 }
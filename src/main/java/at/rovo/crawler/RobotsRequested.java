@@ -6,8 +6,8 @@ import at.rovo.drum.DrumBuilder;
 import at.rovo.drum.DrumException;
 import at.rovo.drum.DrumListener;
 import at.rovo.drum.berkeley.BerkeleyDBStoreMerger;
-import at.rovo.drum.util.DrumUtils;
 import at.rovo.crawler.bean.HostData;
+import at.rovo.crawler.interfaces.KeyHasher;
 
 /**
  * RobotsRequested is used for storing the hashes of sites for which a <em>robots.txt</em> has been requested. A
@@ -65,7 +65,8 @@ public final class RobotsRequested
      * Executes an asynchronous check for the existence of any open download requests for the given host.
      * <p>
      * The results of this request will be handled by {@link RobotsRequestedDispatcher#uniqueKeyUpdate(Long, HostData,
-     * String)} in case no previous URL requested a download of a <em>robots.txt</em> file for this domain.
+     * String)} in case no previous URL requested a download of a <em>robots.txt</em> file for this domain, and by
+     * {@link RobotsRequestedDispatcher#duplicateKeyUpdate(Long, HostData, String)} otherwise.
      *
      * @param hostData
      *         The data object containing further host information like any existing <em>robots.txt</em> files, the IP
@@ -76,7 +77,7 @@ public final class RobotsRequested
     public void request(HostData hostData, String hostName)
     {
         // TODO: make clear why checkUpdate and not check - might be due to old robots.txt updates though
-        this.drum.checkUpdate(DrumUtils.hash(hostName), hostData, hostName);
+        this.drum.checkUpdate(KeyHasher.getDefault().hash(hostName), hostData, hostName);
     }
 
     /**
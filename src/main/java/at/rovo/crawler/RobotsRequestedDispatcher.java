@@ -60,4 +60,16 @@ public final class RobotsRequestedDispatcher extends NullDispatcher<HostData, St
     {
         this.listeners.forEach(listener -> listener.handleRobotsTxtDownloadRequests(hostName));
     }
+
+    /**
+     * Informs any registered listening objects that the robots.txt for the given host is eligible for download,
+     * although a download was already requested before. Requests of hosts whose download is still pending are filtered
+     * before they reach {@link RobotsRequested}, so a duplicate belongs to a download of a previous run or to rules
+     * which are not cached anymore. Without a new download the URLs of this host could never be checked.
+     */
+    @Override
+    public void duplicateKeyUpdate(Long key, HostData hostData, String hostName)
+    {
+        this.listeners.forEach(listener -> listener.handleRobotsTxtDownloadRequests(hostName));
+    }
 }
@@ -0,0 +1,196 @@
+package at.rovo.crawler;
+
+import at.rovo.crawler.bean.HostData;
+import at.rovo.crawler.bean.RobotsRules;
+import at.rovo.crawler.interfaces.RobotsRuleCacheMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded least-recently-used cache of compiled <em>robots.txt</em> rules keyed by the hash value of the hostname.
+ * <p>
+ * {@link RobotsCacheDispatcher} is informed of every URL of a host with an already available <em>robots.txt</em> file
+ * and would otherwise decode and compile the rules for each of these URLs. Each entry remembers the expiration time
+ * of the host data it was decoded from, which changes with every download, refresh or backoff of the host, so that an
+ * entry which does not belong to the rules returned by the backing <em>DRUM</em> cache is decoded again without
+ * comparing the encoded rules. Entries are further invalidated by {@link RobotsCache#update(Long, HostData)} once new
+ * host data was stored for a host.
+ *
+ * @author Roman Vottner
+ */
+public final class RobotsRuleCache implements RobotsRuleCacheMXBean
+{
+    /** The default number of hosts to keep the rules in memory for **/
+    public final static int DEFAULT_CAPACITY = 4096;
+
+    /** The maximum number of hosts to keep the rules in memory for **/
+    private final int capacity;
+    /** The compiled rules in access order **/
+    private final Map<Long, Entry> entries;
+    /** The number of lookups answered from the cache **/
+    private final LongAdder hits = new LongAdder();
+    /** The number of lookups which required decoding the robots.txt rules **/
+    private final LongAdder misses = new LongAdder();
+    /** The number of entries removed due to the capacity limit **/
+    private final LongAdder evictions = new LongAdder();
+    /** The number of entries removed due to an update of the robots.txt file **/
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Creates a new instance which keeps the rules of up to {@link #DEFAULT_CAPACITY} hosts.
+     */
+    public RobotsRuleCache()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new instance which keeps the rules of up to <em>capacity</em> hosts.
+     *
+     * @param capacity
+     *         The maximum number of hosts to keep the compiled rules for
+     */
+    public RobotsRuleCache(int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest)
+            {
+                if (size() > RobotsRuleCache.this.capacity)
+                {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the robots.txt rules stored in the given host data. The rules are only decoded if no rules of host data
+     * with the same expiration time are cached for the host yet.
+     *
+     * @param hostHash
+     *         The hash value of the hostname the <em>robots.txt</em> rules belong to
+     * @param hostData
+     *         The host data containing the encoded <em>robots.txt</em> rules
+     *
+     * @return The rules of the host or null if the host data contains no rules
+     */
+    public RobotsRules get(long hostHash, HostData hostData)
+    {
+        byte[] encodedRules = hostData.getEncodedRobotsRules();
+        if (encodedRules == null)
+        {
+            return null;
+        }
+        long version = hostData.getExpiresAt();
+        Entry entry;
+        synchronized (this.entries)
+        {
+            entry = this.entries.get(hostHash);
+        }
+        if (entry != null && entry.version == version)
+        {
+            this.hits.increment();
+            return entry.rules;
+        }
+
+        this.misses.increment();
+        // decode outside of the lock; concurrent misses for the same host will only lead to duplicate work
+        entry = new Entry(version, hostData.getRobotsRules());
+        synchronized (this.entries)
+        {
+            this.entries.put(hostHash, entry);
+        }
+        return entry.rules;
+    }
+
+    /**
+     * Removes the cached rules of a host.
+     *
+     * @param hostHash
+     *         The hash value of the hostname whose rules should be removed
+     */
+    public void invalidate(long hostHash)
+    {
+        synchronized (this.entries)
+        {
+            if (this.entries.remove(hostHash) != null)
+            {
+                this.invalidations.increment();
+            }
+        }
+    }
+
+    @Override
+    public int getCapacity()
+    {
+        return this.capacity;
+    }
+
+    @Override
+    public int getSize()
+    {
+        synchronized (this.entries)
+        {
+            return this.entries.size();
+        }
+    }
+
+    @Override
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    @Override
+    public long getEvictions()
+    {
+        return this.evictions.sum();
+    }
+
+    @Override
+    public long getInvalidations()
+    {
+        return this.invalidations.sum();
+    }
+
+    @Override
+    public double getHitRate()
+    {
+        long hits = this.hits.sum();
+        long total = hits + this.misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * The compiled rules of a host and the expiration time of the host data they were decoded from.
+     */
+    private final static class Entry
+    {
+        private final long version;
+        private final RobotsRules rules;
+
+        private Entry(long version, RobotsRules rules)
+        {
+            this.version = version;
+            this.rules = rules;
+        }
+    }
+}
@@ -0,0 +1,504 @@
+package at.rovo.crawler;
+
+import at.rovo.crawler.bean.HostData;
+import at.rovo.crawler.bean.RobotsRules;
+import at.rovo.crawler.bean.RobotsTxt;
+import at.rovo.crawler.interfaces.RobotsTxtDownloadedListener;
+import at.rovo.crawler.util.RobotsTxtUtils;
+import at.rovo.drum.util.NamedThreadFactory;
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads the <em>robots.txt</em> files of hosts asynchronously.
+ * <p>
+ * Downloads do not block a thread while waiting for a server, so a few threads serve many concurrent downloads. The
+ * number of concurrent downloads is bounded, further requested hosts wait until a running download completed. A host
+ * whose download is requested again while it is still waiting or running is ignored. Each download has to complete
+ * within a strict timeout, otherwise its exchange is cancelled before its permit is released. Only the first {@link
+ * #DEFAULT_MAX_BYTES} bytes of a file are read, the remaining content is discarded.
+ * <p>
+ * The extracted rules are passed on to the registered {@link RobotsTxtDownloadedListener}s together with the
+ * expiration time and validators of the file. Hosts without a <em>robots.txt</em> file are passed on without rules.
+ * Hosts which could not be reached, i.e. failed or timed out downloads and server errors, are passed on as
+ * {@link HostData#isUnreachable() unreachable}.
+ * <p>
+ * Expired rules are refreshed via {@link #refresh(HostData)}, which shares the download permits with first downloads
+ * but sends a conditional request and returns its result instead of passing it on to the listeners.
+ *
+ * @author Roman Vottner
+ */
+public final class RobotsTxtDownloader
+{
+    /** The logger of this class **/
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    /** The default maximum number of concurrent downloads **/
+    public final static int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 256;
+    /** The default time a download has to complete within **/
+    public final static Duration DEFAULT_TIMEOUT = Duration.ofSeconds(15);
+    /** The default maximum number of bytes read from a robots.txt file, like the 500 KiB of major search engines **/
+    public final static int DEFAULT_MAX_BYTES = 500 * 1024;
+
+    /** The threads executing the downloads **/
+    private final ExecutorService executor;
+    /** The client performing the non-blocking requests **/
+    private final HttpClient client;
+    /** The time a download has to complete within **/
+    private final Duration timeout;
+    /** The maximum number of bytes read from a robots.txt file **/
+    private final int maxBytes;
+    /** Limits the number of concurrent downloads **/
+    private final Semaphore permits;
+    /** The hosts whose download is waiting or running **/
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    /** The downloads waiting for a download permit **/
+    private final Queue<Download> waiting = new ConcurrentLinkedQueue<>();
+    /** The objects to inform about completed downloads **/
+    private final Set<RobotsTxtDownloadedListener> listeners = new CopyOnWriteArraySet<>();
+    /** The number of downloads which returned a response **/
+    private final LongAdder completed = new LongAdder();
+    /** The number of refreshes which returned an unchanged robots.txt file **/
+    private final LongAdder notModified = new LongAdder();
+    /** The number of downloads which failed or timed out **/
+    private final LongAdder failed = new LongAdder();
+    /** The number of requests ignored as a download for the host was already waiting or running **/
+    private final LongAdder duplicates = new LongAdder();
+
+    /**
+     * Creates a new instance which executes up to {@link #DEFAULT_MAX_CONCURRENT_DOWNLOADS} downloads on the given
+     * number of threads.
+     *
+     * @param numThreads
+     *         The number of threads executing the downloads
+     */
+    public RobotsTxtDownloader(int numThreads)
+    {
+        this(numThreads, DEFAULT_MAX_CONCURRENT_DOWNLOADS, DEFAULT_TIMEOUT, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param numThreads
+     *         The number of threads executing the downloads
+     * @param maxConcurrentDownloads
+     *         The maximum number of concurrent downloads
+     * @param timeout
+     *         The time a download, including the connection setup, has to complete within
+     * @param maxBytes
+     *         The maximum number of bytes read from a robots.txt file. The decoded content is further limited to
+     *         {@link RobotsTxt#MAX_SIZE} characters by the parser
+     */
+    public RobotsTxtDownloader(int numThreads, int maxConcurrentDownloads, Duration timeout, int maxBytes)
+    {
+        NamedThreadFactory factory = new NamedThreadFactory();
+        factory.setName("robotsTxtDownloader");
+        this.executor = Executors.newFixedThreadPool(numThreads, factory);
+        this.client = HttpClient.newBuilder()
+                .executor(this.executor)
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.timeout = timeout;
+        this.maxBytes = maxBytes;
+        this.permits = new Semaphore(maxConcurrentDownloads);
+    }
+
+    public void addRobotsTxtDownloadedListener(RobotsTxtDownloadedListener listener)
+    {
+        this.listeners.add(listener);
+    }
+
+    public void removeRobotsTxtDownloadedListener(RobotsTxtDownloadedListener listener)
+    {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Requests the download of the <em>robots.txt</em> file of the given host. This method does not block.
+     *
+     * @param hostName
+     *         The name of the host including the scheme, f.e. <em>http://example.com</em>
+     *
+     * @return true if the download was scheduled, false if a download of the host is already waiting or running
+     */
+    public boolean download(String hostName)
+    {
+        if (!this.inFlight.add(hostName))
+        {
+            LOG.debug("Download of robots.txt for host {} is already in progress", hostName);
+            this.duplicates.increment();
+            return false;
+        }
+        this.waiting.add(new Download(hostName, null));
+        this.startWaitingDownloads();
+        return true;
+    }
+
+    /**
+     * Requests a conditional download of the <em>robots.txt</em> file of a host whose rules expired. The entity tag and
+     * the last modification date of the previous file are sent along, so that the server can answer with <em>304 Not
+     * Modified</em> if the file did not change. This method does not block.
+     *
+     * @param hostData
+     *         The host data containing the expired rules
+     *
+     * @return The future host data, which contains the previous rules with an extended expiration time if the file did
+     * not change, the new rules if it changed, or the previous rules {@link HostData#fail(long) backed off} if the host
+     * could not be reached
+     */
+    public CompletableFuture<HostData> refresh(HostData hostData)
+    {
+        Download refresh = new Download(hostData.getHostName(), hostData);
+        this.waiting.add(refresh);
+        this.startWaitingDownloads();
+        return refresh.result;
+    }
+
+    private void startWaitingDownloads()
+    {
+        while (this.permits.tryAcquire())
+        {
+            Download download = this.waiting.poll();
+            if (download == null)
+            {
+                this.permits.release();
+                // a host might have been added after the poll but before the release of the permit
+                if (this.waiting.isEmpty())
+                {
+                    return;
+                }
+                continue;
+            }
+            this.start(download);
+        }
+    }
+
+    private void start(Download download)
+    {
+        LOG.debug("Downloading robots.txt for host: {}", download.hostName);
+        long startTime = System.currentTimeMillis();
+        try
+        {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(download.hostName + "/robots.txt"))
+                    .timeout(this.timeout)
+                    .header("User-Agent", IRLbot.CRAWLER_NAME);
+            if (download.expired != null && download.expired.getETag() != null)
+            {
+                request.header("If-None-Match", download.expired.getETag());
+            }
+            if (download.expired != null && download.expired.getLastModified() != null)
+            {
+                request.header("If-Modified-Since", download.expired.getLastModified());
+            }
+            CompletableFuture<HttpResponse<String>> exchange =
+                    this.client.sendAsync(request.GET().build(), info -> this.handleResponse(download, info));
+            // the request timeout only covers the response headers. The copy times out on its own, so that the
+            // exchange itself is still running and can be cancelled
+            exchange.copy()
+                    .orTimeout(this.timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((response, error) ->
+                    {
+                        if (error != null)
+                        {
+                            download.cancel(exchange);
+                        }
+                        this.complete(download, startTime, response, error);
+                    });
+        }
+        catch (RuntimeException rEx)
+        {
+            // invalid host names or a rejected execution
+            this.complete(download, startTime, null, rEx);
+        }
+    }
+
+    private HttpResponse.BodySubscriber<String> handleResponse(Download download,
+                                                               HttpResponse.ResponseInfo responseInfo)
+    {
+        // the bodies of other responses are not needed and are discarded by cancelling their subscription
+        download.body = new LimitedBodySubscriber(responseInfo.statusCode() / 100 == 2 ? this.maxBytes : 0);
+        return download.body;
+    }
+
+    private void complete(Download download, long startTime, HttpResponse<String> response, Throwable error)
+    {
+        try
+        {
+            HostData hostData = this.toHostData(download, startTime, response, error);
+            if (download.expired == null)
+            {
+                this.listeners.forEach(listener -> listener.handleRobotsTxtDownloaded(hostData));
+            }
+            download.result.complete(hostData);
+        }
+        catch (RuntimeException rEx)
+        {
+            LOG.error("Error while processing robots.txt of host " + download.hostName, rEx);
+            download.result.completeExceptionally(rEx);
+        }
+        finally
+        {
+            // remove the host only after the listeners stored the rules so that no second download is started
+            if (download.expired == null)
+            {
+                this.inFlight.remove(download.hostName);
+            }
+            this.permits.release();
+            this.startWaitingDownloads();
+        }
+    }
+
+    private HostData toHostData(Download download, long startTime, HttpResponse<String> response, Throwable error)
+    {
+        String hostName = download.hostName;
+        int status = response != null ? response.statusCode() : 0;
+        if (error != null || status >= 500)
+        {
+            LOG.warn("Could not download robots.txt file for host: {} - {}", hostName,
+                     error != null ? error.toString() : "status " + status);
+            this.failed.increment();
+            if (download.expired != null)
+            {
+                // keep the previous rules for the time the host is reachable again
+                return download.expired.fail(startTime);
+            }
+            // unreachable hosts are backed off instead of being treated like hosts without a robots.txt file
+            return new HostData(hostName, null, (RobotsRules) null, startTime, null, null).fail(startTime);
+        }
+
+        this.completed.increment();
+        long expiresAt = RobotsTxtUtils
+                .getExpirationTime(response.headers().firstValue("Cache-Control").orElse(null), startTime);
+        if (download.expired != null && status == HttpURLConnection.HTTP_NOT_MODIFIED)
+        {
+            LOG.debug("robots.txt of host {} did not change", hostName);
+            this.notModified.increment();
+            return download.expired.renew(expiresAt);
+        }
+        RobotsRules robotsRules = null;
+        if (response.body() != null)
+        {
+            // avoids HTML pages which just return "no robots.txt"
+            robotsRules = RobotsTxtUtils.compile(response.body(), IRLbot.CRAWLER_NAME);
+            LOG.debug("Received robots.txt for host: {}; content: '{}'", hostName, response.body());
+        }
+        return new HostData(hostName, download.expired != null ? download.expired.getIPAddress() : null, robotsRules,
+                            expiresAt, response.headers().firstValue("ETag").orElse(null),
+                            response.headers().firstValue("Last-Modified").orElse(null));
+    }
+
+    /**
+     * Stops all running downloads.
+     */
+    public void shutdown()
+    {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Returns the number of hosts whose download is waiting or running.
+     *
+     * @return The number of waiting or running downloads
+     */
+    public int getQueueSize()
+    {
+        return this.inFlight.size();
+    }
+
+    /**
+     * Returns the number of downloads which returned a response.
+     *
+     * @return The number of completed downloads
+     */
+    public long getNumCompleted()
+    {
+        return this.completed.sum();
+    }
+
+    /**
+     * Returns the number of refreshes which returned an unchanged <em>robots.txt</em> file.
+     *
+     * @return The number of unchanged files
+     */
+    public long getNumNotModified()
+    {
+        return this.notModified.sum();
+    }
+
+    /**
+     * Returns the number of downloads which failed, timed out or returned a server error.
+     *
+     * @return The number of failed downloads
+     */
+    public long getNumFailed()
+    {
+        return this.failed.sum();
+    }
+
+    /**
+     * Returns the number of requests which were ignored as the download of the host was already waiting or running.
+     *
+     * @return The number of ignored requests
+     */
+    public long getNumDuplicates()
+    {
+        return this.duplicates.sum();
+    }
+
+    /**
+     * A requested download of a <em>robots.txt</em> file.
+     */
+    private final static class Download
+    {
+        /** The name of the host including the scheme **/
+        private final String hostName;
+        /** The host data containing the expired rules of a refresh, null for the first download of a host **/
+        private final HostData expired;
+        /** Completed with the host data resulting from the download **/
+        private final CompletableFuture<HostData> result = new CompletableFuture<>();
+        /** Receives the body of the response. Null until the response headers arrived **/
+        private volatile LimitedBodySubscriber body = null;
+
+        private Download(String hostName, HostData expired)
+        {
+            this.hostName = hostName;
+            this.expired = expired;
+        }
+
+        /**
+         * Aborts the exchange of a download which timed out, so that neither its connection nor its body subscriber
+         * stay alive after its permit got released.
+         *
+         * @param exchange
+         *         The future of the response
+         */
+        private void cancel(CompletableFuture<HttpResponse<String>> exchange)
+        {
+            exchange.cancel(true);
+            LimitedBodySubscriber body = this.body;
+            if (body != null)
+            {
+                body.cancel();
+            }
+        }
+    }
+
+    /**
+     * Collects the body of a response as UTF-8 text up to a maximum number of bytes. Once the limit is reached the
+     * remaining body is discarded by cancelling the subscription. With a limit of zero the body is discarded right away
+     * and null is returned as body.
+     */
+    private final static class LimitedBodySubscriber implements HttpResponse.BodySubscriber<String>
+    {
+        private final CompletableFuture<String> body = new CompletableFuture<>();
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        private final int maxBytes;
+        private volatile Flow.Subscription subscription = null;
+        private volatile boolean cancelled = false;
+
+        private LimitedBodySubscriber(int maxBytes)
+        {
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * Cancels the subscription, which closes the connection of a body which was not received completely yet.
+         */
+        private void cancel()
+        {
+            this.cancelled = true;
+            Flow.Subscription subscription = this.subscription;
+            if (subscription != null)
+            {
+                subscription.cancel();
+            }
+            this.body.cancel(false);
+        }
+
+        @Override
+        public CompletionStage<String> getBody()
+        {
+            return this.body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+            if (this.cancelled || this.maxBytes == 0)
+            {
+                subscription.cancel();
+                this.body.complete(null);
+                return;
+            }
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers)
+        {
+            if (this.body.isDone())
+            {
+                return;
+            }
+            for (ByteBuffer buffer : buffers)
+            {
+                int length = Math.min(buffer.remaining(), this.maxBytes - this.content.size());
+                if (buffer.hasArray())
+                {
+                    this.content.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+                }
+                else
+                {
+                    byte[] bytes = new byte[length];
+                    buffer.get(bytes);
+                    this.content.write(bytes, 0, length);
+                }
+                if (this.content.size() >= this.maxBytes)
+                {
+                    this.subscription.cancel();
+                    this.onComplete();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            this.body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete()
+        {
+            this.body.complete(new String(this.content.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package at.rovo.crawler;
+
+import at.rovo.crawler.bean.HostData;
+import at.rovo.crawler.interfaces.RobotsTxtRefreshedListener;
+import at.rovo.crawler.util.RobotsTxtUtils;
+import java.lang.invoke.MethodHandles;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fetches the <em>robots.txt</em> files of hosts whose cached rules expired again in the background.
+ * <p>
+ * The files are fetched via {@link RobotsTxtDownloader#refresh(HostData)}, which sends a conditional request so that
+ * only the expiration time of the previous rules is extended if the file did not change. If the host could not be
+ * reached or returned a server error, the previous rules are kept and the host is backed off via {@link
+ * HostData#fail(long)}.
+ * <p>
+ * Refreshes are started one after another and are rate-limited so that they never compete with the crawling of
+ * pages. A host is refreshed at most once within {@link RobotsTxtUtils#MIN_TTL}, further requests in between are
+ * ignored, and requests exceeding the capacity of the queue are dropped, as the expired rules are requested again on
+ * the next check of a URL of that host.
+ *
+ * @author Roman Vottner
+ */
+public final class RobotsTxtRefresher implements Runnable
+{
+    /** The logger of this class **/
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    /** The default number of refreshes per second **/
+    public final static double DEFAULT_REFRESHES_PER_SECOND = 2;
+    /** The maximum number of hosts waiting for their refresh **/
+    private final static int QUEUE_CAPACITY = 10_000;
+    /** The number of hosts whose last refresh attempt is remembered before outdated attempts are removed **/
+    private final static int MAX_TRACKED_HOSTS = 100_000;
+
+    /** The downloader fetching the robots.txt files **/
+    private final RobotsTxtDownloader downloader;
+    /** The expired host data waiting for their refresh **/
+    private final BlockingQueue<HostData> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    /** The time of the last refresh attempt per hostname **/
+    private final Map<String, Long> lastAttempts = new ConcurrentHashMap<>();
+    /** The minimum time in nanoseconds between two refreshes **/
+    private final long refreshInterval;
+    /** The objects to inform about refreshed robots.txt rules **/
+    private final Set<RobotsTxtRefreshedListener> listeners = new CopyOnWriteArraySet<>();
+    /** Specifies if the refresher should stop **/
+    private volatile boolean stopRequested = false;
+
+    /**
+     * Creates a new instance which refreshes up to {@link #DEFAULT_REFRESHES_PER_SECOND} hosts per second.
+     *
+     * @param downloader
+     *         The downloader fetching the robots.txt files
+     */
+    public RobotsTxtRefresher(RobotsTxtDownloader downloader)
+    {
+        this(downloader, DEFAULT_REFRESHES_PER_SECOND);
+    }
+
+    /**
+     * Creates a new instance which refreshes up to the given number of hosts per second.
+     *
+     * @param downloader
+     *         The downloader fetching the robots.txt files
+     * @param refreshesPerSecond
+     *         The maximum number of robots.txt files fetched per second
+     */
+    public RobotsTxtRefresher(RobotsTxtDownloader downloader, double refreshesPerSecond)
+    {
+        if (refreshesPerSecond <= 0)
+        {
+            throw new IllegalArgumentException("Refreshes per second must be positive: " + refreshesPerSecond);
+        }
+        this.downloader = downloader;
+        this.refreshInterval = (long) (TimeUnit.SECONDS.toNanos(1) / refreshesPerSecond);
+    }
+
+    public void addRobotsTxtRefreshedListener(RobotsTxtRefreshedListener listener)
+    {
+        this.listeners.add(listener);
+    }
+
+    public void removeRobotsTxtRefreshedListener(RobotsTxtRefreshedListener listener)
+    {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Requests a refresh of the <em>robots.txt</em> file of the host the given data belongs to.
+     *
+     * @param hostData
+     *         The host data containing the expired rules
+     *
+     * @return true if the refresh was scheduled, false if the host was refreshed recently, is already waiting for its
+     * refresh or too many hosts are waiting
+     */
+    public boolean refresh(HostData hostData)
+    {
+        String hostName = hostData.getHostName();
+        long currentTime = System.currentTimeMillis();
+        Long lastAttempt = this.lastAttempts.get(hostName);
+        if (lastAttempt != null && currentTime - lastAttempt < RobotsTxtUtils.MIN_TTL)
+        {
+            return false;
+        }
+        // only one of several concurrent requests for the same host is scheduled
+        if (lastAttempt == null ? this.lastAttempts.putIfAbsent(hostName, currentTime) != null
+                                : !this.lastAttempts.replace(hostName, lastAttempt, currentTime))
+        {
+            return false;
+        }
+        if (!this.queue.offer(hostData))
+        {
+            this.lastAttempts.remove(hostName, currentTime);
+            return false;
+        }
+        LOG.debug("Scheduled refresh of robots.txt for host {}", hostName);
+        return true;
+    }
+
+    @Override
+    public void run()
+    {
+        long nextRefresh = System.nanoTime();
+        while (!this.stopRequested)
+        {
+            try
+            {
+                HostData hostData = this.queue.take();
+                long wait = nextRefresh - System.nanoTime();
+                if (wait > 0)
+                {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                nextRefresh = System.nanoTime() + this.refreshInterval;
+
+                this.downloader.refresh(hostData).whenComplete((refreshed, error) ->
+                {
+                    if (error != null)
+                    {
+                        LOG.error("Error while refreshing robots.txt of host " + hostData.getHostName(), error);
+                    }
+                    else
+                    {
+                        this.listeners.forEach(listener -> listener.handleRobotsTxtRefreshed(refreshed));
+                    }
+                });
+                this.removeOutdatedAttempts();
+            }
+            catch (InterruptedException iEx)
+            {
+                LOG.debug("robots.txt refresher was interrupted while waiting for the next expired host");
+            }
+            catch (Exception ex)
+            {
+                LOG.error("Error while refreshing robots.txt", ex);
+            }
+        }
+    }
+
+    /**
+     * Stops refreshing <em>robots.txt</em> files. The thread executing this instance needs to be interrupted if it
+     * is waiting for the next expired host.
+     */
+    public void stop()
+    {
+        this.stopRequested = true;
+    }
+
+    private void removeOutdatedAttempts()
+    {
+        if (this.lastAttempts.size() > MAX_TRACKED_HOSTS)
+        {
+            long threshold = System.currentTimeMillis() - RobotsTxtUtils.MIN_TTL;
+            this.lastAttempts.values().removeIf(lastAttempt -> lastAttempt < threshold);
+        }
+    }
+
+    /**
+     * Returns the number of hosts waiting for their refresh.
+     *
+     * @return The number of waiting hosts
+     */
+    public int getQueueSize()
+    {
+        return this.queue.size();
+    }
+}
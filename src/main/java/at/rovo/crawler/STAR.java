@@ -1,8 +1,9 @@
 package at.rovo.crawler;
 
+import at.rovo.crawler.bean.CrawlUrl;
 import at.rovo.crawler.bean.PLDData;
 import at.rovo.crawler.interfaces.CheckSpamUrlListener;
-import at.rovo.crawler.util.IRLbotUtils;
+import at.rovo.crawler.interfaces.KeyHasher;
 import at.rovo.crawler.util.PLDComparator;
 import at.rovo.drum.Drum;
 import at.rovo.drum.DrumBuilder;
@@ -10,7 +11,6 @@ import at.rovo.drum.DrumException;
 import at.rovo.drum.DrumListener;
 import at.rovo.drum.NullDispatcher;
 import at.rovo.drum.berkeley.BerkeleyDBStoreMerger;
-import at.rovo.drum.util.DrumUtils;
 import java.lang.invoke.MethodHandles;
 import java.util.Iterator;
 import java.util.Set;
@@ -31,16 +31,20 @@ import org.slf4j.LoggerFactory;
  * The budget itself lies between a minimum and maximum value which may be specified via {@link #setMinBudget(int)} and
  * {@link #setMaxBudget(int)} and is calculated as presented in the paper 'IRLbot: Scaling to 6 Billion Pages and
  * Beyond' on interpolating between minimum and maximum budget.
+ * <p>
+ * The auxiliary data of the backing <em>DRUM</em> cache is a {@link CrawlUrl}. Check operations attach the URL to
+ * check while update operations attach a record of the pay level domain itself, created via {@link
+ * CrawlUrl#ofPLD(String)}.
  *
  * @author Roman Vottner
  */
-public final class STAR extends NullDispatcher<PLDData, String>
+public final class STAR extends NullDispatcher<PLDData, CrawlUrl>
 {
     /** The logger of this class **/
     private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
     /** The DRUM object managing the update and unique/duplicate checking **/
-    private Drum<PLDData, String> drum = null;
+    private Drum<PLDData, CrawlUrl> drum = null;
     /** The registered listeners **/
     private Set<CheckSpamUrlListener> listeners = null;
     /** The number of buckets used by the STAR structure **/
@@ -82,7 +86,7 @@ public final class STAR extends NullDispatcher<PLDData, String>
         this.numBuckets = numBuckets;
         try
         {
-            this.drum = new DrumBuilder<>("pldIndegree", PLDData.class, String.class)
+            this.drum = new DrumBuilder<>("pldIndegree", PLDData.class, CrawlUrl.class)
                     .numBucket(numBuckets)
                     .bufferSize(bucketByteSize)
                     .dispatcher(this)
@@ -223,17 +227,17 @@ public final class STAR extends NullDispatcher<PLDData, String>
      * <p>
      * This method will check if an entry of the URLs pay level domain exists already in the local in memory cache and
      * redirects the request to the backing DRUM cache if not. In case the entry was found within DRUM {@link
-     * #duplicateKeyCheck(Long, PLDData, String)} will be invoked by the backing DRUM cache.
+     * #duplicateKeyCheck(Long, PLDData, CrawlUrl)} will be invoked by the backing DRUM cache.
      *
      * @param url
      *         The auxiliary data object representing the URL to check
      *
-     * @see #duplicateKeyCheck(Long, PLDData, String)
+     * @see #duplicateKeyCheck(Long, PLDData, CrawlUrl)
      */
-    public void check(String url)
+    public void check(CrawlUrl url)
     {
-        String pld = IRLbotUtils.getPLDofURL(url);
-        long key = DrumUtils.hash(pld);
+        String pld = url.getPLD();
+        long key = url.getPLDHash();
         PLDData data = new PLDData();
         data.setHash(key);
         data.setPLD(pld);
@@ -312,7 +316,7 @@ public final class STAR extends NullDispatcher<PLDData, String>
      *         The actual URL the check was executed for
      */
     @Override
-    public void duplicateKeyCheck(Long key, PLDData data, String url)
+    public void duplicateKeyCheck(Long key, PLDData data, CrawlUrl url)
     {
         LOG.debug("Backing DRUM already contained data for PLD {} ({}) - budget is {}", url, key,
                   data.getBudget());
@@ -325,9 +329,9 @@ public final class STAR extends NullDispatcher<PLDData, String>
     }
 
     @Override
-    public void uniqueKeyCheck(Long key, String pld)
+    public void uniqueKeyCheck(Long key, CrawlUrl url)
     {
-        LOG.warn("PLD {} ({}) not found within backing DRUM!", pld, key);
+        LOG.warn("PLD {} ({}) not found within backing DRUM!", url.getPLD(), key);
     }
 
     /**
@@ -353,10 +357,11 @@ public final class STAR extends NullDispatcher<PLDData, String>
         // PLD x its hash hx, in-degree dx, current budget Bx, and hashes of
         // all in-degree neighbors in the PLD graph. This data is encapsulated
         // within a PLDData object.
+        KeyHasher keyHasher = KeyHasher.getDefault();
+        long hashOrigin = keyHasher.hash(origin);
         for (String pld : plds)
         {
-            long hashOrigin = DrumUtils.hash(origin);
-            long hashPld = DrumUtils.hash(pld);
+            long hashPld = keyHasher.hash(pld);
             LOG.debug("Updating PLD link information: {}<--{} ({}<--{})", pld, origin, hashPld, hashOrigin);
             PLDData data = new PLDData();
             data.setPLD(pld);
@@ -369,7 +374,7 @@ public final class STAR extends NullDispatcher<PLDData, String>
             // by default every PLD has a budget of 10. If the domain is linked
             // more often the budget will increase
             data.setBudget(this.minBudget);
-            this.drum.appendUpdate(hashPld, data, pld);
+            this.drum.appendUpdate(hashPld, data, CrawlUrl.ofPLD(pld));
             LOG.trace("DRUM instance invoked");
         }
     }
@@ -384,17 +389,18 @@ public final class STAR extends NullDispatcher<PLDData, String>
      * @param data
      *         The encapsulated data for the given pay level domain. This includes f.e. the current budget as well as
      *         all the neighbors pointing to this domain
-     * @param pld
-     *         The actual pay level domain the update was executed for
+     * @param pldUrl
+     *         The record of the actual pay level domain the update was executed for
      */
     @Override
-    public void update(Long key, PLDData data, String pld)
+    public void update(Long key, PLDData data, CrawlUrl pldUrl)
     {
-        if (null == pld)
+        if (null == pldUrl)
         {
             throw new IllegalArgumentException(
                     "PLD was null! It seems no auxiliary PLD data was provided upon calling DRUMs update operation");
         }
+        String pld = pldUrl.getPLD();
         LOG.debug("Receiving update for PLD {} ({}) - data: {}", pld, key, data);
         data.setPLD(pld);
 
@@ -437,7 +443,7 @@ public final class STAR extends NullDispatcher<PLDData, String>
                 if (remData.getBudget() > this.minBudget)
                 {
                     remData.setBudget(this.minBudget);
-                    this.drum.update(remData.getHash(), remData, remData.getPLD());
+                    this.drum.update(remData.getHash(), remData, CrawlUrl.ofPLD(remData.getPLD()));
                 }
             }
         }
@@ -482,7 +488,7 @@ public final class STAR extends NullDispatcher<PLDData, String>
                         "Recalculated Budget for PLD {} ({}) with a budget of {} - previous set contained {}/{} at this position - current budget {}",
                         top.getPLD(), top.getHash(), top.getBudget(), comp.getHash(), comp.getPLD(), curBudget);
                 // FIXME: all this code is executed by the merger thread of pldIndegree-Merger!
-                this.drum.update(top.getHash(), top, top.getPLD());
+                this.drum.update(top.getHash(), top, CrawlUrl.ofPLD(top.getPLD()));
             }
         }
         // check if the topSet has expanded in comparison to the last call
@@ -492,7 +498,7 @@ public final class STAR extends NullDispatcher<PLDData, String>
             top.setBudget(this.calculateBudget(top.getIndegree()));
             LOG.debug("Recalculated Budget for PLD {} ({}) with a budget of {} - current budget {}", top.getPLD(),
                       top.getHash(), top.getBudget(), curBudget);
-            this.drum.update(top.getHash(), top, top.getPLD());
+            this.drum.update(top.getHash(), top, CrawlUrl.ofPLD(top.getPLD()));
         }
         // should not happen as the list should not get less than 25 - just in
         // case is might happen for some reason set the budget of those PLDs
@@ -503,7 +509,7 @@ public final class STAR extends NullDispatcher<PLDData, String>
             comp.setBudget(this.minBudget);
             LOG.warn("Setting Budget for PLD {} ({}) to the minimum budget of {}", comp.getPLD(), comp.getHash(),
                      this.minBudget);
-            this.drum.update(comp.getHash(), comp, comp.getPLD());
+            this.drum.update(comp.getHash(), comp, CrawlUrl.ofPLD(comp.getPLD()));
         }
 
         if (LOG.isTraceEnabled())
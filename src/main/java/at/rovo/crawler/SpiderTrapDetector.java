@@ -0,0 +1,511 @@
+package at.rovo.crawler;
+
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.interfaces.SpiderTrapDetectorMXBean;
+import at.rovo.crawler.util.CountMinSketch;
+import at.rovo.crawler.util.PublicSuffixTrie;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Detects URLs of spider traps, like calendars, recursive relative links and generated query strings, which produce an
+ * endless number of unique URLs. Such URLs pass {@link URLseen} and would occupy the queues of {@link BEAST} and the
+ * fetch slots of their host, so they are checked before they are passed to {@link URLseen}.
+ * <p>
+ * URLs are flagged for two kinds of reasons:
+ * <ul>
+ * <li>The structure of the URL itself is trap-like: a path segment occurs {@link #getMaxRepeats() maxRepeats} times
+ * or more, a sequence of segments is immediately repeated like in <em>/a/b/a/b</em>, a query parameter occurs
+ * {@link #getMaxRepeats() maxRepeats} times or more or the path is deeper than {@link #getMaxDepth() maxDepth}
+ * segments. Such URLs are dropped.</li>
+ * <li>The URL belongs to a family which produced too many unique URLs. A family consists of the URLs of a host whose
+ * paths only differ in their numbers and whose queries contain the same parameter names, f.e. all pages of a calendar
+ * <em>/calendar/2016/05/12?view=day</em>. The URLs of a host deeper than half of the maximum depth are further counted
+ * per depth, which catches generated paths without numbers. Once a family or depth exceeded the {@link
+ * #getFamilyThreshold() family threshold}, only every {@link #getSampleRate() sampleRate}-th of its new URLs is
+ * passed on, so the crawl of the family slows down instead of stopping entirely.</li>
+ * </ul>
+ * <p>
+ * The statistics are kept in a fixed amount of memory: the families and depths are counted in a {@link
+ * CountMinSketch} and URLs are only counted when they are seen for the first time, which is tracked in two
+ * generations of a Bloom filter. Once as many new URLs were counted as the sketch has counters per row, the older
+ * generation is replaced and all counts are halved, so families which stopped growing are eventually no longer
+ * flagged.
+ *
+ * @author Roman Vottner
+ */
+public final class SpiderTrapDetector implements SpiderTrapDetectorMXBean
+{
+    /** The logger of this class **/
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    /** The default number of counters per row of the sketch, which also defines the size of the Bloom filters **/
+    public final static int DEFAULT_WIDTH = 1 << 20;
+    /** The default maximum number of path segments **/
+    public final static int DEFAULT_MAX_DEPTH = 24;
+    /** The default number of occurrences of a path segment or query parameter which flags a URL **/
+    public final static int DEFAULT_MAX_REPEATS = 3;
+    /** The default number of new URLs of a family after which it is flagged **/
+    public final static int DEFAULT_FAMILY_THRESHOLD = 500;
+    /** The default fraction of new URLs of a flagged family which are still passed on **/
+    public final static int DEFAULT_SAMPLE_RATE = 32;
+
+    /** The 64 bit FNV-1a offset basis **/
+    private final static long FNV_OFFSET = 0xcbf29ce484222325L;
+    /** The 64 bit FNV-1a prime **/
+    private final static long FNV_PRIME = 0x100000001b3L;
+    /** The number of bits per URL of a generation of the Bloom filter **/
+    private final static int BITS_PER_URL = 16;
+    /** The number of bits set per URL in the Bloom filter **/
+    private final static int NUM_BLOOM_HASHES = 6;
+
+    /**
+     * The reasons a URL is flagged for.
+     */
+    private enum Reason
+    {
+        REPEATED_SEGMENTS("repeatedSegments"),
+        REPEATED_PARAMETERS("repeatedParameters"),
+        MAX_DEPTH("maxDepth"),
+        DEEP_PATHS("deepPaths"),
+        URL_FAMILY("urlFamily");
+
+        /** The name the flagged URLs are counted under **/
+        private final String name;
+
+        Reason(String name)
+        {
+            this.name = name;
+        }
+    }
+
+    /** The maximum number of path segments **/
+    private final int maxDepth;
+    /** The number of occurrences of a path segment or query parameter which flags a URL **/
+    private final int maxRepeats;
+    /** The number of new URLs of a family after which it is flagged **/
+    private final int familyThreshold;
+    /** Every how many new URLs of a flagged family one is passed on **/
+    private final int sampleRate;
+
+    /** The number of new URLs per family and per host and depth **/
+    private final CountMinSketch counts;
+    /** The number of new URLs after which the counts are halved and the Bloom filter generations are rotated **/
+    private final int window;
+    /** The Bloom filter generation new URLs are added to **/
+    private volatile BloomFilter current;
+    /** The Bloom filter generation which was filled before the current one **/
+    private volatile BloomFilter previous;
+
+    /** The number of checked URLs **/
+    private final LongAdder checked = new LongAdder();
+    /** The number of URLs which were not passed on **/
+    private final LongAdder dropped = new LongAdder();
+    /** The number of URLs of flagged families which were passed on nevertheless **/
+    private final LongAdder sampled = new LongAdder();
+    /** The number of flagged URLs per reason **/
+    private final LongAdder[] flags = new LongAdder[Reason.values().length];
+
+    /**
+     * Creates a new instance using the default settings.
+     */
+    public SpiderTrapDetector()
+    {
+        this(DEFAULT_WIDTH, DEFAULT_MAX_DEPTH, DEFAULT_MAX_REPEATS, DEFAULT_FAMILY_THRESHOLD, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param width
+     *         The number of counters per row of the sketch counting the URLs per family. This is also the number of
+     *         new URLs after which the counts are halved
+     * @param maxDepth
+     *         The maximum number of path segments of a URL
+     * @param maxRepeats
+     *         The number of occurrences of a path segment or query parameter which flags a URL
+     * @param familyThreshold
+     *         The number of new URLs of a family after which it is flagged
+     * @param sampleRate
+     *         Every how many new URLs of a flagged family one is still passed on
+     */
+    public SpiderTrapDetector(int width, int maxDepth, int maxRepeats, int familyThreshold, int sampleRate)
+    {
+        if (maxDepth < 2 || maxRepeats < 2 || familyThreshold < 1 || sampleRate < 1)
+        {
+            throw new IllegalArgumentException(
+                    "Invalid settings: maxDepth=" + maxDepth + ", maxRepeats=" + maxRepeats + ", familyThreshold="
+                    + familyThreshold + ", sampleRate=" + sampleRate);
+        }
+        this.maxDepth = maxDepth;
+        this.maxRepeats = maxRepeats;
+        this.familyThreshold = familyThreshold;
+        this.sampleRate = sampleRate;
+        this.counts = new CountMinSketch(width);
+        this.window = this.counts.getWidth();
+        this.current = new BloomFilter(this.window);
+        this.previous = new BloomFilter(this.window);
+        Arrays.setAll(this.flags, i -> new LongAdder());
+    }
+
+    /**
+     * Checks whether the given URL should be passed on to {@link URLseen}.
+     *
+     * @param url
+     *         The URL found on a crawled page
+     *
+     * @return true if the URL should be passed on; false if it should be dropped as it probably belongs to a spider
+     * trap
+     */
+    public boolean accept(CrawlUrl url)
+    {
+        this.checked.increment();
+        String s = url.getUrl();
+        int length = s.length();
+        long hostHash = PublicSuffixTrie.hash(s, url.getHostStart(), url.getHostEnd());
+
+        // skip a port
+        int i = url.getHostEnd();
+        while (i < length && s.charAt(i) != '/' && s.charAt(i) != '?' && s.charAt(i) != '#')
+        {
+            i++;
+        }
+
+        // hash each path segment as well as its shape, which replaces numbers by a placeholder
+        long family = hostHash;
+        long[] segments = new long[8];
+        int depth = 0;
+        while (i < length && s.charAt(i) == '/')
+        {
+            int start = ++i;
+            long hash = FNV_OFFSET;
+            long shape = FNV_OFFSET;
+            boolean inNumber = false;
+            char c;
+            while (i < length && (c = s.charAt(i)) != '/' && c != '?' && c != '#')
+            {
+                hash = (hash ^ c) * FNV_PRIME;
+                boolean isDigit = c >= '0' && c <= '9';
+                if (!isDigit || !inNumber)
+                {
+                    shape = (shape ^ (isDigit ? '#' : c)) * FNV_PRIME;
+                }
+                inNumber = isDigit;
+                i++;
+            }
+            if (i > start)
+            {
+                if (depth == this.maxDepth)
+                {
+                    return this.drop(Reason.MAX_DEPTH, url);
+                }
+                if (depth == segments.length)
+                {
+                    segments = Arrays.copyOf(segments, depth * 2);
+                }
+                segments[depth++] = hash;
+                family = mix(family + shape);
+            }
+        }
+        if (this.hasRepeatedSegments(segments, depth))
+        {
+            return this.drop(Reason.REPEATED_SEGMENTS, url);
+        }
+
+        // the parameter names of the query are part of the family regardless of their order and values
+        if (i < length && s.charAt(i) == '?')
+        {
+            long[] names = new long[8];
+            int numNames = 0;
+            long query = 0;
+            while (i < length && s.charAt(i) != '#')
+            {
+                int start = ++i;
+                long hash = FNV_OFFSET;
+                char c;
+                while (i < length && (c = s.charAt(i)) != '&' && c != '=' && c != '#')
+                {
+                    hash = (hash ^ c) * FNV_PRIME;
+                    i++;
+                }
+                while (i < length && s.charAt(i) != '&' && s.charAt(i) != '#')
+                {
+                    i++;
+                }
+                if (i > start)
+                {
+                    if (numNames == names.length)
+                    {
+                        names = Arrays.copyOf(names, numNames * 2);
+                    }
+                    names[numNames++] = hash;
+                    query += mix(hash);
+                }
+            }
+            if (this.hasRepeatedNames(names, numNames))
+            {
+                return this.drop(Reason.REPEATED_PARAMETERS, url);
+            }
+            family = mix(family ^ query ^ '?');
+        }
+
+        if (!this.isFirstSighting(url.getUrlHash()))
+        {
+            // the URL was already counted, so it is only dropped if its family got flagged meanwhile
+            if (this.counts.estimate(family) > this.familyThreshold)
+            {
+                this.dropped.increment();
+                return false;
+            }
+            return true;
+        }
+
+        int familyCount = this.counts.add(family);
+        if (familyCount > this.familyThreshold)
+        {
+            return this.sample(Reason.URL_FAMILY, familyCount, url);
+        }
+        if (depth > this.maxDepth / 2)
+        {
+            int depthCount = this.counts.add(mix(hostHash ^ depth));
+            if (depthCount > this.familyThreshold)
+            {
+                return this.sample(Reason.DEEP_PATHS, depthCount, url);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a path segment occurs at least {@link #maxRepeats} times or whether a sequence of at least two
+     * segments is immediately followed by itself.
+     */
+    private boolean hasRepeatedSegments(long[] segments, int depth)
+    {
+        if (this.hasRepeatedNames(segments, depth))
+        {
+            return true;
+        }
+        for (int period = 2; period * 2 <= depth; period++)
+        {
+            for (int start = 0; start + period * 2 <= depth; start++)
+            {
+                int matching = 0;
+                while (matching < period && segments[start + matching] == segments[start + period + matching])
+                {
+                    matching++;
+                }
+                if (matching == period)
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether any of the given hash values occurs at least {@link #maxRepeats} times.
+     */
+    private boolean hasRepeatedNames(long[] hashes, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            int occurrences = 1;
+            for (int j = i + 1; j < count && occurrences < this.maxRepeats; j++)
+            {
+                if (hashes[i] == hashes[j])
+                {
+                    occurrences++;
+                }
+            }
+            if (occurrences >= this.maxRepeats)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean drop(Reason reason, CrawlUrl url)
+    {
+        this.flags[reason.ordinal()].increment();
+        this.dropped.increment();
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Dropping {} - {}", url, reason.name);
+        }
+        return false;
+    }
+
+    /**
+     * Passes on every {@link #sampleRate}-th new URL of a flagged family.
+     */
+    private boolean sample(Reason reason, int count, CrawlUrl url)
+    {
+        this.flags[reason.ordinal()].increment();
+        if (count == this.familyThreshold + 1)
+        {
+            LOG.info("Flagged URL family of {} as potential spider trap - {}", url, reason.name);
+        }
+        if (count % this.sampleRate == 0)
+        {
+            this.sampled.increment();
+            return true;
+        }
+        this.dropped.increment();
+        return false;
+    }
+
+    /**
+     * Records the given URL in the current Bloom filter generation and checks whether it was not contained in either
+     * generation before. Once the current generation is full, it becomes the previous one and the counts are halved.
+     */
+    private boolean isFirstSighting(long urlHash)
+    {
+        BloomFilter filter = this.current;
+        if (this.previous.contains(urlHash))
+        {
+            return false;
+        }
+        if (!filter.add(urlHash))
+        {
+            return false;
+        }
+        if (filter.size.incrementAndGet() == this.window)
+        {
+            synchronized (this)
+            {
+                this.previous = filter;
+                this.current = new BloomFilter(this.window);
+                this.counts.halve();
+            }
+        }
+        return true;
+    }
+
+    private static long mix(long h)
+    {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public int getMaxDepth()
+    {
+        return this.maxDepth;
+    }
+
+    @Override
+    public int getMaxRepeats()
+    {
+        return this.maxRepeats;
+    }
+
+    @Override
+    public int getFamilyThreshold()
+    {
+        return this.familyThreshold;
+    }
+
+    @Override
+    public int getSampleRate()
+    {
+        return this.sampleRate;
+    }
+
+    @Override
+    public long getChecked()
+    {
+        return this.checked.sum();
+    }
+
+    @Override
+    public long getDropped()
+    {
+        return this.dropped.sum();
+    }
+
+    @Override
+    public long getSampled()
+    {
+        return this.sampled.sum();
+    }
+
+    @Override
+    public Map<String, Long> getFlags()
+    {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Reason reason : Reason.values())
+        {
+            result.put(reason.name, this.flags[reason.ordinal()].sum());
+        }
+        return result;
+    }
+
+    /**
+     * A generation of URL hash values which were seen for the first time.
+     */
+    private final static class BloomFilter
+    {
+        /** The bits of the filter **/
+        private final AtomicLongArray bits;
+        /** The number of bits minus one **/
+        private final int mask;
+        /** The number of URLs added to this generation **/
+        private final AtomicInteger size = new AtomicInteger();
+
+        private BloomFilter(int capacity)
+        {
+            int numBits = Integer.highestOneBit(Math.max(64, capacity * BITS_PER_URL - 1)) << 1;
+            this.bits = new AtomicLongArray(numBits >>> 6);
+            this.mask = numBits - 1;
+        }
+
+        /**
+         * Sets the bits of the given hash value.
+         *
+         * @return true if any bit was not set before; false if the hash value was probably added before
+         */
+        private boolean add(long hash)
+        {
+            boolean added = false;
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < NUM_BLOOM_HASHES; i++)
+            {
+                int bit = (h1 + i * h2) & this.mask;
+                long flag = 1L << bit;
+                long old = this.bits.getAndUpdate(bit >>> 6, word -> word | flag);
+                added |= (old & flag) == 0;
+            }
+            return added;
+        }
+
+        private boolean contains(long hash)
+        {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < NUM_BLOOM_HASHES; i++)
+            {
+                int bit = (h1 + i * h2) & this.mask;
+                if ((this.bits.get(bit >>> 6) & (1L << bit)) == 0)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
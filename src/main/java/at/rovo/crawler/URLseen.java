@@ -1,15 +1,15 @@
 package at.rovo.crawler;
 
+import at.rovo.crawler.bean.CrawlUrl;
 import at.rovo.drum.Dispatcher;
 import at.rovo.drum.Drum;
 import at.rovo.drum.DrumBuilder;
 import at.rovo.drum.DrumException;
 import at.rovo.drum.DrumListener;
 import at.rovo.drum.berkeley.BerkeleyDBStoreMerger;
-import at.rovo.drum.util.DrumUtils;
 
 /**
- * URLSeen stores a set of URLs inside a DRUM cache. {@link #checkURL(String, String)} provides a mechanism to check and
+ * URLSeen stores a set of URLs inside a DRUM cache. {@link #checkURL(String, CrawlUrl)} provides a mechanism to check and
  * update unique URLs and disband duplicate ones.
  * <p>
  * Note that unique URLs are handled by {@link UniqueUrlDispatcher} and are forwarded to the next queue
@@ -19,7 +19,7 @@ import at.rovo.drum.util.DrumUtils;
 public final class URLseen
 {
     /** The backing DRUM cache instance **/
-    private Drum<String, String> drum = null;
+    private Drum<String, CrawlUrl> drum = null;
     /** The number of buckets used by the backing DRUM instance **/
     private int numBuckets = 0;
 
@@ -40,14 +40,14 @@ public final class URLseen
      * @throws DrumException
      *         If any exceptions are thrown by the backing DRUM cache instance
      */
-    public URLseen(Dispatcher<String, String> dispatcher, int numBuckets, int bucketByteSize,
+    public URLseen(Dispatcher<String, CrawlUrl> dispatcher, int numBuckets, int bucketByteSize,
                    DrumListener listener) throws DrumException
     {
         this.numBuckets = numBuckets;
         try
         {
             this.drum =
-                    new DrumBuilder<>("urlSeen", String.class, String.class)
+                    new DrumBuilder<>("urlSeen", String.class, CrawlUrl.class)
                             .numBucket(numBuckets)
                             .bufferSize(bucketByteSize)
                             .dispatcher(dispatcher)
@@ -73,9 +73,9 @@ public final class URLseen
      * @param url
      *         The URL to check if it was already crawled or not
      */
-    public void checkURL(String data, String url)
+    public void checkURL(String data, CrawlUrl url)
     {
-        this.drum.checkUpdate(DrumUtils.hash(url), data, url);
+        this.drum.checkUpdate(url.getUrlHash(), data, url);
     }
 
     /**
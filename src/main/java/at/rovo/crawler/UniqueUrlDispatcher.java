@@ -1,6 +1,7 @@
 package at.rovo.crawler;
 
 import at.rovo.drum.NullDispatcher;
+import at.rovo.crawler.bean.CrawlUrl;
 import at.rovo.crawler.interfaces.UniqueUrlListener;
 import java.lang.invoke.MethodHandles;
 import java.util.Set;
@@ -11,7 +12,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Methods of this class are invoked by the backing DRUM instance
  */
-public final class UniqueUrlDispatcher extends NullDispatcher<String, String>
+public final class UniqueUrlDispatcher extends NullDispatcher<String, CrawlUrl>
 {
     /** The logger of this class **/
     private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
@@ -48,14 +49,14 @@ public final class UniqueUrlDispatcher extends NullDispatcher<String, String>
     }
 
     @Override
-    public void uniqueKeyCheck(Long key, String url)
+    public void uniqueKeyCheck(Long key, CrawlUrl url)
     {
         LOG.debug("unique key check: {}", url);
         this.listeners.forEach(listener -> listener.handleUniqueURL(url));
     }
 
     @Override
-    public void uniqueKeyUpdate(Long key, String data, String url)
+    public void uniqueKeyUpdate(Long key, String data, CrawlUrl url)
     {
         LOG.debug("unique key update: {}", url);
         this.listeners.forEach(listener -> listener.handleUniqueURL(url));
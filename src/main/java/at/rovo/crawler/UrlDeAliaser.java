@@ -0,0 +1,440 @@
+package at.rovo.crawler;
+
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.util.PublicSuffixTrie;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maps the different spellings of a URL which differ only in irrelevant query parameters or in the order of the query
+ * parameters onto one URL before the URL is checked by {@link URLseen}.
+ * <p>
+ * Global rules remove parameters which never identify content, like session IDs and tracking parameters, on every host.
+ * Further rules are learned per pay level domain from fetched pages which returned the same content: if two URLs of a
+ * domain with the same path return the same content and differ only in the order of their parameters, the parameters
+ * of this domain get sorted. If they differ only in the values of a few parameters, these parameters get removed. A
+ * rule is only applied after it was observed {@link #DEFAULT_LEARN_THRESHOLD} times.
+ * <p>
+ * A learned rule consists of a flag and the sorted hash values of the removed parameter names, which are looked up per
+ * parameter of a URL via binary search. URLs without query or path parameters are returned as they are.
+ *
+ * @author Roman Vottner
+ */
+public final class UrlDeAliaser
+{
+    /** The logger of this class **/
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    /** The parameters removed from the URLs of every host **/
+    public final static List<String> DEFAULT_GLOBAL_PARAMETERS = Collections.unmodifiableList(Arrays.asList(
+            "jsessionid", "phpsessid", "sid", "sessionid", "aspsessionid", "cfid", "cftoken", "utm_source",
+            "utm_medium", "utm_campaign", "utm_term", "utm_content", "gclid", "fbclid"));
+    /** The default number of observations after which a learned rule is applied **/
+    public final static int DEFAULT_LEARN_THRESHOLD = 2;
+    /** The default maximum number of domains rules are learned for **/
+    public final static int DEFAULT_MAX_HOSTS = 100_000;
+    /** The default number of recently fetched pages whose content hash is remembered **/
+    public final static int DEFAULT_MAX_RECENT_PAGES = 100_000;
+    /** The maximum number of parameters which may differ between two URLs to learn removal rules from them **/
+    private final static int MAX_DIFFERING_PARAMETERS = 2;
+    /** The mixing constant used to combine hash values **/
+    private final static long MIX = 0x9E3779B97F4A7C15L;
+
+    /** The sorted hash values of the parameters removed on every host **/
+    private final long[] globalParameters;
+    /** The number of observations after which a learned rule is applied **/
+    private final int learnThreshold;
+    /** The maximum number of domains rules are learned for **/
+    private final int maxHosts;
+    /** The learned rules per hash value of the hostname **/
+    private final Map<Long, AliasRule> rules = new ConcurrentHashMap<>();
+    /** The recently fetched URLs per combined hash value of their hostname and content **/
+    private final Map<Long, String> recentPages;
+    /** The number of observations of rules which are not applied yet **/
+    private final Map<Long, Integer> observations;
+    /** The number of URLs which were rewritten **/
+    private final LongAdder numDeAliased = new LongAdder();
+
+    /**
+     * Creates a new instance which removes the {@link #DEFAULT_GLOBAL_PARAMETERS} on every host.
+     */
+    public UrlDeAliaser()
+    {
+        this(DEFAULT_GLOBAL_PARAMETERS, DEFAULT_LEARN_THRESHOLD, DEFAULT_MAX_HOSTS, DEFAULT_MAX_RECENT_PAGES);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param globalParameters
+     *         The names of the parameters to remove on every host. Names are compared case-insensitively
+     * @param learnThreshold
+     *         The number of observations after which a learned rule is applied
+     * @param maxHosts
+     *         The maximum number of domains rules are learned for
+     * @param maxRecentPages
+     *         The number of recently fetched pages whose content hash is remembered
+     */
+    public UrlDeAliaser(Collection<String> globalParameters, int learnThreshold, int maxHosts, int maxRecentPages)
+    {
+        this.globalParameters = globalParameters.stream()
+                .mapToLong(name -> PublicSuffixTrie.hash(name, 0, name.length()))
+                .sorted()
+                .toArray();
+        this.learnThreshold = learnThreshold;
+        this.maxHosts = maxHosts;
+        this.recentPages = Collections.synchronizedMap(new BoundedMap<>(maxRecentPages));
+        this.observations = Collections.synchronizedMap(new BoundedMap<>(maxRecentPages));
+    }
+
+    /**
+     * Maps the given URL onto the spelling used for all of its aliases.
+     *
+     * @param url
+     *         The URL to de-alias
+     *
+     * @return The de-aliased URL or the given instance if the URL was not changed
+     */
+    public CrawlUrl deAlias(CrawlUrl url)
+    {
+        String s = url.getUrl();
+        int queryStart = s.indexOf('?');
+        int pathParameter = s.indexOf(';');
+        if (queryStart < 0 && pathParameter < 0)
+        {
+            return url;
+        }
+        int end = s.indexOf('#');
+        if (end < 0)
+        {
+            end = s.length();
+        }
+        int pathEnd = queryStart < 0 ? end : queryStart;
+        AliasRule rule = this.rules.get(url.getHostnameHash());
+
+        StringBuilder result = null;
+        // path parameters like ;jsessionid=... are only removed by the global rules
+        if (pathParameter >= 0 && pathParameter < pathEnd)
+        {
+            result = this.removePathParameters(s, pathParameter, pathEnd);
+        }
+        if (queryStart >= 0)
+        {
+            List<String> kept = new ArrayList<>();
+            boolean changed = false;
+            int start = queryStart + 1;
+            while (start <= end)
+            {
+                int paramEnd = s.indexOf('&', start);
+                if (paramEnd < 0 || paramEnd > end)
+                {
+                    paramEnd = end;
+                }
+                int nameEnd = s.indexOf('=', start);
+                if (nameEnd < 0 || nameEnd > paramEnd)
+                {
+                    nameEnd = paramEnd;
+                }
+                long nameHash = PublicSuffixTrie.hash(s, start, nameEnd);
+                if (Arrays.binarySearch(this.globalParameters, nameHash) >= 0 ||
+                    (rule != null && rule.removes(nameHash)))
+                {
+                    changed = true;
+                }
+                else if (paramEnd > start)
+                {
+                    kept.add(s.substring(start, paramEnd));
+                }
+                start = paramEnd + 1;
+            }
+            if (rule != null && rule.sortParameters && kept.size() > 1)
+            {
+                List<String> sorted = new ArrayList<>(kept);
+                Collections.sort(sorted);
+                changed |= !sorted.equals(kept);
+                kept = sorted;
+            }
+            if (changed)
+            {
+                if (result == null)
+                {
+                    result = new StringBuilder(s.length()).append(s, 0, queryStart);
+                }
+                if (!kept.isEmpty())
+                {
+                    result.append('?').append(String.join("&", kept));
+                }
+            }
+            else if (result != null)
+            {
+                result.append(s, queryStart, end);
+            }
+        }
+        if (result == null)
+        {
+            return url;
+        }
+        this.numDeAliased.increment();
+        return CrawlUrl.of(result.toString());
+    }
+
+    private StringBuilder removePathParameters(String s, int pathParameter, int pathEnd)
+    {
+        StringBuilder result = null;
+        int copied = 0;
+        int start = pathParameter;
+        while (start >= 0 && start < pathEnd)
+        {
+            int end = start + 1;
+            while (end < pathEnd && s.charAt(end) != ';' && s.charAt(end) != '/')
+            {
+                end++;
+            }
+            int nameEnd = s.indexOf('=', start);
+            if (nameEnd < 0 || nameEnd > end)
+            {
+                nameEnd = end;
+            }
+            if (Arrays.binarySearch(this.globalParameters, PublicSuffixTrie.hash(s, start + 1, nameEnd)) >= 0)
+            {
+                if (result == null)
+                {
+                    result = new StringBuilder(s.length());
+                }
+                result.append(s, copied, start);
+                copied = end;
+            }
+            start = s.indexOf(';', end);
+        }
+        if (result != null)
+        {
+            result.append(s, copied, pathEnd);
+        }
+        return result;
+    }
+
+    /**
+     * Remembers the content hash of a fetched page and learns de-aliasing rules if another URL of the same domain
+     * returned the same content before.
+     *
+     * @param url
+     *         The URL of the fetched page
+     * @param contentHash
+     *         The hash value of the content of the page
+     */
+    public void learn(String url, long contentHash)
+    {
+        CrawlUrl crawlUrl = CrawlUrl.of(url);
+        long hostHash = crawlUrl.getHostnameHash();
+        String previous = this.recentPages.put(hostHash * MIX ^ contentHash, url);
+        if (previous == null || previous.equals(url))
+        {
+            return;
+        }
+        int queryStart = url.indexOf('?');
+        int previousQueryStart = previous.indexOf('?');
+        // only URLs which differ in their query are considered as aliases
+        if (queryStart < 0 || queryStart != previousQueryStart || !url.regionMatches(0, previous, 0, queryStart))
+        {
+            return;
+        }
+        List<String> parameters = splitQuery(url, queryStart);
+        List<String> previousParameters = splitQuery(previous, previousQueryStart);
+        List<String> sorted = new ArrayList<>(parameters);
+        List<String> previousSorted = new ArrayList<>(previousParameters);
+        Collections.sort(sorted);
+        Collections.sort(previousSorted);
+        if (sorted.equals(previousSorted))
+        {
+            this.observe(hostHash, crawlUrl, 0L, null);
+            return;
+        }
+
+        Map<String, String> values = toMap(parameters);
+        Map<String, String> previousValues = toMap(previousParameters);
+        List<String> differing = new ArrayList<>();
+        int equal = 0;
+        for (Map.Entry<String, String> entry : values.entrySet())
+        {
+            if (!entry.getValue().equals(previousValues.get(entry.getKey())))
+            {
+                differing.add(entry.getKey());
+            }
+            else
+            {
+                equal++;
+            }
+        }
+        for (String name : previousValues.keySet())
+        {
+            if (!values.containsKey(name))
+            {
+                differing.add(name);
+            }
+        }
+        // pages like generic error pages share their content among many URLs, so at least one parameter has to
+        // identify the content
+        if (differing.size() > MAX_DIFFERING_PARAMETERS || equal == 0)
+        {
+            return;
+        }
+        for (String name : differing)
+        {
+            this.observe(hostHash, crawlUrl, PublicSuffixTrie.hash(name, 0, name.length()), name);
+        }
+    }
+
+    /**
+     * Counts an observation of a rule and applies the rule once it was observed often enough.
+     *
+     * @param hostHash
+     *         The hash value of the hostname
+     * @param url
+     *         The URL the rule was observed for
+     * @param nameHash
+     *         The hash value of the name of the parameter to remove or 0 if the parameters should get sorted
+     * @param name
+     *         The name of the parameter to remove or null if the parameters should get sorted
+     */
+    private void observe(long hostHash, CrawlUrl url, long nameHash, String name)
+    {
+        long key = (hostHash * MIX ^ nameHash) * MIX;
+        int count = this.observations.merge(key, 1, Integer::sum);
+        if (count < this.learnThreshold)
+        {
+            return;
+        }
+        this.observations.remove(key);
+        if (!this.rules.containsKey(hostHash) && this.rules.size() >= this.maxHosts)
+        {
+            return;
+        }
+        this.rules.compute(hostHash, (host, rule) ->
+        {
+            if (rule == null)
+            {
+                rule = AliasRule.EMPTY;
+            }
+            return name == null ? rule.withSortedParameters() : rule.withRemovedParameter(nameHash);
+        });
+        LOG.debug("Learned to {} for domain {}", name == null ? "sort the parameters" : "remove parameter " + name,
+                  url.getPLD());
+    }
+
+    private static List<String> splitQuery(String url, int queryStart)
+    {
+        int end = url.indexOf('#', queryStart);
+        List<String> parameters = new ArrayList<>();
+        for (String parameter : url.substring(queryStart + 1, end < 0 ? url.length() : end).split("&"))
+        {
+            if (!parameter.isEmpty())
+            {
+                parameters.add(parameter);
+            }
+        }
+        return parameters;
+    }
+
+    private static Map<String, String> toMap(List<String> parameters)
+    {
+        Map<String, String> values = new HashMap<>();
+        for (String parameter : parameters)
+        {
+            int separator = parameter.indexOf('=');
+            String name = (separator < 0 ? parameter : parameter.substring(0, separator)).toLowerCase();
+            values.putIfAbsent(name, separator < 0 ? "" : parameter.substring(separator + 1));
+        }
+        return values;
+    }
+
+    /**
+     * Returns the number of URLs which were rewritten.
+     *
+     * @return The number of de-aliased URLs
+     */
+    public long getNumDeAliased()
+    {
+        return this.numDeAliased.sum();
+    }
+
+    /**
+     * Returns the number of domains for which rules were learned.
+     *
+     * @return The number of domains with learned rules
+     */
+    public int getNumLearnedRules()
+    {
+        return this.rules.size();
+    }
+
+    /**
+     * The de-aliasing rule learned for a domain.
+     */
+    private final static class AliasRule
+    {
+        private final static AliasRule EMPTY = new AliasRule(false, new long[0]);
+
+        /** Specifies if the parameters should get sorted **/
+        private final boolean sortParameters;
+        /** The sorted hash values of the names of the parameters to remove **/
+        private final long[] removedParameters;
+
+        private AliasRule(boolean sortParameters, long[] removedParameters)
+        {
+            this.sortParameters = sortParameters;
+            this.removedParameters = removedParameters;
+        }
+
+        private boolean removes(long nameHash)
+        {
+            return Arrays.binarySearch(this.removedParameters, nameHash) >= 0;
+        }
+
+        private AliasRule withSortedParameters()
+        {
+            return new AliasRule(true, this.removedParameters);
+        }
+
+        private AliasRule withRemovedParameter(long nameHash)
+        {
+            if (this.removes(nameHash))
+            {
+                return this;
+            }
+            long[] removed = Arrays.copyOf(this.removedParameters, this.removedParameters.length + 1);
+            removed[removed.length - 1] = nameHash;
+            Arrays.sort(removed);
+            return new AliasRule(this.sortParameters, removed);
+        }
+    }
+
+    /**
+     * A map which evicts its least recently inserted entry once it exceeds its capacity.
+     */
+    private final static class BoundedMap<K, V> extends LinkedHashMap<K, V>
+    {
+        private final int capacity;
+
+        private BoundedMap(int capacity)
+        {
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+        {
+            return this.size() > this.capacity;
+        }
+    }
+}
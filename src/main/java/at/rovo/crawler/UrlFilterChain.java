@@ -0,0 +1,118 @@
+package at.rovo.crawler;
+
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.interfaces.UrlFilter;
+import at.rovo.crawler.interfaces.UrlFilterChainMXBean;
+import at.rovo.crawler.util.ExtensionFilter;
+import at.rovo.crawler.util.SubstringFilter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Applies a sequence of {@link UrlFilter}s to the URLs extracted from a crawled page, before they are passed to
+ * {@link URLseen}, {@link STAR} and {@link BEAST}. URLs which will never be crawled, like images, archives or the pages
+ * of endless calendars, therefore neither occupy the disk buckets of the DRUM stages nor the budget of their domain.
+ * <p>
+ * The filters are applied in their order until the first one rejects the URL, so cheap and selective filters should
+ * come first. The rejected URLs are counted per filter name. The filters can be replaced while the crawler is running.
+ *
+ * @author Roman Vottner
+ */
+public final class UrlFilterChain implements UrlFilterChainMXBean
+{
+    /** The filters in the order they are applied **/
+    private volatile UrlFilter[] filters;
+    /** The number of rejected URLs per filter name **/
+    private final Map<String, LongAdder> rejections = new ConcurrentHashMap<>();
+    /** The number of URLs which passed all filters **/
+    private final LongAdder accepted = new LongAdder();
+
+    /**
+     * Creates a new instance which applies the given filters.
+     *
+     * @param filters
+     *         The filters in the order they should be applied
+     */
+    public UrlFilterChain(UrlFilter... filters)
+    {
+        this.setFilters(Arrays.asList(filters));
+    }
+
+    /**
+     * Creates a new instance which rejects the {@link ExtensionFilter#DEFAULT_EXTENSIONS} and the {@link
+     * SubstringFilter#DEFAULT_SUBSTRINGS}.
+     *
+     * @return The new filter chain
+     */
+    public static UrlFilterChain createDefault()
+    {
+        return new UrlFilterChain(new ExtensionFilter(), new SubstringFilter());
+    }
+
+    /**
+     * Replaces the applied filters. The counts of the rejected URLs are kept.
+     *
+     * @param filters
+     *         The filters in the order they should be applied
+     */
+    public void setFilters(List<UrlFilter> filters)
+    {
+        for (UrlFilter filter : filters)
+        {
+            this.rejections.computeIfAbsent(filter.getName(), name -> new LongAdder());
+        }
+        this.filters = filters.toArray(new UrlFilter[0]);
+    }
+
+    /**
+     * Checks whether the given URL passes all filters.
+     *
+     * @param url
+     *         The extracted URL
+     *
+     * @return true if the URL should be passed on to the DRUM stages; false if it should be dropped
+     */
+    public boolean accept(CrawlUrl url)
+    {
+        for (UrlFilter filter : this.filters)
+        {
+            if (!filter.accept(url))
+            {
+                this.rejections.get(filter.getName()).increment();
+                return false;
+            }
+        }
+        this.accepted.increment();
+        return true;
+    }
+
+    @Override
+    public String[] getFilterNames()
+    {
+        return Arrays.stream(this.filters).map(UrlFilter::getName).toArray(String[]::new);
+    }
+
+    @Override
+    public long getAccepted()
+    {
+        return this.accepted.sum();
+    }
+
+    @Override
+    public long getRejected()
+    {
+        return this.rejections.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    @Override
+    public Map<String, Long> getRejections()
+    {
+        Map<String, Long> result = new LinkedHashMap<>();
+        this.rejections.forEach((name, count) -> result.put(name, count.sum()));
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+package at.rovo.crawler.bean;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the state of {@link at.rovo.crawler.BEAST}. The snapshot is taken from counters that are
+ * maintained while URLs are added to and drained from the queues and does not lock the queues, so its values are not
+ * necessarily consistent among each other.
+ *
+ * @author Roman Vottner
+ */
+public final class BEASTStatistics
+{
+    /** The index of the queue currently read from **/
+    private final int currentQueue;
+    /** The number of URLs per queue. The n-th entry belongs to the n-th queue **/
+    private final int[] queueSizes;
+    /** The number of URLs in the left-over queue **/
+    private final int leftOverSize;
+    /** The number of URLs added to BEAST per second **/
+    private final double admissionsPerSecond;
+    /** The number of URLs passed on from drained queues per second **/
+    private final double drainsPerSecond;
+    /** The pay level domains with the most URLs deferred to the left-over queue in descending order **/
+    private final Map<String, Long> topDeferredPLDs;
+
+    public BEASTStatistics(int currentQueue, int[] queueSizes, int leftOverSize, double admissionsPerSecond,
+                           double drainsPerSecond, Map<String, Long> topDeferredPLDs)
+    {
+        this.currentQueue = currentQueue;
+        this.queueSizes = queueSizes;
+        this.leftOverSize = leftOverSize;
+        this.admissionsPerSecond = admissionsPerSecond;
+        this.drainsPerSecond = drainsPerSecond;
+        this.topDeferredPLDs = Collections.unmodifiableMap(topDeferredPLDs);
+    }
+
+    public int getNumberOfQueues()
+    {
+        return this.queueSizes.length;
+    }
+
+    public int getCurrentQueue()
+    {
+        return this.currentQueue;
+    }
+
+    public int[] getQueueSizes()
+    {
+        return this.queueSizes.clone();
+    }
+
+    public int getLeftOverSize()
+    {
+        return this.leftOverSize;
+    }
+
+    public double getAdmissionsPerSecond()
+    {
+        return this.admissionsPerSecond;
+    }
+
+    public double getDrainsPerSecond()
+    {
+        return this.drainsPerSecond;
+    }
+
+    public Map<String, Long> getTopDeferredPLDs()
+    {
+        return this.topDeferredPLDs;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BEASTStatistics [queues=" + this.queueSizes.length + ", currentQueue=" + this.currentQueue +
+               ", leftOverSize=" + this.leftOverSize + ", admissionsPerSecond=" + this.admissionsPerSecond +
+               ", drainsPerSecond=" + this.drainsPerSecond + ", topDeferredPLDs=" + this.topDeferredPLDs + "]";
+    }
+}
@@ -0,0 +1,343 @@
+package at.rovo.crawler.bean;
+
+import at.rovo.crawler.interfaces.KeyHasher;
+import at.rovo.crawler.util.IRLbotUtils;
+import at.rovo.drum.data.ByteSerializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An immutable URL record which is parsed once when the URL is extracted from a crawled page and then passed through
+ * all stages of the crawler. It holds the offsets of the scheme, host and pay level domain within the URL as well as
+ * the hash values used as keys by the backing <em>DRUM</em> caches, so that later stages never need to parse the URL
+ * again.
+ * <p>
+ * The hostname returned by {@link #getHostname()} is the name used by the <em>robots.txt</em> stages, which is the pay
+ * level domain prefixed with <em>http://</em>, as returned by {@link IRLbotUtils#getHostname(String)}.
+ *
+ * @author Roman Vottner
+ */
+public final class CrawlUrl implements ByteSerializable<CrawlUrl>
+{
+    /** The full URL **/
+    private final String url;
+    /** The index of the first character of the host within the URL **/
+    private final int hostStart;
+    /** The index after the last character of the host, excluding the port, within the URL **/
+    private final int hostEnd;
+    /** The index of the first character of the pay level domain within the URL **/
+    private final int pldStart;
+    /** The index after the last character of the pay level domain within the URL **/
+    private final int pldEnd;
+    /** The pay level domain of the URL **/
+    private final String pld;
+    /** The hostname used to look up the robots.txt file of the URL **/
+    private final String hostname;
+    /** The part of the URL following the pay level domain **/
+    private final String path;
+    /** The hash value of the full URL **/
+    private final long urlHash;
+    /** The hash value of the pay level domain **/
+    private final long pldHash;
+    /** The hash value of the hostname **/
+    private final long hostnameHash;
+
+    /**
+     * Creates a record of an empty URL. This constructor only exists for the backing <em>DRUM</em> caches, which create
+     * an instance via reflection to deserialize records via {@link #readBytes(byte[])}. Use {@link #fromBytes(byte[])}
+     * instead.
+     */
+    public CrawlUrl()
+    {
+        this("", 0, 0, 0, 0, 0L, 0L, 0L);
+    }
+
+    private CrawlUrl(String url, int hostStart, int hostEnd, int pldStart, int pldEnd, long urlHash, long pldHash,
+                     long hostnameHash)
+    {
+        this.url = url;
+        this.hostStart = hostStart;
+        this.hostEnd = hostEnd;
+        this.pldStart = pldStart;
+        this.pldEnd = pldEnd;
+        this.pld = url.substring(pldStart, pldEnd);
+        this.hostname = "http://" + this.pld;
+        this.path = url.substring(pldEnd);
+        this.urlHash = urlHash;
+        this.pldHash = pldHash;
+        this.hostnameHash = hostnameHash;
+    }
+
+    private CrawlUrl(String url, int hostStart, int hostEnd, int pldStart, int pldEnd)
+    {
+        this.url = url;
+        this.hostStart = hostStart;
+        this.hostEnd = hostEnd;
+        this.pldStart = pldStart;
+        this.pldEnd = pldEnd;
+        this.pld = url.substring(pldStart, pldEnd);
+        this.hostname = "http://" + this.pld;
+        this.path = url.substring(pldEnd);
+        KeyHasher keyHasher = KeyHasher.getDefault();
+        this.urlHash = keyHasher.hash(url);
+        this.pldHash = keyHasher.hash(url, pldStart, pldEnd);
+        this.hostnameHash = keyHasher.hash(this.hostname);
+    }
+
+    /**
+     * Parses the given absolute URL.
+     *
+     * @param url
+     *         The absolute URL to parse
+     *
+     * @return The parsed URL record
+     */
+    public static CrawlUrl of(String url)
+    {
+        int hostStart = IRLbotUtils.getHostStart(url);
+        int hostEnd = IRLbotUtils.getHostEnd(url, hostStart);
+        // the pay level domain is resolved on the URL itself so no intermediate Strings are created
+        int pldStart = IRLbotUtils.getPLDStart(url, hostStart, hostEnd);
+        int pldEnd = hostEnd;
+        return new CrawlUrl(url, hostStart, hostEnd, pldStart, pldEnd);
+    }
+
+    /**
+     * Creates a record for the root of the given pay level domain. This is used for operations that only refer to the
+     * pay level domain itself, like the updates of the PLD-PLD link graph.
+     *
+     * @param pld
+     *         The pay level domain
+     *
+     * @return The record for <em>http://pld</em>
+     */
+    public static CrawlUrl ofPLD(String pld)
+    {
+        return new CrawlUrl("http://" + pld, 7, 7 + pld.length(), 7, 7 + pld.length());
+    }
+
+    /**
+     * Restores a record from the values of a previously parsed URL, f.e. when a URL is decoded from a {@link
+     * at.rovo.crawler.util.CompactUrlStore}. The values are not verified against the URL.
+     *
+     * @param url
+     *         The full URL
+     * @param hostStart
+     *         The index of the first character of the host within the URL
+     * @param hostEnd
+     *         The index after the last character of the host within the URL
+     * @param pldStart
+     *         The index of the first character of the pay level domain within the URL
+     * @param pldEnd
+     *         The index after the last character of the pay level domain within the URL
+     * @param urlHash
+     *         The hash value of the full URL
+     * @param pldHash
+     *         The hash value of the pay level domain
+     * @param hostnameHash
+     *         The hash value of the hostname
+     *
+     * @return The restored URL record
+     */
+    public static CrawlUrl of(String url, int hostStart, int hostEnd, int pldStart, int pldEnd, long urlHash,
+                              long pldHash, long hostnameHash)
+    {
+        return new CrawlUrl(url, hostStart, hostEnd, pldStart, pldEnd, urlHash, pldHash, hostnameHash);
+    }
+
+    /**
+     * Restores a record from the bytes returned by {@link #toBytes()}.
+     *
+     * @param data
+     *         The serialized record
+     *
+     * @return The restored URL record
+     */
+    public static CrawlUrl fromBytes(byte[] data)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int urlSize = buffer.getInt();
+        String url = new String(data, 4, urlSize, StandardCharsets.UTF_8);
+        buffer.position(4 + urlSize);
+        return new CrawlUrl(url, buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getLong(),
+                            buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Returns the full URL.
+     *
+     * @return The full URL
+     */
+    public String getUrl()
+    {
+        return this.url;
+    }
+
+    /**
+     * Returns the scheme of the URL like <em>http</em> or <em>https</em>, or an empty String if the URL does not
+     * contain a scheme.
+     *
+     * @return The scheme of the URL
+     */
+    public String getScheme()
+    {
+        // user information may precede the host, so the scheme ends with the first '://' instead of before the host
+        int schemeEnd = this.url.indexOf("://");
+        return schemeEnd > 0 && schemeEnd < this.hostStart ? this.url.substring(0, schemeEnd) : "";
+    }
+
+    /**
+     * Returns the host of the URL without any port, f.e. <em>www.tuwien.ac.at</em>.
+     *
+     * @return The host of the URL
+     */
+    public String getHost()
+    {
+        return this.url.substring(this.hostStart, this.hostEnd);
+    }
+
+    /**
+     * Returns the index of the first character of the host within the URL.
+     *
+     * @return The start index of the host
+     */
+    public int getHostStart()
+    {
+        return this.hostStart;
+    }
+
+    /**
+     * Returns the index after the last character of the host, excluding the port, within the URL.
+     *
+     * @return The end index of the host
+     */
+    public int getHostEnd()
+    {
+        return this.hostEnd;
+    }
+
+    /**
+     * Returns the index of the first character of the pay level domain within the URL.
+     *
+     * @return The start index of the pay level domain
+     */
+    public int getPLDStart()
+    {
+        return this.pldStart;
+    }
+
+    /**
+     * Returns the index after the last character of the pay level domain within the URL.
+     *
+     * @return The end index of the pay level domain
+     */
+    public int getPLDEnd()
+    {
+        return this.pldEnd;
+    }
+
+    /**
+     * Returns the pay level domain of the URL, f.e. <em>tuwien.ac.at</em>.
+     *
+     * @return The pay level domain of the URL
+     */
+    public String getPLD()
+    {
+        return this.pld;
+    }
+
+    /**
+     * Returns the name of the host the <em>robots.txt</em> file of this URL is looked up for.
+     *
+     * @return The hostname of the URL as used by the robots.txt stages
+     */
+    public String getHostname()
+    {
+        return this.hostname;
+    }
+
+    /**
+     * Returns the part of the URL following the pay level domain, f.e. <em>/people/index.html</em>.
+     *
+     * @return The directory path of the URL
+     */
+    public String getPath()
+    {
+        return this.path;
+    }
+
+    /**
+     * Returns the hash value of the full URL which is used as key for the already seen URLs.
+     *
+     * @return The hash value of the URL
+     */
+    public long getUrlHash()
+    {
+        return this.urlHash;
+    }
+
+    /**
+     * Returns the hash value of the pay level domain which is used as key for the PLD-PLD link graph.
+     *
+     * @return The hash value of the pay level domain
+     */
+    public long getPLDHash()
+    {
+        return this.pldHash;
+    }
+
+    /**
+     * Returns the hash value of the hostname which is used as key for the robots.txt stages.
+     *
+     * @return The hash value of the hostname
+     */
+    public long getHostnameHash()
+    {
+        return this.hostnameHash;
+    }
+
+    @Override
+    public byte[] toBytes()
+    {
+        // 4 bytes int - size of the URL
+        // n bytes - UTF-8 encoded URL
+        // 4x 4 bytes int - host start, host end, PLD start, PLD end
+        // 3x 8 bytes long - URL hash, PLD hash, hostname hash
+        byte[] urlBytes = this.url.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + urlBytes.length + 16 + 24);
+        buffer.putInt(urlBytes.length);
+        buffer.put(urlBytes);
+        buffer.putInt(this.hostStart);
+        buffer.putInt(this.hostEnd);
+        buffer.putInt(this.pldStart);
+        buffer.putInt(this.pldEnd);
+        buffer.putLong(this.urlHash);
+        buffer.putLong(this.pldHash);
+        buffer.putLong(this.hostnameHash);
+        return buffer.array();
+    }
+
+    @Override
+    public CrawlUrl readBytes(byte[] data)
+    {
+        return fromBytes(data);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof CrawlUrl && this.url.equals(((CrawlUrl) obj).url);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.url.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.url;
+    }
+}
@@ -6,14 +6,21 @@ import java.util.Set;
 public class CrawledPage
 {
     private String url = null;
-    private Set<String> containedURLs = null;
+    private Set<CrawlUrl> containedURLs = null;
+    private long contentHash = 0L;
 
-    public CrawledPage(String url, Set<String> containedURLs)
+    public CrawledPage(String url, Set<CrawlUrl> containedURLs)
     {
         this.url = url;
         this.containedURLs = containedURLs;
     }
 
+    public CrawledPage(String url, Set<CrawlUrl> containedURLs, long contentHash)
+    {
+        this(url, containedURLs);
+        this.contentHash = contentHash;
+    }
+
     public void setURL(String url)
     {
         this.url = url;
@@ -24,13 +31,23 @@ public class CrawledPage
         return this.url;
     }
 
-    public void setContainedURLs(Set<String> containedURLs)
+    public void setContainedURLs(Set<CrawlUrl> containedURLs)
     {
         this.containedURLs = containedURLs;
     }
 
-    public Set<String> getContainedURLs()
+    public Set<CrawlUrl> getContainedURLs()
     {
         return this.containedURLs;
     }
+
+    public void setContentHash(long contentHash)
+    {
+        this.contentHash = contentHash;
+    }
+
+    public long getContentHash()
+    {
+        return this.contentHash;
+    }
 }
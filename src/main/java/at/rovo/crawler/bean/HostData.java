@@ -1,26 +1,200 @@
 package at.rovo.crawler.bean;
 
 
+import at.rovo.crawler.IRLbot;
 import at.rovo.drum.data.ByteSerializable;
-import at.rovo.drum.util.DrumUtils;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Contains the data of a host which is stored in the <em>RobotsCache</em>.
+ * <p>
+ * Instead of the raw <em>robots.txt</em> file only the binary encoding of the {@link RobotsRules} relevant for this
+ * crawler is stored, which is considerably smaller and can be decoded without parsing the file again.
+ * <p>
+ * The rules are only valid until their expiration time. Afterwards the <em>robots.txt</em> file has to be fetched
+ * again, which can be done via a conditional request using the stored entity tag and last modification date of the
+ * file.
+ * <p>
+ * If the <em>robots.txt</em> file could not be fetched as the host was not reachable, the number of consecutive
+ * failures is recorded and the host is backed off exponentially: the rules expire after {@link #MIN_BACKOFF} on the
+ * first failure and the backoff doubles with every further failure up to {@link #MAX_BACKOFF}.
+ */
 public class HostData implements ByteSerializable<HostData>
 {
-    private String robotsTxt = null;
+    /** The time the robots.txt rules are considered valid if the server did not specify otherwise **/
+    public final static long DEFAULT_TTL = TimeUnit.HOURS.toMillis(24);
+    /** The time an unreachable host is backed off after its first failure **/
+    public final static long MIN_BACKOFF = TimeUnit.HOURS.toMillis(1);
+    /** The maximum time an unreachable host is backed off **/
+    public final static long MAX_BACKOFF = TimeUnit.DAYS.toMillis(7);
+    /** The version of the binary encoding **/
+    private final static byte VERSION = 1;
+
+    private byte[] robotsRules = null;
     private String ipAddress = null;
     private String hostName = null;
+    /** The time in milliseconds since the epoch the robots.txt rules expire at **/
+    private long expiresAt = 0;
+    /** The entity tag returned with the robots.txt file **/
+    private String eTag = null;
+    /** The last modification date returned with the robots.txt file **/
+    private String lastModified = null;
+    /** The number of consecutive failed attempts to fetch the robots.txt file **/
+    private int failures = 0;
     private transient long crawlDelay = 0;
+    /** The decoded robots rules **/
+    private transient volatile RobotsRules decodedRules = null;
 
     public HostData()
     {
 
     }
 
+    /**
+     * Creates a new instance which stores the rules of the given <em>robots.txt</em> file relevant for {@link
+     * IRLbot#CRAWLER_NAME}.
+     *
+     * @param hostName
+     *         The name of the host
+     * @param ipAddress
+     *         The IP address of the host, may be null
+     * @param robotsTxt
+     *         The content of the robots.txt file of the host, may be null if the host has no robots.txt file
+     */
     public HostData(String hostName, String ipAddress, String robotsTxt)
     {
-        this.robotsTxt = robotsTxt;
+        this(hostName, ipAddress, robotsTxt != null ? RobotsRules.compile(robotsTxt, IRLbot.CRAWLER_NAME) : null);
+    }
+
+    public HostData(String hostName, String ipAddress, RobotsRules robotsRules)
+    {
+        this(hostName, ipAddress, robotsRules, System.currentTimeMillis() + DEFAULT_TTL, null, null);
+    }
+
+    /**
+     * Creates a new instance which stores the given rules until the specified expiration time.
+     *
+     * @param hostName
+     *         The name of the host
+     * @param ipAddress
+     *         The IP address of the host, may be null
+     * @param robotsRules
+     *         The robots.txt rules of the host, may be null if the host has no robots.txt file
+     * @param expiresAt
+     *         The time in milliseconds since the epoch the rules expire at
+     * @param eTag
+     *         The entity tag of the robots.txt file, may be null
+     * @param lastModified
+     *         The last modification date of the robots.txt file, may be null
+     */
+    public HostData(String hostName, String ipAddress, RobotsRules robotsRules, long expiresAt, String eTag,
+                    String lastModified)
+    {
+        this(hostName, ipAddress, robotsRules != null ? robotsRules.toBytes() : null, expiresAt, eTag, lastModified);
+        this.decodedRules = robotsRules;
+    }
+
+    private HostData(String hostName, String ipAddress, byte[] robotsRules, long expiresAt, String eTag,
+                     String lastModified)
+    {
+        this.robotsRules = robotsRules;
         this.ipAddress = ipAddress;
         this.hostName = hostName;
+        this.expiresAt = expiresAt;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns a copy of this instance whose unchanged rules are valid until the given expiration time.
+     *
+     * @param expiresAt
+     *         The time in milliseconds since the epoch the rules expire at
+     *
+     * @return The renewed host data
+     */
+    public HostData renew(long expiresAt)
+    {
+        HostData hostData =
+                new HostData(this.hostName, this.ipAddress, this.robotsRules, expiresAt, this.eTag, this.lastModified);
+        hostData.decodedRules = this.decodedRules;
+        return hostData;
+    }
+
+    /**
+     * Returns a copy of this instance which carries the given IP address of the host.
+     *
+     * @param ipAddress
+     *         The resolved IP address of the host, may be null
+     *
+     * @return The host data with the given address
+     */
+    public HostData withIPAddress(String ipAddress)
+    {
+        HostData hostData =
+                new HostData(this.hostName, ipAddress, this.robotsRules, this.expiresAt, this.eTag, this.lastModified);
+        hostData.failures = this.failures;
+        hostData.crawlDelay = this.crawlDelay;
+        hostData.decodedRules = this.decodedRules;
+        return hostData;
+    }
+
+    /**
+     * Returns a copy of this instance which records a further failed attempt to fetch the robots.txt file. The
+     * previous rules are kept, but expire once the host was backed off.
+     *
+     * @param currentTime
+     *         The time in milliseconds since the epoch the attempt failed at
+     *
+     * @return The host data of the unreachable host
+     */
+    public HostData fail(long currentTime)
+    {
+        HostData hostData = this.renew(currentTime + getBackoff(this.failures + 1));
+        hostData.failures = this.failures + 1;
+        return hostData;
+    }
+
+    /**
+     * Returns the time a host is backed off after the given number of consecutive failures.
+     *
+     * @param failures
+     *         The number of consecutive failed attempts to fetch the robots.txt file
+     *
+     * @return The backoff in milliseconds
+     */
+    public static long getBackoff(int failures)
+    {
+        if (failures <= 0)
+        {
+            return 0;
+        }
+        // avoid an overflow of the shift
+        int exponent = Math.min(failures - 1, 32);
+        return Math.min(MAX_BACKOFF, MIN_BACKOFF << exponent);
+    }
+
+    /**
+     * Returns the number of consecutive failed attempts to fetch the robots.txt file of this host.
+     *
+     * @return The number of failures, 0 if the last attempt succeeded
+     */
+    public int getFailures()
+    {
+        return this.failures;
+    }
+
+    /**
+     * Checks if the last attempt to fetch the robots.txt file failed as the host could not be reached.
+     *
+     * @return true if the host is unreachable, false otherwise
+     */
+    public boolean isUnreachable()
+    {
+        return this.failures > 0;
     }
 
     public String getHostName()
@@ -28,9 +202,30 @@ public class HostData implements ByteSerializable<HostData>
         return this.hostName;
     }
 
-    public String getRobotsTxt()
+    /**
+     * Returns the binary encoding of the robots.txt rules of this host.
+     *
+     * @return The encoded rules or null if the host has no robots.txt file
+     */
+    public byte[] getEncodedRobotsRules()
     {
-        return this.robotsTxt;
+        return this.robotsRules;
+    }
+
+    /**
+     * Returns the robots.txt rules of this host. The rules are decoded on the first invocation.
+     *
+     * @return The rules or null if the host has no robots.txt file
+     */
+    public RobotsRules getRobotsRules()
+    {
+        RobotsRules rules = this.decodedRules;
+        if (rules == null && this.robotsRules != null)
+        {
+            rules = RobotsRules.fromBytes(this.robotsRules);
+            this.decodedRules = rules;
+        }
+        return rules;
     }
 
     public String getIPAddress()
@@ -38,6 +233,39 @@ public class HostData implements ByteSerializable<HostData>
         return this.ipAddress;
     }
 
+    /**
+     * Returns the time the robots.txt rules of this host expire at.
+     *
+     * @return The expiration time in milliseconds since the epoch
+     */
+    public long getExpiresAt()
+    {
+        return this.expiresAt;
+    }
+
+    /**
+     * Checks if the robots.txt rules of this host have to be fetched again.
+     *
+     * @param currentTime
+     *         The current time in milliseconds since the epoch
+     *
+     * @return true if the rules expired, false otherwise
+     */
+    public boolean isExpired(long currentTime)
+    {
+        return currentTime >= this.expiresAt;
+    }
+
+    public String getETag()
+    {
+        return this.eTag;
+    }
+
+    public String getLastModified()
+    {
+        return this.lastModified;
+    }
+
     public long getCrawlDelay() {
         return this.crawlDelay;
     }
@@ -48,24 +276,60 @@ public class HostData implements ByteSerializable<HostData>
 
     private void writeObject(java.io.ObjectOutputStream stream) throws java.io.IOException
     {
+        byte[] hostNameBytes = this.hostName.getBytes(StandardCharsets.UTF_8);
         // 4 bytes int - size of hostName
-        stream.writeInt(this.hostName.length());
-        // n bytes char[] - hostName
-        stream.write(this.hostName.getBytes());
+        stream.writeInt(hostNameBytes.length);
+        // n bytes - UTF-8 encoded hostName
+        stream.write(hostNameBytes);
+        byte[] ipAddressBytes = null != this.ipAddress ? this.ipAddress.getBytes(StandardCharsets.UTF_8) : null;
         // 4 bytes int - size of ipAddress
-        stream.writeInt(null != this.ipAddress ? this.ipAddress.length() : 0);
-        if (null != this.ipAddress)
+        stream.writeInt(null != ipAddressBytes ? ipAddressBytes.length : 0);
+        if (null != ipAddressBytes)
+        {
+            // (n bytes - ipAddress; IPv4 or IPv6)
+            stream.write(ipAddressBytes);
+        }
+        // 4 bytes int - size of the encoded robots rules
+        stream.writeInt(null != this.robotsRules ? this.robotsRules.length : 0);
+        if (null != this.robotsRules)
         {
-            // (n bytes char[] - ipAddress; IPv4 or IPv6)
-            stream.write(this.ipAddress.getBytes());
+            // (n bytes - encoded robots rules)
+            stream.write(this.robotsRules);
         }
-        // 4 bytes int - size of robotsTxt
-        stream.writeInt(null != this.robotsTxt ? this.robotsTxt.length() : 0);
-        if (null != this.robotsTxt)
+        // 8 bytes long - expiration time
+        stream.writeLong(this.expiresAt);
+        // 4 bytes int - size of eTag, -1 if absent
+        // (n bytes - UTF-8 encoded eTag)
+        writeString(stream, this.eTag);
+        // 4 bytes int - size of lastModified, -1 if absent
+        // (n bytes - UTF-8 encoded lastModified)
+        writeString(stream, this.lastModified);
+        // 4 bytes int - number of consecutive failures
+        stream.writeInt(this.failures);
+    }
+
+    private static void writeString(java.io.ObjectOutputStream stream, String value) throws java.io.IOException
+    {
+        if (value == null)
+        {
+            stream.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        stream.writeInt(bytes.length);
+        stream.write(bytes);
+    }
+
+    private static String readString(java.io.ObjectInputStream stream) throws java.io.IOException
+    {
+        int size = stream.readInt();
+        if (size < 0)
         {
-            // (n bytes char[] - robotsTxt)
-            stream.write(this.robotsTxt.getBytes());
+            return null;
         }
+        byte[] bytes = new byte[size];
+        stream.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     private void readObject(java.io.ObjectInputStream stream) throws java.io.IOException, ClassNotFoundException
@@ -75,91 +339,147 @@ public class HostData implements ByteSerializable<HostData>
         // read hostName
         byte[] hostNameBytes = new byte[hostSize];
         stream.readFully(hostNameBytes);
-        String hostName = new String(hostNameBytes);
+        String hostName = new String(hostNameBytes, StandardCharsets.UTF_8);
 
         // read ipAddress length
         int ipSize = stream.readInt();
         // read ipAddress
-        byte[] ipAddressBytes = new byte[ipSize];
-        stream.readFully(ipAddressBytes);
-        String ipAddress = new String(ipAddressBytes);
-
-        // read robots.txt length
-        int robotsSize = stream.readInt();
-        // read robots.txt
-        String robotsTxt = null;
-        if (robotsSize > 0)
+        String ipAddress = null;
+        if (ipSize > 0)
+        {
+            byte[] ipAddressBytes = new byte[ipSize];
+            stream.readFully(ipAddressBytes);
+            ipAddress = new String(ipAddressBytes, StandardCharsets.UTF_8);
+        }
+
+        // read size of the encoded robots rules
+        int rulesSize = stream.readInt();
+        // read the encoded robots rules
+        byte[] robotsRules = null;
+        if (rulesSize > 0)
         {
-            byte[] robotsBytes = new byte[robotsSize];
-            stream.readFully(robotsBytes);
-            robotsTxt = new String(robotsBytes);
+            robotsRules = new byte[rulesSize];
+            stream.readFully(robotsRules);
         }
 
         this.hostName = hostName;
         this.ipAddress = ipAddress;
-        this.robotsTxt = robotsTxt;
+        this.robotsRules = robotsRules;
+        this.expiresAt = stream.readLong();
+        this.eTag = readString(stream);
+        this.lastModified = readString(stream);
+        this.failures = stream.readInt();
     }
 
     @Override
     public byte[] toBytes()
     {
+        // 1 byte - format version
         // 4 bytes int - size of hostName
-        // n bytes char[] - hostName
-        // 4 bytes int - size of robotsTxt
-        // (n bytes char[] - robotsTxt)
-        int size = this.hostName.length() + 8;
-        if (this.robotsTxt != null)
+        // n bytes - UTF-8 encoded hostName
+        // 4 bytes int - size of the encoded robots rules
+        // (n bytes - encoded robots rules)
+        // 8 bytes long - expiration time
+        // 4 bytes int - size of eTag, -1 if absent
+        // (n bytes - UTF-8 encoded eTag)
+        // 4 bytes int - size of lastModified, -1 if absent
+        // (n bytes - UTF-8 encoded lastModified)
+        // 4 bytes int - number of consecutive failures
+        // 4 bytes int - size of ipAddress, -1 if absent
+        // (n bytes - ipAddress; IPv4 or IPv6)
+        byte[] hostNameBytes = this.hostName.getBytes(StandardCharsets.UTF_8);
+        int rulesSize = this.robotsRules != null ? this.robotsRules.length : 0;
+        byte[] eTagBytes = this.eTag != null ? this.eTag.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] lastModifiedBytes =
+                this.lastModified != null ? this.lastModified.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] ipAddressBytes = this.ipAddress != null ? this.ipAddress.getBytes(StandardCharsets.UTF_8) : null;
+        ByteBuffer buffer = ByteBuffer.allocate(
+                9 + hostNameBytes.length + rulesSize + 24 + (eTagBytes != null ? eTagBytes.length : 0) +
+                (lastModifiedBytes != null ? lastModifiedBytes.length : 0) +
+                (ipAddressBytes != null ? ipAddressBytes.length : 0));
+        buffer.put(VERSION);
+        buffer.putInt(hostNameBytes.length);
+        buffer.put(hostNameBytes);
+        buffer.putInt(rulesSize);
+        if (this.robotsRules != null)
+        {
+            buffer.put(this.robotsRules);
+        }
+        buffer.putLong(this.expiresAt);
+        putString(buffer, eTagBytes);
+        putString(buffer, lastModifiedBytes);
+        buffer.putInt(this.failures);
+        putString(buffer, ipAddressBytes);
+        return buffer.array();
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes)
+    {
+        buffer.putInt(bytes != null ? bytes.length : -1);
+        if (bytes != null)
         {
-            size += this.robotsTxt.length();
+            buffer.put(bytes);
         }
-        byte[] totalBytes = new byte[size];
+    }
 
-        // copy size of hostName into byte array
-        System.arraycopy(DrumUtils.int2bytes(this.hostName.length()), 0, totalBytes, 0, 4);
-        // copy hostName characters into byte array
-        System.arraycopy(this.hostName.getBytes(), 0, totalBytes, 4, this.hostName.length());
-        if (this.robotsTxt != null)
+    private static String getString(ByteBuffer buffer)
+    {
+        int size = buffer.getInt();
+        if (size < 0)
         {
-            // copy size of robots.txt into byte array
-            System.arraycopy(DrumUtils.int2bytes(this.robotsTxt.length()), 0, totalBytes, this.hostName.length() + 4, 4);
-            // copy robots.txt into the byte array
-            System.arraycopy(this.robotsTxt.getBytes(), 0, totalBytes, this.hostName.length() + 8,
-                             this.robotsTxt.length());
+            return null;
         }
-        else
+        if (size > buffer.remaining())
         {
-            // copy size of robots.txt into byte array = 0
-            System.arraycopy(DrumUtils.int2bytes(0), 0, totalBytes, this.hostName.length() + 4, 4);
+            throw new IllegalArgumentException("Truncated host data encoding");
         }
-
-        return totalBytes;
+        String value = new String(buffer.array(), buffer.position(), size, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + size);
+        return value;
     }
 
     @Override
     public HostData readBytes(byte[] data)
     {
-        // read hostName length
-        byte[] hostSizeBytes = new byte[4];
-        System.arraycopy(data, 0, hostSizeBytes, 0, 4);
-        int hostSize = DrumUtils.bytes2int(hostSizeBytes);
-        // read hostName
-        byte[] hostNameBytes = new byte[hostSize];
-        System.arraycopy(data, 4, hostNameBytes, 0, hostSize);
-        String hostName = new String(hostNameBytes);
-        // read robots.txt length
-        byte[] robotsSizeBytes = new byte[4];
-        System.arraycopy(data, 4 + hostSize, robotsSizeBytes, 0, 4);
-        int robotsSize = DrumUtils.bytes2int(robotsSizeBytes);
-        // read robots.txt
-        String robotsTxt = null;
-        if (robotsSize > 0)
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try
+        {
+            // caches written by earlier versions of the crawler have to be rebuilt
+            if (buffer.get() != VERSION)
+            {
+                throw new IllegalArgumentException("Unsupported host data encoding");
+            }
+            String hostName = getString(buffer);
+            // read the encoded robots rules
+            int rulesSize = buffer.getInt();
+            byte[] robotsRules = null;
+            if (rulesSize > 0)
+            {
+                if (rulesSize > buffer.remaining())
+                {
+                    throw new IllegalArgumentException("Truncated host data encoding");
+                }
+                robotsRules = new byte[rulesSize];
+                buffer.get(robotsRules);
+            }
+            long expiresAt = buffer.getLong();
+            String eTag = getString(buffer);
+            String lastModified = getString(buffer);
+            int failures = buffer.getInt();
+            String ipAddress = getString(buffer);
+            if (hostName == null || buffer.hasRemaining())
+            {
+                throw new IllegalArgumentException("Invalid host data encoding");
+            }
+            // create a new object with the deserialized data
+            HostData hostData = new HostData(hostName, ipAddress, robotsRules, expiresAt, eTag, lastModified);
+            hostData.failures = failures;
+            return hostData;
+        }
+        catch (BufferUnderflowException ex)
         {
-            byte[] robotsBytes = new byte[robotsSize];
-            System.arraycopy(data, 4 + hostSize + 4, robotsBytes, 0, robotsSize);
-            robotsTxt = new String(robotsBytes);
+            throw new IllegalArgumentException("Truncated host data encoding", ex);
         }
-        // create a new object with the deserialized data
-        return new HostData(hostName, ipAddress, robotsTxt);
     }
 
     @Override
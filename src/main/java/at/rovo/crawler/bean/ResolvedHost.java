@@ -0,0 +1,128 @@
+package at.rovo.crawler.bean;
+
+/**
+ * The result of the DNS resolution of a host. A host which does not exist or has no address is represented by an
+ * instance without IP address, so that the negative result can be cached as well. A lookup which failed, f.e. as the
+ * DNS server did not answer in time, is represented by a {@link #isFailed() failed} instance, as it does not tell
+ * whether the host exists.
+ *
+ * @author Roman Vottner
+ */
+public final class ResolvedHost
+{
+    /** Indicates that the resolver did not provide the time the result is valid for **/
+    public final static long UNKNOWN_TTL = -1;
+
+    /** The name of the resolved host **/
+    private final String hostName;
+    /** The IP address of the host or null if it could not be resolved **/
+    private final String ipAddress;
+    /** The time in milliseconds the result is valid for **/
+    private final long ttl;
+    /** Indicates that the lookup failed instead of returning a negative answer **/
+    private final boolean failed;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param hostName
+     *         The name of the resolved host
+     * @param ipAddress
+     *         The IP address of the host or null if it could not be resolved
+     * @param ttl
+     *         The time in milliseconds the result is valid for or {@link #UNKNOWN_TTL}
+     */
+    public ResolvedHost(String hostName, String ipAddress, long ttl)
+    {
+        this(hostName, ipAddress, ttl, false);
+    }
+
+    private ResolvedHost(String hostName, String ipAddress, long ttl, boolean failed)
+    {
+        this.hostName = hostName;
+        this.ipAddress = ipAddress;
+        this.ttl = ttl;
+        this.failed = failed;
+    }
+
+    /**
+     * Creates the negative result of a host which does not exist or has no address.
+     *
+     * @param hostName
+     *         The name of the host
+     * @param ttl
+     *         The time in milliseconds the negative result is valid for or {@link #UNKNOWN_TTL}
+     *
+     * @return The unresolved host
+     */
+    public static ResolvedHost notFound(String hostName, long ttl)
+    {
+        return new ResolvedHost(hostName, null, ttl);
+    }
+
+    /**
+     * Creates the result of a lookup which failed due to a network or server failure.
+     *
+     * @param hostName
+     *         The name of the host
+     *
+     * @return The unresolved host, which should be resolved again later
+     */
+    public static ResolvedHost failed(String hostName)
+    {
+        return new ResolvedHost(hostName, null, UNKNOWN_TTL, true);
+    }
+
+    public String getHostName()
+    {
+        return this.hostName;
+    }
+
+    /**
+     * Returns the IP address of the host.
+     *
+     * @return The IP address or null if the host could not be resolved
+     */
+    public String getIPAddress()
+    {
+        return this.ipAddress;
+    }
+
+    /**
+     * Returns the time the result is valid for as provided by the resolver.
+     *
+     * @return The time in milliseconds or {@link #UNKNOWN_TTL}
+     */
+    public long getTtl()
+    {
+        return this.ttl;
+    }
+
+    /**
+     * Checks if an IP address was found for the host.
+     *
+     * @return true if the host was resolved, false otherwise
+     */
+    public boolean isResolved()
+    {
+        return this.ipAddress != null;
+    }
+
+    /**
+     * Checks if the lookup of the host failed. Unlike a negative answer, a failed lookup does not tell whether the host
+     * exists.
+     *
+     * @return true if the lookup failed, false if the host was resolved or does not exist
+     */
+    public boolean isFailed()
+    {
+        return this.failed;
+    }
+
+    @Override
+    public String toString()
+    {
+        String result = this.ipAddress != null ? this.ipAddress : this.failed ? "failed" : "not found";
+        return this.hostName + " -> " + result + " (ttl: " + this.ttl + " ms)";
+    }
+}
@@ -0,0 +1,254 @@
+package at.rovo.crawler.bean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A compiled set of <em>allow</em> and <em>disallow</em> rules of a <em>robots.txt</em> record.
+ * <p>
+ * Rules consisting of a literal path prefix are stored in a character trie which is walked once along the path to
+ * check. Rules containing a <em>*</em> wildcard or ending with a <em>$</em> anchor are split into their literal
+ * segments on construction and are checked in order of their length. Among all rules matching a path the longest one
+ * decides whether the path is allowed; if an allow and a disallow rule of the same length match, the path is allowed.
+ * A path not matched by any rule is allowed.
+ * <p>
+ * Once constructed, an instance is immutable and can be shared between threads. Checking a path does not allocate any
+ * objects.
+ *
+ * @author Roman Vottner
+ */
+public final class RobotsRuleMatcher
+{
+    /** A matcher without any rules which allows every path **/
+    public final static RobotsRuleMatcher ALLOW_ALL = new RobotsRuleMatcher(new ArrayList<>(), new ArrayList<>());
+
+    /** The root of the trie containing the literal rules **/
+    private final Node root = new Node();
+    /** The rules containing wildcards or an end anchor, ordered by descending length with allow rules first **/
+    private final Pattern[] patterns;
+
+    /**
+     * Compiles the given allow and disallow rules. Empty rules are ignored as they do not match any path.
+     *
+     * @param allowed
+     *         The path patterns which are allowed to be crawled
+     * @param disallowed
+     *         The path patterns which must not be crawled
+     */
+    public RobotsRuleMatcher(Collection<String> allowed, Collection<String> disallowed)
+    {
+        List<Pattern> patterns = new ArrayList<>();
+        this.addRules(allowed, true, patterns);
+        this.addRules(disallowed, false, patterns);
+        patterns.sort((a, b) -> a.length != b.length ? Integer.compare(b.length, a.length)
+                                                     : Boolean.compare(b.allow, a.allow));
+        this.patterns = patterns.toArray(new Pattern[0]);
+    }
+
+    private void addRules(Collection<String> rules, boolean allow, List<Pattern> patterns)
+    {
+        for (String rule : rules)
+        {
+            String pattern = rule.trim();
+            if (pattern.isEmpty())
+            {
+                continue;
+            }
+            if (pattern.indexOf('*') < 0 && !pattern.endsWith("$"))
+            {
+                this.root.insert(pattern, allow);
+            }
+            else
+            {
+                patterns.add(new Pattern(pattern, allow));
+            }
+        }
+    }
+
+    /**
+     * Checks if the given path is allowed by the compiled rules.
+     *
+     * @param path
+     *         The path of the URL including its query, starting with a <em>/</em>
+     *
+     * @return true if the path may be crawled, false if a disallow rule prevents crawling
+     */
+    public boolean isAllowed(String path)
+    {
+        return this.isAllowed(path, 0);
+    }
+
+    /**
+     * Checks if the part of the given string starting at <em>start</em> is allowed by the compiled rules.
+     *
+     * @param path
+     *         The string containing the path of the URL
+     * @param start
+     *         The index of the first character of the path, which is usually a <em>/</em>
+     *
+     * @return true if the path may be crawled, false if a disallow rule prevents crawling
+     */
+    public boolean isAllowed(String path, int start)
+    {
+        // the length of the longest matching rule and whether this rule allows the path
+        int bestLength = -1;
+        boolean bestAllow = true;
+
+        Node node = this.root;
+        for (int i = start; ; i++)
+        {
+            if (node.disallowLength > bestLength)
+            {
+                bestLength = node.disallowLength;
+                bestAllow = false;
+            }
+            if (node.allowLength >= bestLength && node.allowLength >= 0)
+            {
+                bestLength = node.allowLength;
+                bestAllow = true;
+            }
+            if (i == path.length())
+            {
+                break;
+            }
+            node = node.child(path.charAt(i));
+            if (node == null)
+            {
+                break;
+            }
+        }
+
+        for (Pattern pattern : this.patterns)
+        {
+            if (pattern.length < bestLength || (pattern.length == bestLength && (bestAllow || !pattern.allow)))
+            {
+                // patterns are ordered by length, so no remaining pattern could take precedence
+                break;
+            }
+            if (pattern.matches(path, start))
+            {
+                return pattern.allow;
+            }
+        }
+        return bestAllow;
+    }
+
+    /**
+     * A node of the trie of literal rules. The children are kept in arrays sorted by their character.
+     */
+    private final static class Node
+    {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        /** The length of the allow rule ending at this node or -1 **/
+        private int allowLength = -1;
+        /** The length of the disallow rule ending at this node or -1 **/
+        private int disallowLength = -1;
+
+        private Node child(char c)
+        {
+            int index = Arrays.binarySearch(this.labels, c);
+            return index >= 0 ? this.children[index] : null;
+        }
+
+        private void insert(String rule, boolean allow)
+        {
+            Node node = this;
+            for (int i = 0; i < rule.length(); i++)
+            {
+                char c = rule.charAt(i);
+                int index = Arrays.binarySearch(node.labels, c);
+                if (index < 0)
+                {
+                    index = -(index + 1);
+                    char[] labels = new char[node.labels.length + 1];
+                    Node[] children = new Node[node.children.length + 1];
+                    System.arraycopy(node.labels, 0, labels, 0, index);
+                    System.arraycopy(node.children, 0, children, 0, index);
+                    labels[index] = c;
+                    children[index] = new Node();
+                    System.arraycopy(node.labels, index, labels, index + 1, node.labels.length - index);
+                    System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+                    node.labels = labels;
+                    node.children = children;
+                }
+                node = node.children[index];
+            }
+            if (allow)
+            {
+                node.allowLength = rule.length();
+            }
+            else
+            {
+                node.disallowLength = rule.length();
+            }
+        }
+    }
+
+    /**
+     * A rule containing <em>*</em> wildcards or ending with a <em>$</em> anchor, split into the literal segments
+     * between the wildcards.
+     */
+    private final static class Pattern
+    {
+        /** The literal segments between the wildcards. The first segment is empty if the rule starts with a wildcard **/
+        private final String[] segments;
+        /** Indicates if the last segment has to match the end of the path **/
+        private final boolean anchored;
+        /** The length of the original rule used for the precedence between rules **/
+        private final int length;
+        /** Indicates if this rule allows or disallows matching paths **/
+        private final boolean allow;
+
+        private Pattern(String rule, boolean allow)
+        {
+            this.length = rule.length();
+            this.allow = allow;
+            this.anchored = rule.endsWith("$");
+            String body = this.anchored ? rule.substring(0, rule.length() - 1) : rule;
+            List<String> segments = new ArrayList<>();
+            int from = 0;
+            int star;
+            while ((star = body.indexOf('*', from)) >= 0)
+            {
+                segments.add(body.substring(from, star));
+                from = star + 1;
+            }
+            segments.add(body.substring(from));
+            this.segments = segments.toArray(new String[0]);
+        }
+
+        private boolean matches(String path, int start)
+        {
+            String first = this.segments[0];
+            if (!path.startsWith(first, start))
+            {
+                return false;
+            }
+            int last = this.segments.length - 1;
+            if (last == 0)
+            {
+                // no wildcard, so the rule has to match the whole path if it is anchored
+                return !this.anchored || path.length() - start == first.length();
+            }
+            int pos = start + first.length();
+            for (int i = 1; i < last; i++)
+            {
+                int index = path.indexOf(this.segments[i], pos);
+                if (index < 0)
+                {
+                    return false;
+                }
+                pos = index + this.segments[i].length();
+            }
+            String tail = this.segments[last];
+            if (this.anchored)
+            {
+                return path.length() - tail.length() >= pos && path.endsWith(tail);
+            }
+            return path.indexOf(tail, pos) >= 0;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package at.rovo.crawler.bean;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rules of a <em>robots.txt</em> file which are relevant for a single user agent in a compact form.
+ * <p>
+ * Only the record of the user agent the rules were extracted for and the <em>*</em> record are kept, including their
+ * allow and disallow rules and their crawl delay, as well as all sitemaps listed in the file. Comments and the records
+ * of any other user agent are dropped. The rules can be encoded into a binary form via {@link #toBytes()}, which is
+ * stored by {@link HostData} instead of the raw <em>robots.txt</em> text, and decoded via {@link #fromBytes(byte[])}
+ * without parsing the original file again.
+ * <p>
+ * The allow and disallow rules of both records are compiled into a {@link RobotsRuleMatcher} on the first check.
+ *
+ * @author Roman Vottner
+ */
+public final class RobotsRules
+{
+    /** The version of the binary encoding **/
+    private final static byte VERSION = 1;
+
+    /** The rules defined for the user agent the rules were extracted for and the rules defined for all agents **/
+    private final List<Record> records;
+    /** The sitemap URLs listed in the robots.txt file **/
+    private final List<String> sitemaps;
+    /** The compiled allow and disallow rules of all records **/
+    private volatile RobotsRuleMatcher matcher = null;
+
+    private RobotsRules(List<Record> records, List<String> sitemaps)
+    {
+        this.records = records;
+        this.sitemaps = sitemaps;
+    }
+
+    /**
+     * Parses the given <em>robots.txt</em> file and extracts the rules relevant for the given user agent.
+     *
+     * @param robotsTxt
+     *         The content of the robots.txt file
+     * @param userAgent
+     *         The name of the user agent to extract the rules for
+     *
+     * @return The rules relevant for the user agent
+     */
+    public static RobotsRules compile(String robotsTxt, String userAgent)
+    {
+        return of(new RobotsTxt(robotsTxt), userAgent);
+    }
+
+    /**
+     * Extracts the rules relevant for the given user agent from an already parsed <em>robots.txt</em> file.
+     *
+     * @param robotsTxt
+     *         The parsed robots.txt file
+     * @param userAgent
+     *         The name of the user agent to extract the rules for
+     *
+     * @return The rules relevant for the user agent
+     */
+    public static RobotsRules of(RobotsTxt robotsTxt, String userAgent)
+    {
+        List<Record> records = new ArrayList<>(2);
+        RobotsTxt.RobotsTxtRecord agentRecord = robotsTxt.getRecord(userAgent);
+        RobotsTxt.RobotsTxtRecord defaultRecord = robotsTxt.getRecords().get("*");
+        for (RobotsTxt.RobotsTxtRecord record : new RobotsTxt.RobotsTxtRecord[] {agentRecord, defaultRecord})
+        {
+            if (record != null && (records.isEmpty() || agentRecord != defaultRecord))
+            {
+                records.add(new Record(record.getUserAgent(), record.getCrawlDelay(),
+                                       new ArrayList<>(record.getAllowedPathSegments()),
+                                       new ArrayList<>(record.getDisallowedPathSegments())));
+            }
+        }
+        return new RobotsRules(records, new ArrayList<>(robotsTxt.getSitemaps()));
+    }
+
+    /**
+     * Checks if the given URL may be crawled according to the rules.
+     *
+     * @param url
+     *         The URL to check
+     *
+     * @return true if the URL may be crawled, false if a disallow rule prevents crawling
+     */
+    public boolean isAllowed(CrawlUrl url)
+    {
+        String path = url.getPath();
+        // the path might still contain the port of the URL
+        int start = path.indexOf('/');
+        if (start < 0)
+        {
+            return this.getMatcher().isAllowed("/");
+        }
+        return this.getMatcher().isAllowed(path, start);
+    }
+
+    private RobotsRuleMatcher getMatcher()
+    {
+        RobotsRuleMatcher matcher = this.matcher;
+        if (matcher == null)
+        {
+            List<String> allowed = new ArrayList<>();
+            List<String> disallowed = new ArrayList<>();
+            for (Record record : this.records)
+            {
+                allowed.addAll(record.allowed);
+                disallowed.addAll(record.disallowed);
+            }
+            matcher = allowed.isEmpty() && disallowed.isEmpty() ? RobotsRuleMatcher.ALLOW_ALL
+                                                                : new RobotsRuleMatcher(allowed, disallowed);
+            this.matcher = matcher;
+        }
+        return matcher;
+    }
+
+    /**
+     * Returns the crawl delay of the record for the user agent the rules were extracted for or, if the robots.txt file
+     * did not contain such a record, the crawl delay of the <em>*</em> record.
+     *
+     * @return The crawl delay in seconds or 0 if no crawl delay was specified
+     */
+    public long getCrawlDelay()
+    {
+        return this.records.isEmpty() ? 0 : this.records.get(0).crawlDelay;
+    }
+
+    /**
+     * Returns the sitemap URLs listed in the robots.txt file.
+     *
+     * @return The sitemap URLs
+     */
+    public List<String> getSitemaps()
+    {
+        return Collections.unmodifiableList(this.sitemaps);
+    }
+
+    /**
+     * Encodes the rules into their binary form. The format is:
+     * <ul>
+     * <li>1 byte - format version</li>
+     * <li>1 byte - number of records, followed by each record: its user agent, its 4 bytes int crawl delay and its
+     * allow and disallow rules as lists</li>
+     * <li>the sitemaps as list</li>
+     * </ul>
+     * A list is written as 4 bytes int number of elements followed by the elements. Strings are written as 4 bytes int
+     * length followed by their UTF-8 bytes.
+     *
+     * @return The binary encoding of the rules
+     */
+    public byte[] toBytes()
+    {
+        List<byte[]> strings = new ArrayList<>();
+        int size = 2 + 4;
+        for (Record record : this.records)
+        {
+            size += 4 + 4 + 4;
+            size += add(strings, record.userAgent);
+            for (String allow : record.allowed)
+            {
+                size += add(strings, allow);
+            }
+            for (String disallow : record.disallowed)
+            {
+                size += add(strings, disallow);
+            }
+        }
+        for (String sitemap : this.sitemaps)
+        {
+            size += add(strings, sitemap);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION);
+        buffer.put((byte) this.records.size());
+        int n = 0;
+        for (Record record : this.records)
+        {
+            putString(buffer, strings.get(n++));
+            buffer.putInt(record.crawlDelay);
+            buffer.putInt(record.allowed.size());
+            for (int i = 0; i < record.allowed.size(); i++)
+            {
+                putString(buffer, strings.get(n++));
+            }
+            buffer.putInt(record.disallowed.size());
+            for (int i = 0; i < record.disallowed.size(); i++)
+            {
+                putString(buffer, strings.get(n++));
+            }
+        }
+        buffer.putInt(this.sitemaps.size());
+        for (int i = 0; i < this.sitemaps.size(); i++)
+        {
+            putString(buffer, strings.get(n++));
+        }
+        return buffer.array();
+    }
+
+    private static int add(List<byte[]> strings, String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        strings.add(bytes);
+        return 4 + bytes.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes)
+    {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Decodes rules previously encoded via {@link #toBytes()}.
+     *
+     * @param data
+     *         The binary encoding of the rules
+     *
+     * @return The decoded rules
+     *
+     * @throws IllegalArgumentException
+     *         If the data is no valid encoding of robots.txt rules
+     */
+    public static RobotsRules fromBytes(byte[] data)
+    {
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            if (buffer.get() != VERSION)
+            {
+                throw new IllegalArgumentException("Unsupported robots.txt rules encoding");
+            }
+            int numRecords = buffer.get();
+            List<Record> records = new ArrayList<>(numRecords);
+            for (int i = 0; i < numRecords; i++)
+            {
+                String userAgent = getString(buffer);
+                int crawlDelay = buffer.getInt();
+                List<String> allowed = getStrings(buffer);
+                List<String> disallowed = getStrings(buffer);
+                records.add(new Record(userAgent, crawlDelay, allowed, disallowed));
+            }
+            return new RobotsRules(records, getStrings(buffer));
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException ex)
+        {
+            throw new IllegalArgumentException("Truncated robots.txt rules encoding", ex);
+        }
+    }
+
+    private static List<String> getStrings(ByteBuffer buffer)
+    {
+        int size = buffer.getInt();
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            strings.add(getString(buffer));
+        }
+        return strings;
+    }
+
+    private static String getString(ByteBuffer buffer)
+    {
+        int length = buffer.getInt();
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * The rules of a single user agent.
+     */
+    private final static class Record
+    {
+        private final String userAgent;
+        private final int crawlDelay;
+        private final List<String> allowed;
+        private final List<String> disallowed;
+
+        private Record(String userAgent, int crawlDelay, List<String> allowed, List<String> disallowed)
+        {
+            this.userAgent = userAgent;
+            this.crawlDelay = crawlDelay;
+            this.allowed = allowed;
+            this.disallowed = disallowed;
+        }
+    }
+}
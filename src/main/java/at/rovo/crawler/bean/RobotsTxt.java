@@ -1,22 +1,37 @@
 package at.rovo.crawler.bean;
 
 import at.rovo.crawler.util.IRLbotUtils;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Contains the data of a downloaded RobotsTxt file
  */
 public class RobotsTxt
 {
+    /** The maximum number of characters parsed. Any content beyond is ignored **/
+    public final static int MAX_SIZE = 500 * 1024;
+
+    private final static String USER_AGENT = "user-agent";
+    private final static String ALLOW = "allow";
+    private final static String DISALLOW = "disallow";
+    private final static String CRAWL_DELAY = "crawl-delay";
+    private final static String SITEMAP = "sitemap";
+
     /**
      * A map holding the found user agents within the robots.txt file as key and a {@link RobotsTxtRecord} entry as
      * value which will contain the settings for the respective user agent
      */
     private Map<String, RobotsTxtRecord> records = new LinkedHashMap<>();
+    /** The sitemap URLs listed in the robots.txt file **/
+    private final Set<String> sitemaps = new LinkedHashSet<>();
+    /** The compiled allow and disallow rules per checked user agent **/
+    private final Map<String, RobotsRuleMatcher> matchers = new ConcurrentHashMap<>();
 
     /**
      * Initializes a new instance which parses the provided <em>robotsTxt</em> representation which can be retrieved
@@ -112,320 +127,316 @@ public class RobotsTxt
     }
 
     /**
-     * Parses a robots.txt {@link String} representation and fills the provided arguments with rules collected from the
-     * robots.txt file.
+     * Returns the sitemap URLs listed anywhere in the robots.txt file.
      *
-     * @param robotsTxt
-     *         The {@link String} representation of the robots.txt file
+     * @return The sitemap URLs in order of their appearance
      */
-    private void parseRobotsTxt(String robotsTxt)
+    public Set<String> getSitemaps()
     {
-        try (Scanner scanner = new Scanner(robotsTxt))
-        {
-            while (scanner.hasNextLine())
-            {
-                String line = scanner.nextLine();
-
-                if (line.trim().startsWith("#"))
-                {
-                    continue;
-                }
-
-                // look for a 'User-agent: ' part
-                if (line.toLowerCase().startsWith("user-agent: "))
-                {
-                    String userAgent = line.substring("user-agent: ".length());
-
-                    RobotsTxtRecord record = new RobotsTxtRecord(userAgent);
-                    records.put(userAgent, record);
-
-                    while (scanner.hasNextLine())
-                    {
-                        line = scanner.nextLine();
-                        String lowerLine = line.toLowerCase();
-                        // as comments are possible at the end of the line, filter them out
-                        if (line.contains("#"))
-                        {
-                            line = line.substring(0, line.indexOf("#")).trim();
-                        }
-
-                        if (lowerLine.startsWith("allow: "))
-                        {
-                            String allow = line.substring("allow:".length()).trim();
-                            record.addAllowedPathSegment(allow);
-                        }
-                        else if (lowerLine.startsWith("disallow: "))
-                        {
-                            String disallow = line.substring("disallow:".length()).trim();
-                            if ("".equals(disallow))
-                            {
-                                record.getDisallowedPathSegments().clear();
-                                continue;
-                            }
-                            record.addDisallowedPathSegment(disallow);
-                        }
-                        else if (lowerLine.startsWith("crawl-delay: "))
-                        {
-                            String crawlDelay = line.substring("crawl-delay:".length()).trim();
-                            try
-                            {
-                                record.setCrawlDelay(Integer.parseInt(crawlDelay));
-                            }
-                            catch (NumberFormatException nfEx)
-                            {
-                                // as a crawl delay was specified but we could not read it, default to 1 second
-                                record.setCrawlDelay(1);
-                            }
-                        }
-                        else if (lowerLine.startsWith("sitemap"))
-                        {
-                            String sitemap = line.substring("sitemap: ".length()).trim();
-                            record.addSitemap(sitemap);
-                        }
-                        else if ("".equals(line.trim()) || "\n".equals(line.trim()))
-                        {
-                            break;
-                        }
-                    }
-                }
-            }
-        }
+        return this.sitemaps;
     }
 
-    private void copyDisallowedSites(String userAgent, Set<String> target)
+    /**
+     * Returns the record which applies to the given user agent. A record whose user agent matches the given name
+     * exactly is preferred, otherwise the record whose user agent equals the product token of the given name, which is
+     * the part before a <em>/</em>, ignoring case is returned.
+     *
+     * @param userAgent
+     *         The full name of the user agent, f.e. <em>JIRLbot/1.0</em>
+     *
+     * @return The record for the user agent or null if the robots.txt file contains no record for it
+     */
+    public RobotsTxtRecord getRecord(String userAgent)
     {
-        RobotsTxtRecord record = records.get(userAgent);
+        RobotsTxtRecord record = this.records.get(userAgent);
         if (record != null)
         {
-            target.addAll(record.getDisallowedPathSegments());
+            return record;
         }
-    }
-
-    private void copyAllowedSites(String userAgent, Set<String> target)
-    {
-        RobotsTxtRecord record = records.get(userAgent);
-        if (record != null)
+        int tokenEnd = userAgent.indexOf('/');
+        if (tokenEnd < 0)
         {
-            target.addAll(record.getAllowedPathSegments());
+            tokenEnd = userAgent.length();
         }
+        for (Map.Entry<String, RobotsTxtRecord> entry : this.records.entrySet())
+        {
+            String agent = entry.getKey();
+            if (agent.length() == tokenEnd && agent.regionMatches(true, 0, userAgent, 0, tokenEnd))
+            {
+                return entry.getValue();
+            }
+        }
+        return null;
     }
 
     /**
-     * Checks a URL against rules extracted from a robots.txt file
-     *
-     * @param userAgent
-     *         The name of the user-agent to check if it passes the check
-     * @param url
-     *         The URL to test against the rules
+     * Parses a robots.txt {@link String} representation and fills the records with the rules collected from the
+     * robots.txt file.
+     * <p>
+     * The content is scanned once line by line without copying lines. Directive names are matched ignoring case and
+     * whitespace around the <em>:</em> separator is optional. Consecutive <em>user-agent</em> lines form a group
+     * whose rules apply to all of these user agents; a group ends with the next <em>user-agent</em> line following a
+     * rule. Groups of the same user agent are merged. Content beyond {@link #MAX_SIZE} characters is ignored.
      *
-     * @return Returns true if a URL passed the tests against the rules, false otherwise
+     * @param robotsTxt
+     *         The {@link String} representation of the robots.txt file
      */
-    public boolean checkRobotRules(String userAgent, String url)
+    private void parseRobotsTxt(String robotsTxt)
     {
-        // evaluate settings and compare them with the URL
-        Set<String> disallowedSites = new LinkedHashSet<>();
-        copyDisallowedSites(userAgent, disallowedSites);
-        copyDisallowedSites("*", disallowedSites);
-
-        Set<String> allowedSites = new LinkedHashSet<>();
-        copyAllowedSites(userAgent, allowedSites);
-        copyAllowedSites("*", allowedSites);
-
-        url = IRLbotUtils.getDirectoryPathOfUrl(url);
-
-        // default behavior auto-allow
-        // if we find a disallow rule we prevent further crawling
-        boolean isDisallowed = isDisallowed(url, disallowedSites);
-        // though, check if a further allow rule overrides the disallow rule
-        if (isDisallowed)
+        int end = Math.min(robotsTxt.length(), MAX_SIZE);
+        int pos = 0;
+        // skip a leading byte order mark
+        if (end > 0 && robotsTxt.charAt(0) == '\uFEFF')
         {
-            isDisallowed = !isAllowed(url, allowedSites);
+            pos = 1;
         }
 
-        return !isDisallowed;
-    }
-
-    private boolean isDisallowed(String url, Set<String> disallowedSites)
-    {
-        for (String disallow : disallowedSites)
+        List<RobotsTxtRecord> group = new ArrayList<>();
+        boolean groupHasRules = false;
+        while (pos < end)
         {
-            // '' allows the whole host to be crawled
-            if (disallow.trim().equals(""))
+            int lineEnd = pos;
+            while (lineEnd < end && robotsTxt.charAt(lineEnd) != '\n' && robotsTxt.charAt(lineEnd) != '\r')
             {
-                return true;
+                lineEnd++;
             }
-            // '/' prevents the whole host from being crawled
-            else if (disallow.trim().equals("/"))
+            int next = lineEnd + 1;
+            // treat \r\n as a single line break
+            if (lineEnd < end && robotsTxt.charAt(lineEnd) == '\r' && next < end && robotsTxt.charAt(next) == '\n')
+            {
+                next++;
+            }
+
+            // strip comments and surrounding whitespace; both searches are limited to the current line
+            int valueEnd = indexOf(robotsTxt, '#', pos, lineEnd);
+            int start = skipWhitespace(robotsTxt, pos, valueEnd);
+            valueEnd = trimWhitespace(robotsTxt, start, valueEnd);
+            int colon = indexOf(robotsTxt, ':', start, valueEnd);
+            if (start == valueEnd || colon == valueEnd)
             {
-                return true;
+                pos = next;
+                continue;
             }
-            // endline-anchor indicates that the part before the "$" sign needs to be
-            // at the end of the URL
-            else if (disallow.endsWith("$"))
+            int keyEnd = trimWhitespace(robotsTxt, start, colon);
+            int valueStart = skipWhitespace(robotsTxt, colon + 1, valueEnd);
+
+            if (isDirective(robotsTxt, start, keyEnd, USER_AGENT))
             {
-                String pathRestriction = disallow.substring(0, disallow.length() - 1);
-                // rule is valid for any URL
-                if (pathRestriction.startsWith("/*"))
+                if (groupHasRules)
                 {
-                    pathRestriction = pathRestriction.substring(2);
-                    if (url.endsWith(pathRestriction))
-                    {
-                        return true;
-                    }
+                    group.clear();
+                    groupHasRules = false;
                 }
-                // there are some restrictions for the rule
-                else if (pathRestriction.startsWith("/"))
+                if (valueStart < valueEnd)
                 {
-                    // there is a wildcard in the middle of the URL, so we have to
-                    // check the first and the end part of the URL
-                    if (pathRestriction.contains("*"))
-                    {
-                        String startPart = pathRestriction.substring(0, pathRestriction.indexOf("*"));
-                        String endPart = pathRestriction.substring(pathRestriction.indexOf("*") + 1);
-                        if (url.startsWith(startPart) && url.endsWith(endPart))
-                        {
-                            return true;
-                        }
-                    }
-                    // a path without asterix was found - we can use the whole thing
-                    // from start on
-                    else
-                    {
-                        if (url.startsWith(pathRestriction))
-                        {
-                            return true;
-                        }
-                    }
+                    String userAgent = robotsTxt.substring(valueStart, valueEnd);
+                    group.add(this.records.computeIfAbsent(userAgent, RobotsTxtRecord::new));
                 }
             }
-            // ignore URLs that contain a '?'
-            else if (disallow.endsWith("?"))
+            else if (isDirective(robotsTxt, start, keyEnd, SITEMAP))
             {
-                String pathRestriction = disallow.substring(0, disallow.length() - 1);
-                if (pathRestriction.startsWith("/*"))
-                {
-                    String part = pathRestriction.substring(2);
-                    if (part.trim().length() > 0)
-                    {
-                        // should match a rule like /*mnp_utility.mspx?
-                        if (url.contains(part) && url.contains("?"))
-                        {
-                            return true;
-                        }
-                    }
-                }
-                else if (pathRestriction.startsWith("/"))
+                // sitemaps do not belong to a group
+                if (valueStart < valueEnd)
                 {
-                    // there is a wildcard in the middle of the URL, so we have to
-                    // check the first and the end part of the URL
-                    // should match f.e. a rule like /hpc/*/supported-applications.aspx?
-                    if (pathRestriction.contains("*"))
-                    {
-                        String startPart = pathRestriction.substring(0, pathRestriction.indexOf("*"));
-                        String endPart = pathRestriction.substring(pathRestriction.indexOf("*") + 1);
-                        if (url.startsWith(startPart) && url.contains(endPart) && url.contains("?"))
-                        {
-                            return true;
-                        }
-                    }
+                    String sitemap = robotsTxt.substring(valueStart, valueEnd);
+                    this.sitemaps.add(sitemap);
+                    group.forEach(record -> record.addSitemap(sitemap));
                 }
             }
-            // 'ordinary' path provided
-            else
+            else if (!group.isEmpty())
             {
-                if (disallow.contains("*"))
+                groupHasRules = true;
+                if (valueStart < valueEnd)
                 {
-                    String firstPart = disallow.substring(0, disallow.indexOf("*"));
-                    String secondPart = disallow.substring(disallow.indexOf("*") + 1);
-                    if (url.startsWith(firstPart) && url.contains(secondPart))
+                    if (isDirective(robotsTxt, start, keyEnd, ALLOW))
                     {
-                        return true;
+                        String allow = robotsTxt.substring(valueStart, valueEnd);
+                        group.forEach(record -> record.addAllowedPathSegment(allow));
                     }
-                }
-                else
-                {
-                    if (url.startsWith(disallow))
+                    else if (isDirective(robotsTxt, start, keyEnd, DISALLOW))
                     {
-                        return true;
+                        String disallow = robotsTxt.substring(valueStart, valueEnd);
+                        group.forEach(record -> record.addDisallowedPathSegment(disallow));
+                    }
+                    else if (isDirective(robotsTxt, start, keyEnd, CRAWL_DELAY))
+                    {
+                        int crawlDelay = parseCrawlDelay(robotsTxt, valueStart, valueEnd);
+                        group.forEach(record -> record.setCrawlDelay(crawlDelay));
                     }
                 }
             }
+
+            pos = next;
+        }
+    }
+
+    /**
+     * Returns the index of the first occurrence of the given character within the range or the end of the range if
+     * the character does not occur.
+     */
+    private static int indexOf(String robotsTxt, char c, int start, int end)
+    {
+        while (start < end && robotsTxt.charAt(start) != c)
+        {
+            start++;
+        }
+        return start;
+    }
+
+    private static boolean isDirective(String robotsTxt, int start, int end, String directive)
+    {
+        return end - start == directive.length() && robotsTxt.regionMatches(true, start, directive, 0, end - start);
+    }
+
+    private static int skipWhitespace(String robotsTxt, int start, int end)
+    {
+        while (start < end && Character.isWhitespace(robotsTxt.charAt(start)))
+        {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimWhitespace(String robotsTxt, int start, int end)
+    {
+        while (end > start && Character.isWhitespace(robotsTxt.charAt(end - 1)))
+        {
+            end--;
         }
-        return false;
+        return end;
     }
 
-    private boolean isAllowed(String url, Set<String> allowedSites)
+    /**
+     * Parses the crawl delay in seconds. Fractions of a second are rounded up.
+     *
+     * @return The crawl delay or 1 if a crawl delay was specified which could not be read
+     */
+    private static int parseCrawlDelay(String robotsTxt, int start, int end)
     {
-        for (String allow : allowedSites)
+        long delay = 0;
+        boolean fraction = false;
+        for (int i = start; i < end; i++)
         {
-            if (allow.endsWith("$"))
+            char c = robotsTxt.charAt(i);
+            if (c == '.' && !fraction)
             {
-                String path = allow.substring(0, allow.length() - 1);
-                // fetches rules like '/*.html$'
-                if (path.startsWith("/*"))
-                {
-                    path = path.substring(2);
-                    if (path.length() > 0)
-                    {
-                        if (url.endsWith(path))
-                        {
-                            return true;
-                        }
-                    }
-                }
-                // fetches rules like '/articles/*/index.html$
-                else if (path.startsWith("/") && path.contains("*"))
-                {
-                    String startPart = path.substring(0, path.indexOf("*"));
-                    String endPart = path.substring(path.indexOf("*") + 1);
-                    if (url.startsWith(startPart) && url.contains(endPart))
-                    {
-                        return true;
-                    }
-                }
+                fraction = true;
             }
-            else if (allow.endsWith("?"))
+            else if (c < '0' || c > '9' || delay > Integer.MAX_VALUE)
             {
-                String path = allow.substring(0, allow.length() - 1);
-                // fetches rules like '/*search.php?'
-                if (path.startsWith("/*"))
-                {
-                    path = path.substring(2);
-                    if (path.length() > 0)
-                    {
-                        if (url.contains(path) && url.contains("?"))
-                        {
-                            return true;
-                        }
-                    }
-                }
-                // fetches rules like '/public/*/search.php?
-                else if (path.startsWith("/"))
-                {
-                    String startPart = path.substring(0, path.indexOf("*"));
-                    String endPart = path.substring(path.indexOf("*") + 1);
-                    if (url.startsWith(startPart) && url.contains(endPart) && url.contains("?"))
-                    {
-                        return true;
-                    }
-                }
+                // as a crawl delay was specified but we could not read it, default to 1 second
+                return 1;
             }
-            // fetches rules like '/public/*/index.html'
-            else if (allow.startsWith("/") && allow.contains("*"))
+            else if (fraction)
             {
-                String startPart = allow.substring(0, allow.indexOf("*"));
-                String endPart = allow.substring(allow.indexOf("*") + 1);
-                if (url.startsWith(startPart) && url.contains(endPart))
+                if (c != '0')
                 {
-                    return true;
+                    return (int) delay + 1;
                 }
             }
-            // fetches rules like '/default'
-            else if (url.startsWith(allow))
+            else
             {
-                return true;
+                delay = delay * 10 + (c - '0');
             }
         }
-        return false;
+        return (int) Math.min(delay, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the crawl delay specified for the given user agent. If no record exists for this user agent the crawl
+     * delay of the <em>*</em> record is returned.
+     *
+     * @param userAgent
+     *         The name of the user-agent to look up the crawl delay for
+     *
+     * @return The crawl delay in seconds or 0 if no crawl delay was specified
+     */
+    public long getCrawlDelay(String userAgent)
+    {
+        RobotsTxtRecord record = this.getRecord(userAgent);
+        if (record == null)
+        {
+            record = records.get("*");
+        }
+        return record != null ? record.getCrawlDelay() : RobotsTxtRecord.DEFAULT_CRAWL_DELAY;
+    }
+
+    /**
+     * Checks a URL against rules extracted from a robots.txt file
+     *
+     * @param userAgent
+     *         The name of the user-agent to check if it passes the check
+     * @param url
+     *         The URL to test against the rules
+     *
+     * @return Returns true if a URL passed the tests against the rules, false otherwise
+     */
+    public boolean checkRobotRules(String userAgent, String url)
+    {
+        return checkRobotRulesForPath(userAgent, IRLbotUtils.getDirectoryPathOfUrl(url));
+    }
+
+    /**
+     * Checks an already parsed URL against rules extracted from a robots.txt file
+     *
+     * @param userAgent
+     *         The name of the user-agent to check if it passes the check
+     * @param url
+     *         The URL to test against the rules
+     *
+     * @return Returns true if a URL passed the tests against the rules, false otherwise
+     */
+    public boolean checkRobotRules(String userAgent, CrawlUrl url)
+    {
+        return checkRobotRulesForPath(userAgent, url.getPath());
+    }
+
+    /**
+     * Checks the directory path of a URL against rules extracted from a robots.txt file. The allow and disallow rules
+     * of the record for the given user agent and of the <em>*</em> record are compiled into a {@link
+     * RobotsRuleMatcher} on the first check for this user agent.
+     *
+     * @param userAgent
+     *         The name of the user-agent to check if it passes the check
+     * @param url
+     *         The directory path of the URL to test against the rules
+     *
+     * @return Returns true if a URL passed the tests against the rules, false otherwise
+     */
+    private boolean checkRobotRulesForPath(String userAgent, String url)
+    {
+        RobotsRuleMatcher matcher = this.matchers.get(userAgent);
+        if (matcher == null)
+        {
+            matcher = this.compileMatcher(userAgent);
+            this.matchers.putIfAbsent(userAgent, matcher);
+        }
+
+        // the path might still contain the port of the URL
+        int start = url.indexOf('/');
+        if (start < 0)
+        {
+            return matcher.isAllowed("/");
+        }
+        return matcher.isAllowed(url, start);
+    }
+
+    private RobotsRuleMatcher compileMatcher(String userAgent)
+    {
+        Set<String> allowedSites = new LinkedHashSet<>();
+        Set<String> disallowedSites = new LinkedHashSet<>();
+        for (RobotsTxtRecord record : new RobotsTxtRecord[] {this.getRecord(userAgent), records.get("*")})
+        {
+            if (record != null)
+            {
+                allowedSites.addAll(record.getAllowedPathSegments());
+                disallowedSites.addAll(record.getDisallowedPathSegments());
+            }
+        }
+        if (allowedSites.isEmpty() && disallowedSites.isEmpty())
+        {
+            return RobotsRuleMatcher.ALLOW_ALL;
+        }
+        return new RobotsRuleMatcher(allowedSites, disallowedSites);
     }
 }
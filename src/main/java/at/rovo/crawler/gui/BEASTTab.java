@@ -1,8 +1,17 @@
 package at.rovo.crawler.gui;
 
+import at.rovo.crawler.bean.BEASTStatistics;
+import at.rovo.crawler.gui.events.BEASTEventListener;
+import java.awt.BorderLayout;
+import java.util.Map;
+import javax.swing.BorderFactory;
+import javax.swing.Box;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
 
-public class BEASTTab extends JPanel
+public class BEASTTab extends JPanel implements BEASTEventListener
 {
 
     /**
@@ -10,4 +19,115 @@ public class BEASTTab extends JPanel
      */
     private static final long serialVersionUID = -313726733197344652L;
 
+    private JLabel numQueues = new JLabel("0");
+    private JLabel currentQueue = new JLabel("0");
+    private JLabel leftOverSize = new JLabel("0");
+    private JLabel admissionsPerSecond = new JLabel("0");
+    private JLabel drainsPerSecond = new JLabel("0");
+    private JTextArea queueSizes = new JTextArea(8, 20);
+    private JTextArea topDeferredPLDs = new JTextArea(10, 40);
+
+    public BEASTTab()
+    {
+        this.setLayout(new BorderLayout());
+        this.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+        Manager.getInstance().registerForBeastEvents(this);
+
+        this.add(this.initBEASTStatistics(), BorderLayout.NORTH);
+
+        this.queueSizes.setEditable(false);
+        this.topDeferredPLDs.setEditable(false);
+        JPanel details = new JPanel(new BorderLayout());
+        JScrollPane queueSizesPane = new JScrollPane(this.queueSizes);
+        queueSizesPane.setBorder(BorderFactory.createTitledBorder("URLs per queue"));
+        details.add(queueSizesPane, BorderLayout.WEST);
+        JScrollPane topDeferredPane = new JScrollPane(this.topDeferredPLDs);
+        topDeferredPane.setBorder(BorderFactory.createTitledBorder("Top deferred PLDs"));
+        details.add(topDeferredPane, BorderLayout.CENTER);
+        this.add(details, BorderLayout.CENTER);
+    }
+
+    public JPanel initBEASTStatistics()
+    {
+        // create a title border
+        JPanel infoSection = new JPanel();
+        infoSection.setLayout(new BorderLayout());
+        infoSection.setBorder(BorderFactory.createTitledBorder(""));
+
+        // create a inner border which has a 10 pixel boundary on every end
+        JPanel innerBorder = new JPanel();
+        innerBorder.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        innerBorder.setLayout(new BorderLayout());
+
+        Box line = Box.createVerticalBox();
+
+        Box box = Box.createHorizontalBox();
+        box.add(new JLabel("Number of queues:"));
+        box.add(Box.createGlue());
+        box.add(this.numQueues);
+        line.add(box);
+
+        box = Box.createHorizontalBox();
+        box.add(new JLabel("Current queue:"));
+        box.add(Box.createGlue());
+        box.add(this.currentQueue);
+        line.add(box);
+
+        box = Box.createHorizontalBox();
+        box.add(new JLabel("Number of URLs in left-over queue:"));
+        box.add(Box.createGlue());
+        box.add(this.leftOverSize);
+        line.add(box);
+
+        box = Box.createHorizontalBox();
+        box.add(new JLabel(" "));
+        box.add(Box.createGlue());
+        line.add(box);
+
+        box = Box.createHorizontalBox();
+        box.add(new JLabel("URLs admitted per second:"));
+        box.add(Box.createGlue());
+        box.add(this.admissionsPerSecond);
+        line.add(box);
+
+        box = Box.createHorizontalBox();
+        box.add(new JLabel("URLs drained per second:"));
+        box.add(Box.createGlue());
+        box.add(this.drainsPerSecond);
+        line.add(box);
+
+        innerBorder.add(line);
+
+        infoSection.add(innerBorder, BorderLayout.NORTH);
+
+        return infoSection;
+    }
+
+    @Override
+    public void statisticsChanged(final BEASTStatistics statistics)
+    {
+        this.numQueues.setText("" + statistics.getNumberOfQueues());
+        this.currentQueue.setText("" + statistics.getCurrentQueue());
+        this.leftOverSize.setText("" + statistics.getLeftOverSize());
+        this.admissionsPerSecond.setText(String.format("%.1f", statistics.getAdmissionsPerSecond()));
+        this.drainsPerSecond.setText(String.format("%.1f", statistics.getDrainsPerSecond()));
+
+        StringBuilder sb = new StringBuilder();
+        int[] sizes = statistics.getQueueSizes();
+        for (int i = 0; i < sizes.length; i++)
+        {
+            sb.append(i == statistics.getCurrentQueue() ? "> " : "  ").append(i).append(": ").append(sizes[i])
+              .append("\n");
+        }
+        this.queueSizes.setText(sb.toString());
+
+        sb = new StringBuilder();
+        for (Map.Entry<String, Long> pld : statistics.getTopDeferredPLDs().entrySet())
+        {
+            sb.append(pld.getValue()).append("\t").append(pld.getKey()).append("\n");
+        }
+        this.topDeferredPLDs.setText(sb.toString());
+        this.repaint();
+    }
 }
@@ -2,6 +2,7 @@ package at.rovo.crawler.gui;
 
 import at.rovo.drum.event.DrumEvent;
 import at.rovo.crawler.IRLbot;
+import at.rovo.crawler.bean.BEASTStatistics;
 import at.rovo.crawler.gui.events.BEASTEventListener;
 import at.rovo.crawler.gui.events.IRLbotCreationListener;
 import at.rovo.crawler.gui.events.IRLbotEventListener;
@@ -12,6 +13,7 @@ import at.rovo.crawler.gui.events.URLseenEventListener;
 import at.rovo.crawler.interfaces.IRLbotListener;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import javax.swing.Timer;
 
 @SuppressWarnings("unused")
 public class Manager implements IRLbotListener
@@ -19,6 +21,7 @@ public class Manager implements IRLbotListener
     private static Manager INSTANCE = null;
     private IRLbot crawler = null;
     private Thread crawlerThread = null;
+    private Timer beastStatisticsTimer = null;
     private Set<IRLbotEventListener> irlbotEventListeners = new CopyOnWriteArraySet<>();
     private Set<URLseenEventListener> urlseenEventListeners = new CopyOnWriteArraySet<>();
     private Set<STAREventListener> starEventListeners = new CopyOnWriteArraySet<>();
@@ -62,6 +65,16 @@ public class Manager implements IRLbotListener
             this.crawlerThread.start();
         }
 
+        // BEAST statistics are read from counters, so they are polled instead of being pushed on every change
+        if (this.beastStatisticsTimer == null)
+        {
+            this.beastStatisticsTimer = new Timer(1000, e -> {
+                BEASTStatistics statistics = this.crawler.getBEASTStatistics();
+                this.beastEventListeners.forEach(listener -> listener.statisticsChanged(statistics));
+            });
+            this.beastStatisticsTimer.start();
+        }
+
         this.irlbotCreationListener.forEach(IRLbotCreationListener::irlbotCreated);
 
         return this.crawlerThread;
@@ -1,6 +1,8 @@
 package at.rovo.crawler.gui.events;
 
+import at.rovo.crawler.bean.BEASTStatistics;
+
 public interface BEASTEventListener
 {
-
+    void statisticsChanged(BEASTStatistics statistics);
 }
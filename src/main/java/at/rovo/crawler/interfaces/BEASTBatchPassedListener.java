@@ -0,0 +1,21 @@
+package at.rovo.crawler.interfaces;
+
+import at.rovo.crawler.bean.CrawlUrl;
+import java.util.List;
+
+/**
+ * The listener interface for receiving notifications on the budget passing of URLs in batches. The class that is
+ * interested in processing these notifications hast to implement this interface, and the object created with that class
+ * is registered with a component, using the component's <code>addBEASTBatchPassedListener</code> method. When a queue
+ * got drained, that object's {@link #handleBatchPassed(List)} method is invoked once with all URLs of the drained queue.
+ */
+public interface BEASTBatchPassedListener
+{
+    /**
+     * Indicates that the given <em>urls</em> have passed the budget check.
+     *
+     * @param urls
+     *         The URLs of a drained queue that passed the budget check. The list must not be modified by the receiver
+     */
+    void handleBatchPassed(List<CrawlUrl> urls);
+}
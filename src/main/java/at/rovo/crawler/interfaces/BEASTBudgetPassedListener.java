@@ -1,10 +1,12 @@
 package at.rovo.crawler.interfaces;
 
+import at.rovo.crawler.bean.CrawlUrl;
+
 /**
  * The listener interface for receiving notifications on the budget passing of URLs. The class that is interested in
  * processing these notifications hast to implement this interface, and the object created with that class is registered
  * with a component, using the component's <code>addBEASTBudgetPassedListener</code> method. When the notification
- * occurs, that object's {@link #handleBudgetPassed(String)} method is invoked.
+ * occurs, that object's {@link #handleBudgetPassed(CrawlUrl)} method is invoked.
  */
 public interface BEASTBudgetPassedListener
 {
@@ -14,5 +16,5 @@ public interface BEASTBudgetPassedListener
      * @param url
      *         The URL that passed the budget check
      */
-    void handleBudgetPassed(String url);
+    void handleBudgetPassed(CrawlUrl url);
 }
@@ -0,0 +1,62 @@
+package at.rovo.crawler.interfaces;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link at.rovo.crawler.BEAST} which exposes its queue statistics via JMX. All values
+ * are read from counters and do not block the crawler.
+ *
+ * @author Roman Vottner
+ */
+public interface BEASTMXBean
+{
+    /**
+     * Returns the current number of queues, excluding the left-over queue.
+     *
+     * @return The number of queues
+     */
+    int getNumberOfQueues();
+
+    /**
+     * Returns the index of the queue currently read from.
+     *
+     * @return The index of the current queue
+     */
+    int getCurrentQueue();
+
+    /**
+     * Returns the number of URLs contained in each queue. The n-th entry belongs to the n-th queue.
+     *
+     * @return The number of URLs per queue
+     */
+    int[] getQueueSizes();
+
+    /**
+     * Returns the number of URLs which did not fit into any queue and wait in the left-over queue.
+     *
+     * @return The size of the left-over queue
+     */
+    int getLeftOverSize();
+
+    /**
+     * Returns the number of URLs added per second, measured since the previous sample.
+     *
+     * @return The admission rate
+     */
+    double getAdmissionsPerSecond();
+
+    /**
+     * Returns the number of URLs passed on from drained queues per second, measured since the previous sample.
+     *
+     * @return The drain rate
+     */
+    double getDrainsPerSecond();
+
+    /**
+     * Returns the pay level domains with the most URLs deferred to the left-over queue and their estimated number of
+     * deferred URLs. The estimates may exceed, but never fall below, the actual numbers.
+     *
+     * @return The top deferred pay level domains in descending order
+     */
+    Map<String, Long> getTopDeferredPLDs();
+}
@@ -1,10 +1,12 @@
 package at.rovo.crawler.interfaces;
 
+import at.rovo.crawler.bean.CrawlUrl;
+
 /**
  * The listener interface for receiving a spam check request. The class that is interested in processing these spam
  * check requests needs to implement this interface, and the object created with that class is registered with a
  * component, using the component's <code>addCheckSpamListener</code> method. When the spam check request occurs, that
- * object's {@link #handleSpamCheck(String, int)} method is invoked.
+ * object's {@link #handleSpamCheck(CrawlUrl, int)} method is invoked.
  */
 public interface CheckSpamUrlListener
 {
@@ -18,5 +20,5 @@ public interface CheckSpamUrlListener
      *         The current budget available for the host of the URL. If to many pages have been crawled from a not so
      *         famous page, further crawling of pages on that site should be reduced or stopped in general
      */
-    void handleSpamCheck(String url, int budget);
+    void handleSpamCheck(CrawlUrl url, int budget);
 }
@@ -0,0 +1,74 @@
+package at.rovo.crawler.interfaces;
+
+/**
+ * The management interface of {@link at.rovo.crawler.DnsResolver} which exposes the efficiency of the DNS cache via
+ * JMX.
+ *
+ * @author Roman Vottner
+ */
+public interface DnsResolverMXBean
+{
+    /**
+     * Returns the maximum number of hosts whose resolution is kept in memory.
+     *
+     * @return The capacity of the cache
+     */
+    int getCapacity();
+
+    /**
+     * Returns the number of hosts whose resolution is currently kept in memory, including expired entries which were
+     * not accessed since they expired.
+     *
+     * @return The current size of the cache
+     */
+    int getSize();
+
+    /**
+     * Returns the number of resolutions answered with a cached address.
+     *
+     * @return The number of positive cache hits
+     */
+    long getHits();
+
+    /**
+     * Returns the number of resolutions answered with a cached negative result.
+     *
+     * @return The number of negative cache hits
+     */
+    long getNegativeHits();
+
+    /**
+     * Returns the number of lookups issued to the resolver as no valid cached result was available.
+     *
+     * @return The number of cache misses
+     */
+    long getMisses();
+
+    /**
+     * Returns the number of resolutions which joined a lookup for the same host which was already running.
+     *
+     * @return The number of coalesced resolutions
+     */
+    long getCoalesced();
+
+    /**
+     * Returns the number of lookups which failed due to a network or server failure.
+     *
+     * @return The number of failed lookups
+     */
+    long getFailures();
+
+    /**
+     * Returns the number of entries removed as the capacity of the cache was exceeded.
+     *
+     * @return The number of evicted entries
+     */
+    long getEvictions();
+
+    /**
+     * Returns the ratio of positive and negative hits to all resolutions.
+     *
+     * @return The hit rate between 0 and 1, or 0 if nothing was resolved yet
+     */
+    double getHitRate();
+}
@@ -0,0 +1,28 @@
+package at.rovo.crawler.interfaces;
+
+import at.rovo.crawler.bean.ResolvedHost;
+import java.io.IOException;
+
+/**
+ * A strategy which resolves the name of a host to its IP address. Implementations may block until the address is
+ * known, as they are invoked by the threads of {@link at.rovo.crawler.DnsResolver}, which caches their results.
+ *
+ * @author Roman Vottner
+ */
+@FunctionalInterface
+public interface HostResolver
+{
+    /**
+     * Resolves the given host.
+     *
+     * @param hostName
+     *         The name of the host without scheme and port, f.e. <em>www.tuwien.ac.at</em>
+     *
+     * @return The resolved host, which is {@link ResolvedHost#isResolved() unresolved} if the host does not exist or has
+     * no address
+     *
+     * @throws IOException
+     *         If the host could not be resolved due to a network or server failure
+     */
+    ResolvedHost resolve(String hostName) throws IOException;
+}
@@ -0,0 +1,94 @@
+package at.rovo.crawler.interfaces;
+
+import at.rovo.crawler.util.DrumKeyHasher;
+import at.rovo.crawler.util.Utf8KeyHasher;
+
+/**
+ * A strategy which calculates the 64 bit keys of the entries stored in the backing <em>DRUM</em> caches, like the keys
+ * of URLs in <em>URLseen</em>, of pay level domains in <em>STAR</em> and of hostnames in <em>RobotsCache</em> and
+ * <em>RobotsRequested</em>.
+ * <p>
+ * All components of a crawler have to calculate their keys with the same strategy. It is therefore configured once per
+ * process via the system property {@value #KEY_HASHER_PROPERTY}, which contains the fully qualified name of an
+ * implementation with a public no-argument constructor. Changing the strategy changes all keys, so caches persisted
+ * with a different strategy can not be used anymore.
+ *
+ * @author Roman Vottner
+ */
+@FunctionalInterface
+public interface KeyHasher
+{
+    /** The system property containing the class name of the strategy returned by {@link #getDefault()} **/
+    String KEY_HASHER_PROPERTY = "irlbot.keyHasher";
+
+    /**
+     * Calculates the key of the given range of characters.
+     *
+     * @param value
+     *         The characters to calculate the key for
+     * @param start
+     *         The index of the first character to include
+     * @param end
+     *         The index after the last character to include
+     *
+     * @return The 64 bit key of the range
+     */
+    long hash(CharSequence value, int start, int end);
+
+    /**
+     * Calculates the key of the given characters.
+     *
+     * @param value
+     *         The characters to calculate the key for
+     *
+     * @return The 64 bit key of the characters
+     */
+    default long hash(CharSequence value)
+    {
+        return this.hash(value, 0, value.length());
+    }
+
+    /**
+     * Returns the strategy configured via the system property {@value #KEY_HASHER_PROPERTY}. If the property is not
+     * set, the {@link Utf8KeyHasher} is used. Use {@link DrumKeyHasher} to access caches persisted before keys were
+     * calculated by this strategy.
+     *
+     * @return The configured strategy
+     */
+    static KeyHasher getDefault()
+    {
+        return DefaultKeyHasher.INSTANCE;
+    }
+
+    /**
+     * Creates the configured strategy on first access.
+     */
+    final class DefaultKeyHasher
+    {
+        private final static KeyHasher INSTANCE;
+
+        static
+        {
+            String className = System.getProperty(KEY_HASHER_PROPERTY);
+            if (className == null)
+            {
+                INSTANCE = new Utf8KeyHasher();
+            }
+            else
+            {
+                try
+                {
+                    INSTANCE = (KeyHasher) Class.forName(className).getConstructor().newInstance();
+                }
+                catch (ReflectiveOperationException | ClassCastException ex)
+                {
+                    throw new IllegalStateException("Could not create key hasher " + className, ex);
+                }
+            }
+        }
+
+        private DefaultKeyHasher()
+        {
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package at.rovo.crawler.interfaces;
+
+/**
+ * The management interface of {@link at.rovo.crawler.PolitenessGate} which exposes how often fetches had to wait for
+ * the crawl delays of pay level domains and IP addresses via JMX.
+ *
+ * @author Roman Vottner
+ */
+public interface PolitenessGateMXBean
+{
+    /**
+     * Returns the minimum time in milliseconds between two fetches from the same IP address.
+     *
+     * @return The delay per IP address
+     */
+    long getIPDelay();
+
+    /**
+     * Returns the number of pay level domains whose last fetch is tracked, including the ones which were not evicted
+     * yet though their last fetch is older than any crawl delay.
+     *
+     * @return The number of tracked pay level domains
+     */
+    int getNumPLDs();
+
+    /**
+     * Returns the number of IP addresses whose last fetch is tracked, including the ones which were not evicted yet
+     * though their last fetch is older than the delay per IP address.
+     *
+     * @return The number of tracked IP addresses
+     */
+    int getNumIPs();
+
+    /**
+     * Returns the number of pay level domains and IP addresses which were dropped as their last fetch was older than
+     * any delay.
+     *
+     * @return The number of evicted entries
+     */
+    long getEvictions();
+
+    /**
+     * Returns the number of fetches which were allowed to start.
+     *
+     * @return The number of granted fetches
+     */
+    long getGranted();
+
+    /**
+     * Returns the number of fetches which were deferred as their pay level domain was fetched too recently.
+     *
+     * @return The number of fetches deferred by the crawl delay of the pay level domain
+     */
+    long getPLDDeferrals();
+
+    /**
+     * Returns the number of fetches which were deferred as the IP address of their host was fetched too recently,
+     * though their pay level domain could have been fetched.
+     *
+     * @return The number of fetches deferred by the delay per IP address
+     */
+    long getIPDeferrals();
+}
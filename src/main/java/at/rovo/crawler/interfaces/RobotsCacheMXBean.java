@@ -0,0 +1,60 @@
+package at.rovo.crawler.interfaces;
+
+/**
+ * The management interface of {@link at.rovo.crawler.RobotsCache} which exposes the efficiency of the in-memory host
+ * data kept in front of its <em>DRUM</em> structure via JMX.
+ *
+ * @author Roman Vottner
+ */
+public interface RobotsCacheMXBean
+{
+    /**
+     * Returns the number of configured in memory buffers and disk bucket files used by the backing <em>DRUM</em>
+     * instance.
+     *
+     * @return The number of disk bucket files used by the backing cache
+     */
+    int getNumberOfBuckets();
+
+    /**
+     * Returns the maximum number of hosts whose host data is kept in memory.
+     *
+     * @return The capacity of the in-memory host data
+     */
+    int getHotHostCapacity();
+
+    /**
+     * Returns the number of hosts whose host data is currently kept in memory.
+     *
+     * @return The number of hot hosts
+     */
+    int getHotHostCount();
+
+    /**
+     * Returns the number of checks which were answered by the in-memory host data without querying <em>DRUM</em>.
+     *
+     * @return The number of hot host hits
+     */
+    long getHotHostHits();
+
+    /**
+     * Returns the number of checks which had to be forwarded to <em>DRUM</em>.
+     *
+     * @return The number of hot host misses
+     */
+    long getHotHostMisses();
+
+    /**
+     * Returns the ratio of hot host hits to all checks.
+     *
+     * @return The hit rate between 0 and 1, or 0 if no check was performed yet
+     */
+    double getHotHostHitRate();
+
+    /**
+     * Returns the number of hosts whose check was forwarded to <em>DRUM</em> and is waiting for its answer.
+     *
+     * @return The number of pending checks
+     */
+    int getPendingChecks();
+}
@@ -1,5 +1,6 @@
 package at.rovo.crawler.interfaces;
 
+import at.rovo.crawler.bean.CrawlUrl;
 import at.rovo.crawler.bean.HostData;
 
 /**
@@ -8,8 +9,8 @@ import at.rovo.crawler.bean.HostData;
  * available yet. The class that is interested in processing these notifications has to implement this interface, and
  * the object created with that class is registered with a component, using the component's
  * <code>addRobotsCachePassedListener</code> method. When a notification on the successful check against the
- * <em>robots.txt</em> occurs, that object's {@link #handleURLsPassed(String, HostData)} method is invoked. In cases no
- * <em>robots.txt</em> is available, that object's {@link #handleUnableToCheck(String)} method will be invoked. If a URL
+ * <em>robots.txt</em> occurs, that object's {@link #handleURLsPassed(CrawlUrl, HostData)} method is invoked. In cases no
+ * <em>robots.txt</em> is available, that object's {@link #handleUnableToCheck(CrawlUrl)} method will be invoked. If a URL
  * violated against an available <em>robots.txt</em> file, it will be silently ignored.
  */
 public interface RobotsCachePassedListener
@@ -22,7 +23,7 @@ public interface RobotsCachePassedListener
      * @param hostData
      *         Some data attached to the URL
      */
-    void handleURLsPassed(String url, HostData hostData);
+    void handleURLsPassed(CrawlUrl url, HostData hostData);
 
     /**
      * Indicates that the given <em>URL</em> could not get checked against a <em>robots.txt</em> file as the file is not
@@ -31,5 +32,5 @@ public interface RobotsCachePassedListener
      * @param url
      *         The <em>URL</em> that could not get check against the <em>robots.txt</em> file
      */
-    void handleUnableToCheck(String url);
+    void handleUnableToCheck(CrawlUrl url);
 }
@@ -0,0 +1,59 @@
+package at.rovo.crawler.interfaces;
+
+/**
+ * The management interface of {@link at.rovo.crawler.RobotsRuleCache} which exposes the efficiency of the cache of
+ * compiled <em>robots.txt</em> rules via JMX.
+ *
+ * @author Roman Vottner
+ */
+public interface RobotsRuleCacheMXBean
+{
+    /**
+     * Returns the maximum number of hosts whose compiled rules are kept in memory.
+     *
+     * @return The capacity of the cache
+     */
+    int getCapacity();
+
+    /**
+     * Returns the number of hosts whose compiled rules are currently kept in memory.
+     *
+     * @return The current size of the cache
+     */
+    int getSize();
+
+    /**
+     * Returns the number of lookups which could be answered by already compiled rules.
+     *
+     * @return The number of cache hits
+     */
+    long getHits();
+
+    /**
+     * Returns the number of lookups which required the <em>robots.txt</em> rules to be decoded.
+     *
+     * @return The number of cache misses
+     */
+    long getMisses();
+
+    /**
+     * Returns the number of entries removed as the capacity of the cache was exceeded.
+     *
+     * @return The number of evicted entries
+     */
+    long getEvictions();
+
+    /**
+     * Returns the number of entries removed as a new <em>robots.txt</em> file was stored for their host.
+     *
+     * @return The number of invalidated entries
+     */
+    long getInvalidations();
+
+    /**
+     * Returns the ratio of hits to all lookups.
+     *
+     * @return The hit rate between 0 and 1, or 0 if no lookup was performed yet
+     */
+    double getHitRate();
+}
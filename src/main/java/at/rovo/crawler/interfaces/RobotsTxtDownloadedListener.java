@@ -0,0 +1,21 @@
+package at.rovo.crawler.interfaces;
+
+import at.rovo.crawler.bean.HostData;
+
+/**
+ * The listener interface for receiving downloaded <em>robots.txt</em> rules. The class that is interested in storing
+ * downloaded rules implements this interface. The object created with that class is registered with a component using
+ * the component's <code>addRobotsTxtDownloadedListener</code> method. When the download of a <em>robots.txt</em> file
+ * completed, that object's {@link #handleRobotsTxtDownloaded(HostData)} method is invoked.
+ */
+public interface RobotsTxtDownloadedListener
+{
+    /**
+     * Indicates that the download of the <em>robots.txt</em> file of a host completed.
+     *
+     * @param hostData
+     *         The host data containing the downloaded rules or no rules if the host has no robots.txt file or could
+     *         not be reached
+     */
+    void handleRobotsTxtDownloaded(HostData hostData);
+}
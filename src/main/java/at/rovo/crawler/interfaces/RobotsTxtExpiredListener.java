@@ -0,0 +1,20 @@
+package at.rovo.crawler.interfaces;
+
+import at.rovo.crawler.bean.HostData;
+
+/**
+ * The listener interface for receiving notifications about cached <em>robots.txt</em> rules which expired. The class
+ * that is interested in refreshing expired rules implements this interface. The object created with that class is
+ * registered with a component using the component's <code>addRobotsTxtExpiredListener</code> method. When a URL was
+ * checked against expired rules, that object's {@link #handleRobotsTxtExpired(HostData)} method is invoked.
+ */
+public interface RobotsTxtExpiredListener
+{
+    /**
+     * Indicates that the <em>robots.txt</em> rules of the given host expired and should be fetched again.
+     *
+     * @param hostData
+     *         The host data containing the expired rules
+     */
+    void handleRobotsTxtExpired(HostData hostData);
+}
@@ -0,0 +1,21 @@
+package at.rovo.crawler.interfaces;
+
+import at.rovo.crawler.bean.HostData;
+
+/**
+ * The listener interface for receiving refreshed <em>robots.txt</em> rules. The class that is interested in storing
+ * refreshed rules implements this interface. The object created with that class is registered with a component using
+ * the component's <code>addRobotsTxtRefreshedListener</code> method. When the <em>robots.txt</em> file of a host was
+ * fetched again, that object's {@link #handleRobotsTxtRefreshed(HostData)} method is invoked.
+ */
+public interface RobotsTxtRefreshedListener
+{
+    /**
+     * Indicates that the <em>robots.txt</em> file of a host was fetched again.
+     *
+     * @param hostData
+     *         The host data containing either the new rules or, if the file did not change, the previous rules with a
+     *         new expiration time
+     */
+    void handleRobotsTxtRefreshed(HostData hostData);
+}
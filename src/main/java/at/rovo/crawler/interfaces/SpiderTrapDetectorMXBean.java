@@ -0,0 +1,68 @@
+package at.rovo.crawler.interfaces;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link at.rovo.crawler.SpiderTrapDetector} which exposes its settings and how many URLs
+ * were flagged as part of a spider trap via JMX.
+ *
+ * @author Roman Vottner
+ */
+public interface SpiderTrapDetectorMXBean
+{
+    /**
+     * Returns the maximum number of path segments of a URL. Deeper URLs are dropped.
+     *
+     * @return The maximum depth of a path
+     */
+    int getMaxDepth();
+
+    /**
+     * Returns the number of occurrences of a path segment or query parameter which lets a URL be dropped.
+     *
+     * @return The maximum number of repetitions
+     */
+    int getMaxRepeats();
+
+    /**
+     * Returns the number of new URLs of a URL family after which the family is flagged.
+     *
+     * @return The number of new URLs a family may produce unrestricted
+     */
+    int getFamilyThreshold();
+
+    /**
+     * Returns every how many new URLs of a flagged family one is still passed on.
+     *
+     * @return The sample rate of flagged families
+     */
+    int getSampleRate();
+
+    /**
+     * Returns the number of checked URLs.
+     *
+     * @return The number of checked URLs
+     */
+    long getChecked();
+
+    /**
+     * Returns the number of URLs which were not passed on.
+     *
+     * @return The number of dropped URLs
+     */
+    long getDropped();
+
+    /**
+     * Returns the number of URLs of flagged families which were passed on nevertheless.
+     *
+     * @return The number of sampled URLs
+     */
+    long getSampled();
+
+    /**
+     * Returns the number of new URLs flagged per reason, f.e. <em>repeatedSegments</em> or <em>urlFamily</em>.
+     *
+     * @return The number of flagged URLs per reason
+     */
+    Map<String, Long> getFlags();
+}
@@ -0,0 +1,25 @@
+package at.rovo.crawler.interfaces;
+
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.bean.HostData;
+import java.util.List;
+
+/**
+ * The listener interface for receiving URLs of hosts which could not be reached on the last attempt to fetch their
+ * <em>robots.txt</em> file. The class that is interested in handling these URLs implements this interface. The object
+ * created with that class is registered with a component using the component's <code>addUnreachableHostListener</code>
+ * method. When URLs of an unreachable host were checked, that object's {@link #handleUnreachableHost(List, HostData)}
+ * method is invoked.
+ */
+public interface UnreachableHostListener
+{
+    /**
+     * Indicates that the given URLs belong to a host which is currently backed off as it could not be reached.
+     *
+     * @param urls
+     *         The URLs of the unreachable host
+     * @param hostData
+     *         The host data containing the number of failures and the end of the backoff
+     */
+    void handleUnreachableHost(List<CrawlUrl> urls, HostData hostData);
+}
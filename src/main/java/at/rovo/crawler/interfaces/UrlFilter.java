@@ -0,0 +1,30 @@
+package at.rovo.crawler.interfaces;
+
+import at.rovo.crawler.bean.CrawlUrl;
+
+/**
+ * A filter which decides whether a URL extracted from a crawled page should be passed on to the DRUM stages at all.
+ * Filters are combined in a {@link at.rovo.crawler.UrlFilterChain}, which counts the URLs rejected by each filter under
+ * its name. Filters are invoked concurrently by all crawling threads and must therefore be thread-safe.
+ *
+ * @author Roman Vottner
+ */
+public interface UrlFilter
+{
+    /**
+     * Returns the name the URLs rejected by this filter are counted under.
+     *
+     * @return The name of the filter
+     */
+    String getName();
+
+    /**
+     * Checks whether the given URL should be crawled.
+     *
+     * @param url
+     *         The extracted URL
+     *
+     * @return true if the URL passes this filter; false if it should be dropped
+     */
+    boolean accept(CrawlUrl url);
+}
@@ -0,0 +1,40 @@
+package at.rovo.crawler.interfaces;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link at.rovo.crawler.UrlFilterChain} which exposes how many extracted URLs were kept
+ * out of the DRUM stages by each filter via JMX.
+ *
+ * @author Roman Vottner
+ */
+public interface UrlFilterChainMXBean
+{
+    /**
+     * Returns the names of the filters in the order they are applied.
+     *
+     * @return The names of the filters
+     */
+    String[] getFilterNames();
+
+    /**
+     * Returns the number of URLs which passed all filters.
+     *
+     * @return The number of accepted URLs
+     */
+    long getAccepted();
+
+    /**
+     * Returns the number of URLs which were rejected by any filter.
+     *
+     * @return The number of rejected URLs
+     */
+    long getRejected();
+
+    /**
+     * Returns the number of URLs rejected per filter name. A URL is only counted for the first filter rejecting it.
+     *
+     * @return The number of rejected URLs per filter
+     */
+    Map<String, Long> getRejections();
+}
@@ -0,0 +1,155 @@
+package at.rovo.crawler.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Checks whether a range of characters contains any of a set of substrings in a single pass, no matter how many
+ * substrings are searched for.
+ * <p>
+ * The substrings are compiled into an Aho-Corasick automaton whose transitions, including the ones following the
+ * failure links, are resolved into a complete table with one row per state. Searching a range therefore takes exactly
+ * one table lookup per character. The table covers the ASCII characters; all other characters share one column, so
+ * substrings are expected to consist of ASCII characters, like the ones of canonical URLs.
+ * <p>
+ * Characters are compared case-insensitively.
+ *
+ * @author Roman Vottner
+ */
+public final class AhoCorasickMatcher
+{
+    /** The number of columns of the transition table: the ASCII characters and one column for all others **/
+    private final static int ALPHABET = 129;
+
+    /** The next state per state and character class **/
+    private final int[] transitions;
+    /** Marks the states which complete a substring, either directly or via their failure links **/
+    private final boolean[] accepting;
+
+    /**
+     * Compiles the given substrings into a new instance. Empty substrings are ignored.
+     *
+     * @param substrings
+     *         The substrings to search for
+     */
+    public AhoCorasickMatcher(Iterable<String> substrings)
+    {
+        // build the trie with -1 marking missing transitions
+        int[] trie = new int[16 * ALPHABET];
+        boolean[] ends = new boolean[16];
+        Arrays.fill(trie, -1);
+        int numStates = 1;
+        for (String substring : substrings)
+        {
+            if (substring.isEmpty())
+            {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < substring.length(); i++)
+            {
+                int c = classOf(substring.charAt(i));
+                int next = trie[state * ALPHABET + c];
+                if (next < 0)
+                {
+                    if (numStates == ends.length)
+                    {
+                        ends = Arrays.copyOf(ends, numStates * 2);
+                        int oldLength = trie.length;
+                        trie = Arrays.copyOf(trie, oldLength * 2);
+                        Arrays.fill(trie, oldLength, trie.length, -1);
+                    }
+                    next = numStates++;
+                    trie[state * ALPHABET + c] = next;
+                }
+                state = next;
+            }
+            ends[state] = true;
+        }
+
+        // resolve the failure links breadth-first into complete transitions
+        this.transitions = Arrays.copyOf(trie, numStates * ALPHABET);
+        this.accepting = Arrays.copyOf(ends, numStates);
+        int[] failure = new int[numStates];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++)
+        {
+            int next = this.transitions[c];
+            if (next < 0)
+            {
+                this.transitions[c] = 0;
+            }
+            else
+            {
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty())
+        {
+            int state = queue.poll();
+            this.accepting[state] |= this.accepting[failure[state]];
+            for (int c = 0; c < ALPHABET; c++)
+            {
+                int index = state * ALPHABET + c;
+                int next = this.transitions[index];
+                int fallback = this.transitions[failure[state] * ALPHABET + c];
+                if (next < 0)
+                {
+                    this.transitions[index] = fallback;
+                }
+                else
+                {
+                    failure[next] = fallback;
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given range contains any of the substrings.
+     *
+     * @param chars
+     *         The sequence to search
+     * @param start
+     *         The index of the first character of the range
+     * @param end
+     *         The index after the last character of the range
+     *
+     * @return true if a substring was found; false otherwise
+     */
+    public boolean find(CharSequence chars, int start, int end)
+    {
+        int state = 0;
+        for (int i = start; i < end; i++)
+        {
+            state = this.transitions[state * ALPHABET + classOf(chars.charAt(i))];
+            if (this.accepting[state])
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of states of the compiled automaton.
+     *
+     * @return The number of states including the initial state
+     */
+    public int getNumStates()
+    {
+        return this.accepting.length;
+    }
+
+    private static int classOf(char c)
+    {
+        if (c >= 'A' && c <= 'Z')
+        {
+            return c + 32;
+        }
+        return c < 128 ? c : 128;
+    }
+}
@@ -0,0 +1,276 @@
+package at.rovo.crawler.util;
+
+import at.rovo.crawler.bean.CrawlUrl;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A first-in-first-out queue of URLs which keeps the URLs in a {@link CompactUrlStore} and only holds their handles
+ * in a ring buffer. Each URL carries an additional int value, like the budget BEAST assigned to the URL.
+ * <p>
+ * URLs are only decoded when they are taken from the queue or read via {@link #get(int)}. Moving URLs between queues
+ * of the same store via {@link #transferTo(CompactUrlQueue)} does not decode them at all.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Roman Vottner
+ */
+public final class CompactUrlQueue
+{
+    /** The initial capacity of the ring buffer **/
+    private final static int INITIAL_CAPACITY = 16;
+
+    /** The store containing the URLs **/
+    private final CompactUrlStore store;
+    /** The handles of the queued URLs **/
+    private long[] handles = new long[INITIAL_CAPACITY];
+    /** The values of the queued URLs **/
+    private int[] values = new int[INITIAL_CAPACITY];
+    /** The index of the head of the queue **/
+    private int head = 0;
+    /** The number of queued URLs **/
+    private int size = 0;
+
+    /**
+     * Creates a new queue which keeps its URLs in the {@link CompactUrlStore#getDefault() shared store}.
+     */
+    public CompactUrlQueue()
+    {
+        this(CompactUrlStore.getDefault());
+    }
+
+    /**
+     * Creates a new queue.
+     *
+     * @param store
+     *         The store to keep the URLs in
+     */
+    public CompactUrlQueue(CompactUrlStore store)
+    {
+        this.store = store;
+    }
+
+    /**
+     * Adds a URL with a value of 0 to the tail of the queue.
+     *
+     * @param url
+     *         The URL to add
+     */
+    public void add(CrawlUrl url)
+    {
+        this.add(url, 0);
+    }
+
+    /**
+     * Adds a URL to the tail of the queue.
+     *
+     * @param url
+     *         The URL to add
+     * @param value
+     *         The value kept with the URL
+     */
+    public void add(CrawlUrl url, int value)
+    {
+        this.addHandle(this.store.put(url), value);
+    }
+
+    /**
+     * Returns the number of queued URLs.
+     *
+     * @return The size of the queue
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Indicates whether the queue contains no URLs.
+     *
+     * @return true if the queue is empty; false otherwise
+     */
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Returns the value of the URL at the head of the queue.
+     *
+     * @return The value of the head of the queue
+     *
+     * @throws NoSuchElementException
+     *         If the queue is empty
+     */
+    public int peekValue()
+    {
+        this.checkNotEmpty();
+        return this.values[this.head];
+    }
+
+    /**
+     * Decodes the URL at the given position without removing it.
+     *
+     * @param index
+     *         The position of the URL, 0 being the head of the queue
+     *
+     * @return The decoded URL
+     */
+    public CrawlUrl get(int index)
+    {
+        this.checkIndex(index);
+        return this.store.get(this.handles[this.slot(index)]);
+    }
+
+    /**
+     * Returns the value of the URL at the given position.
+     *
+     * @param index
+     *         The position of the URL, 0 being the head of the queue
+     *
+     * @return The value of the URL
+     */
+    public int getValue(int index)
+    {
+        this.checkIndex(index);
+        return this.values[this.slot(index)];
+    }
+
+    /**
+     * Removes the URL at the head of the queue and returns it.
+     *
+     * @return The decoded URL
+     *
+     * @throws NoSuchElementException
+     *         If the queue is empty
+     */
+    public CrawlUrl poll()
+    {
+        this.checkNotEmpty();
+        long handle = this.handles[this.head];
+        CrawlUrl url = this.store.get(handle);
+        this.store.release(handle);
+        this.removeHead();
+        return url;
+    }
+
+    /**
+     * Moves the URL at the head of this queue to the tail of the given queue without decoding it. Both queues need to
+     * use the same store.
+     *
+     * @param other
+     *         The queue to move the URL to
+     *
+     * @throws NoSuchElementException
+     *         If the queue is empty
+     */
+    public void transferTo(CompactUrlQueue other)
+    {
+        if (other.store != this.store)
+        {
+            throw new IllegalArgumentException("Queues need to share the same store");
+        }
+        this.checkNotEmpty();
+        other.addHandle(this.handles[this.head], this.values[this.head]);
+        this.removeHead();
+    }
+
+    /**
+     * Removes all URLs from the queue and returns them in their queued order.
+     *
+     * @return The decoded URLs
+     */
+    public List<CrawlUrl> drain()
+    {
+        List<CrawlUrl> urls = new ArrayList<>(this.size);
+        while (this.size > 0)
+        {
+            urls.add(this.poll());
+        }
+        return urls;
+    }
+
+    /**
+     * Removes all URLs from the queue without decoding them.
+     */
+    public void clear()
+    {
+        while (this.size > 0)
+        {
+            this.store.release(this.handles[this.head]);
+            this.removeHead();
+        }
+        this.head = 0;
+    }
+
+    private void addHandle(long handle, int value)
+    {
+        if (this.size == this.handles.length)
+        {
+            // unroll the ring buffer into a larger one
+            int capacity = this.handles.length * 2;
+            long[] handles = new long[capacity];
+            int[] values = new int[capacity];
+            int first = this.handles.length - this.head;
+            System.arraycopy(this.handles, this.head, handles, 0, first);
+            System.arraycopy(this.handles, 0, handles, first, this.head);
+            System.arraycopy(this.values, this.head, values, 0, first);
+            System.arraycopy(this.values, 0, values, first, this.head);
+            this.handles = handles;
+            this.values = values;
+            this.head = 0;
+        }
+        int tail = this.slot(this.size);
+        this.handles[tail] = handle;
+        this.values[tail] = value;
+        this.size++;
+    }
+
+    private void removeHead()
+    {
+        this.head = this.slot(1);
+        this.size--;
+        if (this.size == 0 && this.handles.length > INITIAL_CAPACITY)
+        {
+            // do not keep the buffer of a drained queue
+            this.handles = new long[INITIAL_CAPACITY];
+            this.values = new int[INITIAL_CAPACITY];
+            this.head = 0;
+        }
+    }
+
+    private int slot(int index)
+    {
+        int slot = this.head + index;
+        return slot < this.handles.length ? slot : slot - this.handles.length;
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= this.size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+    }
+
+    private void checkNotEmpty()
+    {
+        if (this.size == 0)
+        {
+            throw new NoSuchElementException("Queue is empty");
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        CrawlUrl[] urls = new CrawlUrl[this.size];
+        for (int i = 0; i < this.size; i++)
+        {
+            urls[i] = this.get(i);
+        }
+        return Arrays.toString(urls);
+    }
+}
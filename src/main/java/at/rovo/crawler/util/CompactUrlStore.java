@@ -0,0 +1,504 @@
+package at.rovo.crawler.util;
+
+import at.rovo.crawler.bean.CrawlUrl;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores the URLs held by the in-memory queues of the crawler in a compact form and hands out <em>handles</em> to them.
+ * <p>
+ * The part of a URL up to the end of its authority, f.e. <em>http://www.tuwien.ac.at</em>, is kept only once per host
+ * in a dictionary together with the offsets and hash values of the host and pay level domain. The remaining part of
+ * the URL is front coded against this host prefix and stored UTF-8 encoded in an arena of byte array chunks, followed
+ * by the hash value of the full URL. A stored URL therefore needs the bytes of its path and query and about 10 further
+ * bytes, while a queued {@link CrawlUrl} needs several String objects. Decoding a URL via {@link #get(long)} neither
+ * parses nor hashes the URL again.
+ * <p>
+ * A handle is only valid until it is {@link #release(long) released}. Chunks whose URLs got all released are handed
+ * back to the garbage collector, so URLs which stay queued for a long time keep their whole chunk alive. As the
+ * crawler queues are mostly first-in-first-out this only affects a small number of chunks.
+ * <p>
+ * Storing and releasing URLs is synchronized on the instance. Decoding a URL does not acquire any lock, as the bytes of
+ * an entry are not modified until its handle is released. A handle therefore needs to be passed on to other threads
+ * via a thread-safe structure like a concurrent queue.
+ *
+ * @author Roman Vottner
+ */
+public final class CompactUrlStore
+{
+    /** The default size of a chunk of the arena in bytes **/
+    public final static int DEFAULT_CHUNK_SIZE = 1 << 20;
+    /** The number of bytes of the hash value of the URL stored with each entry **/
+    private final static int HASH_BYTES = 8;
+
+    /** The size of a chunk of the arena in bytes **/
+    private final int chunkSize;
+    /** The chunks of the arena, unused slots are null **/
+    private volatile byte[][] chunks = new byte[4][];
+    /** The number of live entries per chunk **/
+    private int[] liveEntries = new int[4];
+    /** The indices of unused chunk slots **/
+    private final ArrayDeque<Integer> freeChunks = new ArrayDeque<>();
+    /** The next never used chunk slot **/
+    private int nextChunk = 0;
+    /** The index of the chunk new entries are written to **/
+    private int writeChunk = -1;
+    /** The position of the next entry within the chunk written to **/
+    private int writePosition = 0;
+
+    /** The host prefixes by their text **/
+    private final Map<String, HostPrefix> prefixes = new HashMap<>();
+    /** The host prefixes by their ID **/
+    private volatile HostPrefix[] prefixById = new HostPrefix[64];
+    /** The IDs of removed host prefixes which can be reused **/
+    private final ArrayDeque<Integer> freePrefixIds = new ArrayDeque<>();
+    /** The next never used host prefix ID **/
+    private int nextPrefixId = 0;
+
+    /** The number of live entries **/
+    private int numUrls = 0;
+    /** The number of bytes of the live entries **/
+    private long numBytes = 0;
+
+    /**
+     * Creates a new instance which uses chunks of {@link #DEFAULT_CHUNK_SIZE} bytes.
+     */
+    public CompactUrlStore()
+    {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param chunkSize
+     *         The size of a chunk of the arena in bytes. URLs which need more bytes get a chunk of their own
+     */
+    public CompactUrlStore(int chunkSize)
+    {
+        if (chunkSize < 64)
+        {
+            throw new IllegalArgumentException("Chunk size must be at least 64 bytes: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the store shared by the queues of the crawler.
+     *
+     * @return The shared store
+     */
+    public static CompactUrlStore getDefault()
+    {
+        return DefaultStore.INSTANCE;
+    }
+
+    /**
+     * Stores the given URL.
+     *
+     * @param url
+     *         The URL to store
+     *
+     * @return The handle of the stored URL
+     */
+    public synchronized long put(CrawlUrl url)
+    {
+        String text = url.getUrl();
+        int prefixEnd = getAuthorityEnd(text, url.getHostEnd());
+        HostPrefix prefix = this.prefixes.get(text.substring(0, prefixEnd));
+        if (prefix == null)
+        {
+            prefix = this.addPrefix(url, prefixEnd);
+        }
+
+        int suffixLength = utf8Length(text, prefixEnd);
+        int entryLength = varIntLength(prefix.id) + varIntLength(suffixLength) + HASH_BYTES + suffixLength;
+        int chunk = this.reserve(entryLength);
+        byte[] bytes = this.chunks[chunk];
+        int pos = chunk == this.writeChunk ? this.writePosition : 0;
+        long handle = (long) chunk << 32 | pos;
+
+        pos = writeVarInt(bytes, pos, prefix.id);
+        pos = writeVarInt(bytes, pos, suffixLength);
+        long hash = url.getUrlHash();
+        for (int i = 0; i < HASH_BYTES; i++)
+        {
+            bytes[pos++] = (byte) (hash >>> (i << 3));
+        }
+        pos = encodeUtf8(text, prefixEnd, bytes, pos);
+        if (chunk == this.writeChunk)
+        {
+            this.writePosition = pos;
+        }
+
+        prefix.refCount++;
+        this.liveEntries[chunk]++;
+        this.numUrls++;
+        this.numBytes += entryLength;
+        return handle;
+    }
+
+    /**
+     * Decodes the URL of the given handle.
+     *
+     * @param handle
+     *         The handle returned by {@link #put(CrawlUrl)} which was not released yet
+     *
+     * @return The decoded URL
+     */
+    public CrawlUrl get(long handle)
+    {
+        byte[] bytes = this.chunks[(int) (handle >>> 32)];
+        int pos = (int) handle;
+        int id = readVarInt(bytes, pos);
+        pos += varIntLength(id);
+        int suffixLength = readVarInt(bytes, pos);
+        pos += varIntLength(suffixLength);
+        long hash = 0;
+        for (int i = 0; i < HASH_BYTES; i++)
+        {
+            hash |= (bytes[pos++] & 0xFFL) << (i << 3);
+        }
+
+        HostPrefix prefix = this.prefixById[id];
+        String url = suffixLength == 0 ? prefix.text
+                                       : prefix.text.concat(new String(bytes, pos, suffixLength,
+                                                                       StandardCharsets.UTF_8));
+        return CrawlUrl.of(url, prefix.hostStart, prefix.hostEnd, prefix.pldStart, prefix.pldEnd, hash,
+                           prefix.pldHash, prefix.hostnameHash);
+    }
+
+    /**
+     * Releases the URL of the given handle. The handle must not be used afterwards.
+     *
+     * @param handle
+     *         The handle returned by {@link #put(CrawlUrl)} which was not released yet
+     */
+    public synchronized void release(long handle)
+    {
+        int chunk = (int) (handle >>> 32);
+        byte[] bytes = this.chunks[chunk];
+        int pos = (int) handle;
+        int id = readVarInt(bytes, pos);
+        pos += varIntLength(id);
+        int suffixLength = readVarInt(bytes, pos);
+
+        HostPrefix prefix = this.prefixById[id];
+        if (--prefix.refCount == 0)
+        {
+            this.prefixes.remove(prefix.text);
+            this.prefixById[id] = null;
+            this.freePrefixIds.push(id);
+        }
+
+        this.numUrls--;
+        this.numBytes -= varIntLength(id) + varIntLength(suffixLength) + HASH_BYTES + suffixLength;
+        if (--this.liveEntries[chunk] == 0)
+        {
+            if (chunk == this.writeChunk)
+            {
+                // the chunk can be overwritten from the start
+                this.writePosition = 0;
+            }
+            else
+            {
+                this.chunks[chunk] = null;
+                this.freeChunks.push(chunk);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of URLs currently stored.
+     *
+     * @return The number of stored URLs
+     */
+    public synchronized int getNumUrls()
+    {
+        return this.numUrls;
+    }
+
+    /**
+     * Returns the number of distinct host prefixes of the currently stored URLs.
+     *
+     * @return The number of host prefixes
+     */
+    public synchronized int getNumHostPrefixes()
+    {
+        return this.prefixes.size();
+    }
+
+    /**
+     * Returns the number of bytes used by the entries of the currently stored URLs, excluding the host prefixes.
+     *
+     * @return The number of bytes of the stored entries
+     */
+    public synchronized long getNumBytes()
+    {
+        return this.numBytes;
+    }
+
+    /**
+     * Returns an estimation of the heap memory retained by this store. This includes the allocated chunks, whether
+     * they are filled or not, and the host prefix dictionary.
+     *
+     * @return The estimated number of bytes retained by this store
+     */
+    public synchronized long getMemoryUsage()
+    {
+        long usage = 16 + 16L * this.chunks.length + 4L * this.liveEntries.length + 8L * this.prefixById.length;
+        for (byte[] chunk : this.chunks)
+        {
+            if (chunk != null)
+            {
+                usage += 16 + chunk.length;
+            }
+        }
+        for (HostPrefix prefix : this.prefixes.values())
+        {
+            // the prefix object, its String and the entry of the dictionary
+            usage += 48 + 24 + 16 + prefix.text.length() + 48;
+        }
+        return usage;
+    }
+
+    /**
+     * Adds a new host prefix for the given URL to the dictionary.
+     */
+    private HostPrefix addPrefix(CrawlUrl url, int prefixEnd)
+    {
+        int id = this.freePrefixIds.isEmpty() ? this.nextPrefixId++ : this.freePrefixIds.pop();
+        HostPrefix prefix = new HostPrefix(id, url.getUrl().substring(0, prefixEnd), url);
+        HostPrefix[] byId = this.prefixById;
+        if (id >= byId.length)
+        {
+            byId = Arrays.copyOf(byId, byId.length * 2);
+        }
+        byId[id] = prefix;
+        this.prefixById = byId;
+        this.prefixes.put(prefix.text, prefix);
+        return prefix;
+    }
+
+    /**
+     * Returns the index of the chunk the next entry of the given length is written to. Entries exceeding the size of
+     * a chunk get a chunk of their own which is returned with an unchanged {@link #writeChunk}.
+     */
+    private int reserve(int entryLength)
+    {
+        if (entryLength > this.chunkSize)
+        {
+            return this.allocateChunk(entryLength);
+        }
+        if (this.writeChunk == -1 || this.writePosition + entryLength > this.chunkSize)
+        {
+            if (this.writeChunk != -1 && this.liveEntries[this.writeChunk] == 0)
+            {
+                // all entries of the chunk were released already
+                this.writePosition = 0;
+            }
+            else
+            {
+                this.writeChunk = this.allocateChunk(this.chunkSize);
+                this.writePosition = 0;
+            }
+        }
+        return this.writeChunk;
+    }
+
+    /**
+     * Allocates a new chunk of the given size and returns its index.
+     */
+    private int allocateChunk(int size)
+    {
+        int index;
+        if (!this.freeChunks.isEmpty())
+        {
+            index = this.freeChunks.pop();
+        }
+        else
+        {
+            index = this.nextChunk++;
+            if (index == this.chunks.length)
+            {
+                this.chunks = Arrays.copyOf(this.chunks, index * 2);
+                this.liveEntries = Arrays.copyOf(this.liveEntries, index * 2);
+            }
+        }
+        this.chunks[index] = new byte[size];
+        this.liveEntries[index] = 0;
+        return index;
+    }
+
+    /**
+     * Returns the index after the authority of the given URL, which is the first <em>/</em>, <em>?</em> or <em>#</em>
+     * following the host or the end of the URL.
+     */
+    private static int getAuthorityEnd(String url, int hostEnd)
+    {
+        for (int i = hostEnd; i < url.length(); i++)
+        {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#')
+            {
+                return i;
+            }
+        }
+        return url.length();
+    }
+
+    private static int utf8Length(String value, int start)
+    {
+        int length = 0;
+        for (int i = start; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                length++;
+            }
+            else if (c < 0x800)
+            {
+                length += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() &&
+                     Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                length += 4;
+                i++;
+            }
+            else if (Character.isSurrogate(c))
+            {
+                // unpaired surrogates are encoded as '?' like String.getBytes does
+                length++;
+            }
+            else
+            {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int encodeUtf8(String value, int start, byte[] bytes, int pos)
+    {
+        for (int i = start; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                bytes[pos++] = (byte) c;
+            }
+            else if (c < 0x800)
+            {
+                bytes[pos++] = (byte) (0xC0 | c >> 6);
+                bytes[pos++] = (byte) (0x80 | c & 0x3F);
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() &&
+                     Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[pos++] = (byte) (0xF0 | codePoint >> 18);
+                bytes[pos++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                bytes[pos++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                bytes[pos++] = (byte) (0x80 | codePoint & 0x3F);
+            }
+            else if (Character.isSurrogate(c))
+            {
+                bytes[pos++] = '?';
+            }
+            else
+            {
+                bytes[pos++] = (byte) (0xE0 | c >> 12);
+                bytes[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[pos++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return pos;
+    }
+
+    private static int varIntLength(int value)
+    {
+        int length = 1;
+        while ((value >>>= 7) != 0)
+        {
+            length++;
+        }
+        return length;
+    }
+
+    private static int writeVarInt(byte[] bytes, int pos, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            bytes[pos++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static int readVarInt(byte[] bytes, int pos)
+    {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = bytes[pos++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while (b < 0);
+        return value;
+    }
+
+    /**
+     * The part of the URLs of a host up to the end of the authority, together with the parsed values shared by all
+     * URLs starting with it.
+     */
+    private final static class HostPrefix
+    {
+        /** The ID of the prefix referenced by the entries **/
+        private final int id;
+        /** The prefix itself **/
+        private final String text;
+        /** The index of the first character of the host **/
+        private final int hostStart;
+        /** The index after the last character of the host **/
+        private final int hostEnd;
+        /** The index of the first character of the pay level domain **/
+        private final int pldStart;
+        /** The index after the last character of the pay level domain **/
+        private final int pldEnd;
+        /** The hash value of the pay level domain **/
+        private final long pldHash;
+        /** The hash value of the hostname used by the robots.txt stages **/
+        private final long hostnameHash;
+        /** The number of stored URLs starting with this prefix **/
+        private int refCount = 0;
+
+        private HostPrefix(int id, String text, CrawlUrl url)
+        {
+            this.id = id;
+            this.text = text;
+            this.hostStart = url.getHostStart();
+            this.hostEnd = url.getHostEnd();
+            this.pldStart = url.getPLDStart();
+            this.pldEnd = url.getPLDEnd();
+            this.pldHash = url.getPLDHash();
+            this.hostnameHash = url.getHostnameHash();
+        }
+    }
+
+    /**
+     * Lazily creates the shared store on first access.
+     */
+    private final static class DefaultStore
+    {
+        private final static CompactUrlStore INSTANCE = new CompactUrlStore();
+    }
+}
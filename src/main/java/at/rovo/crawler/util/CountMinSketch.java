@@ -0,0 +1,127 @@
+package at.rovo.crawler.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counts the occurrences of long keys, like the hash values of URL families, in a fixed amount of memory.
+ * <p>
+ * Each key is counted in one counter of each of {@value #DEPTH} rows, chosen by a different hash function per row. As
+ * unrelated keys may share a counter, the count of a key is estimated by the smallest of its counters, which never
+ * underestimates the true count. Increments are conservative: only the counters equal to the current estimate are
+ * raised, which keeps the error caused by shared counters low.
+ * <p>
+ * Counters are updated via compare-and-set without locking. Concurrent increments of the same key may therefore be
+ * counted only once, which is acceptable for an estimate. {@link #halve()} ages all counts, so that keys which were
+ * frequent a long time ago do not stay frequent forever.
+ *
+ * @author Roman Vottner
+ */
+public final class CountMinSketch
+{
+    /** The number of rows, each with its own hash function **/
+    private final static int DEPTH = 4;
+    /** The multipliers of the hash functions of the rows **/
+    private final static long[] SEEDS =
+            {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    /** The counters of all rows, row after row **/
+    private final AtomicIntegerArray counters;
+    /** The number of counters per row minus one **/
+    private final int mask;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param width
+     *         The number of counters per row, which is rounded up to the next power of two
+     */
+    public CountMinSketch(int width)
+    {
+        if (width <= 0 || width > 1 << 28)
+        {
+            throw new IllegalArgumentException("Invalid width: " + width);
+        }
+        int size = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.counters = new AtomicIntegerArray(size * DEPTH);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Counts one more occurrence of the given key.
+     *
+     * @param key
+     *         The key to count
+     *
+     * @return The estimated number of occurrences of the key including this one
+     */
+    public int add(long key)
+    {
+        int[] indices = new int[DEPTH];
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++)
+        {
+            indices[row] = this.index(key, row);
+            min = Math.min(min, this.counters.get(indices[row]));
+        }
+        if (min == Integer.MAX_VALUE)
+        {
+            return min;
+        }
+        for (int index : indices)
+        {
+            // counters above the estimate were raised by other keys and already cover this occurrence
+            int value = this.counters.get(index);
+            while (value <= min && !this.counters.compareAndSet(index, value, min + 1))
+            {
+                value = this.counters.get(index);
+            }
+        }
+        return min + 1;
+    }
+
+    /**
+     * Returns the estimated number of occurrences of the given key.
+     *
+     * @param key
+     *         The key to look up
+     *
+     * @return The estimated number of occurrences, which is never lower than the true number since the last {@link
+     * #halve()}
+     */
+    public int estimate(long key)
+    {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++)
+        {
+            min = Math.min(min, this.counters.get(this.index(key, row)));
+        }
+        return min;
+    }
+
+    /**
+     * Halves all counters, so that past occurrences weigh less than recent ones.
+     */
+    public void halve()
+    {
+        for (int i = 0; i < this.counters.length(); i++)
+        {
+            this.counters.getAndUpdate(i, value -> value >>> 1);
+        }
+    }
+
+    /**
+     * Returns the number of counters per row.
+     *
+     * @return The width of the sketch
+     */
+    public int getWidth()
+    {
+        return this.mask + 1;
+    }
+
+    private int index(long key, int row)
+    {
+        long h = (key ^ (key >>> 29)) * SEEDS[row];
+        return row * (this.mask + 1) + ((int) (h ^ (h >>> 32)) & this.mask);
+    }
+}
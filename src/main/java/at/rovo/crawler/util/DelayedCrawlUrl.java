@@ -1,27 +1,136 @@
 package at.rovo.crawler.util;
 
+import at.rovo.crawler.bean.CrawlUrl;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * A URL waiting in the frontier until the crawl delay of its pay level domain passed. The URL itself is kept in a
+ * {@link CompactUrlStore}, so a waiting URL only occupies a handle. Once the URL was taken from the frontier it has to
+ * be either {@link #release() released} or passed on via {@link #requeue()}.
+ * <p>
+ * URLs which passed the DNS resolution carry the IP address of their host, so that fetches of the URL do not need to
+ * wait for a lookup.
+ *
+ * @author Roman Vottner
+ */
 @SuppressWarnings("NullableProblems")
 public class DelayedCrawlUrl implements Delayed
 {
-    private String url;
+    /** The store containing the URL **/
+    private final CompactUrlStore store;
+    /** The handle of the URL within the store **/
+    private final long handle;
+    /** The IP address of the host of the URL, null if it was not resolved **/
+    private final String ipAddress;
     private long pldDelay;
     private long startTime;
     private TimeUnit unit;
 
     public DelayedCrawlUrl(String url, long pldDelay, TimeUnit unit)
     {
-        this.url = url;
+        this(CrawlUrl.of(url), pldDelay, unit);
+    }
+
+    public DelayedCrawlUrl(CrawlUrl url, long pldDelay, TimeUnit unit)
+    {
+        this(url, null, pldDelay, unit);
+    }
+
+    /**
+     * Creates a new instance for a URL whose host was already resolved.
+     *
+     * @param url
+     *         The URL to crawl
+     * @param ipAddress
+     *         The IP address of the host of the URL, may be null
+     * @param pldDelay
+     *         The time to wait until the URL may be crawled
+     * @param unit
+     *         The unit of the delay
+     */
+    public DelayedCrawlUrl(CrawlUrl url, String ipAddress, long pldDelay, TimeUnit unit)
+    {
+        this(CompactUrlStore.getDefault(), url, ipAddress, pldDelay, unit);
+    }
+
+    public DelayedCrawlUrl(CompactUrlStore store, CrawlUrl url, long pldDelay, TimeUnit unit)
+    {
+        this(store, url, null, pldDelay, unit);
+    }
+
+    public DelayedCrawlUrl(CompactUrlStore store, CrawlUrl url, String ipAddress, long pldDelay, TimeUnit unit)
+    {
+        this(store, store.put(url), ipAddress, pldDelay, unit, TimeUnit.MILLISECONDS.convert(pldDelay, unit));
+    }
+
+    private DelayedCrawlUrl(CompactUrlStore store, long handle, String ipAddress, long pldDelay, TimeUnit unit,
+                            long wait)
+    {
+        this.store = store;
+        this.handle = handle;
+        this.ipAddress = ipAddress;
         this.pldDelay = TimeUnit.MILLISECONDS.convert(pldDelay, unit);
         this.unit = unit;
-        this.startTime = System.currentTimeMillis() + this.pldDelay;
+        this.startTime = System.currentTimeMillis() + wait;
     }
 
     public String getUrl()
     {
-        return this.url;
+        return this.getCrawlUrl().getUrl();
+    }
+
+    /**
+     * Decodes the waiting URL from the store.
+     *
+     * @return The waiting URL
+     */
+    public CrawlUrl getCrawlUrl()
+    {
+        return this.store.get(this.handle);
+    }
+
+    /**
+     * Creates a new instance for the same URL and delay whose delay starts now. The URL is not copied, so this instance
+     * must not be used afterwards.
+     *
+     * @return The instance to add to the frontier again
+     */
+    public DelayedCrawlUrl requeue()
+    {
+        return this.requeue(this.pldDelay);
+    }
+
+    /**
+     * Creates a new instance for the same URL and delay which waits for the given time instead of the delay of its pay
+     * level domain. The URL is not copied, so this instance must not be used afterwards.
+     *
+     * @param wait
+     *         The time in milliseconds until the URL should be taken from the frontier again
+     *
+     * @return The instance to add to the frontier again
+     */
+    public DelayedCrawlUrl requeue(long wait)
+    {
+        return new DelayedCrawlUrl(this.store, this.handle, this.ipAddress, this.getPldDelay(), this.unit, wait);
+    }
+
+    /**
+     * Returns the IP address the host of the URL was resolved to before the URL entered the frontier.
+     *
+     * @return The IP address or null if the host was not resolved
+     */
+    public String getIPAddress()
+    {
+        return this.ipAddress;
+    }
+
+    /**
+     * Releases the URL from the store once it left the frontier. This instance must not be used afterwards.
+     */
+    public void release()
+    {
+        this.store.release(this.handle);
     }
 
     public long getPldDelay()
@@ -42,7 +151,7 @@ public class DelayedCrawlUrl implements Delayed
     public long getDelay(TimeUnit unit)
     {
         long diff = startTime - System.currentTimeMillis();
-        return unit.convert(diff, TimeUnit.SECONDS);
+        return unit.convert(diff, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -62,6 +171,6 @@ public class DelayedCrawlUrl implements Delayed
     @Override
     public String toString()
     {
-        return url;
+        return this.getUrl();
     }
 }
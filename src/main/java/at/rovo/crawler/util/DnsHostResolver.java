@@ -0,0 +1,265 @@
+package at.rovo.crawler.util;
+
+import at.rovo.crawler.bean.ResolvedHost;
+import at.rovo.crawler.interfaces.HostResolver;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the IPv4 address of hosts by sending recursive queries to a DNS server via UDP.
+ * <p>
+ * Unlike the name service of the JVM, the results carry the time to live of the DNS records: the minimum TTL of the
+ * address record and any alias records leading to it. Negative results use the TTL of the SOA record returned in the
+ * authority section as defined by RFC 2308. Queries without response are repeated once before the lookup fails.
+ *
+ * @author Roman Vottner
+ */
+public final class DnsHostResolver implements HostResolver
+{
+    /** The default port of DNS servers **/
+    public final static int DNS_PORT = 53;
+    /** The default time to wait for a response of the DNS server **/
+    public final static Duration DEFAULT_TIMEOUT = Duration.ofSeconds(2);
+    /** The default number of times a query is sent before the lookup fails **/
+    public final static int DEFAULT_ATTEMPTS = 2;
+
+    /** The type of address records **/
+    private final static int TYPE_A = 1;
+    /** The type of start of authority records **/
+    private final static int TYPE_SOA = 6;
+    /** The type of alias records **/
+    private final static int TYPE_CNAME = 5;
+    /** The internet class **/
+    private final static int CLASS_IN = 1;
+    /** The response code of non existing domains **/
+    private final static int RCODE_NXDOMAIN = 3;
+    /** The maximum size of a DNS message via UDP **/
+    private final static int MAX_MESSAGE_SIZE = 512;
+
+    /** The DNS server to query **/
+    private final InetSocketAddress server;
+    /** The time in milliseconds to wait for a response **/
+    private final int timeout;
+    /** The number of times a query is sent before the lookup fails **/
+    private final int attempts;
+
+    /**
+     * Creates a new instance which queries the given server with the {@link #DEFAULT_TIMEOUT} and {@link
+     * #DEFAULT_ATTEMPTS}.
+     *
+     * @param server
+     *         The address and port of the DNS server
+     */
+    public DnsHostResolver(InetSocketAddress server)
+    {
+        this(server, DEFAULT_TIMEOUT, DEFAULT_ATTEMPTS);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param server
+     *         The address and port of the DNS server
+     * @param timeout
+     *         The time to wait for a response to a query
+     * @param attempts
+     *         The number of times a query is sent before the lookup fails
+     */
+    public DnsHostResolver(InetSocketAddress server, Duration timeout, int attempts)
+    {
+        if (attempts < 1)
+        {
+            throw new IllegalArgumentException("At least one attempt is required: " + attempts);
+        }
+        this.server = server;
+        this.timeout = (int) timeout.toMillis();
+        this.attempts = attempts;
+    }
+
+    @Override
+    public ResolvedHost resolve(String hostName) throws IOException
+    {
+        int id = ThreadLocalRandom.current().nextInt(0x10000);
+        byte[] query = createQuery(id, hostName);
+        try (DatagramSocket socket = new DatagramSocket())
+        {
+            socket.setSoTimeout(this.timeout);
+            socket.connect(this.server);
+            byte[] buffer = new byte[MAX_MESSAGE_SIZE];
+            for (int attempt = 0; attempt < this.attempts; attempt++)
+            {
+                socket.send(new DatagramPacket(query, query.length));
+                try
+                {
+                    while (true)
+                    {
+                        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                        socket.receive(packet);
+                        // responses to earlier attempts or other queries are ignored
+                        if (packet.getLength() >= 12 && ((buffer[0] & 0xFF) << 8 | buffer[1] & 0xFF) == id)
+                        {
+                            return parseResponse(hostName, ByteBuffer.wrap(buffer, 0, packet.getLength()));
+                        }
+                    }
+                }
+                catch (SocketTimeoutException stEx)
+                {
+                    // send the query again
+                }
+            }
+        }
+        throw new SocketTimeoutException("DNS server " + this.server + " did not answer the query for " + hostName);
+    }
+
+    /**
+     * Creates a recursive query for the address record of the given host.
+     */
+    private static byte[] createQuery(int id, String hostName) throws IOException
+    {
+        String name = hostName.endsWith(".") ? hostName.substring(0, hostName.length() - 1) : hostName;
+        ByteBuffer buffer = ByteBuffer.allocate(12 + name.length() + 2 + 4);
+        buffer.putShort((short) id);
+        // recursion desired
+        buffer.putShort((short) 0x0100);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        for (String label : name.split("\\.", -1))
+        {
+            byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+            if (bytes.length == 0 || bytes.length > 63)
+            {
+                throw new IOException("Invalid host name " + hostName);
+            }
+            buffer.put((byte) bytes.length);
+            buffer.put(bytes);
+        }
+        buffer.put((byte) 0);
+        buffer.putShort((short) TYPE_A);
+        buffer.putShort((short) CLASS_IN);
+        return buffer.array();
+    }
+
+    /**
+     * Extracts the address and its time to live from the response of the DNS server.
+     */
+    private static ResolvedHost parseResponse(String hostName, ByteBuffer response) throws IOException
+    {
+        try
+        {
+            int flags = response.getShort(2) & 0xFFFF;
+            int responseCode = flags & 0x0F;
+            if ((flags & 0x8000) == 0 || responseCode != 0 && responseCode != RCODE_NXDOMAIN)
+            {
+                throw new IOException("DNS server answered the query for " + hostName + " with response code " +
+                                      responseCode);
+            }
+            int numQuestions = response.getShort(4) & 0xFFFF;
+            int numAnswers = response.getShort(6) & 0xFFFF;
+            int numAuthorities = response.getShort(8) & 0xFFFF;
+            response.position(12);
+            for (int i = 0; i < numQuestions; i++)
+            {
+                skipName(response);
+                response.position(response.position() + 4);
+            }
+
+            String address = null;
+            long ttl = Long.MAX_VALUE;
+            for (int i = 0; i < numAnswers; i++)
+            {
+                skipName(response);
+                int type = response.getShort() & 0xFFFF;
+                int recordClass = response.getShort() & 0xFFFF;
+                long recordTtl = readTtl(response);
+                int length = response.getShort() & 0xFFFF;
+                int end = response.position() + length;
+                if (recordClass == CLASS_IN && type == TYPE_A && length == 4 && address == null)
+                {
+                    byte[] bytes = new byte[4];
+                    response.get(bytes);
+                    address = InetAddress.getByAddress(bytes).getHostAddress();
+                    ttl = Math.min(ttl, recordTtl);
+                }
+                else if (recordClass == CLASS_IN && type == TYPE_CNAME)
+                {
+                    ttl = Math.min(ttl, recordTtl);
+                }
+                response.position(end);
+            }
+            if (address != null)
+            {
+                return new ResolvedHost(hostName, address, TimeUnit.SECONDS.toMillis(ttl));
+            }
+
+            // the negative result is valid for the minimum of the TTL of the SOA record and its minimum field
+            for (int i = 0; i < numAuthorities; i++)
+            {
+                skipName(response);
+                int type = response.getShort() & 0xFFFF;
+                response.getShort();
+                long recordTtl = readTtl(response);
+                int length = response.getShort() & 0xFFFF;
+                int end = response.position() + length;
+                if (type == TYPE_SOA)
+                {
+                    skipName(response);
+                    skipName(response);
+                    // serial, refresh, retry and expire precede the minimum field
+                    response.position(response.position() + 16);
+                    long minimum = readTtl(response);
+                    return ResolvedHost.notFound(hostName, TimeUnit.SECONDS.toMillis(Math.min(recordTtl, minimum)));
+                }
+                response.position(end);
+            }
+            return ResolvedHost.notFound(hostName, ResolvedHost.UNKNOWN_TTL);
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex)
+        {
+            throw new IOException("Malformed DNS response for " + hostName, ex);
+        }
+    }
+
+    /**
+     * Moves the position of the buffer behind the name at the current position, which is either a sequence of labels
+     * or ends with a pointer to a previous name.
+     */
+    private static void skipName(ByteBuffer buffer)
+    {
+        while (true)
+        {
+            int length = buffer.get() & 0xFF;
+            if (length == 0)
+            {
+                return;
+            }
+            if ((length & 0xC0) == 0xC0)
+            {
+                buffer.get();
+                return;
+            }
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    /**
+     * Reads a time to live in seconds. Values with the most significant bit set are treated as 0 as required by RFC
+     * 2181.
+     */
+    private static long readTtl(ByteBuffer buffer)
+    {
+        int ttl = buffer.getInt();
+        return ttl < 0 ? 0 : ttl;
+    }
+}
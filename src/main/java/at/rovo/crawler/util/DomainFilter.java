@@ -0,0 +1,113 @@
+package at.rovo.crawler.util;
+
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.interfaces.UrlFilter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Restricts the crawl to a set of domains and excludes others. A domain covers itself and all of its subdomains, so
+ * the domain <em>at</em> allows every host of the Austrian top level domain, while <em>ads.example.com</em> only
+ * denies the hosts below <em>ads.example.com</em>.
+ * <p>
+ * If allowed domains are given, only URLs of hosts within one of them pass. URLs of hosts within a denied domain are
+ * rejected in any case. The domains are kept as sorted case-insensitive hash values which are looked up per label
+ * boundary of the host via binary search, so checking a URL creates no Strings.
+ *
+ * @author Roman Vottner
+ */
+public final class DomainFilter implements UrlFilter
+{
+    /** The name the rejected URLs are counted under **/
+    private final String name;
+    /** The sorted hash values of the allowed domains, empty if all domains are allowed **/
+    private final long[] allowed;
+    /** The sorted hash values of the denied domains **/
+    private final long[] denied;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param name
+     *         The name the rejected URLs are counted under
+     * @param allowed
+     *         The domains to restrict the crawl to, empty to allow all domains which are not denied
+     * @param denied
+     *         The domains to exclude from the crawl
+     */
+    public DomainFilter(String name, Collection<String> allowed, Collection<String> denied)
+    {
+        this.name = name;
+        this.allowed = hashes(allowed);
+        this.denied = hashes(denied);
+    }
+
+    /**
+     * Creates a new instance which only excludes the given domains.
+     *
+     * @param denied
+     *         The domains to exclude from the crawl
+     *
+     * @return The filter denying the domains
+     */
+    public static DomainFilter deny(String... denied)
+    {
+        return new DomainFilter("domains", Collections.emptyList(), Arrays.asList(denied));
+    }
+
+    /**
+     * Creates a new instance which restricts the crawl to the given domains.
+     *
+     * @param allowed
+     *         The domains to restrict the crawl to
+     *
+     * @return The filter allowing the domains
+     */
+    public static DomainFilter allow(String... allowed)
+    {
+        return new DomainFilter("domains", Arrays.asList(allowed), Collections.emptyList());
+    }
+
+    private static long[] hashes(Collection<String> domains)
+    {
+        return domains.stream()
+                .map(domain -> domain.startsWith(".") ? domain.substring(1) : domain)
+                .mapToLong(domain -> PublicSuffixTrie.hash(domain, 0, domain.length()))
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    @Override
+    public String getName()
+    {
+        return this.name;
+    }
+
+    @Override
+    public boolean accept(CrawlUrl url)
+    {
+        String s = url.getUrl();
+        int start = url.getHostStart();
+        int end = url.getHostEnd();
+        boolean isAllowed = this.allowed.length == 0;
+        // check the host and each of its parent domains
+        for (int i = start; i < end; i++)
+        {
+            if (i == start || s.charAt(i - 1) == '.')
+            {
+                long hash = PublicSuffixTrie.hash(s, i, end);
+                if (Arrays.binarySearch(this.denied, hash) >= 0)
+                {
+                    return false;
+                }
+                if (!isAllowed && Arrays.binarySearch(this.allowed, hash) >= 0)
+                {
+                    isAllowed = true;
+                }
+            }
+        }
+        return isAllowed;
+    }
+}
@@ -0,0 +1,19 @@
+package at.rovo.crawler.util;
+
+import at.rovo.crawler.interfaces.KeyHasher;
+import at.rovo.drum.util.DrumUtils;
+
+/**
+ * Calculates keys via {@link DrumUtils#hash(String)}, which was used for all keys before keys were calculated by a
+ * {@link KeyHasher}. The characters are copied into a new String for each key.
+ *
+ * @author Roman Vottner
+ */
+public final class DrumKeyHasher implements KeyHasher
+{
+    @Override
+    public long hash(CharSequence value, int start, int end)
+    {
+        return DrumUtils.hash(value.subSequence(start, end).toString());
+    }
+}
@@ -0,0 +1,86 @@
+package at.rovo.crawler.util;
+
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.interfaces.UrlFilter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Rejects URLs whose path ends with one of a set of file extensions, like the ones of images, archives and other binary
+ * files which contain no links to follow. The extensions are compiled into a {@link SuffixTrie}, so the check only
+ * looks at the last characters of the path. The query and fragment of a URL as well as path parameters are not part
+ * of the path.
+ *
+ * @author Roman Vottner
+ */
+public final class ExtensionFilter implements UrlFilter
+{
+    /** The extensions rejected by default **/
+    public final static List<String> DEFAULT_EXTENSIONS = Collections.unmodifiableList(Arrays.asList(
+            // images
+            "jpg", "jpeg", "png", "gif", "bmp", "ico", "svg", "svgz", "webp", "tif", "tiff", "psd", "heic",
+            // audio and video
+            "mp3", "mp4", "m4a", "m4v", "avi", "mov", "wmv", "flv", "mkv", "mpg", "mpeg", "wav", "ogg", "webm",
+            // archives
+            "zip", "gz", "tgz", "tar", "bz2", "xz", "7z", "rar", "jar", "war",
+            // binaries and packages
+            "exe", "msi", "dmg", "iso", "bin", "apk", "deb", "rpm", "dll", "so", "swf",
+            // style sheets, scripts and fonts
+            "css", "js", "woff", "woff2", "ttf", "eot", "otf"));
+
+    /** The name the rejected URLs are counted under **/
+    private final String name;
+    /** The compiled extensions including their leading dot **/
+    private final SuffixTrie extensions;
+
+    /**
+     * Creates a new instance which rejects the {@link #DEFAULT_EXTENSIONS}.
+     */
+    public ExtensionFilter()
+    {
+        this("extensions", DEFAULT_EXTENSIONS);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param name
+     *         The name the rejected URLs are counted under
+     * @param extensions
+     *         The extensions to reject without leading dot, f.e. <em>jpg</em> or <em>tar.gz</em>. Extensions are
+     *         compared case-insensitively
+     */
+    public ExtensionFilter(String name, Collection<String> extensions)
+    {
+        this.name = name;
+        this.extensions = new SuffixTrie(extensions.stream().map(extension -> "." + extension)
+                                                 .collect(Collectors.toList()));
+    }
+
+    @Override
+    public String getName()
+    {
+        return this.name;
+    }
+
+    @Override
+    public boolean accept(CrawlUrl url)
+    {
+        String s = url.getUrl();
+        int start = url.getHostEnd();
+        int end = start;
+        while (end < s.length())
+        {
+            char c = s.charAt(end);
+            if (c == '?' || c == '#' || c == ';')
+            {
+                break;
+            }
+            end++;
+        }
+        return !this.extensions.matches(s, start, end);
+    }
+}
@@ -9,72 +9,143 @@ public class IRLbotUtils
     private final static Logger LOG = LoggerFactory.getLogger(IRLbotUtils.class);
 
     /**
-     * Extracts the pay level domain from a URL
+     * Extracts the pay level domain from a URL. The pay level domain is determined by the rules of the {@link
+     * PublicSuffixTrie#getDefault() default} public suffix list.
      *
      * @param url
      *         The absolute URL of any web page
      *
-     * @return The pay level domain of the provided URL or null if the pay level domain could not be extracted
+     * @return The pay level domain of the provided URL. If the host of the URL is an IP address, a single label or a
+     * public suffix itself, the whole host is returned
      */
     public static String getPLDofURL(String url)
     {
-        String origin = url;
-        try
+        LOG.debug("Extracting PLD of {}", url);
+        int hostStart = getHostStart(url);
+        int hostEnd = getHostEnd(url, hostStart);
+        return url.substring(getPLDStart(url, hostStart, hostEnd), hostEnd);
+    }
+
+    /**
+     * Returns the index of the first character of the host within a URL. The authority of the URL starts after the
+     * <em>://</em> separator of the scheme or at index 0 if the URL contains no scheme. Any user information preceding
+     * the host, like <em>user:password@</em>, is skipped.
+     *
+     * @param url
+     *         The URL containing the host
+     *
+     * @return The index of the first character of the host
+     */
+    public static int getHostStart(CharSequence url)
+    {
+        int length = url.length();
+        int authorityStart = 0;
+        for (int i = 0; i + 2 < length; i++)
         {
-            LOG.debug("Extracting PLD of {}", url);
-            // remove leading 'http://' or 'https://'
-            if (url.contains("://"))
+            char c = url.charAt(i);
+            if (c == ':' && url.charAt(i + 1) == '/' && url.charAt(i + 2) == '/')
             {
-                url = url.substring(url.indexOf("://") + 3);
+                authorityStart = i + 3;
+                break;
             }
-            // remove everything after the first '/' which indicates the first
-            // sub-directory
-            if (url.contains("/"))
+            if (c == '/' || c == '?' || c == '#')
             {
-                url = url.substring(0, url.indexOf("/"));
+                break;
             }
-            // remove the port from the PLD
-            if (url.contains(":"))
+        }
+        // the host follows the last '@' within the authority
+        int hostStart = authorityStart;
+        for (int i = authorityStart; i < length; i++)
+        {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#')
             {
-                url = url.substring(0, url.indexOf(":"));
+                break;
             }
-            if (url.contains("?"))
+            if (c == '@')
             {
-                url = url.substring(0, url.indexOf("?"));
+                hostStart = i + 1;
             }
-            if (url.startsWith("localhost") || url.startsWith("192.168."))
+        }
+        return hostStart;
+    }
+
+    /**
+     * Returns the index after the last character of the host within a URL. The host ends before the port, the path,
+     * the query or the fragment of the URL. The host of an IPv6 literal includes its enclosing brackets.
+     *
+     * @param url
+     *         The URL containing the host
+     * @param hostStart
+     *         The index of the first character of the host as returned by {@link #getHostStart(CharSequence)}
+     *
+     * @return The index after the last character of the host
+     */
+    public static int getHostEnd(CharSequence url, int hostStart)
+    {
+        int hostEnd = hostStart;
+        if (hostEnd < url.length() && url.charAt(hostEnd) == '[')
+        {
+            while (hostEnd < url.length() && url.charAt(hostEnd) != ']')
             {
-                return url;
+                hostEnd++;
             }
-            // fetch the top level domain
-            if (!url.contains(".")) {
-                LOG.warn("Could not determine PLD for {}", url);
-                return url;
+            return Math.min(hostEnd + 1, url.length());
+        }
+        while (hostEnd < url.length())
+        {
+            char c = url.charAt(hostEnd);
+            if (c == '/' || c == '?' || c == '#' || c == ':')
+            {
+                break;
             }
-            String TLD = url.substring(url.lastIndexOf("."));
-            // and split the rest of the URL apart from the TLD
-            String rest = url.substring(0, url.lastIndexOf(TLD));
+            hostEnd++;
+        }
+        return hostEnd;
+    }
 
-            // check if we have found an extended TLD
-            // if so, add this part to the TLD
-            if (rest.endsWith(".co") || rest.endsWith("wa.edu") || rest.endsWith(".edu") || rest.endsWith(".ac") ||
-                rest.endsWith(".go"))
+    /**
+     * Returns the index of the first character of the pay level domain of the host contained in the given range of a
+     * URL. The pay level domain ends with the host. No intermediate Strings are created.
+     *
+     * @param url
+     *         The URL containing the host
+     * @param hostStart
+     *         The index of the first character of the host
+     * @param hostEnd
+     *         The index after the last character of the host
+     *
+     * @return The index of the first character of the pay level domain. If the host is an IP address, a single label
+     * or a public suffix itself, <em>hostStart</em> is returned
+     */
+    public static int getPLDStart(CharSequence url, int hostStart, int hostEnd)
+    {
+        boolean numeric = true;
+        boolean dotted = false;
+        for (int i = hostStart; i < hostEnd; i++)
+        {
+            char c = url.charAt(i);
+            if (c == '.')
             {
-                TLD = rest.substring(rest.lastIndexOf(".")) + TLD;
-                rest = url.substring(0, url.lastIndexOf(TLD));
+                dotted = true;
+            }
+            else if (c < '0' || c > '9')
+            {
+                numeric = false;
             }
-
-            // we now only have to look up the part after the last
-            // remained '.' and add the TLD to its end
-            String PLD = rest.substring(rest.lastIndexOf(".") + 1) + TLD;
-            LOG.debug("PLD: {}", PLD);
-            return PLD;
         }
-        catch (IndexOutOfBoundsException e)
+        if (numeric || !dotted)
         {
-            LOG.error("Error extracting PLD of url: " + origin, e);
-            throw e;
+            if (!dotted)
+            {
+                LOG.debug("Could not determine PLD for host without domain: {}", url);
+            }
+            return hostStart;
         }
+        // the fully qualified form of a host ends with a dot
+        int end = url.charAt(hostEnd - 1) == '.' ? hostEnd - 1 : hostEnd;
+        int pldStart = PublicSuffixTrie.getDefault().getPLDStart(url, hostStart, end);
+        return pldStart < 0 ? hostStart : pldStart;
     }
 
     /**
@@ -111,7 +182,8 @@ public class IRLbotUtils
 
     /**
      * Checks if a URL is in an absolute format and if not it tries to transform it into an absolute URL using the
-     * parent URL.
+     * parent URL. The URL is resolved and canonicalized by the {@link UrlCanonicalizer#getDefault() default} {@link
+     * UrlCanonicalizer}.
      * <p>
      * Note that URLs that start with an anchor, javascript or mailto tag are discarded and null will be returned
      * therefore.
@@ -126,114 +198,13 @@ public class IRLbotUtils
     public static String checkAndTransformURL(String url, String parentURL)
     {
         url = url.trim();
-        if (!url.endsWith("/") && !url.contains("?") && url.lastIndexOf("/") > url.lastIndexOf(".") &&
-            url.contains("#"))
-        {
-            url += "/";
-        }
         // remove anchor-links
-        if ("".equals(url) || "/".equals(url) || url.startsWith("#") || url.startsWith("/#") ||
-            url.startsWith("javascript") || url.startsWith("mailto"))
+        if ("".equals(url) || url.startsWith("#"))
         {
             return null;
         }
-        // change relative links to absolute links
-        else if (url.startsWith("/"))
-        {
-
-            String parent = parentURL.substring(0, parentURL.lastIndexOf("/") + 1);
-            // no sub-directories found
-            if ("http://".equals(parent) || "https://".equals(parent))
-            {
-                parent = parentURL;
-            }
-            if (parent.endsWith("/"))
-            {
-                LOG.debug("url starts with '/': {} | {} | {}", parentURL, parent, url.substring(1));
-                return parent + url.substring(1);
-            }
-            else
-            {
-                LOG.debug("url starts with '/': {} | {} | {}", parentURL, parent, url);
-                return parent + url;
-            }
-        }
-        else if (url.startsWith(".."))
-        {
-            String tmp = url;
-            int numOfDirsUp = 1;
-            if (parentURL.endsWith("/") && ("http:/".equals(parentURL.subSequence(0, parentURL.lastIndexOf("/"))) ||
-                                            "https:/".equals(parentURL.subSequence(0, parentURL.lastIndexOf("/")))))
-            {
-                numOfDirsUp = 0;
-            }
-            while (tmp.startsWith(".."))
-            {
-                tmp = tmp.substring(3);
-                numOfDirsUp++;
-            }
-            String parent = parentURL;
-            for (int i = 0; i < numOfDirsUp; i++)
-            {
-                parent = parent.substring(0, parent.lastIndexOf("/"));
-            }
-
-            if (parent.equals("http:/") || parent.equals("https:/") || parent.equals("http:") ||
-                parent.equals("https:"))
-            // && numOfDirsUp == 1)
-            {
-                parent = parentURL;
-            }
-
-            String ret;
-            if (!parent.endsWith("/") && !tmp.startsWith("/"))
-            {
-                ret = parent + "/" + tmp;
-            }
-            else if (parent.endsWith("/") && tmp.startsWith("/"))
-            {
-                ret = parent.substring(0, parent.length() - 1) + tmp;
-            }
-            else
-            {
-                ret = parent + tmp;
-            }
-
-            LOG.debug("url starts with '..': {} | {} | {} | {} | {}", parentURL, parent, url, tmp, ret);
-
-            return ret;
-        }
-        else if (!url.startsWith("http://") && !url.startsWith("https://"))
-        {
-            String parent = parentURL.substring(0, parentURL.lastIndexOf("/") + 1);
-            // no sub-directories found
-            if ("http://".equals(parent) || "https://".equals(parent))
-            {
-                parent = parentURL;
-            }
-
-            if (parent.endsWith("/") && url.startsWith("/"))
-            {
-                LOG.debug("url starts not with 'http://': {} | {} | {}", parentURL, parent, url);
-                return parent + url.substring(1);
-            }
-            else if (!parentURL.endsWith("/") && !url.startsWith("/"))
-            {
-                LOG.debug("url starts not with 'http://': {} | {} | {}", parentURL, parent, url);
-                return parent + "/" + url;
-            }
-            else
-            {
-                LOG.debug("url starts not with 'http://': {} | {} | {}", parentURL, parent, url);
-                return parent + url;
-            }
-        }
-        // url is in absolute format
-        else
-        // if (url.startsWith("http://") || url.startsWith("https://"))
-        {
-            LOG.debug("found url: {}", url);
-            return url;
-        }
+        String absoluteURL = UrlCanonicalizer.getDefault().resolve(parentURL, url);
+        LOG.debug("found url: {}", absoluteURL);
+        return absoluteURL;
     }
 }
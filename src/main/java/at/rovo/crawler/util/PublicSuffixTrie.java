@@ -0,0 +1,397 @@
+package at.rovo.crawler.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Determines the public suffix and the pay level domain of a host based on the rules of the <a
+ * href="https://publicsuffix.org/">Public Suffix List</a>.
+ * <p>
+ * The rules are compiled into a trie of reversed labels, f.e. the rule <em>co.uk</em> is stored as path <em>uk</em>
+ * &rarr; <em>co</em>. The children of all nodes are kept in a single open-addressing table keyed by the parent node and
+ * the hash of the label, so that a lookup walks the labels of a host from right to left without creating any
+ * intermediate Strings. Hosts are passed as range of a {@link CharSequence}, which allows to resolve the pay level
+ * domain directly on the full URL. The result is either the offset of the pay level domain within the sequence or a
+ * hash value of the pay level domain.
+ * <p>
+ * Labels are compared case-insensitively. Wildcard rules like <em>*.ck</em> and exception rules like
+ * <em>!www.ck</em> are supported. Hosts whose top level domain is not covered by any rule use the top level domain as
+ * public suffix.
+ *
+ * @author Roman Vottner
+ */
+public final class PublicSuffixTrie
+{
+    /** The name of the resource containing the default rules **/
+    public final static String DEFAULT_RULES = "/public_suffix_list.dat";
+
+    /** Marks a node which ends a rule **/
+    private final static byte RULE = 1;
+    /** Marks a node which has a wildcard child **/
+    private final static byte WILDCARD = 2;
+    /** Marks a node which ends an exception rule **/
+    private final static byte EXCEPTION = 4;
+
+    /** The FNV-1a 64 bit offset basis **/
+    private final static long FNV_OFFSET = 0xcbf29ce484222325L;
+    /** The FNV-1a 64 bit prime **/
+    private final static long FNV_PRIME = 0x100000001b3L;
+
+    /** The flags of each node, the root node has the index 0 **/
+    private final byte[] flags;
+    /** The lower-case label of each node **/
+    private final String[] labels;
+    /** The parent node of each slot of the child table or -1 for empty slots **/
+    private final int[] slotParent;
+    /** The child node of each slot of the child table **/
+    private final int[] slotChild;
+    /** The hash of the label of each slot of the child table **/
+    private final int[] slotHash;
+    /** The mask to map a hash value onto a slot of the child table **/
+    private final int mask;
+
+    /**
+     * Compiles the given rules into a new instance. Empty rules and comments starting with <em>//</em> are ignored.
+     *
+     * @param rules
+     *         The rules in the format of the Public Suffix List, f.e. <em>co.uk</em>, <em>*.ck</em> or
+     *         <em>!www.ck</em>
+     */
+    public PublicSuffixTrie(Iterable<String> rules)
+    {
+        List<Byte> nodeFlags = new ArrayList<>();
+        List<String> nodeLabels = new ArrayList<>();
+        List<Map<String, Integer>> children = new ArrayList<>();
+        nodeFlags.add((byte) 0);
+        nodeLabels.add("");
+        children.add(new HashMap<>());
+
+        for (String line : rules)
+        {
+            // the rule ends at the first whitespace
+            String rule = line.trim().split("\\s", 2)[0].toLowerCase();
+            if (rule.isEmpty() || rule.startsWith("//"))
+            {
+                continue;
+            }
+            byte ruleType = RULE;
+            if (rule.startsWith("!"))
+            {
+                ruleType = EXCEPTION;
+                rule = rule.substring(1);
+            }
+            String[] ruleLabels = rule.split("\\.");
+            int node = 0;
+            for (int i = ruleLabels.length - 1; i >= 0; i--)
+            {
+                String label = ruleLabels[i];
+                if ("*".equals(label) && i == 0)
+                {
+                    nodeFlags.set(node, (byte) (nodeFlags.get(node) | WILDCARD));
+                    break;
+                }
+                Integer child = children.get(node).get(label);
+                if (child == null)
+                {
+                    child = nodeFlags.size();
+                    nodeFlags.add((byte) 0);
+                    nodeLabels.add(label);
+                    children.add(new HashMap<>());
+                    children.get(node).put(label, child);
+                }
+                node = child;
+                if (i == 0)
+                {
+                    nodeFlags.set(node, (byte) (nodeFlags.get(node) | ruleType));
+                }
+            }
+        }
+
+        this.flags = new byte[nodeFlags.size()];
+        for (int i = 0; i < this.flags.length; i++)
+        {
+            this.flags[i] = nodeFlags.get(i);
+        }
+        this.labels = nodeLabels.toArray(new String[0]);
+
+        // a load factor of at most 0.5 keeps the probe sequences short
+        int capacity = Integer.highestOneBit(Math.max(this.labels.length, 2) * 2) * 2;
+        this.mask = capacity - 1;
+        this.slotParent = new int[capacity];
+        this.slotChild = new int[capacity];
+        this.slotHash = new int[capacity];
+        Arrays.fill(this.slotParent, -1);
+        for (int parent = 0; parent < children.size(); parent++)
+        {
+            for (int child : children.get(parent).values())
+            {
+                String label = this.labels[child];
+                int hash = hashLabel(label, 0, label.length());
+                int slot = slot(parent, hash);
+                while (this.slotParent[slot] != -1)
+                {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.slotParent[slot] = parent;
+                this.slotChild[slot] = child;
+                this.slotHash[slot] = hash;
+            }
+        }
+    }
+
+    /**
+     * Compiles the rules read from the given stream. The stream is read as UTF-8 text but not closed.
+     *
+     * @param input
+     *         The stream to read the rules in the format of the Public Suffix List from
+     *
+     * @return The compiled rules
+     *
+     * @throws IOException
+     *         If the rules could not be read
+     */
+    public static PublicSuffixTrie load(InputStream input) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<String> rules = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            rules.add(line);
+        }
+        return new PublicSuffixTrie(rules);
+    }
+
+    /**
+     * Returns the instance compiled from the {@link #DEFAULT_RULES} resource.
+     *
+     * @return The default rules
+     */
+    public static PublicSuffixTrie getDefault()
+    {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Returns the index of the first character of the public suffix of the host contained in the given range, f.e.
+     * the index of <em>co.uk</em> for <em>www.example.co.uk</em>.
+     *
+     * @param host
+     *         The sequence containing the host
+     * @param start
+     *         The index of the first character of the host
+     * @param end
+     *         The index after the last character of the host
+     *
+     * @return The index of the first character of the public suffix or <em>end</em> if the range is empty
+     */
+    public int getPublicSuffixStart(CharSequence host, int start, int end)
+    {
+        int labelEnd = end;
+        int node = 0;
+        // a host whose top level domain is not listed uses the top level domain as public suffix
+        int suffixStart = -1;
+        while (labelEnd > start)
+        {
+            int labelStart = labelEnd;
+            while (labelStart > start && host.charAt(labelStart - 1) != '.')
+            {
+                labelStart--;
+            }
+            if (suffixStart < 0)
+            {
+                suffixStart = labelStart;
+            }
+            int child = this.findChild(node, host, labelStart, labelEnd);
+            if (child >= 0 && (this.flags[child] & EXCEPTION) != 0)
+            {
+                // the public suffix of an exception rule is the rule without its leftmost label
+                return labelEnd + 1;
+            }
+            if ((this.flags[node] & WILDCARD) != 0 && (child < 0 || (this.flags[child] & RULE) == 0))
+            {
+                return labelStart;
+            }
+            if (child < 0)
+            {
+                break;
+            }
+            if ((this.flags[child] & RULE) != 0)
+            {
+                suffixStart = labelStart;
+            }
+            node = child;
+            labelEnd = labelStart - 1;
+        }
+        return suffixStart < 0 ? end : suffixStart;
+    }
+
+    /**
+     * Returns the index of the first character of the pay level domain of the host contained in the given range, f.e.
+     * the index of <em>example.co.uk</em> for <em>www.example.co.uk</em>. The pay level domain ends with the host.
+     *
+     * @param host
+     *         The sequence containing the host
+     * @param start
+     *         The index of the first character of the host
+     * @param end
+     *         The index after the last character of the host
+     *
+     * @return The index of the first character of the pay level domain or -1 if the host is a public suffix itself
+     */
+    public int getPLDStart(CharSequence host, int start, int end)
+    {
+        int suffixStart = this.getPublicSuffixStart(host, start, end);
+        if (suffixStart <= start + 1)
+        {
+            return -1;
+        }
+        int pldStart = suffixStart - 1;
+        while (pldStart > start && host.charAt(pldStart - 1) != '.')
+        {
+            pldStart--;
+        }
+        return pldStart;
+    }
+
+    /**
+     * Returns the hash value of the pay level domain of the host contained in the given range. The hash value is
+     * computed on the lower-case characters of the pay level domain via {@link #hash(CharSequence, int, int)}.
+     *
+     * @param host
+     *         The sequence containing the host
+     * @param start
+     *         The index of the first character of the host
+     * @param end
+     *         The index after the last character of the host
+     *
+     * @return The hash value of the pay level domain or of the whole host if the host is a public suffix itself
+     */
+    public long getPLDHash(CharSequence host, int start, int end)
+    {
+        int pldStart = this.getPLDStart(host, start, end);
+        return hash(host, pldStart < 0 ? start : pldStart, end);
+    }
+
+    /**
+     * Returns the pay level domain of the given host.
+     *
+     * @param host
+     *         The host to return the pay level domain for
+     *
+     * @return The pay level domain of the host or null if the host is a public suffix itself
+     */
+    public String getPLD(String host)
+    {
+        int pldStart = this.getPLDStart(host, 0, host.length());
+        return pldStart < 0 ? null : host.substring(pldStart);
+    }
+
+    /**
+     * Calculates a case-insensitive 64 bit FNV-1a hash value of the given range.
+     *
+     * @param chars
+     *         The sequence to calculate the hash value for
+     * @param start
+     *         The index of the first character to include
+     * @param end
+     *         The index after the last character to include
+     *
+     * @return The hash value of the range
+     */
+    public static long hash(CharSequence chars, int start, int end)
+    {
+        long hash = FNV_OFFSET;
+        for (int i = start; i < end; i++)
+        {
+            hash ^= toLowerCase(chars.charAt(i));
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private int findChild(int parent, CharSequence host, int start, int end)
+    {
+        int hash = hashLabel(host, start, end);
+        int slot = this.slot(parent, hash);
+        while (this.slotParent[slot] != -1)
+        {
+            if (this.slotParent[slot] == parent && this.slotHash[slot] == hash &&
+                equalsLabel(this.labels[this.slotChild[slot]], host, start, end))
+            {
+                return this.slotChild[slot];
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    private int slot(int parent, int hash)
+    {
+        int h = parent * 0x9E3779B9 + hash;
+        return (h ^ (h >>> 16)) & this.mask;
+    }
+
+    private static int hashLabel(CharSequence label, int start, int end)
+    {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+        {
+            hash = 31 * hash + toLowerCase(label.charAt(i));
+        }
+        return hash;
+    }
+
+    private static boolean equalsLabel(String label, CharSequence chars, int start, int end)
+    {
+        if (label.length() != end - start)
+        {
+            return false;
+        }
+        for (int i = 0; i < label.length(); i++)
+        {
+            if (label.charAt(i) != toLowerCase(chars.charAt(start + i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char toLowerCase(char c)
+    {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Loads the default rules on first access.
+     */
+    private final static class DefaultHolder
+    {
+        private final static PublicSuffixTrie INSTANCE;
+
+        static
+        {
+            try (InputStream input = PublicSuffixTrie.class.getResourceAsStream(DEFAULT_RULES))
+            {
+                if (input == null)
+                {
+                    throw new IllegalStateException("Could not find public suffix rules " + DEFAULT_RULES);
+                }
+                INSTANCE = load(input);
+            }
+            catch (IOException ioEx)
+            {
+                throw new IllegalStateException("Could not read public suffix rules " + DEFAULT_RULES, ioEx);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package at.rovo.crawler.util;
+
+import at.rovo.crawler.bean.HostData;
+import at.rovo.crawler.bean.RobotsRules;
+import at.rovo.crawler.bean.RobotsTxt;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Turns a fetched <em>robots.txt</em> file into the rules and the expiration time which are stored for its host.
+ * <p>
+ * The time the rules are valid for is taken from the <em>max-age</em> directive of the <em>Cache-Control</em> header,
+ * bounded by {@link #MIN_TTL} and {@link #MAX_TTL}, or {@link HostData#DEFAULT_TTL} if the server did not specify one.
+ *
+ * @author Roman Vottner
+ */
+public final class RobotsTxtUtils
+{
+    /** The logger of this class **/
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    /** The minimum time fetched rules are valid for **/
+    public final static long MIN_TTL = TimeUnit.HOURS.toMillis(1);
+    /** The maximum time fetched rules are valid for **/
+    public final static long MAX_TTL = TimeUnit.DAYS.toMillis(7);
+
+    private RobotsTxtUtils()
+    {
+
+    }
+
+    /**
+     * Extracts the rules relevant for the given user agent from a fetched <em>robots.txt</em> file.
+     *
+     * @param content
+     *         The content of the robots.txt file
+     * @param userAgent
+     *         The name of the user agent to extract the rules for
+     *
+     * @return The rules or null if the content contains no records, f.e. an HTML page returned instead of the file
+     */
+    public static RobotsRules compile(String content, String userAgent)
+    {
+        RobotsTxt robotsTxt = new RobotsTxt(content);
+        return robotsTxt.getRecords().isEmpty() ? null : RobotsRules.of(robotsTxt, userAgent);
+    }
+
+    /**
+     * Calculates the time fetched rules expire at based on the <em>Cache-Control</em> header of the response.
+     *
+     * @param cacheControl
+     *         The value of the Cache-Control header, may be null
+     * @param currentTime
+     *         The time in milliseconds since the epoch the rules were fetched at
+     *
+     * @return The expiration time in milliseconds since the epoch
+     */
+    public static long getExpirationTime(String cacheControl, long currentTime)
+    {
+        long ttl = HostData.DEFAULT_TTL;
+        if (cacheControl != null)
+        {
+            for (String directive : cacheControl.split(","))
+            {
+                directive = directive.trim();
+                if (directive.regionMatches(true, 0, "max-age=", 0, 8))
+                {
+                    try
+                    {
+                        ttl = TimeUnit.SECONDS.toMillis(Long.parseLong(directive.substring(8).trim()));
+                    }
+                    catch (NumberFormatException nfEx)
+                    {
+                        LOG.debug("Ignoring invalid Cache-Control directive: {}", directive);
+                    }
+                }
+            }
+        }
+        return currentTime + Math.max(MIN_TTL, Math.min(MAX_TTL, ttl));
+    }
+}
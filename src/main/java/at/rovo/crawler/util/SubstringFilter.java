@@ -0,0 +1,67 @@
+package at.rovo.crawler.util;
+
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.interfaces.UrlFilter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rejects URLs whose path or query contains one of a set of substrings, like the paths of calendars which generate an
+ * endless number of pages or the actions of wikis which only show a page in another form. The substrings are compiled
+ * into an {@link AhoCorasickMatcher}, so all of them are searched for in a single pass over the URL. The host of the
+ * URL is not searched.
+ *
+ * @author Roman Vottner
+ */
+public final class SubstringFilter implements UrlFilter
+{
+    /** The substrings rejected by default **/
+    public final static List<String> DEFAULT_SUBSTRINGS = Collections.unmodifiableList(Arrays.asList(
+            // calendars
+            "/calendar/", "/calendar.php", "/kalender/", "/events/month/", "ical=", "outlook-ical=",
+            // alternative views and actions of pages
+            "action=edit", "action=history", "action=diff", "action=raw", "oldid=", "printable=", "replytocom=",
+            "/feed/", "/trackback/", "/wp-login.php", "/wp-admin/"));
+
+    /** The name the rejected URLs are counted under **/
+    private final String name;
+    /** The compiled substrings **/
+    private final AhoCorasickMatcher matcher;
+
+    /**
+     * Creates a new instance which rejects the {@link #DEFAULT_SUBSTRINGS}.
+     */
+    public SubstringFilter()
+    {
+        this("substrings", DEFAULT_SUBSTRINGS);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param name
+     *         The name the rejected URLs are counted under
+     * @param substrings
+     *         The substrings to reject. Substrings are compared case-insensitively
+     */
+    public SubstringFilter(String name, Collection<String> substrings)
+    {
+        this.name = name;
+        this.matcher = new AhoCorasickMatcher(substrings);
+    }
+
+    @Override
+    public String getName()
+    {
+        return this.name;
+    }
+
+    @Override
+    public boolean accept(CrawlUrl url)
+    {
+        String s = url.getUrl();
+        return !this.matcher.find(s, url.getHostEnd(), s.length());
+    }
+}
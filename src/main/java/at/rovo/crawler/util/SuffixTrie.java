@@ -0,0 +1,155 @@
+package at.rovo.crawler.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks whether a range of characters ends with one of a set of suffixes, like the file extensions of URLs.
+ * <p>
+ * The suffixes are compiled into a trie of their reversed characters, f.e. the suffixes <em>.gz</em> and
+ * <em>.tar.gz</em> share the path <em>z</em> &rarr; <em>g</em> &rarr; <em>.</em>. The edges of all nodes are kept in
+ * flat arrays, sorted by character per node, so that a lookup walks the range from right to left and stops at the
+ * first character which does not continue any suffix. The lookup neither creates Strings nor depends on the number of
+ * suffixes.
+ * <p>
+ * Characters are compared case-insensitively.
+ *
+ * @author Roman Vottner
+ */
+public final class SuffixTrie
+{
+    /** The index of the first edge of each node, followed by the total number of edges **/
+    private final int[] firstEdge;
+    /** The lower-case character of each edge **/
+    private final char[] edgeChars;
+    /** The node each edge points to **/
+    private final int[] edgeTargets;
+    /** Marks the nodes which end a suffix **/
+    private final boolean[] terminal;
+
+    /**
+     * Compiles the given suffixes into a new instance. Empty suffixes are ignored.
+     *
+     * @param suffixes
+     *         The suffixes to match, f.e. <em>.jpg</em>
+     */
+    public SuffixTrie(Iterable<String> suffixes)
+    {
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Boolean> ends = new ArrayList<>();
+        children.add(new TreeMap<>());
+        ends.add(false);
+        for (String suffix : suffixes)
+        {
+            if (suffix.isEmpty())
+            {
+                continue;
+            }
+            int node = 0;
+            for (int i = suffix.length() - 1; i >= 0; i--)
+            {
+                char c = toLowerCase(suffix.charAt(i));
+                Integer child = children.get(node).get(c);
+                if (child == null)
+                {
+                    child = children.size();
+                    children.get(node).put(c, child);
+                    children.add(new TreeMap<>());
+                    ends.add(false);
+                }
+                node = child;
+            }
+            ends.set(node, true);
+        }
+
+        int numNodes = children.size();
+        this.firstEdge = new int[numNodes + 1];
+        this.edgeChars = new char[numNodes - 1];
+        this.edgeTargets = new int[numNodes - 1];
+        this.terminal = new boolean[numNodes];
+        int edge = 0;
+        for (int node = 0; node < numNodes; node++)
+        {
+            this.firstEdge[node] = edge;
+            this.terminal[node] = ends.get(node);
+            for (Map.Entry<Character, Integer> entry : children.get(node).entrySet())
+            {
+                this.edgeChars[edge] = entry.getKey();
+                this.edgeTargets[edge] = entry.getValue();
+                edge++;
+            }
+        }
+        this.firstEdge[numNodes] = edge;
+    }
+
+    /**
+     * Checks whether the given range ends with one of the suffixes.
+     *
+     * @param chars
+     *         The sequence to check
+     * @param start
+     *         The index of the first character of the range
+     * @param end
+     *         The index after the last character of the range
+     *
+     * @return true if the range ends with a suffix; false otherwise
+     */
+    public boolean matches(CharSequence chars, int start, int end)
+    {
+        int node = 0;
+        for (int i = end - 1; i >= start; i--)
+        {
+            node = this.findChild(node, toLowerCase(chars.charAt(i)));
+            if (node < 0)
+            {
+                return false;
+            }
+            if (this.terminal[node])
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of nodes of the compiled trie.
+     *
+     * @return The number of nodes including the root node
+     */
+    public int getNumNodes()
+    {
+        return this.terminal.length;
+    }
+
+    private int findChild(int node, char c)
+    {
+        int low = this.firstEdge[node];
+        int high = this.firstEdge[node + 1] - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            char edge = this.edgeChars[mid];
+            if (edge < c)
+            {
+                low = mid + 1;
+            }
+            else if (edge > c)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return this.edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    private static char toLowerCase(char c)
+    {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+    }
+}
@@ -0,0 +1,39 @@
+package at.rovo.crawler.util;
+
+import at.rovo.crawler.bean.ResolvedHost;
+import at.rovo.crawler.interfaces.HostResolver;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Resolves hosts via the name service of the JVM. The JVM does not expose the time to live of DNS records, so the
+ * results have an {@link ResolvedHost#UNKNOWN_TTL unknown TTL}.
+ * <p>
+ * The JVM reports non-existing hosts as well as temporary failures of the name service via an {@link
+ * UnknownHostException}. Only the message of the exception tells both apart, so exceptions reporting a temporary
+ * failure are rethrown to let the lookup be retried, while all others are taken as negative answers.
+ *
+ * @author Roman Vottner
+ */
+public final class SystemHostResolver implements HostResolver
+{
+    @Override
+    public ResolvedHost resolve(String hostName) throws IOException
+    {
+        try
+        {
+            return new ResolvedHost(hostName, InetAddress.getByName(hostName).getHostAddress(),
+                                    ResolvedHost.UNKNOWN_TTL);
+        }
+        catch (UnknownHostException uhEx)
+        {
+            String message = uhEx.getMessage();
+            if (message != null && (message.contains("Temporary failure") || message.contains("try again")))
+            {
+                throw uhEx;
+            }
+            return ResolvedHost.notFound(hostName, ResolvedHost.UNKNOWN_TTL);
+        }
+    }
+}
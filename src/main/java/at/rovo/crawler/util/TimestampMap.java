@@ -0,0 +1,344 @@
+package at.rovo.crawler.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent open-addressing map of long keys, like the hash values of pay level domains, to timestamps which only
+ * keeps timestamps younger than a maximum age.
+ * <p>
+ * Keys and values are stored next to each other in a single {@link AtomicLongArray} which is probed linearly, so an
+ * entry neither requires a key object nor a value object. Reads never lock and updates are performed via
+ * compare-and-set on the value slot. A missing entry reads as timestamp 0.
+ * <p>
+ * Entries are never removed individually. Instead, once half of the slots are used, the table is rebuilt with the
+ * entries whose timestamp is not older than the {@link #ensureMaxAge(long) maximum age} and twice the space they
+ * need. While the table is rebuilt, the value slots of the old table are frozen by storing their one's complement:
+ * readers still decode the frozen values, while writers wait for the new table and repeat their update on it. Only
+ * the threads rebuilding the table synchronize on this instance.
+ * <p>
+ * Timestamps must not be negative. The key 0 is used to mark empty slots and therefore shares its slot with the key
+ * {@link #ZERO_KEY}.
+ *
+ * @author Roman Vottner
+ */
+public final class TimestampMap
+{
+    /** The key which replaces the key 0 **/
+    public final static long ZERO_KEY = 0x9E3779B97F4A7C15L;
+    /** The minimum number of slots of the table **/
+    private final static int MIN_CAPACITY = 16;
+    /** The maximum number of slots of the table **/
+    private final static int MAX_CAPACITY = 1 << 29;
+    /** The result of a lookup which has to be repeated on a rebuilt table **/
+    private final static int RETRY = -2;
+
+    /** The number of slots the table starts with and never shrinks below **/
+    private final int initialCapacity;
+    /** The maximum age of the timestamps kept when the table is rebuilt **/
+    private final AtomicLong maxAge;
+    /** The current table **/
+    private volatile Table table;
+    /** The number of entries dropped when the table was rebuilt **/
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param initialCapacity
+     *         The number of slots to start with
+     * @param maxAge
+     *         The initial maximum age of timestamps kept when the table is rebuilt
+     */
+    public TimestampMap(int initialCapacity, long maxAge)
+    {
+        this.initialCapacity = tableSizeFor(initialCapacity);
+        this.maxAge = new AtomicLong(maxAge);
+        this.table = new Table(this.initialCapacity);
+    }
+
+    /**
+     * Returns the timestamp of the given key.
+     *
+     * @param key
+     *         The key to look up
+     *
+     * @return The timestamp of the key or 0 if the key is not contained
+     */
+    public long get(long key)
+    {
+        long k = key == 0 ? ZERO_KEY : key;
+        Table t = this.table;
+        int mask = t.mask;
+        int i = index(k, mask);
+        for (int probes = 0; probes <= mask; probes++, i = (i + 1) & mask)
+        {
+            long slotKey = t.slots.get(i << 1);
+            if (slotKey == k)
+            {
+                long value = t.slots.get((i << 1) + 1);
+                return value < 0 ? ~value : value;
+            }
+            if (slotKey == 0)
+            {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sets the timestamp of the given key to the update value if its current timestamp equals the expected value. An
+     * expected value of 0 matches missing keys, which are added.
+     *
+     * @param key
+     *         The key to update
+     * @param expect
+     *         The expected timestamp
+     * @param update
+     *         The new timestamp, 0 to reset the key
+     *
+     * @return true if the timestamp was updated; false if the current timestamp differed from the expected one
+     */
+    public boolean compareAndSet(long key, long expect, long update)
+    {
+        if (update < 0)
+        {
+            throw new IllegalArgumentException("Timestamps must not be negative: " + update);
+        }
+        long k = key == 0 ? ZERO_KEY : key;
+        while (true)
+        {
+            Table t = this.table;
+            int slot = this.findSlot(t, k, expect == 0, update);
+            if (slot == RETRY)
+            {
+                continue;
+            }
+            if (slot < 0)
+            {
+                return false;
+            }
+            long value = t.slots.get(slot + 1);
+            if (value < 0)
+            {
+                // the table is rebuilt, so the update has to be applied to the new table
+                this.awaitRebuild(t);
+                continue;
+            }
+            if (value != expect)
+            {
+                return false;
+            }
+            if (t.slots.compareAndSet(slot + 1, value, update))
+            {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Raises the maximum age of the kept timestamps to the given age if it is currently lower.
+     *
+     * @param age
+     *         The time an entry needs to be kept at least after its last update
+     */
+    public void ensureMaxAge(long age)
+    {
+        long current = this.maxAge.get();
+        while (age > current && !this.maxAge.compareAndSet(current, age))
+        {
+            current = this.maxAge.get();
+        }
+    }
+
+    /**
+     * Returns the maximum age of the timestamps kept when the table is rebuilt.
+     *
+     * @return The maximum age
+     */
+    public long getMaxAge()
+    {
+        return this.maxAge.get();
+    }
+
+    /**
+     * Returns the number of slots used by keys, including the keys whose timestamp is already too old but which were
+     * not evicted yet.
+     *
+     * @return The number of used slots
+     */
+    public int size()
+    {
+        return this.table.used.get();
+    }
+
+    /**
+     * Returns the number of slots of the current table.
+     *
+     * @return The capacity of the table
+     */
+    public int capacity()
+    {
+        return this.table.mask + 1;
+    }
+
+    /**
+     * Returns the number of entries which were dropped as their timestamp was too old when the table was rebuilt.
+     *
+     * @return The number of evicted entries
+     */
+    public long getEvictions()
+    {
+        return this.evictions.get();
+    }
+
+    /**
+     * Looks up the slot of a key and adds the key if it is missing and should be inserted. If the insertion fills the
+     * table, the table is rebuilt dropping the entries older than the maximum age relative to the given time.
+     *
+     * @return The index of the key within the slots, -1 if the key is missing and was not inserted or {@link #RETRY}
+     * if the table was full
+     */
+    private int findSlot(Table t, long k, boolean insert, long currentTime)
+    {
+        int mask = t.mask;
+        int i = index(k, mask);
+        for (int probes = 0; probes <= mask; )
+        {
+            long slotKey = t.slots.get(i << 1);
+            if (slotKey == k)
+            {
+                return i << 1;
+            }
+            if (slotKey == 0)
+            {
+                if (!insert)
+                {
+                    return -1;
+                }
+                if (!t.slots.compareAndSet(i << 1, 0, k))
+                {
+                    // the slot was claimed concurrently, possibly by the same key
+                    continue;
+                }
+                if (t.used.incrementAndGet() > t.threshold)
+                {
+                    this.rebuild(t, currentTime - this.maxAge.get());
+                }
+                return i << 1;
+            }
+            i = (i + 1) & mask;
+            probes++;
+        }
+        // only possible if keys were claimed concurrently to a rebuild of the table
+        if (!insert)
+        {
+            return -1;
+        }
+        this.rebuild(t, currentTime - this.maxAge.get());
+        return RETRY;
+    }
+
+    /**
+     * Replaces the given table with a new one containing the entries whose timestamp is not older than the cutoff.
+     */
+    private void rebuild(Table t, long cutoff)
+    {
+        synchronized (this)
+        {
+            if (this.table != t)
+            {
+                return;
+            }
+            int live = 0;
+            int capacity = t.mask + 1;
+            for (int i = 0; i < capacity; i++)
+            {
+                // freeze the value, including the ones of empty slots which could be claimed concurrently
+                long value = t.slots.getAndUpdate((i << 1) + 1, v -> v < 0 ? v : ~v);
+                long key = t.slots.get(i << 1);
+                if (key != 0 && value >= cutoff && value > 0)
+                {
+                    live++;
+                }
+            }
+            Table rebuilt = new Table(Math.max(this.initialCapacity, tableSizeFor(live * 4)));
+            int mask = rebuilt.mask;
+            long evicted = 0;
+            for (int i = 0; i < capacity; i++)
+            {
+                long key = t.slots.get(i << 1);
+                long value = ~t.slots.get((i << 1) + 1);
+                // keys without timestamp were reset or are inserted concurrently and will be added to the new table
+                if (key == 0 || value == 0)
+                {
+                    continue;
+                }
+                if (value < cutoff)
+                {
+                    evicted++;
+                    continue;
+                }
+                int j = index(key, mask);
+                while (rebuilt.slots.get(j << 1) != 0)
+                {
+                    j = (j + 1) & mask;
+                }
+                rebuilt.slots.set(j << 1, key);
+                rebuilt.slots.set((j << 1) + 1, value);
+                rebuilt.used.incrementAndGet();
+            }
+            this.evictions.addAndGet(evicted);
+            this.table = rebuilt;
+        }
+    }
+
+    /**
+     * Waits until the given table was replaced by the thread rebuilding it.
+     */
+    private void awaitRebuild(Table t)
+    {
+        while (this.table == t)
+        {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static int index(long key, int mask)
+    {
+        // spread the bits of the key as keys are not necessarily uniformly distributed in their low bits
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static int tableSizeFor(int capacity)
+    {
+        if (capacity >= MAX_CAPACITY)
+        {
+            return MAX_CAPACITY;
+        }
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+    }
+
+    /**
+     * The slots of the map, where the key of slot <em>i</em> is stored at index <em>2i</em> and its timestamp at
+     * index <em>2i + 1</em>.
+     */
+    private final static class Table
+    {
+        private final AtomicLongArray slots;
+        private final int mask;
+        /** The number of used slots after which the table is rebuilt **/
+        private final int threshold;
+        private final AtomicInteger used = new AtomicInteger();
+
+        private Table(int capacity)
+        {
+            this.slots = new AtomicLongArray(capacity * 2);
+            this.mask = capacity - 1;
+            this.threshold = capacity / 2;
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package at.rovo.crawler.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Resolves links against the URL of the page they were found on and transforms the resulting URLs into a canonical
+ * form, so that the different spellings of a URL are only seen once.
+ * <p>
+ * Resolution follows the algorithm of <a href="https://tools.ietf.org/html/rfc3986#section-5.2">RFC 3986 section
+ * 5.2</a> including the removal of dot-segments like <em>./</em> and <em>../</em>. The syntax-based and scheme-based
+ * normalizations of RFC 3986 section 6.2 which are applied on top are configured via a set of {@link Normalization}s.
+ * Only absolute <em>http</em> and <em>https</em> URLs are returned, links with other schemes like <em>mailto</em> or
+ * <em>javascript</em> are discarded.
+ * <p>
+ * A URL is parsed by recording the offsets of its components and the result is written into a single buffer, so no
+ * intermediate Strings are created per component. Instances are immutable and can be shared among threads.
+ *
+ * @author Roman Vottner
+ */
+public final class UrlCanonicalizer
+{
+    /**
+     * The normalizations which can be applied to a resolved URL.
+     */
+    public enum Normalization
+    {
+        /** Converts the host to lower case, f.e. <em>http://Example.COM/</em> to <em>http://example.com/</em> **/
+        LOWER_CASE_HOST,
+        /** Removes the port if it is the default port of the scheme, f.e. <em>http://example.com:80/</em> **/
+        REMOVE_DEFAULT_PORT,
+        /**
+         * Decodes percent-encoded unreserved characters, converts the hexadecimal digits of the remaining encodings to
+         * upper case and encodes characters which are not allowed in a URL, like spaces or non-ASCII characters
+         **/
+        NORMALIZE_PERCENT_ENCODING,
+        /** Uses <em>/</em> as path if the path is empty, f.e. <em>http://example.com</em> **/
+        ADD_EMPTY_PATH_SLASH,
+        /** Removes the fragment as it is never sent to the server, f.e. <em>http://example.com/#top</em> **/
+        REMOVE_FRAGMENT,
+        /**
+         * Removes an empty query, f.e. <em>http://example.com/?</em>. Note that a server might treat an empty query
+         * different than no query
+         **/
+        REMOVE_EMPTY_QUERY
+    }
+
+    /** The normalizations applied by default, which do not change the resource a URL refers to **/
+    public final static Set<Normalization> DEFAULT_NORMALIZATIONS = Collections.unmodifiableSet(
+            EnumSet.complementOf(EnumSet.of(Normalization.REMOVE_EMPTY_QUERY)));
+
+    /** The upper case hexadecimal digits **/
+    private final static char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /** The default instance **/
+    private final static UrlCanonicalizer DEFAULT = new UrlCanonicalizer();
+
+    private final boolean lowerCaseHost;
+    private final boolean removeDefaultPort;
+    private final boolean normalizePercentEncoding;
+    private final boolean addEmptyPathSlash;
+    private final boolean removeFragment;
+    private final boolean removeEmptyQuery;
+
+    /**
+     * Creates a new instance which applies the {@link #DEFAULT_NORMALIZATIONS}.
+     */
+    public UrlCanonicalizer()
+    {
+        this(DEFAULT_NORMALIZATIONS);
+    }
+
+    /**
+     * Creates a new instance which applies the given normalizations.
+     *
+     * @param normalizations
+     *         The normalizations to apply to resolved URLs
+     */
+    public UrlCanonicalizer(Set<Normalization> normalizations)
+    {
+        this.lowerCaseHost = normalizations.contains(Normalization.LOWER_CASE_HOST);
+        this.removeDefaultPort = normalizations.contains(Normalization.REMOVE_DEFAULT_PORT);
+        this.normalizePercentEncoding = normalizations.contains(Normalization.NORMALIZE_PERCENT_ENCODING);
+        this.addEmptyPathSlash = normalizations.contains(Normalization.ADD_EMPTY_PATH_SLASH);
+        this.removeFragment = normalizations.contains(Normalization.REMOVE_FRAGMENT);
+        this.removeEmptyQuery = normalizations.contains(Normalization.REMOVE_EMPTY_QUERY);
+    }
+
+    /**
+     * Returns an instance which applies the {@link #DEFAULT_NORMALIZATIONS}.
+     *
+     * @return The default instance
+     */
+    public static UrlCanonicalizer getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Transforms the given absolute URL into its canonical form.
+     *
+     * @param url
+     *         The absolute URL to canonicalize
+     *
+     * @return The canonical URL or null if the URL is not an absolute <em>http</em> or <em>https</em> URL
+     */
+    public String canonicalize(String url)
+    {
+        return this.resolve(null, url);
+    }
+
+    /**
+     * Resolves a link against the URL of the page it was found on and transforms the result into its canonical form.
+     *
+     * @param base
+     *         The absolute URL of the page containing the link, may be null if the link is absolute
+     * @param reference
+     *         The link to resolve, f.e. <em>../index.html</em>. Leading and trailing whitespace is ignored
+     *
+     * @return The canonical absolute URL or null if the link does not resolve to a valid <em>http</em> or
+     * <em>https</em> URL
+     */
+    public String resolve(String base, String reference)
+    {
+        String ref = reference.trim();
+        Components r = new Components(ref);
+        Components b = null;
+        if (r.schemeEnd < 0)
+        {
+            if (base == null)
+            {
+                return null;
+            }
+            b = new Components(base);
+            if (b.schemeEnd < 0)
+            {
+                return null;
+            }
+        }
+
+        // the target components are taken either from the reference or the base, see RFC 3986 section 5.2.2
+        String scheme = b == null ? ref : base;
+        int schemeEnd = b == null ? r.schemeEnd : b.schemeEnd;
+        if (!isHttpScheme(scheme, schemeEnd))
+        {
+            return null;
+        }
+        String authority = r.authorityStart >= 0 || b == null ? ref : base;
+        Components a = r.authorityStart >= 0 || b == null ? r : b;
+        if (a.authorityStart < 0)
+        {
+            return null;
+        }
+
+        StringBuilder url = new StringBuilder(base != null ? base.length() + ref.length() : ref.length() + 1);
+        for (int i = 0; i < schemeEnd; i++)
+        {
+            url.append(toLowerCase(scheme.charAt(i)));
+        }
+        url.append("://");
+        if (!this.appendAuthority(url, authority, a.authorityStart, a.authorityEnd, schemeEnd))
+        {
+            return null;
+        }
+
+        // merge and normalize the path before removing the dot-segments, so that encoded dots are removed as well
+        StringBuilder path = new StringBuilder(64);
+        String query;
+        int queryStart;
+        int queryEnd;
+        if (b == null || r.authorityStart >= 0)
+        {
+            this.appendEncoded(path, ref, r.pathStart, r.pathEnd);
+            query = ref;
+            queryStart = r.queryStart;
+            queryEnd = r.queryEnd;
+        }
+        else if (r.pathStart == r.pathEnd)
+        {
+            this.appendEncoded(path, base, b.pathStart, b.pathEnd);
+            query = r.queryStart >= 0 ? ref : base;
+            queryStart = r.queryStart >= 0 ? r.queryStart : b.queryStart;
+            queryEnd = r.queryStart >= 0 ? r.queryEnd : b.queryEnd;
+        }
+        else
+        {
+            if (ref.charAt(r.pathStart) != '/')
+            {
+                if (b.pathStart == b.pathEnd)
+                {
+                    path.append('/');
+                }
+                else
+                {
+                    this.appendEncoded(path, base, b.pathStart, base.lastIndexOf('/', b.pathEnd - 1) + 1);
+                }
+            }
+            this.appendEncoded(path, ref, r.pathStart, r.pathEnd);
+            query = ref;
+            queryStart = r.queryStart;
+            queryEnd = r.queryEnd;
+        }
+        int pathStart = url.length();
+        removeDotSegments(path, url);
+        if (url.length() == pathStart && this.addEmptyPathSlash)
+        {
+            url.append('/');
+        }
+
+        if (queryStart >= 0 && (queryEnd > queryStart || !this.removeEmptyQuery))
+        {
+            url.append('?');
+            this.appendEncoded(url, query, queryStart, queryEnd);
+        }
+        if (r.fragmentStart >= 0 && !this.removeFragment)
+        {
+            url.append('#');
+            this.appendEncoded(url, ref, r.fragmentStart, ref.length());
+        }
+        return url.toString();
+    }
+
+    private boolean appendAuthority(StringBuilder url, String authority, int start, int end, int schemeEnd)
+    {
+        int hostStart = authority.lastIndexOf('@', end - 1) + 1;
+        if (hostStart <= start)
+        {
+            hostStart = start;
+        }
+        else
+        {
+            this.appendEncoded(url, authority, start, hostStart);
+        }
+        int hostEnd = hostStart;
+        if (hostEnd < end && authority.charAt(hostEnd) == '[')
+        {
+            // IPv6 literal
+            while (hostEnd < end && authority.charAt(hostEnd) != ']')
+            {
+                hostEnd++;
+            }
+            hostEnd = Math.min(hostEnd + 1, end);
+        }
+        while (hostEnd < end && authority.charAt(hostEnd) != ':')
+        {
+            hostEnd++;
+        }
+        if (hostEnd == hostStart)
+        {
+            return false;
+        }
+        int hostLength = url.length();
+        this.appendEncoded(url, authority, hostStart, hostEnd);
+        if (this.lowerCaseHost)
+        {
+            for (int i = hostLength; i < url.length(); i++)
+            {
+                url.setCharAt(i, toLowerCase(url.charAt(i)));
+            }
+        }
+
+        int portStart = hostEnd + 1;
+        if (portStart > end)
+        {
+            return true;
+        }
+        int port = 0;
+        for (int i = portStart; i < end; i++)
+        {
+            char c = authority.charAt(i);
+            if (c < '0' || c > '9')
+            {
+                return false;
+            }
+            port = Math.min(port * 10 + (c - '0'), 65536);
+        }
+        if (portStart == end || (this.removeDefaultPort && port == getDefaultPort(schemeEnd)))
+        {
+            return true;
+        }
+        if (port > 65535)
+        {
+            return false;
+        }
+        url.append(':').append(port);
+        return true;
+    }
+
+    /**
+     * Appends the given range to the buffer. If {@link Normalization#NORMALIZE_PERCENT_ENCODING} is enabled, encoded
+     * unreserved characters are decoded, the remaining encodings use upper case hexadecimal digits and characters not
+     * allowed in a URL are encoded.
+     */
+    private void appendEncoded(StringBuilder out, String s, int start, int end)
+    {
+        if (!this.normalizePercentEncoding)
+        {
+            out.append(s, start, end);
+            return;
+        }
+        for (int i = start; i < end; i++)
+        {
+            char c = s.charAt(i);
+            if (c == '%')
+            {
+                int hi = i + 2 < end ? Character.digit(s.charAt(i + 1), 16) : -1;
+                int lo = hi >= 0 ? Character.digit(s.charAt(i + 2), 16) : -1;
+                if (lo < 0)
+                {
+                    // a single percent sign has to be encoded itself
+                    appendPercentEncoded(out, '%');
+                    continue;
+                }
+                char decoded = (char) (hi << 4 | lo);
+                if (isUnreserved(decoded))
+                {
+                    out.append(decoded);
+                }
+                else
+                {
+                    appendPercentEncoded(out, decoded);
+                }
+                i += 2;
+            }
+            else if (c > 0x20 && c < 0x7f && "\"<>\\^`{|}".indexOf(c) < 0)
+            {
+                out.append(c);
+            }
+            else if (c < 0x80)
+            {
+                appendPercentEncoded(out, c);
+            }
+            else
+            {
+                int codePoint = Character.codePointAt(s, i);
+                int length = Character.charCount(codePoint);
+                for (byte octet : s.substring(i, i + length).getBytes(StandardCharsets.UTF_8))
+                {
+                    appendPercentEncoded(out, octet & 0xff);
+                }
+                i += length - 1;
+            }
+        }
+    }
+
+    private static void appendPercentEncoded(StringBuilder out, int octet)
+    {
+        out.append('%').append(HEX_DIGITS[octet >> 4 & 0xf]).append(HEX_DIGITS[octet & 0xf]);
+    }
+
+    /**
+     * Removes the dot-segments of the given path and appends the result to the output buffer as described in <a
+     * href="https://tools.ietf.org/html/rfc3986#section-5.2.4">RFC 3986 section 5.2.4</a>.
+     *
+     * @param path
+     *         The path containing dot-segments
+     * @param out
+     *         The buffer to append the path without dot-segments to
+     */
+    static void removeDotSegments(CharSequence path, StringBuilder out)
+    {
+        int outStart = out.length();
+        int length = path.length();
+        int i = 0;
+        while (i < length)
+        {
+            if (startsWith(path, i, "../"))
+            {
+                i += 3;
+            }
+            else if (startsWith(path, i, "./") || startsWith(path, i, "/./"))
+            {
+                i += 2;
+            }
+            else if (i + 2 == length && startsWith(path, i, "/."))
+            {
+                out.append('/');
+                i = length;
+            }
+            else if (startsWith(path, i, "/../"))
+            {
+                removeLastSegment(out, outStart);
+                i += 3;
+            }
+            else if (i + 3 == length && startsWith(path, i, "/.."))
+            {
+                removeLastSegment(out, outStart);
+                out.append('/');
+                i = length;
+            }
+            else if ((i + 1 == length && path.charAt(i) == '.') || (i + 2 == length && startsWith(path, i, "..")))
+            {
+                i = length;
+            }
+            else
+            {
+                // move the first segment including its leading slash to the output
+                out.append(path.charAt(i++));
+                while (i < length && path.charAt(i) != '/')
+                {
+                    out.append(path.charAt(i++));
+                }
+            }
+        }
+    }
+
+    private static void removeLastSegment(StringBuilder out, int outStart)
+    {
+        int i = out.length();
+        while (i > outStart && out.charAt(i - 1) != '/')
+        {
+            i--;
+        }
+        out.setLength(Math.max(i - 1, outStart));
+    }
+
+    private static boolean startsWith(CharSequence s, int offset, String prefix)
+    {
+        if (offset + prefix.length() > s.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++)
+        {
+            if (s.charAt(offset + i) != prefix.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHttpScheme(String url, int schemeEnd)
+    {
+        return (schemeEnd == 4 || (schemeEnd == 5 && toLowerCase(url.charAt(4)) == 's')) &&
+               url.regionMatches(true, 0, "http", 0, 4);
+    }
+
+    private static int getDefaultPort(int schemeEnd)
+    {
+        // only http and https are accepted
+        return schemeEnd == 5 ? 443 : 80;
+    }
+
+    private static boolean isUnreserved(char c)
+    {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' ||
+               c == '.' || c == '_' || c == '~';
+    }
+
+    private static char toLowerCase(char c)
+    {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * The offsets of the components of a URL or a relative reference as defined by <a
+     * href="https://tools.ietf.org/html/rfc3986#appendix-B">RFC 3986 appendix B</a>. Components which are not defined
+     * have a start offset of -1.
+     */
+    private final static class Components
+    {
+        /** The index of the ':' after the scheme **/
+        private int schemeEnd = -1;
+        /** The index of the first character after the '//' prefix of the authority **/
+        private int authorityStart = -1;
+        private int authorityEnd = -1;
+        private int pathStart;
+        private int pathEnd;
+        /** The index of the first character after the '?' **/
+        private int queryStart = -1;
+        private int queryEnd = -1;
+        /** The index of the first character after the '#' **/
+        private int fragmentStart = -1;
+
+        private Components(String s)
+        {
+            int length = s.length();
+            int i = 0;
+            // scheme = ALPHA *( ALPHA / DIGIT / "+" / "-" / "." )
+            while (i < length)
+            {
+                char c = s.charAt(i);
+                if (c == ':')
+                {
+                    if (i > 0 && Character.isLetter(s.charAt(0)))
+                    {
+                        this.schemeEnd = i;
+                        i++;
+                    }
+                    else
+                    {
+                        i = 0;
+                    }
+                    break;
+                }
+                if (!isUnreserved(c) && c != '+' || c == '_' || c == '~')
+                {
+                    i = 0;
+                    break;
+                }
+                i++;
+            }
+            if (i == length && this.schemeEnd < 0)
+            {
+                i = 0;
+            }
+            if (startsWith(s, i, "//"))
+            {
+                i += 2;
+                this.authorityStart = i;
+                while (i < length && "/?#".indexOf(s.charAt(i)) < 0)
+                {
+                    i++;
+                }
+                this.authorityEnd = i;
+            }
+            this.pathStart = i;
+            while (i < length && s.charAt(i) != '?' && s.charAt(i) != '#')
+            {
+                i++;
+            }
+            this.pathEnd = i;
+            if (i < length && s.charAt(i) == '?')
+            {
+                this.queryStart = ++i;
+                while (i < length && s.charAt(i) != '#')
+                {
+                    i++;
+                }
+                this.queryEnd = i;
+            }
+            if (i < length && s.charAt(i) == '#')
+            {
+                this.fragmentStart = i + 1;
+            }
+        }
+    }
+}
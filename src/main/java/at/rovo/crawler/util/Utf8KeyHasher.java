@@ -0,0 +1,176 @@
+package at.rovo.crawler.util;
+
+import at.rovo.crawler.interfaces.KeyHasher;
+
+/**
+ * A fast non-cryptographic 64 bit hash function on the UTF-8 encoding of characters.
+ * <p>
+ * The characters are encoded on the fly while they are hashed, so neither a String nor a byte array is created. The
+ * encoded bytes are collected into 64 bit words which are mixed like in MurmurHash64A, followed by the 64 bit finalizer
+ * of MurmurHash3. The result is identical to {@link #hash(byte[], int, int)} applied to the UTF-8 bytes of the
+ * characters.
+ *
+ * @author Roman Vottner
+ */
+public final class Utf8KeyHasher implements KeyHasher
+{
+    /** The multiplier of MurmurHash64A **/
+    private final static long M = 0xc6a4a7935bd1e995L;
+    /** The shift of MurmurHash64A **/
+    private final static int R = 47;
+    /** The default seed **/
+    public final static long DEFAULT_SEED = 0x1E7F3A5C9B2D4861L;
+
+    /** The seed of the hash function **/
+    private final long seed;
+
+    /**
+     * Creates a new instance which uses the {@link #DEFAULT_SEED}.
+     */
+    public Utf8KeyHasher()
+    {
+        this(DEFAULT_SEED);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param seed
+     *         The seed of the hash function
+     */
+    public Utf8KeyHasher(long seed)
+    {
+        this.seed = seed;
+    }
+
+    @Override
+    public long hash(CharSequence value, int start, int end)
+    {
+        long h = this.seed;
+        long word = 0;
+        int shift = 0;
+        long length = 0;
+        for (int i = start; i < end; i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                // fast path for ASCII characters which make up most of the URLs
+                word |= (long) c << shift;
+                shift += 8;
+                length++;
+                if (shift == 64)
+                {
+                    h = mix(h, word);
+                    word = 0;
+                    shift = 0;
+                }
+                continue;
+            }
+
+            int bytes;
+            int count;
+            if (c < 0x800)
+            {
+                bytes = (0xC0 | c >> 6) | (0x80 | c & 0x3F) << 8;
+                count = 2;
+            }
+            else if (Character.isSurrogate(c))
+            {
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1)))
+                {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes = (0xF0 | codePoint >> 18) | (0x80 | codePoint >> 12 & 0x3F) << 8 |
+                            (0x80 | codePoint >> 6 & 0x3F) << 16 | (0x80 | codePoint & 0x3F) << 24;
+                    count = 4;
+                }
+                else
+                {
+                    // unpaired surrogates are encoded as '?' like String.getBytes does
+                    bytes = '?';
+                    count = 1;
+                }
+            }
+            else
+            {
+                bytes = (0xE0 | c >> 12) | (0x80 | c >> 6 & 0x3F) << 8 | (0x80 | c & 0x3F) << 16;
+                count = 3;
+            }
+            for (int b = 0; b < count; b++)
+            {
+                word |= (long) (bytes >>> (b << 3) & 0xFF) << shift;
+                shift += 8;
+                length++;
+                if (shift == 64)
+                {
+                    h = mix(h, word);
+                    word = 0;
+                    shift = 0;
+                }
+            }
+        }
+        return finish(h, word, shift, length);
+    }
+
+    /**
+     * Calculates the hash value of the given bytes.
+     *
+     * @param bytes
+     *         The bytes to calculate the hash value for
+     * @param offset
+     *         The index of the first byte to include
+     * @param length
+     *         The number of bytes to include
+     *
+     * @return The 64 bit hash value of the bytes
+     */
+    public long hash(byte[] bytes, int offset, int length)
+    {
+        long h = this.seed;
+        int i = offset;
+        int end = offset + length;
+        for (; i + 8 <= end; i += 8)
+        {
+            long word = 0;
+            for (int b = 7; b >= 0; b--)
+            {
+                word = word << 8 | (bytes[i + b] & 0xFF);
+            }
+            h = mix(h, word);
+        }
+        long word = 0;
+        int shift = 0;
+        for (; i < end; i++)
+        {
+            word |= (long) (bytes[i] & 0xFF) << shift;
+            shift += 8;
+        }
+        return finish(h, word, shift, length);
+    }
+
+    private static long mix(long h, long word)
+    {
+        long k = word * M;
+        k ^= k >>> R;
+        k *= M;
+        h ^= k;
+        return h * M;
+    }
+
+    private static long finish(long h, long word, int shift, long length)
+    {
+        if (shift > 0)
+        {
+            h ^= word;
+            h *= M;
+        }
+        h ^= length;
+        // the finalizer of MurmurHash3 lets every input bit affect every output bit
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
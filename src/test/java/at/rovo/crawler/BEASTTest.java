@@ -0,0 +1,264 @@
+package at.rovo.crawler;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.bean.CrawlUrl;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class BEASTTest
+{
+    private Path checkpointFile = null;
+    private final List<BEAST> instances = new ArrayList<>();
+    /** The batches of drained queues in the order they were passed on **/
+    private final BlockingQueue<List<CrawlUrl>> batches = new LinkedBlockingQueue<>();
+    /** Lets the queue reader continue after it passed on a batch **/
+    private final Semaphore proceed = new Semaphore(0);
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.checkpointFile = Files.createTempDirectory("beast").resolve("beast.checkpoint");
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        for (BEAST beast : this.instances)
+        {
+            beast.dispose();
+        }
+        this.proceed.release(Integer.MAX_VALUE / 2);
+        Files.deleteIfExists(this.checkpointFile);
+        Files.deleteIfExists(this.checkpointFile.getParent());
+    }
+
+    private BEAST createBEAST()
+    {
+        BEAST beast = new BEAST(this.checkpointFile);
+        this.instances.add(beast);
+        return beast;
+    }
+
+    /**
+     * Creates an instance whose queue reader stopped before it read any queue, so that URLs can be added without being
+     * drained.
+     */
+    private BEAST createStoppedBEAST()
+    {
+        BEAST beast = this.createBEAST();
+        beast.dispose();
+        return beast;
+    }
+
+    /**
+     * Starts the queue reader of a restored instance, which pauses after each drained queue until {@link #proceed} is
+     * released.
+     */
+    private void startPausingReader(BEAST beast)
+    {
+        beast.addBEASTBatchPassedListener(urls ->
+        {
+            this.batches.add(urls);
+            this.proceed.acquireUninterruptibly();
+        });
+    }
+
+    private List<CrawlUrl> drain(int numUrls) throws InterruptedException
+    {
+        List<CrawlUrl> passed = new ArrayList<>(this.nextBatch());
+        while (passed.size() < numUrls)
+        {
+            this.proceed.release();
+            passed.addAll(this.nextBatch());
+        }
+        return passed;
+    }
+
+    private List<CrawlUrl> nextBatch() throws InterruptedException
+    {
+        List<CrawlUrl> batch = this.batches.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull("no queue was drained", batch);
+        return batch;
+    }
+
+    private static CrawlUrl url(int page)
+    {
+        return url("example.com", page);
+    }
+
+    private static CrawlUrl url(String pld, int page)
+    {
+        return CrawlUrl.of("http://www." + pld + "/page" + page);
+    }
+
+    private void assertEmpty(BEAST beast)
+    {
+        Assert.assertArrayEquals(new int[] {0, 0}, beast.getQueueSizes());
+        Assert.assertEquals(0, beast.getLeftOverSize());
+        Assert.assertEquals(0, beast.getCurrentQueue());
+    }
+
+    @Test
+    public void testNewUrlsDoNotOvertakeLeftOverUrlsAfterSplit() throws Exception
+    {
+        BEAST stopped = this.createStoppedBEAST();
+        // with a budget of 1 the first URL is admitted to the second queue and the others are left over
+        for (int page = 1; page <= 5; page++)
+        {
+            stopped.checkBudgetOfURL(url(page), 1);
+        }
+        Assert.assertEquals(4, stopped.getLeftOverSize());
+        stopped.checkpoint();
+
+        BEAST beast = this.createBEAST();
+        this.startPausingReader(beast);
+        // draining the last queue splits the left-over queue and redistributes it to the two new queues
+        Assert.assertEquals(Collections.singletonList(url(1)), this.nextBatch());
+        Assert.assertEquals(4, beast.getNumberOfQueues());
+        Assert.assertEquals(2, beast.getLeftOverSize());
+
+        // the budget of the drained queue is free again, though older URLs of the PLD are still left over
+        beast.checkBudgetOfURL(url(6), 1);
+        Assert.assertEquals(3, beast.getLeftOverSize());
+
+        this.proceed.release();
+        Assert.assertEquals(Arrays.asList(url(2), url(3), url(4), url(5), url(6)), this.drain(5));
+    }
+
+    @Test
+    public void testListenersAreInformedWithoutHoldingTheLock() throws Exception
+    {
+        BEAST stopped = this.createStoppedBEAST();
+        stopped.checkBudgetOfURL(url(1), 1);
+        stopped.checkpoint();
+
+        BEAST beast = this.createBEAST();
+        BlockingQueue<CrawlUrl> passed = new LinkedBlockingQueue<>();
+        beast.addBEASTBudgetPassedListener(url ->
+        {
+            // a listener adding URLs from another thread would block forever if the lock on the queues was held
+            try
+            {
+                CompletableFuture.runAsync(() -> beast.checkBudgetOfURL(url(2), 1)).get(5, TimeUnit.SECONDS);
+                passed.add(url);
+            }
+            catch (Exception ex)
+            {
+                Assert.fail("URL could not be added while informing listeners: " + ex);
+            }
+        });
+        Assert.assertEquals(url(1), passed.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTopDeferredPLDsAmongManyDeferredPLDs()
+    {
+        BEAST beast = this.createStoppedBEAST();
+        // with a budget of 1 all but the first URL of a PLD are deferred
+        for (int page = 0; page <= 300; page++)
+        {
+            beast.checkBudgetOfURL(url("first.com", page), 1);
+            if (page <= 200)
+            {
+                beast.checkBudgetOfURL(url("second.com", page), 1);
+            }
+            if (page <= 100)
+            {
+                beast.checkBudgetOfURL(url("third.com", page), 1);
+            }
+        }
+        for (int pld = 0; pld < 5000; pld++)
+        {
+            beast.checkBudgetOfURL(url("pld" + pld + ".com", 1), 1);
+            beast.checkBudgetOfURL(url("pld" + pld + ".com", 2), 1);
+        }
+
+        Map<String, Long> top = beast.getTopDeferredPLDs();
+        Assert.assertEquals(10, top.size());
+        Assert.assertEquals(Arrays.asList("first.com", "second.com", "third.com"),
+                            new ArrayList<>(top.keySet()).subList(0, 3));
+        // estimates never fall below the actual numbers
+        Assert.assertTrue(top.get("first.com") >= 300);
+        Assert.assertTrue(top.get("third.com") >= 100);
+    }
+
+    @Test
+    public void testCheckpointRestoresQueuesAndLeftOvers() throws Exception
+    {
+        BEAST stopped = this.createStoppedBEAST();
+        for (int page = 1; page <= 5; page++)
+        {
+            stopped.checkBudgetOfURL(url("example.com", page), 2);
+        }
+        for (int page = 1; page <= 3; page++)
+        {
+            stopped.checkBudgetOfURL(url("example.org", page), 2);
+        }
+        stopped.checkpoint();
+
+        BEAST beast = this.createBEAST();
+        Assert.assertArrayEquals(new int[] {0, 4}, beast.getQueueSizes());
+        Assert.assertEquals(4, beast.getLeftOverSize());
+        Assert.assertEquals(0, beast.getCurrentQueue());
+
+        this.startPausingReader(beast);
+        Assert.assertEquals(Arrays.asList(url("example.com", 1), url("example.com", 2), url("example.org", 1),
+                                          url("example.org", 2), url("example.com", 3), url("example.com", 4),
+                                          url("example.org", 3), url("example.com", 5)), this.drain(8));
+    }
+
+    @Test
+    public void testTruncatedCheckpointIsDiscarded() throws Exception
+    {
+        BEAST stopped = this.createStoppedBEAST();
+        for (int page = 1; page <= 5; page++)
+        {
+            stopped.checkBudgetOfURL(url(page), 1);
+        }
+        stopped.checkpoint();
+        byte[] checkpoint = Files.readAllBytes(this.checkpointFile);
+        // cut off within the entries of the left-over queue
+        Files.write(this.checkpointFile, Arrays.copyOf(checkpoint, checkpoint.length - 20));
+
+        this.assertEmpty(this.createBEAST());
+    }
+
+    @Test
+    public void testCorruptLengthInCheckpointIsRejected() throws Exception
+    {
+        for (int length : new int[] {-1, Integer.MAX_VALUE})
+        {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(this.checkpointFile)))
+            {
+                // magic number and version
+                out.writeInt(0x42454153);
+                out.writeByte(1);
+                // current queue, redistribution start, number of queues
+                out.writeInt(0);
+                out.writeInt(0);
+                out.writeInt(2);
+                // a queue with one URL of the given length
+                out.writeInt(1);
+                out.writeInt(length);
+            }
+            this.assertEmpty(this.createBEAST());
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package at.rovo.crawler;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.bean.ResolvedHost;
+import at.rovo.crawler.util.DnsHostResolver;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the {@link DnsResolver} against a stub DNS server listening on the loopback interface.
+ */
+@Category(UnitTest.class)
+public class DnsResolverTest
+{
+    /** The stub server **/
+    private DatagramSocket socket = null;
+    private Thread serverThread = null;
+    /** The records served per host name **/
+    private final Map<String, Zone> zones = new ConcurrentHashMap<>();
+    /** The number of queries received per host name **/
+    private final Map<String, AtomicInteger> queries = new ConcurrentHashMap<>();
+    private DnsResolver resolver = null;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        this.serverThread = new Thread(this::serve);
+        this.serverThread.setDaemon(true);
+        this.serverThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if (this.resolver != null)
+        {
+            this.resolver.shutdown();
+        }
+        this.socket.close();
+        this.serverThread.join(1000);
+    }
+
+    private DnsResolver createResolver(int capacity, long minTtl)
+    {
+        DnsHostResolver hostResolver =
+                new DnsHostResolver((InetSocketAddress) this.socket.getLocalSocketAddress(), Duration.ofMillis(200),
+                                    2);
+        this.resolver = new DnsResolver(hostResolver, 4, capacity, minTtl, TimeUnit.HOURS.toMillis(1),
+                                        TimeUnit.MINUTES.toMillis(10));
+        return this.resolver;
+    }
+
+    @Test
+    public void testAddressIsResolvedAndCached() throws Exception
+    {
+        this.zones.put("www.example.com", Zone.address("10.0.0.1", 300));
+        DnsResolver resolver = this.createResolver(100, 0);
+
+        ResolvedHost host = resolver.resolve("www.example.com").get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(host.isResolved());
+        Assert.assertEquals("10.0.0.1", host.getIPAddress());
+        Assert.assertEquals(TimeUnit.SECONDS.toMillis(300), host.getTtl());
+
+        CompletableFuture<ResolvedHost> cached = resolver.resolve("www.example.com");
+        Assert.assertTrue(cached.isDone());
+        Assert.assertEquals("10.0.0.1", cached.get().getIPAddress());
+        Assert.assertEquals(1, this.numQueries("www.example.com"));
+        Assert.assertEquals(1, resolver.getMisses());
+        Assert.assertEquals(1, resolver.getHits());
+        Assert.assertEquals(0.5, resolver.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testAliasChainUsesMinimumTtl() throws Exception
+    {
+        this.zones.put("alias.example.com", Zone.alias("target.example.com", 60, "10.0.0.2", 600));
+        DnsResolver resolver = this.createResolver(100, 0);
+
+        ResolvedHost host = resolver.resolve("alias.example.com").get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("10.0.0.2", host.getIPAddress());
+        Assert.assertEquals(TimeUnit.SECONDS.toMillis(60), host.getTtl());
+    }
+
+    @Test
+    public void testNonExistingHostIsCachedNegatively() throws Exception
+    {
+        this.zones.put("missing.example.com", Zone.notFound(3600, 30));
+        DnsResolver resolver = this.createResolver(100, 0);
+
+        ResolvedHost host = resolver.resolve("missing.example.com").get(5, TimeUnit.SECONDS);
+        Assert.assertFalse(host.isResolved());
+        Assert.assertFalse(host.isFailed());
+        Assert.assertNull(host.getIPAddress());
+        // the negative TTL is the minimum of the TTL of the SOA record and its minimum field
+        Assert.assertEquals(TimeUnit.SECONDS.toMillis(30), host.getTtl());
+
+        Assert.assertFalse(resolver.resolve("missing.example.com").get().isResolved());
+        Assert.assertEquals(1, this.numQueries("missing.example.com"));
+        Assert.assertEquals(1, resolver.getNegativeHits());
+        Assert.assertEquals(0, resolver.getFailures());
+    }
+
+    @Test
+    public void testZeroTtlIsNotCached() throws Exception
+    {
+        this.zones.put("volatile.example.com", Zone.address("10.0.0.3", 0));
+        DnsResolver resolver = this.createResolver(100, 0);
+
+        resolver.resolve("volatile.example.com").get(5, TimeUnit.SECONDS);
+        resolver.resolve("volatile.example.com").get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(2, this.numQueries("volatile.example.com"));
+        Assert.assertEquals(0, resolver.getSize());
+    }
+
+    @Test
+    public void testMinimumTtlIsApplied() throws Exception
+    {
+        this.zones.put("volatile.example.com", Zone.address("10.0.0.3", 0));
+        DnsResolver resolver = this.createResolver(100, TimeUnit.MINUTES.toMillis(1));
+
+        resolver.resolve("volatile.example.com").get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("10.0.0.3", resolver.getCached("volatile.example.com").getIPAddress());
+        resolver.resolve("volatile.example.com").get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(1, this.numQueries("volatile.example.com"));
+    }
+
+    @Test
+    public void testConcurrentResolutionsAreCoalesced() throws Exception
+    {
+        Zone zone = Zone.address("10.0.0.4", 300);
+        // shorter than the timeout of the resolver, so the query is not repeated
+        zone.delay = 100;
+        this.zones.put("slow.example.com", zone);
+        DnsResolver resolver = this.createResolver(100, 0);
+
+        CompletableFuture<ResolvedHost> first = resolver.resolve("slow.example.com");
+        CompletableFuture<ResolvedHost> second = resolver.resolve("slow.example.com");
+        Assert.assertFalse(first.isDone());
+        Assert.assertEquals("10.0.0.4", first.get(5, TimeUnit.SECONDS).getIPAddress());
+        Assert.assertEquals("10.0.0.4", second.get(5, TimeUnit.SECONDS).getIPAddress());
+        Assert.assertEquals(1, this.numQueries("slow.example.com"));
+        Assert.assertEquals(1, resolver.getCoalesced());
+    }
+
+    @Test
+    public void testUnansweredQueryFails() throws Exception
+    {
+        Zone zone = Zone.address("10.0.0.5", 300);
+        zone.silent = true;
+        this.zones.put("silent.example.com", zone);
+        DnsResolver resolver = this.createResolver(100, TimeUnit.MINUTES.toMillis(1));
+
+        ResolvedHost host = resolver.resolve("silent.example.com").get(5, TimeUnit.SECONDS);
+        Assert.assertFalse(host.isResolved());
+        // a missing answer does not mean the host does not exist
+        Assert.assertTrue(host.isFailed());
+        // the query was repeated once
+        Assert.assertEquals(2, this.numQueries("silent.example.com"));
+        Assert.assertEquals(1, resolver.getFailures());
+        // the failure is cached for the minimum TTL
+        Assert.assertTrue(resolver.resolve("silent.example.com").get().isFailed());
+        Assert.assertEquals(2, this.numQueries("silent.example.com"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedHostIsEvicted() throws Exception
+    {
+        for (int i = 1; i <= 3; i++)
+        {
+            this.zones.put("host" + i + ".example.com", Zone.address("10.0.1." + i, 300));
+        }
+        DnsResolver resolver = this.createResolver(2, 0);
+
+        resolver.resolve("host1.example.com").get(5, TimeUnit.SECONDS);
+        resolver.resolve("host2.example.com").get(5, TimeUnit.SECONDS);
+        // touch the first host so that the second one is evicted
+        resolver.resolve("host1.example.com").get(5, TimeUnit.SECONDS);
+        resolver.resolve("host3.example.com").get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(2, resolver.getSize());
+        Assert.assertEquals(1, resolver.getEvictions());
+        Assert.assertNotNull(resolver.getCached("host1.example.com"));
+        Assert.assertNull(resolver.getCached("host2.example.com"));
+    }
+
+    @Test
+    public void testAddressLiteralIsNotQueried() throws Exception
+    {
+        DnsResolver resolver = this.createResolver(100, 0);
+
+        Assert.assertEquals("192.168.0.1", resolver.resolve("192.168.0.1").get().getIPAddress());
+        Assert.assertEquals("[::1]", resolver.resolve("[::1]").get().getIPAddress());
+        Assert.assertEquals(0, resolver.getMisses());
+        Assert.assertTrue(this.queries.isEmpty());
+    }
+
+    private int numQueries(String hostName)
+    {
+        AtomicInteger count = this.queries.get(hostName);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * Answers the queries received by the stub server until its socket is closed.
+     */
+    private void serve()
+    {
+        byte[] buffer = new byte[512];
+        while (!this.socket.isClosed())
+        {
+            try
+            {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                this.socket.receive(packet);
+                ByteBuffer query = ByteBuffer.wrap(buffer, 0, packet.getLength());
+                int id = query.getShort(0) & 0xFFFF;
+                query.position(12);
+                String name = readName(query);
+                // type and class of the question
+                query.position(query.position() + 4);
+                byte[] question = new byte[query.position() - 12];
+                System.arraycopy(buffer, 12, question, 0, question.length);
+
+                this.queries.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+                Zone zone = this.zones.get(name);
+                if (zone != null && zone.silent)
+                {
+                    continue;
+                }
+                byte[] response = createResponse(id, question, name, zone);
+                SocketAddress client = packet.getSocketAddress();
+                if (zone != null && zone.delay > 0)
+                {
+                    new Thread(() ->
+                    {
+                        try
+                        {
+                            Thread.sleep(zone.delay);
+                            this.socket.send(new DatagramPacket(response, response.length, client));
+                        }
+                        catch (InterruptedException | IOException ignored)
+                        {
+                            // the test is over
+                        }
+                    }).start();
+                }
+                else
+                {
+                    this.socket.send(new DatagramPacket(response, response.length, client));
+                }
+            }
+            catch (SocketException sEx)
+            {
+                // the socket was closed
+                return;
+            }
+            catch (IOException ioEx)
+            {
+                throw new IllegalStateException(ioEx);
+            }
+        }
+    }
+
+    private static byte[] createResponse(int id, byte[] question, String name, Zone zone) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.putShort((short) id);
+        // response, recursion desired and available, NXDOMAIN for unknown names
+        header.putShort((short) (0x8180 | (zone == null || zone.address == null ? 3 : 0)));
+        header.putShort((short) 1);
+        header.putShort((short) (zone == null || zone.address == null ? 0 : zone.alias != null ? 2 : 1));
+        header.putShort((short) (zone != null && zone.address == null ? 1 : 0));
+        header.putShort((short) 0);
+        out.write(header.array());
+        out.write(question);
+        if (zone == null)
+        {
+            return out.toByteArray();
+        }
+        if (zone.address == null)
+        {
+            // the SOA record of the zone in the authority section
+            ByteArrayOutputStream soa = new ByteArrayOutputStream();
+            soa.write(encodeName("ns.example.com"));
+            soa.write(encodeName("admin.example.com"));
+            soa.write(ByteBuffer.allocate(20).putInt(1).putInt(7200).putInt(900).putInt(1209600)
+                                .putInt(zone.minimum).array());
+            writeRecord(out, encodeName("example.com"), 6, zone.ttl, soa.toByteArray());
+            return out.toByteArray();
+        }
+        // a pointer to the name of the question
+        byte[] owner = {(byte) 0xC0, 12};
+        if (zone.alias != null)
+        {
+            writeRecord(out, owner, 5, zone.aliasTtl, encodeName(zone.alias));
+            owner = encodeName(zone.alias);
+        }
+        writeRecord(out, owner, 1, zone.ttl, InetAddress.getByName(zone.address).getAddress());
+        return out.toByteArray();
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, byte[] owner, int type, int ttl, byte[] data)
+            throws IOException
+    {
+        out.write(owner);
+        out.write(ByteBuffer.allocate(10).putShort((short) type).putShort((short) 1).putInt(ttl)
+                            .putShort((short) data.length).array());
+        out.write(data);
+    }
+
+    private static byte[] encodeName(String name)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String label : name.split("\\."))
+        {
+            byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+            out.write(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        out.write(0);
+        return out.toByteArray();
+    }
+
+    private static String readName(ByteBuffer buffer)
+    {
+        StringBuilder name = new StringBuilder();
+        int length;
+        while ((length = buffer.get() & 0xFF) != 0)
+        {
+            if (name.length() > 0)
+            {
+                name.append('.');
+            }
+            byte[] label = new byte[length];
+            buffer.get(label);
+            name.append(new String(label, StandardCharsets.US_ASCII));
+        }
+        return name.toString();
+    }
+
+    /**
+     * The records the stub server returns for a host name.
+     */
+    private static class Zone
+    {
+        /** The address of the host, null if the host does not exist **/
+        private String address;
+        /** The TTL of the address or of the SOA record of non existing hosts **/
+        private int ttl;
+        /** The canonical name of the host, if the host is an alias **/
+        private String alias;
+        private int aliasTtl;
+        /** The minimum field of the SOA record of non existing hosts **/
+        private int minimum;
+        /** The time in milliseconds the response is delayed **/
+        private volatile long delay;
+        /** Specifies if queries are not answered at all **/
+        private volatile boolean silent;
+
+        private static Zone address(String address, int ttl)
+        {
+            Zone zone = new Zone();
+            zone.address = address;
+            zone.ttl = ttl;
+            return zone;
+        }
+
+        private static Zone alias(String alias, int aliasTtl, String address, int ttl)
+        {
+            Zone zone = address(address, ttl);
+            zone.alias = alias;
+            zone.aliasTtl = aliasTtl;
+            return zone;
+        }
+
+        private static Zone notFound(int ttl, int minimum)
+        {
+            Zone zone = new Zone();
+            zone.ttl = ttl;
+            zone.minimum = minimum;
+            return zone;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package at.rovo.crawler;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.bean.CrawlUrl;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class ParkedUrlsTest
+{
+    private final static List<CrawlUrl> URLS = Arrays.asList(CrawlUrl.of("http://example.com/a"),
+                                                             CrawlUrl.of("http://example.com/b"),
+                                                             CrawlUrl.of("http://example.com/c"));
+
+    @Test
+    public void testParkedUrlsAreReleasedOnce()
+    {
+        ParkedUrls parkedUrls = new ParkedUrls();
+
+        Assert.assertEquals(3, parkedUrls.park(1L, URLS));
+        Assert.assertEquals(3, parkedUrls.getNumParked());
+        Assert.assertEquals(1, parkedUrls.getNumHosts());
+
+        Assert.assertEquals(URLS, parkedUrls.release(1L));
+        Assert.assertTrue(parkedUrls.release(1L).isEmpty());
+        Assert.assertEquals(0, parkedUrls.getNumParked());
+        Assert.assertEquals(0, parkedUrls.getNumHosts());
+    }
+
+    @Test
+    public void testLimitsDropExceedingUrls()
+    {
+        ParkedUrls parkedUrls = new ParkedUrls(2, 1);
+
+        Assert.assertEquals(2, parkedUrls.park(1L, URLS));
+        Assert.assertEquals(0, parkedUrls.park(1L, URLS));
+        Assert.assertEquals(0, parkedUrls.park(2L, URLS));
+
+        Assert.assertEquals(2, parkedUrls.getNumParked());
+        Assert.assertEquals(7, parkedUrls.getNumDropped());
+    }
+
+    @Test
+    public void testDroppingDeadHost()
+    {
+        ParkedUrls parkedUrls = new ParkedUrls();
+        parkedUrls.park(1L, URLS);
+
+        Assert.assertEquals(4, parkedUrls.drop(1L, Collections.singletonList(CrawlUrl.of("http://example.com/d"))));
+        Assert.assertEquals(0, parkedUrls.getNumParked());
+        Assert.assertEquals(4, parkedUrls.getNumDropped());
+    }
+}
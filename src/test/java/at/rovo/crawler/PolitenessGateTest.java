@@ -0,0 +1,103 @@
+package at.rovo.crawler;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.interfaces.KeyHasher;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class PolitenessGateTest
+{
+    private final static long EXAMPLE_COM = KeyHasher.getDefault().hash("example.com");
+    private final static long EXAMPLE_ORG = KeyHasher.getDefault().hash("example.org");
+    private final static long EXAMPLE_NET = KeyHasher.getDefault().hash("example.net");
+
+    @Test
+    public void testCrawlDelayOfPLDIsEnforced()
+    {
+        PolitenessGate gate = new PolitenessGate(0);
+
+        Assert.assertEquals(0, gate.tryAcquire(EXAMPLE_COM, null, 2000, 10_000));
+        Assert.assertEquals(1500, gate.tryAcquire(EXAMPLE_COM, null, 2000, 10_500));
+        Assert.assertEquals(0, gate.tryAcquire(EXAMPLE_COM, null, 2000, 12_000));
+        Assert.assertEquals(12_000, gate.getLastCrawled(EXAMPLE_COM));
+        Assert.assertEquals(0, gate.getLastCrawled(EXAMPLE_ORG));
+        Assert.assertEquals(2, gate.getGranted());
+        Assert.assertEquals(1, gate.getPLDDeferrals());
+    }
+
+    @Test
+    public void testDomainsOfSharedAddressAreDelayed()
+    {
+        PolitenessGate gate = new PolitenessGate(1000);
+
+        Assert.assertEquals(0, gate.tryAcquire(EXAMPLE_COM, "10.0.0.1", 0, 10_000));
+        Assert.assertEquals(800, gate.tryAcquire(EXAMPLE_ORG, "10.0.0.1", 0, 10_200));
+        // other addresses are not affected
+        Assert.assertEquals(0, gate.tryAcquire(EXAMPLE_NET, "10.0.0.2", 0, 10_200));
+        Assert.assertEquals(0, gate.tryAcquire(EXAMPLE_ORG, "10.0.0.1", 0, 11_000));
+        Assert.assertEquals(1, gate.getIPDeferrals());
+        Assert.assertEquals(2, gate.getNumIPs());
+        Assert.assertEquals(3, gate.getNumPLDs());
+    }
+
+    @Test
+    public void testDeferredFetchDoesNotClaimPLD()
+    {
+        PolitenessGate gate = new PolitenessGate(1000);
+
+        Assert.assertEquals(0, gate.tryAcquire(EXAMPLE_COM, "10.0.0.1", 5000, 10_000));
+        // the PLD passes its delay but its host moved to a busy address
+        Assert.assertEquals(0, gate.tryAcquire(EXAMPLE_ORG, "10.0.0.2", 0, 15_000));
+        Assert.assertEquals(1000, gate.tryAcquire(EXAMPLE_COM, "10.0.0.2", 5000, 15_000));
+        // the PLD was not recorded as crawled by the deferred fetch
+        Assert.assertEquals(10_000, gate.getLastCrawled(EXAMPLE_COM));
+        Assert.assertEquals(0, gate.tryAcquire(EXAMPLE_COM, "10.0.0.1", 5000, 15_000));
+    }
+
+    @Test
+    public void testConcurrentFetchesOfSharedAddress() throws Exception
+    {
+        int numThreads = 8;
+        int numDomains = 1000;
+        PolitenessGate gate = new PolitenessGate(TimeUnit.HOURS.toMillis(1));
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        long currentTime = System.currentTimeMillis();
+        for (int t = 0; t < numThreads; t++)
+        {
+            executor.execute(() ->
+            {
+                try
+                {
+                    start.await();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                for (int i = 0; i < numDomains; i++)
+                {
+                    if (gate.tryAcquire(i + 1, "10.0.0.1", 0, currentTime) == 0)
+                    {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(1, granted.get());
+        Assert.assertEquals(1, gate.getGranted());
+        Assert.assertEquals(numThreads * numDomains - 1, gate.getIPDeferrals());
+    }
+}
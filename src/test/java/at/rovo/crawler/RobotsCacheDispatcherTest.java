@@ -0,0 +1,84 @@
+package at.rovo.crawler;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.bean.HostData;
+import at.rovo.crawler.bean.RobotsRules;
+import at.rovo.crawler.interfaces.RobotsCachePassedListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class RobotsCacheDispatcherTest implements RobotsCachePassedListener
+{
+    private final List<String> passed = new ArrayList<>();
+    private final List<String> unableToCheck = new ArrayList<>();
+
+    @Test
+    public void testUrlsOfSameHostAreCheckedTogether()
+    {
+        RobotsRuleCache ruleCache = new RobotsRuleCache();
+        RobotsCacheDispatcher dispatcher = new RobotsCacheDispatcher(ruleCache);
+        dispatcher.addRobotsCachePassedListener(this);
+        HostData hostData =
+                new HostData("http://example.com", null, "User-agent: *\nCrawl-delay: 3\nDisallow: /private/\n");
+
+        dispatcher.duplicateKeyCheck(1L, hostData, Arrays.asList(CrawlUrl.of("http://example.com/index.html"),
+                                                                 CrawlUrl.of("http://example.com/private/x.html"),
+                                                                 CrawlUrl.of("http://example.com/public/")));
+
+        Assert.assertEquals(Arrays.asList("http://example.com/index.html", "http://example.com/public/"), this.passed);
+        Assert.assertEquals(3, hostData.getCrawlDelay());
+        // the rules were looked up only once for all URLs
+        Assert.assertEquals(1, ruleCache.getMisses());
+        Assert.assertEquals(0, ruleCache.getHits());
+    }
+
+    @Test
+    public void testHostWithoutRobotsTxtPassesAllUrls()
+    {
+        RobotsCacheDispatcher dispatcher = new RobotsCacheDispatcher();
+        dispatcher.addRobotsCachePassedListener(this);
+
+        dispatcher.duplicateKeyCheck(1L, new HostData("http://example.com", null, (String) null),
+                                     Arrays.asList(CrawlUrl.of("http://example.com/a"),
+                                                   CrawlUrl.of("http://example.com/b")));
+        dispatcher.uniqueKeyCheck(2L, CrawlUrl.of("http://example.org/c"));
+
+        Assert.assertEquals(Arrays.asList("http://example.com/a", "http://example.com/b"), this.passed);
+        Assert.assertEquals(Arrays.asList("http://example.org/c"), this.unableToCheck);
+    }
+
+    @Test
+    public void testUrlsOfUnreachableHostAreHeldBack()
+    {
+        RobotsCacheDispatcher dispatcher = new RobotsCacheDispatcher();
+        dispatcher.addRobotsCachePassedListener(this);
+        List<CrawlUrl> heldBack = new ArrayList<>();
+        dispatcher.addUnreachableHostListener((urls, hostData) -> heldBack.addAll(urls));
+        long now = System.currentTimeMillis();
+        HostData hostData = new HostData("http://example.com", null, (RobotsRules) null, now, null, null).fail(now);
+
+        dispatcher.duplicateKeyCheck(1L, hostData, Arrays.asList(CrawlUrl.of("http://example.com/a"),
+                                                                 CrawlUrl.of("http://example.com/b")));
+
+        Assert.assertTrue(this.passed.isEmpty());
+        Assert.assertEquals(2, heldBack.size());
+    }
+
+    @Override
+    public void handleURLsPassed(CrawlUrl url, HostData hostData)
+    {
+        this.passed.add(url.getUrl());
+    }
+
+    @Override
+    public void handleUnableToCheck(CrawlUrl url)
+    {
+        this.unableToCheck.add(url.getUrl());
+    }
+}
@@ -3,10 +3,10 @@ package at.rovo.crawler;
 import at.rovo.drum.DrumException;
 import at.rovo.drum.berkeley.utils.BerkeleyDBUtils;
 import at.rovo.drum.utils.BaseDataStoreTest;
-import at.rovo.drum.util.DrumUtils;
+import at.rovo.crawler.bean.CrawlUrl;
 import at.rovo.crawler.bean.HostData;
+import at.rovo.crawler.interfaces.KeyHasher;
 import at.rovo.crawler.interfaces.RobotsCachePassedListener;
-import at.rovo.crawler.util.IRLbotUtils;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
@@ -84,27 +84,27 @@ public class RobotsCacheTest extends BaseDataStoreTest implements RobotsCachePas
             // key: -7476758895180383974
             String url3 = "http://www.tuwien.ac.at/metanavigation/faqs/";
 
-            this.robotsCache.check(url1);   // new host: http://winf.at - no robots.txt available by now
-            this.robotsCache.check(url2);   // new hosts: http://tuwien.ac.at - no robots.txt available by now
-            this.robotsCache.check(url3);   // host: http://tuwien.ac.at - robots.txt value was not yet updated!
+            this.robotsCache.check(CrawlUrl.of(url1));   // new host: http://winf.at - no robots.txt available by now
+            this.robotsCache.check(CrawlUrl.of(url2));   // new hosts: http://tuwien.ac.at - no robots.txt available by now
+            this.robotsCache.check(CrawlUrl.of(url3));   // host: http://tuwien.ac.at - robots.txt value was not yet updated!
 
             Thread.sleep(2000);
             LOG.info("Moking robot.txt update of 'http://www.tuwien.ac.at' and 'http://winf.at'");
 
             // the merge will cause all data which was written to local disk files before to be merged into the backing
             // data store
-            this.robotsCache.check(url3);
+            this.robotsCache.check(CrawlUrl.of(url3));
 
             // key: -7849402421258767002
             String url4 = "http://www.facebook.com/events/350068195090400";
             // key: -7476758895180383974
             String url5 = "http://www.tuwien.ac.at/metanavigation/links/";
 
-            this.robotsCache.check(url4);   // new host: http://facebook.com - no robots.txt available
-            this.robotsCache.check(url5);   // should pass as inside robotsCache http://tuwien.ac.at got updated
+            this.robotsCache.check(CrawlUrl.of(url4));   // new host: http://facebook.com - no robots.txt available
+            this.robotsCache.check(CrawlUrl.of(url5));   // should pass as inside robotsCache http://tuwien.ac.at got updated
                                             // with the robots.txt value!
-            this.robotsCache.check(url2);   // re-check url2! should pass now
-            this.robotsCache.check(url1);   // re-check url1 (winf.at) will pass as the first check lead to a write
+            this.robotsCache.check(CrawlUrl.of(url2));   // re-check url2! should pass now
+            this.robotsCache.check(CrawlUrl.of(url1));   // re-check url1 (winf.at) will pass as the first check lead to a write
                                             // to disk bucket and through multiple checking for url2 or url3 a merge
                                             // was forced which stored all values contained in any of the disk bucket
                                             // file into the data store and returned a UNIQUE_KEY result which
@@ -113,16 +113,16 @@ public class RobotsCacheTest extends BaseDataStoreTest implements RobotsCachePas
 
             Thread.sleep(1000);
 
-            this.robotsCache.check(url2);   // re-check url2! should pass too, but as it is already contained only
+            this.robotsCache.check(CrawlUrl.of(url2));   // re-check url2! should pass too, but as it is already contained only
                                             // one entry should be in the list!
 
             // key: -8811650085514601110
             String url6 = "http://www.winf.at";
 
-            this.robotsCache.check(url6);
+            this.robotsCache.check(CrawlUrl.of(url6));
 
             String url7 = "http://www.winf.at/forum/shouldNotReturnAValue";
-            this.robotsCache.check(url7);   // URL 7 violates a rule defined in the robots.txt file so it should
+            this.robotsCache.check(CrawlUrl.of(url7));   // URL 7 violates a rule defined in the robots.txt file so it should
                                             // neither pass nor return an unable to check event
         }
         catch (DrumException dEx)
@@ -185,20 +185,20 @@ public class RobotsCacheTest extends BaseDataStoreTest implements RobotsCachePas
     }
 
     @Override
-    public void handleURLsPassed(String url, HostData hostData)
+    public void handleURLsPassed(CrawlUrl url, HostData hostData)
     {
         LOG.info("check passed for URL: {}", url);
-        this.urlsPassed.add(url);
+        this.urlsPassed.add(url.getUrl());
     }
 
     @Override
-    public void handleUnableToCheck(String url)
+    public void handleUnableToCheck(CrawlUrl url)
     {
         LOG.info("unable to check URL: {}", url);
         // URL would be forwarded to robotsRequest which manages
         // the download of a robots.txt file
         // here we will just send an imaginary robots.txt for certain hosts
-        if ("http://tuwien.ac.at".equals(IRLbotUtils.getHostname(url)))
+        if ("http://tuwien.ac.at".equals(url.getHostname()))
         {
             String robotsTxt = "# Zugriff fuer alle bots erlauben\n" +
                                "User-agent: *\n" +
@@ -214,11 +214,11 @@ public class RobotsCacheTest extends BaseDataStoreTest implements RobotsCachePas
             {
                 e.printStackTrace();
             }
-            this.robotsCache.update(DrumUtils.hash(IRLbotUtils.getHostname(url)),
-                                    new HostData(IRLbotUtils.getHostname(url), null, robotsTxt));
+            this.robotsCache.update(KeyHasher.getDefault().hash(url.getHostname()),
+                                    new HostData(url.getHostname(), null, robotsTxt));
 
         }
-        else if ("http://winf.at".equals(IRLbotUtils.getHostname(url)))
+        else if ("http://winf.at".equals(url.getHostname()))
         {
             String robotsTxt = "# robots.txt fuer winf.at (siehe www.robotstxt.org)\n" +
                                "User-agent: *\n" +
@@ -236,8 +236,8 @@ public class RobotsCacheTest extends BaseDataStoreTest implements RobotsCachePas
             {
                 e.printStackTrace();
             }
-            this.robotsCache.update(DrumUtils.hash(IRLbotUtils.getHostname(url)),
-                                    new HostData(IRLbotUtils.getHostname(url), null, robotsTxt));
+            this.robotsCache.update(KeyHasher.getDefault().hash(url.getHostname()),
+                                    new HostData(url.getHostname(), null, robotsTxt));
         }
     }
 }
@@ -0,0 +1,90 @@
+package at.rovo.crawler;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.bean.HostData;
+import at.rovo.crawler.bean.RobotsRules;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class RobotsRuleCacheTest
+{
+    private final static HostData HOST_DATA =
+            new HostData("http://example.com", null, "User-agent: *\nDisallow: /private/\n");
+
+    @Test
+    public void testRepeatedLookupsAreAnsweredFromCache()
+    {
+        RobotsRuleCache cache = new RobotsRuleCache(2);
+
+        RobotsRules first = cache.get(1L, HOST_DATA);
+        // host data as returned by DRUM is a new instance which has not decoded its rules yet
+        RobotsRules second = cache.get(1L, HOST_DATA.readBytes(HOST_DATA.toBytes()));
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(0.5, cache.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testChangedRulesAreDecodedAgain()
+    {
+        RobotsRuleCache cache = new RobotsRuleCache(2);
+
+        RobotsRules first = cache.get(1L, HOST_DATA);
+        // newly downloaded rules always expire at a later time than the previous ones
+        HostData changed = new HostData("http://example.com", null, "User-agent: *\nDisallow: /\n");
+        RobotsRules second = cache.get(1L, changed.renew(HOST_DATA.getExpiresAt() + 1));
+
+        Assert.assertNotSame(first, second);
+        Assert.assertFalse(second.isAllowed(CrawlUrl.of("http://www.example.com/index.html")));
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidation()
+    {
+        RobotsRuleCache cache = new RobotsRuleCache(2);
+
+        cache.get(1L, HOST_DATA);
+        cache.invalidate(1L);
+        cache.invalidate(2L);
+
+        Assert.assertEquals(1, cache.getInvalidations());
+        Assert.assertEquals(0, cache.getSize());
+        cache.get(1L, HOST_DATA);
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted()
+    {
+        RobotsRuleCache cache = new RobotsRuleCache(2);
+
+        cache.get(1L, HOST_DATA);
+        cache.get(2L, HOST_DATA);
+        // access host 1 so that host 2 becomes the least recently used entry
+        cache.get(1L, HOST_DATA);
+        cache.get(3L, HOST_DATA);
+
+        Assert.assertEquals(2, cache.getSize());
+        Assert.assertEquals(1, cache.getEvictions());
+
+        cache.get(1L, HOST_DATA);
+        Assert.assertEquals(2, cache.getHits());
+        cache.get(2L, HOST_DATA);
+        Assert.assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void testHostWithoutRobotsTxt()
+    {
+        RobotsRuleCache cache = new RobotsRuleCache(2);
+
+        Assert.assertNull(cache.get(1L, new HostData("http://example.com", null, (String) null)));
+        Assert.assertEquals(0, cache.getSize());
+    }
+}
@@ -0,0 +1,237 @@
+package at.rovo.crawler;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.bean.HostData;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class RobotsTxtDownloaderTest
+{
+    private HttpServer server = null;
+    private String hostName = null;
+    /** The content returned per requested path **/
+    private final Map<String, String> files = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    /** Responses of the /slow context wait for this latch **/
+    private final CountDownLatch release = new CountDownLatch(1);
+    /** Counted down once the client closed the connection of a response of the /trickle context **/
+    private final CountDownLatch trickleAborted = new CountDownLatch(1);
+    private final BlockingQueue<HostData> downloaded = new LinkedBlockingQueue<>();
+    private RobotsTxtDownloader downloader = null;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.createContext("/", exchange ->
+        {
+            this.requests.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            if (path.startsWith("/trickle/"))
+            {
+                this.trickle(exchange);
+                return;
+            }
+            if (path.startsWith("/slow/"))
+            {
+                try
+                {
+                    this.release.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String content = this.files.get(path);
+            if (content == null)
+            {
+                exchange.sendResponseHeaders(404, -1);
+            }
+            else
+            {
+                byte[] body = content.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("ETag", "\"1\"");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody())
+                {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        this.server.start();
+        this.hostName = "http://localhost:" + this.server.getAddress().getPort();
+    }
+
+    /**
+     * Sends a chunked body one byte at a time until the client closes the connection.
+     */
+    private void trickle(HttpExchange exchange) throws IOException
+    {
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        try
+        {
+            for (int i = 0; i < 200; i++)
+            {
+                out.write('#');
+                out.flush();
+                Thread.sleep(50);
+            }
+        }
+        catch (IOException ioEx)
+        {
+            this.trickleAborted.countDown();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.release.countDown();
+        if (this.downloader != null)
+        {
+            this.downloader.shutdown();
+        }
+        this.server.stop(0);
+    }
+
+    private void createDownloader(Duration timeout, int maxBytes)
+    {
+        this.downloader = new RobotsTxtDownloader(2, 16, timeout, maxBytes);
+        this.downloader.addRobotsTxtDownloadedListener(this.downloaded::add);
+    }
+
+    @Test
+    public void testDownloadedRulesArePassedOn() throws Exception
+    {
+        this.createDownloader(Duration.ofSeconds(5), RobotsTxtDownloader.DEFAULT_MAX_BYTES);
+        this.files.put("/robots.txt", "User-agent: *\nDisallow: /private/\n");
+
+        Assert.assertTrue(this.downloader.download(this.hostName));
+        HostData hostData = this.downloaded.poll(5, TimeUnit.SECONDS);
+
+        Assert.assertNotNull(hostData);
+        Assert.assertEquals(this.hostName, hostData.getHostName());
+        Assert.assertEquals("\"1\"", hostData.getETag());
+        Assert.assertFalse(hostData.getRobotsRules().isAllowed(CrawlUrl.of(this.hostName + "/private/x.html")));
+        Assert.assertTrue(hostData.getRobotsRules().isAllowed(CrawlUrl.of(this.hostName + "/index.html")));
+        Assert.assertEquals(1, this.downloader.getNumCompleted());
+    }
+
+    @Test
+    public void testMissingRobotsTxtAllowsEverything() throws Exception
+    {
+        this.createDownloader(Duration.ofSeconds(5), RobotsTxtDownloader.DEFAULT_MAX_BYTES);
+
+        this.downloader.download(this.hostName);
+        HostData hostData = this.downloaded.poll(5, TimeUnit.SECONDS);
+
+        Assert.assertNotNull(hostData);
+        Assert.assertNull(hostData.getRobotsRules());
+        Assert.assertFalse(hostData.isUnreachable());
+        Assert.assertFalse(hostData.isExpired(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testHostInFlightIsDownloadedOnlyOnce() throws Exception
+    {
+        this.createDownloader(Duration.ofSeconds(5), RobotsTxtDownloader.DEFAULT_MAX_BYTES);
+        String slowHost = this.hostName + "/slow";
+        this.files.put("/slow/robots.txt", "User-agent: *\nDisallow: /\n");
+
+        Assert.assertTrue(this.downloader.download(slowHost));
+        Assert.assertFalse(this.downloader.download(slowHost));
+        Assert.assertEquals(1, this.downloader.getQueueSize());
+        this.release.countDown();
+
+        Assert.assertNotNull(this.downloaded.poll(5, TimeUnit.SECONDS));
+        Assert.assertNull(this.downloaded.poll(200, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1, this.requests.get());
+        Assert.assertEquals(1, this.downloader.getNumDuplicates());
+        // the host can be downloaded again once the previous download completed
+        Assert.assertTrue(this.downloader.download(slowHost));
+        Assert.assertNotNull(this.downloaded.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSlowHostTimesOut() throws Exception
+    {
+        this.createDownloader(Duration.ofMillis(300), RobotsTxtDownloader.DEFAULT_MAX_BYTES);
+        this.files.put("/slow/robots.txt", "User-agent: *\nDisallow: /\n");
+
+        this.downloader.download(this.hostName + "/slow");
+        HostData hostData = this.downloaded.poll(5, TimeUnit.SECONDS);
+
+        Assert.assertNotNull(hostData);
+        Assert.assertNull(hostData.getRobotsRules());
+        Assert.assertTrue(hostData.isUnreachable());
+        Assert.assertEquals(1, this.downloader.getNumFailed());
+    }
+
+    @Test
+    public void testTricklingBodyIsCancelledOnTimeout() throws Exception
+    {
+        this.createDownloader(Duration.ofMillis(300), RobotsTxtDownloader.DEFAULT_MAX_BYTES);
+
+        this.downloader.download(this.hostName + "/trickle");
+        HostData hostData = this.downloaded.poll(5, TimeUnit.SECONDS);
+
+        Assert.assertNotNull(hostData);
+        Assert.assertTrue(hostData.isUnreachable());
+        Assert.assertEquals(1, this.downloader.getNumFailed());
+        // the connection is closed instead of receiving the body in the background
+        Assert.assertTrue(this.trickleAborted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testContentBeyondSizeLimitIsIgnored() throws Exception
+    {
+        this.createDownloader(Duration.ofSeconds(5), 64);
+        StringBuilder robotsTxt = new StringBuilder("User-agent: *\nDisallow: /a/\n");
+        while (robotsTxt.length() < 64)
+        {
+            robotsTxt.append("# padding\n");
+        }
+        robotsTxt.append("Disallow: /b/\n");
+        this.files.put("/robots.txt", robotsTxt.toString());
+
+        this.downloader.download(this.hostName);
+        HostData hostData = this.downloaded.poll(5, TimeUnit.SECONDS);
+
+        Assert.assertNotNull(hostData);
+        Assert.assertFalse(hostData.getRobotsRules().isAllowed(CrawlUrl.of(this.hostName + "/a/x.html")));
+        Assert.assertTrue(hostData.getRobotsRules().isAllowed(CrawlUrl.of(this.hostName + "/b/x.html")));
+    }
+}
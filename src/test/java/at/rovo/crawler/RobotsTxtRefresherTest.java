@@ -0,0 +1,152 @@
+package at.rovo.crawler;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.bean.HostData;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class RobotsTxtRefresherTest
+{
+    private HttpServer server = null;
+    private String hostName = null;
+    private volatile String robotsTxt = "User-agent: *\nDisallow: /private/\n";
+    private volatile String eTag = "\"v1\"";
+    private volatile int requests = 0;
+    private RobotsTxtDownloader downloader = null;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/robots.txt", exchange ->
+        {
+            this.requests++;
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=7200");
+            if (this.eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+            {
+                exchange.sendResponseHeaders(304, -1);
+            }
+            else
+            {
+                byte[] body = this.robotsTxt.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("ETag", this.eTag);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody())
+                {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        this.server.start();
+        this.hostName = "http://localhost:" + this.server.getAddress().getPort();
+        this.downloader = new RobotsTxtDownloader(2);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.server.stop(0);
+        this.downloader.shutdown();
+    }
+
+    private HostData refresh(HostData hostData) throws Exception
+    {
+        return this.downloader.refresh(hostData).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testUnchangedFileExtendsExpiration() throws Exception
+    {
+        HostData fetched = this.refresh(new HostData(this.hostName, null, (String) null));
+        Assert.assertEquals("\"v1\"", fetched.getETag());
+
+        long start = System.currentTimeMillis();
+        HostData refreshed = this.refresh(fetched.renew(0));
+
+        Assert.assertEquals(2, this.requests);
+        Assert.assertEquals(1, this.downloader.getNumNotModified());
+        Assert.assertArrayEquals(fetched.getEncodedRobotsRules(), refreshed.getEncodedRobotsRules());
+        Assert.assertFalse(refreshed.isExpired(start + TimeUnit.HOURS.toMillis(1)));
+        Assert.assertTrue(refreshed.isExpired(start + TimeUnit.HOURS.toMillis(3)));
+    }
+
+    @Test
+    public void testChangedFileReplacesRules() throws Exception
+    {
+        HostData fetched = this.refresh(new HostData(this.hostName, null, (String) null));
+        Assert.assertTrue(fetched.getRobotsRules().isAllowed(CrawlUrl.of(this.hostName + "/public/")));
+
+        this.robotsTxt = "User-agent: *\nDisallow: /\n";
+        this.eTag = "\"v2\"";
+        HostData refreshed = this.refresh(fetched);
+
+        Assert.assertEquals(2, this.downloader.getNumCompleted());
+        Assert.assertEquals(0, this.downloader.getNumNotModified());
+        Assert.assertEquals("\"v2\"", refreshed.getETag());
+        Assert.assertFalse(refreshed.getRobotsRules().isAllowed(CrawlUrl.of(this.hostName + "/public/")));
+    }
+
+    @Test
+    public void testUnreachableHostIsBackedOff() throws Exception
+    {
+        HostData hostData = new HostData(this.hostName, null, "User-agent: *\nDisallow: /\n").renew(0);
+        this.server.stop(0);
+
+        HostData refreshed = this.refresh(hostData);
+
+        Assert.assertEquals(1, this.downloader.getNumFailed());
+        Assert.assertArrayEquals(hostData.getEncodedRobotsRules(), refreshed.getEncodedRobotsRules());
+        Assert.assertFalse(refreshed.isExpired(System.currentTimeMillis()));
+        Assert.assertTrue(refreshed.isUnreachable());
+
+        // a further failure doubles the backoff
+        long start = System.currentTimeMillis();
+        HostData again = this.refresh(refreshed);
+        Assert.assertEquals(2, again.getFailures());
+        Assert.assertTrue(again.getExpiresAt() >= start + 2 * HostData.MIN_BACKOFF);
+    }
+
+    @Test
+    public void testRefreshedRulesArePassedOnToListeners() throws Exception
+    {
+        RobotsTxtRefresher refresher = new RobotsTxtRefresher(this.downloader, 100);
+        CompletableFuture<HostData> passed = new CompletableFuture<>();
+        refresher.addRobotsTxtRefreshedListener(passed::complete);
+        Thread thread = new Thread(refresher);
+        thread.start();
+        try
+        {
+            Assert.assertTrue(refresher.refresh(new HostData(this.hostName, null, (String) null).renew(0)));
+            Assert.assertEquals("\"v1\"", passed.get(5, TimeUnit.SECONDS).getETag());
+        }
+        finally
+        {
+            refresher.stop();
+            thread.interrupt();
+        }
+    }
+
+    @Test
+    public void testHostIsRefreshedOnlyOnce()
+    {
+        RobotsTxtRefresher refresher = new RobotsTxtRefresher(this.downloader);
+        HostData hostData = new HostData(this.hostName, null, (String) null).renew(0);
+
+        Assert.assertTrue(refresher.refresh(hostData));
+        Assert.assertFalse(refresher.refresh(hostData));
+        Assert.assertEquals(1, refresher.getQueueSize());
+    }
+}
@@ -4,6 +4,7 @@ import at.rovo.drum.DrumException;
 import at.rovo.drum.DrumListener;
 import at.rovo.drum.event.DrumEvent;
 import at.rovo.drum.utils.BaseDataStoreTest;
+import at.rovo.crawler.bean.CrawlUrl;
 import at.rovo.crawler.bean.PLDData;
 import at.rovo.crawler.interfaces.CheckSpamUrlListener;
 import at.rovo.crawler.util.IRLbotUtils;
@@ -166,7 +167,7 @@ public class STARTest extends BaseDataStoreTest implements DrumListener, CheckSp
             // kufstein: 1
             // campus: 3
 
-            this.star.check(url1);
+            this.star.check(CrawlUrl.of(url1));
 
             try
             {
@@ -307,7 +308,7 @@ public class STARTest extends BaseDataStoreTest implements DrumListener, CheckSp
             LOG.info("URL: {}; Budget: {}", this.checkReturnURL, this.checkReturnBudget);
 
             // entry is cached for top 10 and top 6 sets but not for top 3!
-            this.star.check(url5); // technikum-wien.at - 2
+            this.star.check(CrawlUrl.of(url5)); // technikum-wien.at - 2
 
             // values not cached in STAR's topSet have to be checked in DRUM
             // which requires the query to be merged with the backing data store
@@ -322,7 +323,7 @@ public class STARTest extends BaseDataStoreTest implements DrumListener, CheckSp
                 Assert.assertEquals(47, this.checkReturnBudget);
 
                 // Entries is cached, so results should be available instantly
-                this.star.check(url4);
+                this.star.check(CrawlUrl.of(url4));
 
                 LOG.info("URL: {}; Budget: {}", this.checkReturnURL, this.checkReturnBudget);
                 Assert.assertEquals(url4, this.checkReturnURL);
@@ -336,7 +337,7 @@ public class STARTest extends BaseDataStoreTest implements DrumListener, CheckSp
                 Assert.assertEquals(47, this.checkReturnBudget);
 
                 // Entries will have to wait for the merge phase before a budget is returned
-                this.star.check(url4);
+                this.star.check(CrawlUrl.of(url4));
                 this.star.dispose();
 
                 LOG.info("URL: {}; Budget: {}", this.checkReturnURL, this.checkReturnBudget);
@@ -381,9 +382,9 @@ public class STARTest extends BaseDataStoreTest implements DrumListener, CheckSp
     }
 
     @Override
-    public void handleSpamCheck(String aux, int budget)
+    public void handleSpamCheck(CrawlUrl aux, int budget)
     {
-        this.checkReturnURL = aux;
+        this.checkReturnURL = aux.getUrl();
         this.checkReturnBudget = budget;
     }
 
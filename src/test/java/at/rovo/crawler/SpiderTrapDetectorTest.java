@@ -0,0 +1,307 @@
+package at.rovo.crawler;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.util.UrlCanonicalizer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Category(UnitTest.class)
+public class SpiderTrapDetectorTest
+{
+    /** The logger of this class **/
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    /** The number of articles of the synthetic site, which all belong to one URL family **/
+    private final static int NUM_ARTICLES = 15;
+    /** The maximum number of pages fetched from the synthetic site **/
+    private final static int MAX_FETCHES = 300;
+    private final static Pattern LINK = Pattern.compile("href=\"(.*?)\"");
+
+    private HttpServer server = null;
+    private String hostName = null;
+
+    /**
+     * Starts a synthetic site which, besides a few regular pages, contains an endless calendar, a directory which links
+     * to relative subdirectories of itself and a search whose result pages are linked with generated session IDs.
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.createContext("/", exchange ->
+        {
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getQuery();
+            List<String> links = new ArrayList<>();
+            if (path.equals("/"))
+            {
+                links.add("/about/");
+                for (int i = 1; i <= NUM_ARTICLES; i++)
+                {
+                    links.add("/articles/" + i);
+                }
+                links.add("/calendar/2016/5/");
+                links.add("/loop/");
+                links.add("/search?sid=" + UUID.randomUUID() + "&page=1");
+            }
+            else if (path.equals("/about/"))
+            {
+                links.add("/");
+            }
+            else if (path.matches("/articles/\\d+"))
+            {
+                int article = Integer.parseInt(path.substring(10));
+                links.add("/");
+                links.add("/articles/" + (article % NUM_ARTICLES + 1));
+            }
+            else if (path.matches("/calendar/\\d+/\\d+/"))
+            {
+                String[] parts = path.split("/");
+                int month = Integer.parseInt(parts[2]) * 12 + Integer.parseInt(parts[3]) - 1;
+                links.add("/calendar/" + (month - 1) / 12 + "/" + ((month - 1) % 12 + 1) + "/");
+                links.add("/calendar/" + (month + 1) / 12 + "/" + ((month + 1) % 12 + 1) + "/");
+            }
+            else if (path.startsWith("/loop/"))
+            {
+                links.add("a/");
+                links.add("b/");
+            }
+            else if (path.equals("/search") && query != null)
+            {
+                int page = Integer.parseInt(query.substring(query.indexOf("page=") + 5));
+                links.add("/search?sid=" + UUID.randomUUID() + "&page=" + (page + 1));
+            }
+            else
+            {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            respond(exchange, links);
+        });
+        this.server.start();
+        this.hostName = "http://localhost:" + this.server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, List<String> links) throws IOException
+    {
+        StringBuilder html = new StringBuilder("<html><body>");
+        for (String link : links)
+        {
+            html.append("<a href=\"").append(link).append("\">").append(link).append("</a>");
+        }
+        byte[] body = html.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/html");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(body);
+        }
+        exchange.close();
+    }
+
+    private static List<String> fetchLinks(String url) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        List<String> links = new ArrayList<>();
+        if (connection.getResponseCode() != 200)
+        {
+            return links;
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream())
+        {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0)
+            {
+                content.write(buffer, 0, read);
+            }
+        }
+        Matcher matcher = LINK.matcher(new String(content.toByteArray(), StandardCharsets.UTF_8));
+        while (matcher.find())
+        {
+            links.add(matcher.group(1));
+        }
+        return links;
+    }
+
+    /**
+     * Crawls the synthetic site breadth-first, where a set of seen URLs takes the place of {@link URLseen} and the
+     * given filter is applied to each found link before it is checked against the set.
+     *
+     * @return The fetched URLs
+     */
+    private List<String> crawl(Predicate<CrawlUrl> filter) throws IOException
+    {
+        UrlCanonicalizer canonicalizer = UrlCanonicalizer.getDefault();
+        Set<String> seen = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        List<String> fetched = new ArrayList<>();
+        String start = canonicalizer.canonicalize(this.hostName + "/");
+        seen.add(start);
+        queue.add(start);
+        while (!queue.isEmpty() && fetched.size() < MAX_FETCHES)
+        {
+            String url = queue.poll();
+            fetched.add(url);
+            for (String link : fetchLinks(url))
+            {
+                String resolved = canonicalizer.resolve(url, link);
+                if (resolved != null && filter.test(CrawlUrl.of(resolved)) && seen.add(resolved))
+                {
+                    queue.add(resolved);
+                }
+            }
+        }
+        return fetched;
+    }
+
+    private static long count(List<String> urls, String part)
+    {
+        return urls.stream().filter(url -> url.contains(part)).count();
+    }
+
+    @Test
+    public void testSyntheticTrapSiteIsCrawledToCompletion() throws Exception
+    {
+        // without trap detection the crawl never ends
+        List<String> unfiltered = this.crawl(url -> true);
+        Assert.assertEquals(MAX_FETCHES, unfiltered.size());
+
+        SpiderTrapDetector detector = new SpiderTrapDetector(1 << 12, 12, 3, 20, 8);
+        List<String> fetched = this.crawl(detector::accept);
+        LOG.info("Fetched {} pages - {} calendar, {} loop, {} search - checked: {}, dropped: {}, sampled: {}, flags: {}",
+                 fetched.size(), count(fetched, "/calendar/"), count(fetched, "/loop/"), count(fetched, "/search"),
+                 detector.getChecked(), detector.getDropped(), detector.getSampled(), detector.getFlags());
+
+        Assert.assertTrue(fetched.size() < MAX_FETCHES);
+        // all regular pages were crawled
+        Assert.assertTrue(fetched.contains(this.hostName + "/about/"));
+        Assert.assertEquals(NUM_ARTICLES, count(fetched, "/articles/"));
+        // the traps were cut short
+        Assert.assertTrue(count(fetched, "/calendar/") < 40);
+        Assert.assertTrue(count(fetched, "/search") < 40);
+        Assert.assertTrue(count(fetched, "/loop/") < 40);
+        Assert.assertTrue(detector.getFlags().get("urlFamily") > 0);
+        Assert.assertTrue(detector.getFlags().get("repeatedSegments") > 0);
+    }
+
+    @Test
+    public void testTrapLikeStructuresAreDropped()
+    {
+        SpiderTrapDetector detector = new SpiderTrapDetector(1 << 10, 8, 3, 100, 4);
+        Assert.assertTrue(detector.accept(CrawlUrl.of("http://www.example.com/a/b/c/")));
+        Assert.assertTrue(detector.accept(CrawlUrl.of("http://www.example.com/a/b/b/a/")));
+        Assert.assertTrue(detector.accept(CrawlUrl.of("http://www.example.com/2016/01/01/")));
+        Assert.assertFalse(detector.accept(CrawlUrl.of("http://www.example.com/a/b/a/b/")));
+        Assert.assertFalse(detector.accept(CrawlUrl.of("http://www.example.com/x/a/b/c/a/b/c/y")));
+        Assert.assertFalse(detector.accept(CrawlUrl.of("http://www.example.com/a/x/a/y/a/")));
+        Assert.assertFalse(detector.accept(CrawlUrl.of("http://www.example.com/search?q=1&q=2&q=3")));
+        Assert.assertTrue(detector.accept(CrawlUrl.of("http://www.example.com/1/2/3/4/5/6/7/8")));
+        Assert.assertFalse(detector.accept(CrawlUrl.of("http://www.example.com/1/2/3/4/5/6/7/8/9")));
+
+        Assert.assertEquals(Long.valueOf(3), detector.getFlags().get("repeatedSegments"));
+        Assert.assertEquals(Long.valueOf(1), detector.getFlags().get("repeatedParameters"));
+        Assert.assertEquals(Long.valueOf(1), detector.getFlags().get("maxDepth"));
+        Assert.assertEquals(5, detector.getDropped());
+        Assert.assertEquals(9, detector.getChecked());
+    }
+
+    @Test
+    public void testLargeUrlFamilyIsSampled()
+    {
+        SpiderTrapDetector detector = new SpiderTrapDetector(1 << 12, 12, 3, 50, 10);
+        int accepted = 0;
+        for (int day = 1; day <= 550; day++)
+        {
+            if (detector.accept(CrawlUrl.of("http://www.example.com/events/" + day + "?view=day")))
+            {
+                accepted++;
+            }
+        }
+        // the first 50 URLs pass, afterwards every 10th
+        Assert.assertEquals(100, accepted);
+        Assert.assertEquals(50, detector.getSampled());
+        Assert.assertEquals(Long.valueOf(500), detector.getFlags().get("urlFamily"));
+
+        // the values of parameters do not matter, while other hosts and other parameter names form other families
+        Assert.assertFalse(detector.accept(CrawlUrl.of("http://www.example.com/events/1?view=month")));
+        Assert.assertTrue(detector.accept(CrawlUrl.of("http://www.example.org/events/1?view=day")));
+        Assert.assertTrue(detector.accept(CrawlUrl.of("http://www.example.com/events/1?lang=en")));
+    }
+
+    @Test
+    public void testRepeatedLinksDoNotFlagFamily()
+    {
+        SpiderTrapDetector detector = new SpiderTrapDetector(1 << 12, 12, 3, 50, 10);
+        // a navigation which is linked from every page of a site
+        for (int page = 0; page < 100; page++)
+        {
+            for (int category = 1; category <= 30; category++)
+            {
+                Assert.assertTrue(detector.accept(CrawlUrl.of("http://www.example.com/category/" + category)));
+            }
+        }
+        Assert.assertEquals(0, detector.getDropped());
+    }
+
+    @Test
+    public void testDeepPathsOfHostAreSampled()
+    {
+        SpiderTrapDetector detector = new SpiderTrapDetector(1 << 12, 8, 3, 50, 10);
+        int accepted = 0;
+        for (int i = 0; i < 200; i++)
+        {
+            // generated paths without numbers which form different families but are all five levels deep
+            StringBuilder name = new StringBuilder();
+            for (int n = i + 1; n > 0; n /= 26)
+            {
+                name.append((char) ('a' + n % 26));
+            }
+            if (detector.accept(CrawlUrl.of("http://www.example.com/a/b/c/d/" + name + "/")))
+            {
+                accepted++;
+            }
+        }
+        Assert.assertTrue(accepted < 100);
+        Assert.assertTrue(detector.getFlags().get("deepPaths") > 0);
+        Assert.assertEquals(0, (long) detector.getFlags().get("urlFamily"));
+    }
+}
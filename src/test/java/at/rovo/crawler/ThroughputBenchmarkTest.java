@@ -0,0 +1,133 @@
+package at.rovo.crawler;
+
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.bean.RobotsTxt;
+import at.rovo.crawler.interfaces.KeyHasher;
+import at.rovo.crawler.util.DrumKeyHasher;
+import at.rovo.crawler.util.PublicSuffixTrie;
+import at.rovo.crawler.util.Utf8KeyHasher;
+import at.rovo.test.Benchmark;
+import java.lang.invoke.MethodHandles;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.function.IntToLongFunction;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Throughput measurements of the components which are invoked for every URL or <em>robots.txt</em> file. The number of
+ * iterations of each measurement can be changed via its own system property.
+ */
+@Category(Benchmark.class)
+public class ThroughputBenchmarkTest
+{
+    /** The logger of this class **/
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final static String[] GOOGLE_PATHS =
+            {"/search", "/search/about", "/?hl=de&ie=UTF-8&gws_rd=ssl", "/mail/help/index.html", "/m/finance",
+             "/catalogs/about", "/intl/de/about/", "/index.html?q=x"};
+    private final static String[] WIKIPEDIA_PATHS =
+            {"/wiki/Main_Page", "/w/index.php?title=Main_Page&action=edit", "/wiki/Special:Random",
+             "/wiki/Special%3ASearch?search=x", "/trap/", "/wiki/Special:RecentChanges"};
+    private final static String[] HOSTS = {"www.example.com", "tiss.tuwien.ac.at", "news.bbc.co.uk",
+                                           "www.abc.net.au", "shop.example.com.au", "en.wikipedia.org",
+                                           "user.github.io", "www.example.de", "a.b.c.d.example.co.jp",
+                                           "www.example.unknowntld"};
+
+    @Test
+    public void benchmarkRobotsTxtParsing() throws Exception
+    {
+        String[] files = {readResource("/google.com_robots.txt"), readResource("/wikipedia.org_robots.txt")};
+        measure("robots.txt parsing", "benchmark.robots.parse.iterations", 2_000,
+                i -> new RobotsTxt(files[i % files.length]).getRecords().size());
+    }
+
+    @Test
+    public void benchmarkCompiledRobotsRules() throws Exception
+    {
+        benchmarkRules("google.com", readResource("/google.com_robots.txt"), "http://www.google.com", GOOGLE_PATHS);
+        benchmarkRules("wikipedia.org", readResource("/wikipedia.org_robots.txt"), "http://en.wikipedia.org",
+                       WIKIPEDIA_PATHS);
+    }
+
+    private static void benchmarkRules(String name, String content, String host, String[] paths)
+    {
+        RobotsTxt robotsTxt = new RobotsTxt(content);
+        CrawlUrl[] urls = new CrawlUrl[paths.length];
+        for (int i = 0; i < paths.length; i++)
+        {
+            urls[i] = CrawlUrl.of(host + paths[i]);
+        }
+        measure("rule checks of " + name, "benchmark.robots.rules.iterations", 200_000,
+                i -> robotsTxt.checkRobotRules("test", urls[i % urls.length]) ? 1 : 0);
+    }
+
+    @Test
+    public void benchmarkPLDLookups()
+    {
+        PublicSuffixTrie trie = PublicSuffixTrie.getDefault();
+        measure("PLD lookups", "benchmark.pld.iterations", 1_000_000, i ->
+        {
+            String host = HOSTS[i % HOSTS.length];
+            return trie.getPLDStart(host, 0, host.length());
+        });
+    }
+
+    @Test
+    public void benchmarkKeyHashing()
+    {
+        String[] urls = new String[1024];
+        for (int i = 0; i < urls.length; i++)
+        {
+            urls[i] = "http://www.host" + (i * 7919 % 100_003) + ".com/section" + (i % 97) + "/page-" + i * 7919;
+        }
+        for (KeyHasher keyHasher : new KeyHasher[] {new Utf8KeyHasher(), new DrumKeyHasher()})
+        {
+            measure(keyHasher.getClass().getSimpleName(), "benchmark.keyhasher.iterations", 1_000_000,
+                    i -> keyHasher.hash(urls[i & (urls.length - 1)]));
+        }
+    }
+
+    /**
+     * Invokes the operation as often as specified by the given system property to warm up the JIT compiler and the
+     * same number of times again while measuring the elapsed time.
+     *
+     * @param name
+     *         The name of the measured operation to log
+     * @param property
+     *         The system property containing the number of iterations
+     * @param defaultIterations
+     *         The number of iterations if the property is not set
+     * @param operation
+     *         The operation to measure, which is passed the number of the iteration. Its results are summed up, so
+     *         that the JIT compiler cannot remove the invocations
+     */
+    private static void measure(String name, String property, int defaultIterations, IntToLongFunction operation)
+    {
+        int iterations = Integer.getInteger(property, defaultIterations);
+        long sum = 0;
+        for (int i = 0; i < iterations; i++)
+        {
+            sum += operation.applyAsLong(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+        {
+            sum += operation.applyAsLong(i);
+        }
+        long duration = Math.max(System.nanoTime() - start, 1);
+        LOG.info("{}: {} operations in {} ms - {} ns/operation ({})", name, iterations, duration / 1_000_000,
+                 duration / iterations, sum);
+    }
+
+    private static String readResource(String name) throws Exception
+    {
+        URL path = ThroughputBenchmarkTest.class.getResource(name);
+        return new String(Files.readAllBytes(Paths.get(path.toURI())), StandardCharsets.UTF_8);
+    }
+}
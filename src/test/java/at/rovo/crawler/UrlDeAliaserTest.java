@@ -0,0 +1,87 @@
+package at.rovo.crawler;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.bean.CrawlUrl;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class UrlDeAliaserTest
+{
+    @Test
+    public void testGlobalParametersAreRemoved()
+    {
+        UrlDeAliaser deAliaser = new UrlDeAliaser();
+
+        Assert.assertEquals("http://www.example.com/a?id=1", deAlias(deAliaser, "http://www.example.com/a?id=1&"
+                                                                                 + "PHPSESSID=abc&utm_source=x"));
+        Assert.assertEquals("http://www.example.com/a", deAlias(deAliaser, "http://www.example.com/a?sid=123"));
+        Assert.assertEquals("http://www.example.com/a/b?id=1",
+                            deAlias(deAliaser, "http://www.example.com/a/b;jsessionid=0A1B?id=1"));
+        Assert.assertEquals(3, deAliaser.getNumDeAliased());
+    }
+
+    @Test
+    public void testUnchangedUrlIsReturnedAsIs()
+    {
+        UrlDeAliaser deAliaser = new UrlDeAliaser();
+        CrawlUrl url = CrawlUrl.of("http://www.example.com/a?b=1&a=2");
+
+        Assert.assertSame(url, deAliaser.deAlias(url));
+        Assert.assertEquals(0, deAliaser.getNumDeAliased());
+    }
+
+    @Test
+    public void testParameterOrderIsLearned()
+    {
+        UrlDeAliaser deAliaser = new UrlDeAliaser();
+
+        deAliaser.learn("http://www.example.com/list?page=1&sort=asc", 1L);
+        deAliaser.learn("http://www.example.com/list?sort=asc&page=1", 1L);
+        Assert.assertEquals(0, deAliaser.getNumLearnedRules());
+        deAliaser.learn("http://www.example.com/list?page=2&sort=desc", 2L);
+        deAliaser.learn("http://www.example.com/list?sort=desc&page=2", 2L);
+
+        Assert.assertEquals(1, deAliaser.getNumLearnedRules());
+        // rules apply to all hosts of the pay level domain
+        Assert.assertEquals("http://shop.example.com/other?a=1&b=2",
+                            deAlias(deAliaser, "http://shop.example.com/other?b=2&a=1"));
+        // other domains are not affected
+        Assert.assertEquals("http://www.example.org/x?b=2&a=1", deAlias(deAliaser, "http://www.example.org/x?b=2&a=1"));
+    }
+
+    @Test
+    public void testIrrelevantParameterIsLearned()
+    {
+        UrlDeAliaser deAliaser = new UrlDeAliaser();
+
+        deAliaser.learn("http://www.example.com/item?id=1&ref=home", 1L);
+        deAliaser.learn("http://www.example.com/item?id=1&ref=search", 1L);
+        deAliaser.learn("http://www.example.com/item?id=2&ref=home", 2L);
+        deAliaser.learn("http://www.example.com/item?id=2", 2L);
+
+        Assert.assertEquals("http://www.example.com/item?id=3", deAlias(deAliaser,
+                                                                        "http://www.example.com/item?id=3&ref=x"));
+    }
+
+    @Test
+    public void testIdentifyingParameterIsNotLearned()
+    {
+        UrlDeAliaser deAliaser = new UrlDeAliaser();
+
+        // an error page returned for different items must not remove the item ID
+        deAliaser.learn("http://www.example.com/item?id=1", 1L);
+        deAliaser.learn("http://www.example.com/item?id=2", 1L);
+        deAliaser.learn("http://www.example.com/item?id=3", 1L);
+        deAliaser.learn("http://www.example.com/other?id=4", 1L);
+
+        Assert.assertEquals(0, deAliaser.getNumLearnedRules());
+        Assert.assertEquals("http://www.example.com/item?id=5", deAlias(deAliaser, "http://www.example.com/item?id=5"));
+    }
+
+    private static String deAlias(UrlDeAliaser deAliaser, String url)
+    {
+        return deAliaser.deAlias(CrawlUrl.of(url)).getUrl();
+    }
+}
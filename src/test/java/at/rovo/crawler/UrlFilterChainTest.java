@@ -0,0 +1,92 @@
+package at.rovo.crawler;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.bean.CrawlUrl;
+import at.rovo.crawler.util.DomainFilter;
+import at.rovo.crawler.util.ExtensionFilter;
+import at.rovo.crawler.util.SubstringFilter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class UrlFilterChainTest
+{
+    @Test
+    public void testExtensionFilter()
+    {
+        ExtensionFilter filter = new ExtensionFilter();
+        Assert.assertFalse(filter.accept(CrawlUrl.of("http://www.example.com/images/logo.PNG")));
+        Assert.assertFalse(filter.accept(CrawlUrl.of("http://www.example.com/download/file.tar.gz?mirror=1")));
+        Assert.assertFalse(filter.accept(CrawlUrl.of("http://www.example.com/style.css;jsessionid=42")));
+        Assert.assertTrue(filter.accept(CrawlUrl.of("http://www.example.com/index.html")));
+        Assert.assertTrue(filter.accept(CrawlUrl.of("http://www.example.com/gallery?image=logo.png")));
+        // the host is no part of the path
+        Assert.assertTrue(filter.accept(CrawlUrl.of("http://images.example.jpg/")));
+    }
+
+    @Test
+    public void testSubstringFilter()
+    {
+        SubstringFilter filter = new SubstringFilter();
+        Assert.assertFalse(filter.accept(CrawlUrl.of("http://www.example.com/calendar/2016/05/")));
+        Assert.assertFalse(filter.accept(CrawlUrl.of("http://en.example.org/w/index.php?title=Main&action=edit")));
+        Assert.assertTrue(filter.accept(CrawlUrl.of("http://www.example.com/about/")));
+        // the host is not searched
+        Assert.assertTrue(filter.accept(CrawlUrl.of("http://oldid=.example.com/about/")));
+    }
+
+    @Test
+    public void testDomainFilter()
+    {
+        DomainFilter deny = DomainFilter.deny("ads.example.com", ".spam.org");
+        Assert.assertFalse(deny.accept(CrawlUrl.of("http://ads.example.com/banner")));
+        Assert.assertFalse(deny.accept(CrawlUrl.of("http://eu.ADS.example.com/banner")));
+        Assert.assertFalse(deny.accept(CrawlUrl.of("http://www.spam.org:8080/")));
+        Assert.assertTrue(deny.accept(CrawlUrl.of("http://www.example.com/")));
+        Assert.assertTrue(deny.accept(CrawlUrl.of("http://bads.example.com/")));
+
+        DomainFilter allow = new DomainFilter("domains", Arrays.asList("at", "example.com"),
+                                              Collections.singletonList("ads.example.com"));
+        Assert.assertTrue(allow.accept(CrawlUrl.of("http://www.tuwien.ac.at/")));
+        Assert.assertTrue(allow.accept(CrawlUrl.of("http://www.example.com/")));
+        Assert.assertFalse(allow.accept(CrawlUrl.of("http://ads.example.com/")));
+        Assert.assertFalse(allow.accept(CrawlUrl.of("http://www.example.org/")));
+    }
+
+    @Test
+    public void testRejectionsAreCountedPerFilter()
+    {
+        UrlFilterChain chain = UrlFilterChain.createDefault();
+        Assert.assertArrayEquals(new String[] {"extensions", "substrings"}, chain.getFilterNames());
+
+        Assert.assertTrue(chain.accept(CrawlUrl.of("http://www.example.com/index.html")));
+        Assert.assertFalse(chain.accept(CrawlUrl.of("http://www.example.com/logo.gif")));
+        Assert.assertFalse(chain.accept(CrawlUrl.of("http://www.example.com/calendar/2016/")));
+        // only the first rejecting filter is counted
+        Assert.assertFalse(chain.accept(CrawlUrl.of("http://www.example.com/calendar/2016/logo.gif")));
+
+        chain.setFilters(Arrays.asList(DomainFilter.deny("example.org"), new ExtensionFilter()));
+        Assert.assertFalse(chain.accept(CrawlUrl.of("http://www.example.org/")));
+        Assert.assertTrue(chain.accept(CrawlUrl.of("http://www.example.com/calendar/2016/")));
+
+        Map<String, Long> rejections = chain.getRejections();
+        Assert.assertEquals(Long.valueOf(2), rejections.get("extensions"));
+        Assert.assertEquals(Long.valueOf(1), rejections.get("substrings"));
+        Assert.assertEquals(Long.valueOf(1), rejections.get("domains"));
+        Assert.assertEquals(4, chain.getRejected());
+        Assert.assertEquals(2, chain.getAccepted());
+    }
+
+    @Test
+    public void testEmptyChainAcceptsAll()
+    {
+        UrlFilterChain chain = new UrlFilterChain();
+        Assert.assertTrue(chain.accept(CrawlUrl.of("http://www.example.com/logo.gif")));
+        Assert.assertEquals(0, chain.getFilterNames().length);
+        Assert.assertEquals(0, chain.getRejected());
+    }
+}
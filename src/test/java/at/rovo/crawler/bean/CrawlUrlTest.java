@@ -0,0 +1,36 @@
+package at.rovo.crawler.bean;
+
+import at.rovo.common.UnitTest;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class CrawlUrlTest
+{
+    @Test
+    public void testSerializedUrlIsRestored()
+    {
+        CrawlUrl url = CrawlUrl.of("http://www.tuwien.ac.at:8080/people/index.html");
+        CrawlUrl copy = CrawlUrl.fromBytes(url.toBytes());
+
+        Assert.assertEquals(url, copy);
+        Assert.assertEquals("www.tuwien.ac.at", copy.getHost());
+        Assert.assertEquals("tuwien.ac.at", copy.getPLD());
+        Assert.assertEquals("http://tuwien.ac.at", copy.getHostname());
+        Assert.assertEquals(url.getUrlHash(), copy.getUrlHash());
+        Assert.assertEquals(url.getPLDHash(), copy.getPLDHash());
+        Assert.assertEquals(url.getHostnameHash(), copy.getHostnameHash());
+        Assert.assertEquals(copy, new CrawlUrl().readBytes(url.toBytes()));
+    }
+
+    @Test
+    public void testEmptyUrlCanBeCompared()
+    {
+        CrawlUrl empty = new CrawlUrl();
+        Assert.assertEquals(empty, new CrawlUrl());
+        Assert.assertEquals(new CrawlUrl().hashCode(), empty.hashCode());
+        Assert.assertNotEquals(empty, CrawlUrl.of("http://www.tuwien.ac.at"));
+        Assert.assertEquals("", empty.getHost());
+    }
+}
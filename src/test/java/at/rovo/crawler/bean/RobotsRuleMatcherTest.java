@@ -0,0 +1,105 @@
+package at.rovo.crawler.bean;
+
+import at.rovo.common.UnitTest;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@Category(UnitTest.class)
+public class RobotsRuleMatcherTest
+{
+    private final static String[] GOOGLE_PATHS =
+            {"/search", "/search/about", "/?hl=de", "/?hl=de&ie=UTF-8", "/?hl=de&gws_rd=ssl",
+             "/?hl=de&ie=UTF-8&gws_rd=ssl", "/mail/help/index.html", "/mail/u/0/", "/m/finance", "/m/news",
+             "/catalogs/about", "/intl/de/about/", "/index.html?q=x"};
+    private final static String[] WIKIPEDIA_PATHS =
+            {"/wiki/Main_Page", "/w/index.php?title=Main_Page&action=edit", "/w/api.php?action=mobileview&page=x",
+             "/wiki/Special:Random", "/wiki/Special%3ASearch?search=x", "/trap/", "/wiki/Special:RecentChanges"};
+
+    @Test
+    public void testLongestMatchTakesPrecedence()
+    {
+        RobotsRuleMatcher matcher =
+                new RobotsRuleMatcher(Arrays.asList("/public/", "/public/*.html$"), Arrays.asList("/", "/public/p"));
+
+        assertThat(matcher.isAllowed("/index.html"), is(equalTo(false)));
+        assertThat(matcher.isAllowed("/public/index.php"), is(equalTo(true)));
+        assertThat(matcher.isAllowed("/public/private.php"), is(equalTo(false)));
+        assertThat(matcher.isAllowed("/public/private.html"), is(equalTo(true)));
+        assertThat(matcher.isAllowed("/public/private.html?x=1"), is(equalTo(false)));
+    }
+
+    @Test
+    public void testAllowWinsOnEqualLength()
+    {
+        RobotsRuleMatcher matcher = new RobotsRuleMatcher(Collections.singletonList("/page"),
+                                                          Arrays.asList("/page", "/*.php"));
+
+        assertThat(matcher.isAllowed("/page"), is(equalTo(true)));
+        assertThat(matcher.isAllowed("/pages.php"), is(equalTo(false)));
+        assertThat(matcher.isAllowed("/index.php"), is(equalTo(false)));
+        assertThat(matcher.isAllowed("/index.html"), is(equalTo(true)));
+    }
+
+    @Test
+    public void testAnchoredPatterns()
+    {
+        RobotsRuleMatcher matcher = new RobotsRuleMatcher(Collections.emptyList(),
+                                                          Arrays.asList("/exact$", "/*.pdf$", "/a/*/b/*.gif$"));
+
+        assertThat(matcher.isAllowed("/exact"), is(equalTo(false)));
+        assertThat(matcher.isAllowed("/exact/"), is(equalTo(true)));
+        assertThat(matcher.isAllowed("/docs/file.pdf"), is(equalTo(false)));
+        assertThat(matcher.isAllowed("/docs/file.pdf?download=1"), is(equalTo(true)));
+        assertThat(matcher.isAllowed("/a/x/b/y/z.gif"), is(equalTo(false)));
+        assertThat(matcher.isAllowed("/a/x/c/y/z.gif"), is(equalTo(true)));
+    }
+
+    @Test
+    public void testPathOffset()
+    {
+        RobotsRuleMatcher matcher = new RobotsRuleMatcher(Collections.emptyList(), Collections.singletonList("/x$"));
+
+        assertThat(matcher.isAllowed("http://example.com/x", 18), is(equalTo(false)));
+        assertThat(matcher.isAllowed("http://example.com/xy", 18), is(equalTo(true)));
+    }
+
+    @Test
+    public void testGoogleRobotsTxt() throws Exception
+    {
+        RobotsTxt robotsTxt = new RobotsTxt(readResource("/google.com_robots.txt"));
+        boolean[] expected = {false, true, true, false, true, false, true, false, true, false, true, true, false};
+        for (int i = 0; i < GOOGLE_PATHS.length; i++)
+        {
+            assertThat(GOOGLE_PATHS[i], robotsTxt.checkRobotRules("test", "http://www.google.com" + GOOGLE_PATHS[i]),
+                       is(equalTo(expected[i])));
+        }
+    }
+
+    @Test
+    public void testWikipediaRobotsTxt() throws Exception
+    {
+        RobotsTxt robotsTxt = new RobotsTxt(readResource("/wikipedia.org_robots.txt"));
+        boolean[] expected = {true, false, true, false, false, false, true};
+        for (int i = 0; i < WIKIPEDIA_PATHS.length; i++)
+        {
+            assertThat(WIKIPEDIA_PATHS[i],
+                       robotsTxt.checkRobotRules("test", "http://en.wikipedia.org" + WIKIPEDIA_PATHS[i]),
+                       is(equalTo(expected[i])));
+        }
+    }
+
+    private String readResource(String name) throws Exception
+    {
+        URL path = this.getClass().getResource(name);
+        return new String(Files.readAllBytes(Paths.get(path.toURI())));
+    }
+}
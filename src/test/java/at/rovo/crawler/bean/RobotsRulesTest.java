@@ -0,0 +1,123 @@
+package at.rovo.crawler.bean;
+
+import at.rovo.common.UnitTest;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+@Category(UnitTest.class)
+public class RobotsRulesTest
+{
+    private final static String ROBOTS_TXT = "# comment which is dropped\n" +
+                                             "User-agent: Sidewinder\n" +
+                                             "Disallow: /\n" +
+                                             "\n" +
+                                             "User-agent: test\n" +
+                                             "Disallow: /private/\n" +
+                                             "Allow: /private/public.html\n" +
+                                             "Crawl-delay: 5\n" +
+                                             "\n" +
+                                             "User-agent: *\n" +
+                                             "Disallow: /tmp/\n" +
+                                             "Crawl-delay: 10\n" +
+                                             "Sitemap: http://www.example.com/sitemap.xml\n";
+
+    @Test
+    public void testOnlyRelevantRecordsAreKept()
+    {
+        RobotsRules rules = RobotsRules.compile(ROBOTS_TXT, "test");
+
+        assertThat(rules.getCrawlDelay(), is(equalTo(5L)));
+        assertThat(rules.isAllowed(CrawlUrl.of("http://www.example.com/index.html")), is(equalTo(true)));
+        assertThat(rules.isAllowed(CrawlUrl.of("http://www.example.com/private/x.html")), is(equalTo(false)));
+        assertThat(rules.isAllowed(CrawlUrl.of("http://www.example.com/private/public.html")), is(equalTo(true)));
+        assertThat(rules.isAllowed(CrawlUrl.of("http://www.example.com/tmp/x")), is(equalTo(false)));
+        assertThat(rules.getSitemaps(), contains("http://www.example.com/sitemap.xml"));
+
+        RobotsRules other = RobotsRules.compile(ROBOTS_TXT, "other");
+        assertThat(other.getCrawlDelay(), is(equalTo(10L)));
+        assertThat(other.isAllowed(CrawlUrl.of("http://www.example.com/private/x.html")), is(equalTo(true)));
+    }
+
+    @Test
+    public void testEncodingRoundTrip()
+    {
+        RobotsRules rules = RobotsRules.fromBytes(RobotsRules.compile(ROBOTS_TXT, "test").toBytes());
+
+        assertThat(rules.getCrawlDelay(), is(equalTo(5L)));
+        assertThat(rules.isAllowed(CrawlUrl.of("http://www.example.com/private/x.html")), is(equalTo(false)));
+        assertThat(rules.isAllowed(CrawlUrl.of("http://www.example.com/private/public.html")), is(equalTo(true)));
+        assertThat(rules.isAllowed(CrawlUrl.of("http://www.example.com/tmp/x")), is(equalTo(false)));
+        assertThat(rules.getSitemaps(), contains("http://www.example.com/sitemap.xml"));
+    }
+
+    @Test
+    public void testHostDataRoundTrip() throws Exception
+    {
+        URL path = this.getClass().getResource("/wikipedia.org_robots.txt");
+        String robotsTxt = new String(Files.readAllBytes(Paths.get(path.toURI())));
+
+        HostData hostData = new HostData("http://wikipedia.org", null, robotsTxt);
+        byte[] bytes = hostData.toBytes();
+        HostData copy = new HostData().readBytes(bytes);
+
+        assertThat(copy.getHostName(), is(equalTo("http://wikipedia.org")));
+        assertThat(copy.getRobotsRules().isAllowed(CrawlUrl.of("http://en.wikipedia.org/w/index.php")),
+                   is(equalTo(false)));
+        assertThat(copy.getRobotsRules().isAllowed(CrawlUrl.of("http://en.wikipedia.org/wiki/Main_Page")),
+                   is(equalTo(true)));
+        // comments and the records of other user agents are not stored
+        assertThat(bytes.length, is(lessThan(robotsTxt.length())));
+    }
+
+    @Test
+    public void testHostDataExpirationRoundTrip()
+    {
+        RobotsRules rules = RobotsRules.compile(ROBOTS_TXT, "test");
+        HostData hostData = new HostData("http://example.com", null, rules, 1234L, "\"v1\"", null);
+        HostData copy = new HostData().readBytes(hostData.toBytes());
+
+        assertThat(copy.getExpiresAt(), is(equalTo(1234L)));
+        assertThat(copy.getETag(), is(equalTo("\"v1\"")));
+        assertThat(copy.getLastModified(), is(nullValue()));
+        assertThat(copy.isExpired(1233L), is(equalTo(false)));
+        assertThat(copy.isExpired(1234L), is(equalTo(true)));
+        assertThat(copy.renew(5000L).getEncodedRobotsRules(), is(equalTo(hostData.getEncodedRobotsRules())));
+    }
+
+    @Test
+    public void testHostDataIPAddressRoundTrip()
+    {
+        HostData hostData = new HostData("http://example.com", null, RobotsRules.compile(ROBOTS_TXT, "test"), 1234L,
+                                          null, null).fail(1000L).withIPAddress("10.0.0.1");
+        HostData copy = new HostData().readBytes(hostData.toBytes());
+
+        assertThat(copy.getIPAddress(), is(equalTo("10.0.0.1")));
+        assertThat(copy.getFailures(), is(equalTo(1)));
+        assertThat(copy.getExpiresAt(), is(equalTo(hostData.getExpiresAt())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHostDataOfUnknownVersionIsRejected()
+    {
+        byte[] bytes = new HostData("http://example.com", null, RobotsRules.compile(ROBOTS_TXT, "test")).toBytes();
+        bytes[0] = 0;
+        new HostData().readBytes(bytes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedHostDataIsRejected()
+    {
+        byte[] bytes = new HostData("http://example.com", null, RobotsRules.compile(ROBOTS_TXT, "test")).toBytes();
+        new HostData().readBytes(java.util.Arrays.copyOf(bytes, bytes.length - 3));
+    }
+}
@@ -1,16 +1,23 @@
 package at.rovo.crawler.bean;
 
 import at.rovo.common.UnitTest;
+import java.lang.invoke.MethodHandles;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Map;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -19,6 +26,8 @@ import static org.junit.Assert.assertThat;
 @Category(UnitTest.class)
 public class RobotsTxtTest
 {
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
     @Test
     public void robotsTxtParsingTest() throws Exception
     {
@@ -46,4 +55,116 @@ public class RobotsTxtTest
         Map<String, RobotsTxt.RobotsTxtRecord> records = robotsTxt.getRecords();
         records.values().forEach(RobotsTxt.RobotsTxtRecord::getAllowedPathSegments);
     }
+
+    @Test
+    public void robotsTxt_wikipediaIsParsedCompletely() throws Exception
+    {
+        RobotsTxt robotsTxt = new RobotsTxt(readResource("/wikipedia.org_robots.txt"));
+
+        // comment lines inside a group must not end the group
+        assertThat(robotsTxt.getRecords().get("*").getDisallowedPathSegments().size(), is(equalTo(385)));
+        assertThat(robotsTxt.checkRobotRules("JIRLbot/1.0", "http://en.wikipedia.org/w/index.php"), is(equalTo(false)));
+        assertThat(robotsTxt.checkRobotRules("wget", "http://en.wikipedia.org/wiki/Main_Page"), is(equalTo(false)));
+    }
+
+    @Test
+    public void robotsTxt_uppercaseDirectivesWithCRLF() throws Exception
+    {
+        RobotsTxt robotsTxt = new RobotsTxt(readResource("/robots_corpus/uppercase_crlf.txt"));
+
+        // the byte order mark is not part of the first directive
+        assertThat(robotsTxt.getRecords().keySet(), contains("*"));
+        RobotsTxt.RobotsTxtRecord record = robotsTxt.getRecords().get("*");
+        assertThat(record.getDisallowedPathSegments(), contains("/private/"));
+        assertThat(record.getAllowedPathSegments(), contains("/private/public.html"));
+        // fractions of a second are rounded up
+        assertThat(record.getCrawlDelay(), is(equalTo(3)));
+        assertThat(robotsTxt.checkRobotRules("JIRLbot", "http://example.com/private/x.html"), is(equalTo(false)));
+        assertThat(robotsTxt.checkRobotRules("JIRLbot", "http://example.com/private/public.html"),
+                   is(equalTo(true)));
+    }
+
+    @Test
+    public void robotsTxt_multipleUserAgentsPerGroup() throws Exception
+    {
+        RobotsTxt robotsTxt = new RobotsTxt(readResource("/robots_corpus/grouped_agents.txt"));
+
+        assertThat(robotsTxt.getRecords().keySet(), contains("JIRLbot", "other", "*"));
+        for (String agent : new String[] {"JIRLbot", "other"})
+        {
+            RobotsTxt.RobotsTxtRecord record = robotsTxt.getRecords().get(agent);
+            assertThat(record.getDisallowedPathSegments(), contains("/search"));
+            // an unreadable crawl delay falls back to 1 second
+            assertThat(record.getCrawlDelay(), is(equalTo(1)));
+        }
+        // empty disallow rules do not restrict anything
+        assertThat(robotsTxt.getRecords().get("*").getDisallowedPathSegments(), contains("/"));
+        assertThat(robotsTxt.getSitemaps(), contains("http://www.example.com/sitemap.xml"));
+
+        // user agents are matched on their product token ignoring case
+        assertThat(robotsTxt.getRecord("jirlbot/2.0"), is(notNullValue()));
+        assertThat(robotsTxt.getRecord("unknown"), is(nullValue()));
+        assertThat(robotsTxt.checkRobotRules("jirlbot/2.0", "http://example.com/index.html"), is(equalTo(false)));
+        assertThat(robotsTxt.checkRobotRules("jirlbot/2.0", "http://example.com/search?q=x"), is(equalTo(false)));
+        assertThat(robotsTxt.checkRobotRules("unknown", "http://example.com/index.html"), is(equalTo(false)));
+    }
+
+    @Test
+    public void robotsTxt_groupsOfSameUserAgentAreMerged() throws Exception
+    {
+        RobotsTxt robotsTxt = new RobotsTxt(readResource("/robots_corpus/merged_groups.txt"));
+
+        assertThat(robotsTxt.getRecords().keySet(), contains("JIRLbot", "*"));
+        assertThat(robotsTxt.getRecords().get("JIRLbot").getDisallowedPathSegments(), contains("/a/", "/c/"));
+        assertThat(robotsTxt.getRecords().get("*").getDisallowedPathSegments(), contains("/b/"));
+    }
+
+    @Test
+    public void robotsTxt_contentBeyondMaximumSizeIsIgnored()
+    {
+        StringBuilder sb = new StringBuilder("User-agent: *\n");
+        while (sb.length() < RobotsTxt.MAX_SIZE)
+        {
+            sb.append("# padding\n");
+        }
+        sb.append("Disallow: /\n");
+
+        RobotsTxt robotsTxt = new RobotsTxt(sb.toString());
+        assertThat(robotsTxt.getRecords().get("*").getDisallowedPathSegments(), is(empty()));
+        assertThat(new RobotsTxt("").getRecords().isEmpty(), is(equalTo(true)));
+    }
+
+    /**
+     * Parses a file of the maximum size which consists of blank lines, lines without a colon and rules without a
+     * comment. Searching the comment or colon of a line beyond the end of the line would scan the rest of the file for
+     * each such line and therefore take quadratic time, which lets this test run for minutes instead of milliseconds.
+     * The parse time is only logged, as a fixed time limit would fail on loaded machines.
+     */
+    @Test
+    public void robotsTxt_largeFileWithoutColonsOrCommentsIsParsedInLinearTime()
+    {
+        StringBuilder sb = new StringBuilder("User-agent: *\n");
+        int numRules = 0;
+        while (sb.length() < RobotsTxt.MAX_SIZE - 100)
+        {
+            sb.append("\n").append("Disallow /missing-colon/").append(numRules).append("\n");
+            sb.append("Disallow: /path/").append(numRules++).append("\n");
+        }
+        sb.append("Disallow: /last/");
+
+        long start = System.nanoTime();
+        RobotsTxt robotsTxt = new RobotsTxt(sb.toString());
+        long duration = System.nanoTime() - start;
+        LOG.info("parsed {} chars with {} rules in {} ms", sb.length(), numRules, duration / 1_000_000);
+
+        RobotsTxt.RobotsTxtRecord record = robotsTxt.getRecords().get("*");
+        assertThat(record.getDisallowedPathSegments().size(), is(equalTo(numRules + 1)));
+        assertThat(record.getDisallowedPathSegments().contains("/last/"), is(equalTo(true)));
+    }
+
+    private String readResource(String name) throws Exception
+    {
+        URL path = this.getClass().getResource(name);
+        return new String(Files.readAllBytes(Paths.get(path.toURI())), StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,43 @@
+package at.rovo.crawler.util;
+
+import at.rovo.common.UnitTest;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class AhoCorasickMatcherTest
+{
+    @Test
+    public void testSubstringsAreFound()
+    {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("he", "she", "his", "hers", "/calendar/"));
+        Assert.assertTrue(matcher.find("ushers", 0, 6));
+        Assert.assertTrue(matcher.find("this", 0, 4));
+        Assert.assertTrue(matcher.find("/events/CALENDAR/2016", 0, 21));
+        Assert.assertFalse(matcher.find("/events/calendar", 0, 16));
+        Assert.assertFalse(matcher.find("hi sir", 0, 6));
+        // only the given range is searched
+        Assert.assertFalse(matcher.find("ushers", 0, 2));
+        Assert.assertTrue(matcher.find("ushers", 1, 4));
+    }
+
+    @Test
+    public void testSubstringFoundViaFailureLink()
+    {
+        // 'abcd' fails after 'abc' and has to continue with the 'bcx' suffix
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("abcd", "bcx"));
+        Assert.assertTrue(matcher.find("xabcx", 0, 5));
+        Assert.assertFalse(matcher.find("xabcy", 0, 5));
+        Assert.assertEquals(1 + 4 + 3, matcher.getNumStates());
+    }
+
+    @Test
+    public void testNonAsciiCharacters()
+    {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("/stra\u00dfe/"));
+        Assert.assertTrue(matcher.find("/stra\u00dfe/", 0, 8));
+        Assert.assertFalse(matcher.find("/strasse/", 0, 9));
+    }
+}
@@ -0,0 +1,174 @@
+package at.rovo.crawler.util;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.bean.CrawlUrl;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Category(UnitTest.class)
+public class CompactUrlStoreTest
+{
+    /** The logger of this class **/
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final static String[] URLS = {"http://www.tuwien.ac.at", "http://www.tuwien.ac.at/",
+                                          "http://www.tuwien.ac.at/people/index.html?lang=en#top",
+                                          "https://user@www.example.co.uk:8443/a/b?c=d",
+                                          "http://www.example.com?query", "http://192.168.0.1/status",
+                                          "http://www.example.com/caf\u00e9/\u4f8b\u3048/\ud83d\ude00"};
+
+    @Test
+    public void testDecodedUrlEqualsStoredUrl()
+    {
+        CompactUrlStore store = new CompactUrlStore();
+        long[] handles = new long[URLS.length];
+        for (int i = 0; i < URLS.length; i++)
+        {
+            handles[i] = store.put(CrawlUrl.of(URLS[i]));
+        }
+        for (int i = 0; i < URLS.length; i++)
+        {
+            CrawlUrl expected = CrawlUrl.of(URLS[i]);
+            CrawlUrl decoded = store.get(handles[i]);
+            Assert.assertEquals(expected, decoded);
+            Assert.assertEquals(expected.getHost(), decoded.getHost());
+            Assert.assertEquals(expected.getPLD(), decoded.getPLD());
+            Assert.assertEquals(expected.getPath(), decoded.getPath());
+            Assert.assertEquals(expected.getUrlHash(), decoded.getUrlHash());
+            Assert.assertEquals(expected.getPLDHash(), decoded.getPLDHash());
+            Assert.assertEquals(expected.getHostnameHash(), decoded.getHostnameHash());
+        }
+        Assert.assertEquals(URLS.length, store.getNumUrls());
+        Assert.assertEquals(4, store.getNumHostPrefixes());
+    }
+
+    @Test
+    public void testReleasedEntriesAreReclaimed()
+    {
+        CompactUrlStore store = new CompactUrlStore(64);
+        String longUrl = "http://www.example.com/" + String.join("/", Collections.nCopies(20, "segment"));
+        long large = store.put(CrawlUrl.of(longUrl));
+        long[] handles = new long[100];
+        for (int i = 0; i < handles.length; i++)
+        {
+            handles[i] = store.put(CrawlUrl.of("http://host" + (i % 3) + ".example.org/page" + i));
+        }
+        Assert.assertEquals(longUrl, store.get(large).getUrl());
+        Assert.assertEquals(4, store.getNumHostPrefixes());
+        long usage = store.getMemoryUsage();
+
+        store.release(large);
+        for (long handle : handles)
+        {
+            store.release(handle);
+        }
+        Assert.assertEquals(0, store.getNumUrls());
+        Assert.assertEquals(0, store.getNumBytes());
+        Assert.assertEquals(0, store.getNumHostPrefixes());
+        Assert.assertTrue(store.getMemoryUsage() < usage);
+
+        // freed chunks and prefix IDs are reused
+        long handle = store.put(CrawlUrl.of("http://www.example.net/"));
+        Assert.assertEquals("http://www.example.net/", store.get(handle).getUrl());
+    }
+
+    @Test
+    public void testQueue()
+    {
+        CompactUrlStore store = new CompactUrlStore();
+        CompactUrlQueue queue = new CompactUrlQueue(store);
+        CompactUrlQueue other = new CompactUrlQueue(store);
+        for (int i = 0; i < 40; i++)
+        {
+            queue.add(CrawlUrl.of("http://www.example.com/" + i), i);
+            if (i % 2 == 0)
+            {
+                Assert.assertEquals("http://www.example.com/" + i / 2, queue.poll().getUrl());
+            }
+        }
+        Assert.assertEquals(20, queue.size());
+        Assert.assertEquals(20, queue.peekValue());
+        Assert.assertEquals("http://www.example.com/39", queue.get(19).getUrl());
+
+        queue.transferTo(other);
+        queue.transferTo(other);
+        Assert.assertEquals(2, other.size());
+        Assert.assertEquals(21, other.getValue(1));
+        Assert.assertEquals(Arrays.asList(CrawlUrl.of("http://www.example.com/20"),
+                                          CrawlUrl.of("http://www.example.com/21")), other.drain());
+
+        queue.clear();
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, store.getNumUrls());
+    }
+
+    /**
+     * Compares the memory needed by the compact store for the URLs of a synthetic crawl with the memory of the same URLs
+     * kept as Java Strings and as the {@link CrawlUrl} entries the queues held before, and logs the time needed to
+     * decode a URL. The number of URLs can be set via the system property <em>compacturlstore.urls</em>.
+     */
+    @Test
+    public void testMemoryAndDecodeCost()
+    {
+        int numUrls = Integer.getInteger("compacturlstore.urls", 200_000);
+        CompactUrlStore store = new CompactUrlStore();
+        CompactUrlQueue queue = new CompactUrlQueue(store);
+        long stringBytes = 0;
+        long entryBytes = 0;
+        for (int i = 0; i < numUrls; i++)
+        {
+            String url = "http://www." + (i % 1000 == 0 ? "popular" : "site" + i % 5000) + ".com/articles/" +
+                         (i % 97) + "/story-" + i + ".html";
+            CrawlUrl crawlUrl = CrawlUrl.of(url);
+            queue.add(crawlUrl);
+            // the URL as String object with its Latin-1 byte array and the reference held by a queue
+            stringBytes += stringSize(url) + 8;
+            // the linked list node, the pair with the budget, the CrawlUrl object and its Strings
+            entryBytes += 24 + 24 + 72 + stringSize(url) + stringSize(crawlUrl.getPLD()) +
+                          stringSize(crawlUrl.getHostname()) + stringSize(crawlUrl.getPath());
+        }
+        // the handle and the value kept per URL by the queue
+        long compactBytes = store.getMemoryUsage() + 12L * numUrls;
+
+        long length = 0;
+        // warm-up
+        for (int i = 0; i < numUrls; i++)
+        {
+            length += queue.get(i).getUrl().length();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < numUrls; i++)
+        {
+            length += queue.get(i).getUrl().length();
+        }
+        long decodeNanos = System.nanoTime() - start;
+        LOG.info("{} URLs of {} hosts: {} bytes as Strings, {} bytes as queue entries, {} bytes compact ({}% of the " +
+                 "Strings, {}% of the entries) - decoding took {} ns per URL ({} chars)", numUrls,
+                 store.getNumHostPrefixes(), stringBytes, entryBytes, compactBytes, compactBytes * 100 / stringBytes,
+                 compactBytes * 100 / entryBytes, decodeNanos / numUrls, length);
+
+        Assert.assertTrue(compactBytes * 2 < entryBytes);
+        Assert.assertTrue(compactBytes < stringBytes);
+        queue.clear();
+        Assert.assertEquals(0, store.getNumUrls());
+    }
+
+    /**
+     * Returns the size of a String object and its Latin-1 byte array, both aligned to 8 bytes.
+     */
+    private static long stringSize(String value)
+    {
+        return 24 + align(16 + value.length());
+    }
+
+    private static long align(long bytes)
+    {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,82 @@
+package at.rovo.crawler.util;
+
+import at.rovo.common.UnitTest;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class PublicSuffixTrieTest
+{
+    private final PublicSuffixTrie trie = PublicSuffixTrie.getDefault();
+
+    @Test
+    public void testMultiLabelSuffixes()
+    {
+        Assert.assertEquals("bbc.co.uk", this.trie.getPLD("news.bbc.co.uk"));
+        Assert.assertEquals("bbc.co.uk", this.trie.getPLD("bbc.co.uk"));
+        Assert.assertEquals("example.com.au", this.trie.getPLD("shop.example.com.au"));
+        Assert.assertEquals("abc.net.au", this.trie.getPLD("www.abc.net.au"));
+        Assert.assertEquals("uwa.edu.au", this.trie.getPLD("www.uwa.edu.au"));
+        Assert.assertEquals("school.wa.edu.au", this.trie.getPLD("www.school.wa.edu.au"));
+        Assert.assertEquals("tuwien.ac.at", this.trie.getPLD("tiss.tuwien.ac.at"));
+        Assert.assertEquals("example.co.jp", this.trie.getPLD("a.b.c.d.example.co.jp"));
+        Assert.assertEquals("example.com", this.trie.getPLD("www.example.com"));
+        Assert.assertEquals("example.de", this.trie.getPLD("www.example.de"));
+    }
+
+    @Test
+    public void testUnlistedTopLevelDomain()
+    {
+        Assert.assertEquals("example.unknowntld", this.trie.getPLD("www.example.unknowntld"));
+        Assert.assertEquals("example.unknowntld", this.trie.getPLD("example.unknowntld"));
+    }
+
+    @Test
+    public void testPublicSuffixHasNoPLD()
+    {
+        Assert.assertNull(this.trie.getPLD("co.uk"));
+        Assert.assertNull(this.trie.getPLD("com"));
+        Assert.assertNull(this.trie.getPLD("github.io"));
+        Assert.assertEquals(-1, this.trie.getPLDStart("com.au", 0, 6));
+    }
+
+    @Test
+    public void testWildcardAndExceptionRules()
+    {
+        PublicSuffixTrie rules = new PublicSuffixTrie(Arrays.asList("// comment", "", "jp", "*.kawasaki.jp",
+                                                                    "!city.kawasaki.jp", "*.ck", "!www.ck"));
+
+        Assert.assertEquals("foo.bar.kawasaki.jp", rules.getPLD("www.foo.bar.kawasaki.jp"));
+        Assert.assertEquals("city.kawasaki.jp", rules.getPLD("www.city.kawasaki.jp"));
+        Assert.assertEquals("kawasaki.jp", rules.getPLD("kawasaki.jp"));
+        Assert.assertNull(rules.getPLD("bar.kawasaki.jp"));
+        Assert.assertEquals("www.ck", rules.getPLD("www.ck"));
+        Assert.assertEquals("foo.co.ck", rules.getPLD("foo.co.ck"));
+        Assert.assertNull(rules.getPLD("co.ck"));
+    }
+
+    @Test
+    public void testRangeWithinUrl()
+    {
+        StringBuilder url = new StringBuilder("https://News.BBC.Co.UK:8080/sport/");
+        int hostEnd = url.indexOf(":", 8);
+        int pldStart = this.trie.getPLDStart(url, 8, hostEnd);
+
+        Assert.assertEquals("BBC.Co.UK", url.substring(pldStart, hostEnd));
+        Assert.assertEquals("Co.UK", url.substring(this.trie.getPublicSuffixStart(url, 8, hostEnd), hostEnd));
+        // the hash is case-insensitive and computed on the range only
+        Assert.assertEquals(PublicSuffixTrie.hash("bbc.co.uk", 0, 9), this.trie.getPLDHash(url, 8, hostEnd));
+        Assert.assertNotEquals(PublicSuffixTrie.hash("bbc.com", 0, 7), this.trie.getPLDHash(url, 8, hostEnd));
+    }
+
+    @Test
+    public void testUrlExtraction()
+    {
+        Assert.assertEquals("bbc.co.uk", IRLbotUtils.getPLDofURL("http://news.bbc.co.uk/sport?x=http://a.com"));
+        Assert.assertEquals("example.com.au", IRLbotUtils.getPLDofURL("https://shop.example.com.au:443/"));
+        Assert.assertEquals("192.168.0.1", IRLbotUtils.getPLDofURL("http://192.168.0.1/index.html"));
+        Assert.assertEquals("localhost", IRLbotUtils.getPLDofURL("http://localhost:8080/"));
+    }
+}
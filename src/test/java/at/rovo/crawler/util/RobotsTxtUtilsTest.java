@@ -0,0 +1,29 @@
+package at.rovo.crawler.util;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.bean.HostData;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class RobotsTxtUtilsTest
+{
+    @Test
+    public void testExpirationTimeIsBounded()
+    {
+        Assert.assertEquals(HostData.DEFAULT_TTL, RobotsTxtUtils.getExpirationTime(null, 0));
+        Assert.assertEquals(RobotsTxtUtils.MIN_TTL, RobotsTxtUtils.getExpirationTime("max-age=60", 0));
+        Assert.assertEquals(RobotsTxtUtils.MAX_TTL, RobotsTxtUtils.getExpirationTime("public, MAX-AGE=99999999", 0));
+        Assert.assertEquals(TimeUnit.HOURS.toMillis(2),
+                            RobotsTxtUtils.getExpirationTime("no-transform, max-age=7200", 0));
+    }
+
+    @Test
+    public void testContentWithoutRecordsIsIgnored()
+    {
+        Assert.assertNull(RobotsTxtUtils.compile("<html><body>Not found</body></html>", "IRLbot"));
+        Assert.assertNotNull(RobotsTxtUtils.compile("User-agent: *\nDisallow: /private/\n", "IRLbot"));
+    }
+}
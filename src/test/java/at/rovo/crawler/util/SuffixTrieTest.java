@@ -0,0 +1,37 @@
+package at.rovo.crawler.util;
+
+import at.rovo.common.UnitTest;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class SuffixTrieTest
+{
+    @Test
+    public void testSuffixesAreMatched()
+    {
+        SuffixTrie trie = new SuffixTrie(Arrays.asList(".gz", ".tar.gz", ".jpg", ".jpeg", ""));
+        Assert.assertTrue(trie.matches("/files/archive.tar.gz", 0, 21));
+        Assert.assertTrue(trie.matches("/files/archive.gz", 0, 17));
+        Assert.assertTrue(trie.matches("/images/photo.JPG", 0, 17));
+        Assert.assertTrue(trie.matches("/images/photo.jpeg", 0, 18));
+        Assert.assertFalse(trie.matches("/images/photo.jpg.html", 0, 22));
+        Assert.assertFalse(trie.matches("/gz", 0, 3));
+        Assert.assertFalse(trie.matches("", 0, 0));
+        // only the given range is checked
+        Assert.assertTrue(trie.matches("/photo.jpg?size=large", 0, 10));
+        Assert.assertFalse(trie.matches("/photo.jpg", 0, 8));
+        // .tar.gz continues the path of .gz and .jpeg branches off the path of .jpg after the g
+        Assert.assertEquals(1 + 3 + 4 + 4 + 4, trie.getNumNodes());
+    }
+
+    @Test
+    public void testEmptyTrie()
+    {
+        SuffixTrie trie = new SuffixTrie(Arrays.asList());
+        Assert.assertFalse(trie.matches("/index.html", 0, 11));
+        Assert.assertEquals(1, trie.getNumNodes());
+    }
+}
@@ -0,0 +1,142 @@
+package at.rovo.crawler.util;
+
+import at.rovo.common.UnitTest;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Category(UnitTest.class)
+public class TimestampMapTest
+{
+    /** The logger of this class **/
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    @Test
+    public void testCompareAndSet()
+    {
+        TimestampMap map = new TimestampMap(16, 1000);
+        Assert.assertEquals(0, map.get(42L));
+        Assert.assertTrue(map.compareAndSet(42L, 0, 100));
+        Assert.assertFalse(map.compareAndSet(42L, 0, 200));
+        Assert.assertFalse(map.compareAndSet(43L, 100, 200));
+        Assert.assertTrue(map.compareAndSet(42L, 100, 200));
+        Assert.assertEquals(200, map.get(42L));
+        Assert.assertEquals(0, map.get(43L));
+
+        // the key 0 is stored as well
+        Assert.assertTrue(map.compareAndSet(0L, 0, 300));
+        Assert.assertEquals(300, map.get(0L));
+        Assert.assertEquals(2, map.size());
+
+        // a reset key reads like a missing one
+        Assert.assertTrue(map.compareAndSet(42L, 200, 0));
+        Assert.assertEquals(0, map.get(42L));
+        Assert.assertTrue(map.compareAndSet(42L, 0, 400));
+        Assert.assertEquals(400, map.get(42L));
+    }
+
+    @Test
+    public void testOldEntriesAreEvicted()
+    {
+        TimestampMap map = new TimestampMap(16, 1000);
+        for (long key = 1; key <= 100; key++)
+        {
+            Assert.assertTrue(map.compareAndSet(key, 0, key * 100));
+        }
+        Assert.assertEquals(10_000, map.get(100L));
+        Assert.assertEquals(0, map.get(1L));
+        Assert.assertTrue(map.getEvictions() > 0);
+        Assert.assertTrue(map.capacity() <= 64);
+
+        // entries within the raised maximum age survive the next rebuilds
+        map.ensureMaxAge(100_000);
+        map.ensureMaxAge(50);
+        Assert.assertEquals(100_000, map.getMaxAge());
+        for (long key = 101; key <= 200; key++)
+        {
+            Assert.assertTrue(map.compareAndSet(key, 0, key * 100));
+        }
+        Assert.assertEquals(10_100, map.get(101L));
+        Assert.assertEquals(20_000, map.get(200L));
+        Assert.assertTrue(map.capacity() >= 128);
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception
+    {
+        int numThreads = 8;
+        int numKeys = 20_000;
+        TimestampMap map = new TimestampMap(16, Long.MAX_VALUE / 2);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < numThreads; t++)
+        {
+            executor.execute(() ->
+            {
+                try
+                {
+                    start.await();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                for (long key = 0; key < numKeys; key++)
+                {
+                    long value;
+                    do
+                    {
+                        value = map.get(key);
+                    }
+                    while (!map.compareAndSet(key, value, value + 1));
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // no update got lost while the table was rebuilt
+        for (long key = 0; key < numKeys; key++)
+        {
+            Assert.assertEquals(numThreads, map.get(key));
+        }
+        Assert.assertEquals(numKeys, map.size());
+        Assert.assertEquals(0, map.getEvictions());
+    }
+
+    /**
+     * Records the last crawl of a stream of domains of which only a sliding window was crawled within the maximum age
+     * and checks that the map only grows with the window and not with the number of domains ever seen. The number of
+     * domains can be set via the system property <em>timestampmap.keys</em>.
+     */
+    @Test
+    public void testMemoryIsBoundedByRecentEntries()
+    {
+        int numKeys = Integer.getInteger("timestampmap.keys", 2_000_000);
+        int window = 10_000;
+        TimestampMap map = new TimestampMap(1024, window);
+        long start = System.nanoTime();
+        for (int i = 1; i <= numKeys; i++)
+        {
+            // every key is crawled once per time unit, so only the last window of keys is recent
+            long key = i * 0x9E3779B97F4A7C15L;
+            map.compareAndSet(key, 0, i);
+        }
+        long nanos = System.nanoTime() - start;
+        LOG.info("{} keys in a window of {}: {} slots ({} bytes), {} used, {} evicted - {} ns per update", numKeys,
+                 window, map.capacity(), map.capacity() * 16L, map.size(), map.getEvictions(), nanos / numKeys);
+
+        Assert.assertTrue(map.capacity() <= 8 * window);
+        Assert.assertTrue(map.size() >= window);
+        Assert.assertEquals(numKeys, map.size() + map.getEvictions());
+        Assert.assertEquals(numKeys, map.get(numKeys * 0x9E3779B97F4A7C15L));
+    }
+}
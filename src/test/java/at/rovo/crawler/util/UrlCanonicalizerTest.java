@@ -0,0 +1,148 @@
+package at.rovo.crawler.util;
+
+import at.rovo.common.UnitTest;
+import java.lang.invoke.MethodHandles;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Category(UnitTest.class)
+public class UrlCanonicalizerTest
+{
+    /** The logger of this class **/
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    /** The base URL of the examples of RFC 3986 section 5.4 **/
+    private final static String BASE = "http://a/b/c/d;p?q";
+
+    /** Links found on the pages of a small sample crawl of a single site **/
+    private final static String[][] SAMPLE_LINKS = {
+            {"http://www.example.com/", "/", "index.html", "./index.html", "#content", "/news/", "news/",
+             "/news/../news/", "HTTP://WWW.EXAMPLE.COM:80/", "http://www.example.com", "/about%20us.html",
+             "/about us.html", "/%7Euser/", "/~user/", "/products/?id=1", "/products/?id=1#reviews",
+             "http://www.Example.com/products/?id=1", "/contact.html", "./contact.html#form"},
+            {"http://www.example.com/news/", "../", "../index.html", "./", "2014/", "./2014/", "2014/#top",
+             "/news/2014/", "../about%20us.html", "http://www.example.com:80/news/2014/", "../%7Euser/",
+             "/products/?id=1", "../products/./?id=1", "../contact.html", "https://www.example.com:443/login"},
+            {"http://www.example.com/news/2014/", "../../", "../", ".", "./#archive", "../../contact.html",
+             "/./contact.html", "/news/2014/../../contact.html", "HTTPS://www.example.com/login", "/login",
+             "../../products/?id=%31", "../../products/?id=1"}};
+
+    @Test
+    public void testRfc3986NormalExamples()
+    {
+        UrlCanonicalizer resolver = new UrlCanonicalizer(EnumSet.noneOf(UrlCanonicalizer.Normalization.class));
+
+        Assert.assertNull(resolver.resolve(BASE, "g:h"));
+        Assert.assertEquals("http://a/b/c/g", resolver.resolve(BASE, "g"));
+        Assert.assertEquals("http://a/b/c/g", resolver.resolve(BASE, "./g"));
+        Assert.assertEquals("http://a/b/c/g/", resolver.resolve(BASE, "g/"));
+        Assert.assertEquals("http://a/g", resolver.resolve(BASE, "/g"));
+        Assert.assertEquals("http://g", resolver.resolve(BASE, "//g"));
+        Assert.assertEquals("http://a/b/c/d;p?y", resolver.resolve(BASE, "?y"));
+        Assert.assertEquals("http://a/b/c/g?y", resolver.resolve(BASE, "g?y"));
+        Assert.assertEquals("http://a/b/c/d;p?q#s", resolver.resolve(BASE, "#s"));
+        Assert.assertEquals("http://a/b/c/g#s", resolver.resolve(BASE, "g#s"));
+        Assert.assertEquals("http://a/b/c/g?y#s", resolver.resolve(BASE, "g?y#s"));
+        Assert.assertEquals("http://a/b/c/;x", resolver.resolve(BASE, ";x"));
+        Assert.assertEquals("http://a/b/c/g;x", resolver.resolve(BASE, "g;x"));
+        Assert.assertEquals("http://a/b/c/g;x?y#s", resolver.resolve(BASE, "g;x?y#s"));
+        Assert.assertEquals("http://a/b/c/d;p?q", resolver.resolve(BASE, ""));
+        Assert.assertEquals("http://a/b/c/", resolver.resolve(BASE, "."));
+        Assert.assertEquals("http://a/b/c/", resolver.resolve(BASE, "./"));
+        Assert.assertEquals("http://a/b/", resolver.resolve(BASE, ".."));
+        Assert.assertEquals("http://a/b/", resolver.resolve(BASE, "../"));
+        Assert.assertEquals("http://a/b/g", resolver.resolve(BASE, "../g"));
+        Assert.assertEquals("http://a/", resolver.resolve(BASE, "../.."));
+        Assert.assertEquals("http://a/", resolver.resolve(BASE, "../../"));
+        Assert.assertEquals("http://a/g", resolver.resolve(BASE, "../../g"));
+    }
+
+    @Test
+    public void testRfc3986AbnormalExamples()
+    {
+        UrlCanonicalizer resolver = new UrlCanonicalizer(EnumSet.noneOf(UrlCanonicalizer.Normalization.class));
+
+        Assert.assertEquals("http://a/g", resolver.resolve(BASE, "../../../g"));
+        Assert.assertEquals("http://a/g", resolver.resolve(BASE, "../../../../g"));
+        Assert.assertEquals("http://a/g", resolver.resolve(BASE, "/./g"));
+        Assert.assertEquals("http://a/g", resolver.resolve(BASE, "/../g"));
+        Assert.assertEquals("http://a/b/c/g.", resolver.resolve(BASE, "g."));
+        Assert.assertEquals("http://a/b/c/.g", resolver.resolve(BASE, ".g"));
+        Assert.assertEquals("http://a/b/c/g..", resolver.resolve(BASE, "g.."));
+        Assert.assertEquals("http://a/b/c/..g", resolver.resolve(BASE, "..g"));
+        Assert.assertEquals("http://a/b/g", resolver.resolve(BASE, "./../g"));
+        Assert.assertEquals("http://a/b/c/g/", resolver.resolve(BASE, "./g/."));
+        Assert.assertEquals("http://a/b/c/g/h", resolver.resolve(BASE, "g/./h"));
+        Assert.assertEquals("http://a/b/c/h", resolver.resolve(BASE, "g/../h"));
+        Assert.assertEquals("http://a/b/c/g;x=1/y", resolver.resolve(BASE, "g;x=1/./y"));
+        Assert.assertEquals("http://a/b/c/y", resolver.resolve(BASE, "g;x=1/../y"));
+        Assert.assertEquals("http://a/b/c/g?y/./x", resolver.resolve(BASE, "g?y/./x"));
+        Assert.assertEquals("http://a/b/c/g?y/../x", resolver.resolve(BASE, "g?y/../x"));
+        Assert.assertEquals("http://a/b/c/g#s/./x", resolver.resolve(BASE, "g#s/./x"));
+        Assert.assertEquals("http://a/b/c/g#s/../x", resolver.resolve(BASE, "g#s/../x"));
+        // a strict parser treats "http:g" as absolute URL, which has no host
+        Assert.assertNull(resolver.resolve(BASE, "http:g"));
+    }
+
+    @Test
+    public void testDefaultNormalizations()
+    {
+        UrlCanonicalizer canonicalizer = UrlCanonicalizer.getDefault();
+
+        Assert.assertEquals("http://www.example.com/", canonicalizer.canonicalize("HTTP://WWW.Example.COM"));
+        Assert.assertEquals("http://www.example.com/a", canonicalizer.canonicalize("http://www.example.com:80/a"));
+        Assert.assertEquals("https://www.example.com/a", canonicalizer.canonicalize("https://www.example.com:443/a"));
+        Assert.assertEquals("http://www.example.com:8080/a",
+                            canonicalizer.canonicalize("http://www.example.com:8080/a"));
+        Assert.assertEquals("http://www.example.com/~user/a%2Fb",
+                            canonicalizer.canonicalize("http://www.example.com/%7euser/a%2fb"));
+        Assert.assertEquals("http://www.example.com/a%20b/%C3%BC", canonicalizer.canonicalize(
+                "http://www.example.com/a b/\u00fc"));
+        Assert.assertEquals("http://www.example.com/100%25", canonicalizer.canonicalize("http://www.example.com/100%"));
+        Assert.assertEquals("http://www.example.com/b", canonicalizer.canonicalize("http://www.example.com/a/%2E%2E/b"));
+        Assert.assertEquals("http://www.example.com/a?", canonicalizer.canonicalize("http://www.example.com/a?#top"));
+        Assert.assertEquals("http://user@www.example.com/", canonicalizer.canonicalize("http://user@WWW.example.com"));
+        Assert.assertNull(canonicalizer.canonicalize("mailto:someone@example.com"));
+        Assert.assertNull(canonicalizer.resolve("http://www.example.com/", "javascript:void(0)"));
+        Assert.assertNull(canonicalizer.canonicalize("/relative/path"));
+        Assert.assertNull(canonicalizer.canonicalize("http:///path"));
+        Assert.assertNull(canonicalizer.canonicalize("http://www.example.com:99999/"));
+
+        UrlCanonicalizer strict = new UrlCanonicalizer(EnumSet.allOf(UrlCanonicalizer.Normalization.class));
+        Assert.assertEquals("http://www.example.com/a", strict.canonicalize("http://www.example.com/a?#top"));
+    }
+
+    /**
+     * Resolves the links of a small sample crawl once with RFC 3986 resolution only and once with the default
+     * normalizations applied and logs the number of distinct URLs which would reach URLseen.
+     */
+    @Test
+    public void testDuplicateReductionOnSampleCrawl()
+    {
+        UrlCanonicalizer resolver = new UrlCanonicalizer(EnumSet.noneOf(UrlCanonicalizer.Normalization.class));
+        UrlCanonicalizer canonicalizer = UrlCanonicalizer.getDefault();
+        Set<String> resolved = new HashSet<>();
+        Set<String> canonical = new HashSet<>();
+        int links = 0;
+        for (String[] page : SAMPLE_LINKS)
+        {
+            for (int i = 1; i < page.length; i++)
+            {
+                links++;
+                resolved.add(resolver.resolve(page[0], page[i]));
+                canonical.add(canonicalizer.resolve(page[0], page[i]));
+            }
+        }
+        LOG.info("{} links resolved to {} distinct URLs, {} distinct URLs after canonicalization ({}% fewer)", links,
+                 resolved.size(), canonical.size(), 100 - canonical.size() * 100 / resolved.size());
+
+        Assert.assertEquals(23, resolved.size());
+        Assert.assertEquals(10, canonical.size());
+    }
+}
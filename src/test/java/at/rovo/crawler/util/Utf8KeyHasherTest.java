@@ -0,0 +1,97 @@
+package at.rovo.crawler.util;
+
+import at.rovo.common.UnitTest;
+import at.rovo.crawler.interfaces.KeyHasher;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Category(UnitTest.class)
+public class Utf8KeyHasherTest
+{
+    /** The logger of this class **/
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final static String[] SAMPLES = {"", "a", "http://www.example.com/", "http://www.example.com/index.html",
+                                             "http://www.example.com/caf\u00e9?q=\u00fcber", "http://\u4f8b\u3048.jp/",
+                                             "http://example.com/\ud83d\ude00/", "broken \ud83d surrogate",
+                                             "http://www.example.com/a/very/long/path/which/spans/several/words/"};
+
+    private final Utf8KeyHasher hasher = new Utf8KeyHasher();
+
+    @Test
+    public void testHashEqualsHashOfUtf8Bytes()
+    {
+        for (String sample : SAMPLES)
+        {
+            byte[] bytes = sample.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(sample, this.hasher.hash(bytes, 0, bytes.length), this.hasher.hash(sample));
+        }
+    }
+
+    @Test
+    public void testHashOfRange()
+    {
+        StringBuilder url = new StringBuilder("http://www.example.com/index.html");
+
+        Assert.assertEquals(this.hasher.hash("www.example.com"), this.hasher.hash(url, 7, 22));
+        Assert.assertNotEquals(this.hasher.hash("www.example.com"), this.hasher.hash("www.example.com/"));
+        Assert.assertNotEquals(this.hasher.hash("a"), new Utf8KeyHasher(1L).hash("a"));
+    }
+
+    @Test
+    public void testDefaultStrategy()
+    {
+        Assert.assertTrue(KeyHasher.getDefault() instanceof Utf8KeyHasher);
+        Assert.assertEquals(this.hasher.hash("http://example.com"), KeyHasher.getDefault().hash("http://example.com"));
+    }
+
+    /**
+     * Hashes synthetic URLs and counts the keys which are produced by more than one URL. The number of URLs defaults
+     * to 100 thousand and can be raised via the system property <em>keyhasher.collision.urls</em>, f.e. to 100 million
+     * which requires about 1 GB of heap. With 64 bit keys less than one collision is expected even for 100 million
+     * URLs.
+     */
+    @Test
+    public void testCollisionsOfSyntheticUrls()
+    {
+        int numUrls = Integer.getInteger("keyhasher.collision.urls", 100_000);
+        long[] keys = new long[numUrls];
+        StringBuilder url = new StringBuilder(80);
+        for (int i = 0; i < numUrls; i++)
+        {
+            syntheticUrl(url, i);
+            keys[i] = this.hasher.hash(url);
+        }
+        Arrays.sort(keys);
+        int collisions = 0;
+        for (int i = 1; i < numUrls; i++)
+        {
+            if (keys[i] == keys[i - 1])
+            {
+                collisions++;
+            }
+        }
+        LOG.info("{} collisions among {} synthetic URLs", collisions, numUrls);
+        Assert.assertEquals(0, collisions);
+    }
+
+    /**
+     * Writes a URL which resembles crawled URLs: a limited set of hosts with varying paths and query parameters.
+     */
+    private static void syntheticUrl(StringBuilder url, int i)
+    {
+        url.setLength(0);
+        url.append(i % 3 == 0 ? "https://" : "http://").append("www.host").append(i % 100_003).append(".com/");
+        url.append("section").append(i % 97).append("/page-").append(i);
+        if (i % 5 == 0)
+        {
+            url.append("?id=").append(i / 5).append("&lang=en");
+        }
+    }
+}
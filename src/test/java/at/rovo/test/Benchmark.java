@@ -0,0 +1,13 @@
+package at.rovo.test;
+
+/**
+ * The category of throughput measurements, which only log the measured values and do not fail on slow execution. They
+ * are excluded from regular test runs and executed via the <em>benchmark</em> profile, f.e. <code>mvn test
+ * -Pbenchmark</code>.
+ *
+ * @author Roman Vottner
+ */
+public interface Benchmark
+{
+
+}